@@ -69,6 +69,8 @@ public class Activator implements BundleActivator {
 	}
 
 	@Override
-	public void stop(final BundleContext context) throws Exception {}
+	public void stop(final BundleContext context) throws Exception {
+		SqlUtils.closeSharedConnectionObjects();
+	}
 
 }
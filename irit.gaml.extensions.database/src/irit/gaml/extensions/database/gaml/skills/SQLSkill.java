@@ -17,6 +17,7 @@ import java.text.SimpleDateFormat;
 import java.util.Calendar;
 
 import irit.gaml.extensions.database.utils.sql.SqlConnection;
+import irit.gaml.extensions.database.utils.sql.SqlCursor;
 import irit.gaml.extensions.database.utils.sql.SqlUtils;
 import msi.gama.precompiler.GamlAnnotations.action;
 import msi.gama.precompiler.GamlAnnotations.arg;
@@ -25,6 +26,7 @@ import msi.gama.precompiler.GamlAnnotations.skill;
 import msi.gama.precompiler.IConcept;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.GamaListFactory;
 import msi.gama.util.IList;
 import msi.gama.util.matrix.GamaObjectMatrix;
 import msi.gama.util.matrix.IMatrix;
@@ -211,7 +213,8 @@ public class SQLSkill extends Skill {
 		final String updateComm = (String) scope.getArg("updateComm", IType.STRING);
 		final IList<Object> values = (IList<Object>) scope.getArg("values", IType.LIST);
 		int row_count = -1;
-		try (final SqlConnection sqlConn = SqlUtils.createConnectionObject(scope); ) {
+		try {
+			final SqlConnection sqlConn = SqlUtils.getSharedConnectionObject(scope);
 			if (values.size() > 0) {
 				row_count = sqlConn.executeUpdateDB(scope, updateComm, values);
 			} else {
@@ -272,7 +275,8 @@ public class SQLSkill extends Skill {
 		final IList<Object> cols = (IList<Object>) scope.getArg("columns", IType.LIST);
 		final IList<Object> values = (IList<Object>) scope.getArg("values", IType.LIST);
 		int rec_no = -1;
-		try (final SqlConnection sqlConn = SqlUtils.createConnectionObject(scope); ) {
+		try {
+			final SqlConnection sqlConn = SqlUtils.getSharedConnectionObject(scope);
 			if (cols.size() > 0) {
 				rec_no = sqlConn.insertDB(scope, table_name, cols, values);
 			} else {
@@ -288,6 +292,75 @@ public class SQLSkill extends Skill {
 		// ------------------------------------------------------------------------------------------
 	}
 
+	/**
+	 * Insert batch.
+	 *
+	 * @param scope the scope
+	 * @return the int
+	 * @throws GamaRuntimeException the gama runtime exception
+	 */
+	/*
+	 * Make a connection to BDMS and insert several rows with one prepared statement, sent by batches
+	 *
+	 * @syntax do insertBatch with: [into:: table_name, columns:column_list, values:list_of_value_lists];
+	 *
+	 * @return an integer
+	 */
+	@action (
+			name = "insertBatch",
+			args = { @arg (
+					name = "params",
+					type = IType.MAP,
+					optional = false,
+					doc = @doc ("Connection parameters")),
+					@arg (
+							name = "into",
+							type = IType.STRING,
+							optional = false,
+							doc = @doc ("Table name")),
+					@arg (
+							name = "columns",
+							type = IType.LIST,
+							optional = true,
+							doc = @doc ("List of column name of table")),
+					@arg (
+							name = "values",
+							type = IType.LIST,
+							optional = false,
+							doc = @doc ("List of rows to insert into table. Each row is a list of values, of the same size as columns")),
+					@arg (
+							name = "batchSize",
+							type = IType.INT,
+							optional = true,
+							doc = @doc ("Number of rows sent to the database at once. Default is 1000")),
+					@arg (
+							name = "transaction",
+							type = IType.BOOL,
+							optional = true,
+							doc = @doc ("If true (default), all the rows are inserted in one transaction, which is rolled back in case of error. Otherwise, each batch is committed separately"))
+			})
+	public int insertBatch(final IScope scope) throws GamaRuntimeException {
+
+		final String table_name = (String) scope.getArg("into", IType.STRING);
+		final IList<Object> cols =
+				scope.hasArg("columns") ? (IList<Object>) scope.getArg("columns", IType.LIST) : GamaListFactory.create();
+		final IList<IList<Object>> rows = (IList<IList<Object>>) scope.getArg("values", IType.LIST);
+		final int batchSize = scope.hasArg("batchSize") ? scope.getIntArg("batchSize") : 1000;
+		final boolean transaction = scope.hasArg("transaction") ? scope.getBoolArg("transaction") : true;
+		if (batchSize <= 0) throw GamaRuntimeException.error("SQLSkill.insertBatch: batchSize must be positive", scope);
+		final int rec_no;
+		try {
+			final SqlConnection sqlConn = SqlUtils.getSharedConnectionObject(scope);
+			rec_no = sqlConn.insertBatchDB(scope, table_name, cols, rows, batchSize, transaction);
+		} catch (final Exception e) {
+			e.printStackTrace();
+			throw GamaRuntimeException.error("SQLSkill.insertBatch: " + e.toString(), scope);
+		}
+		DEBUG.OUT("Insert of " + rec_no + " rows into " + table_name + " was run");
+
+		return rec_no;
+	}
+
 	/**
 	 * Select QM.
 	 *
@@ -328,7 +401,8 @@ public class SQLSkill extends Skill {
 		final IList<Object> values = (IList<Object>) scope.getArg("values", IType.LIST);
 
 		IList<? super IList<Object>> repRequest;
-		try (final SqlConnection sqlConn = SqlUtils.createConnectionObject(scope); ) {
+		try {
+			final SqlConnection sqlConn = SqlUtils.getSharedConnectionObject(scope);
 			if (values.size() > 0) {
 				repRequest = sqlConn.executeQueryDB(scope, selectComm, values);
 			} else {
@@ -344,6 +418,61 @@ public class SQLSkill extends Skill {
 
 	}
 
+	/**
+	 * Select stream.
+	 *
+	 * @param scope the scope
+	 * @return the i list
+	 * @throws GamaRuntimeException the gama runtime exception
+	 */
+	/*
+	 * Make a connection to BDMS and execute the select statement, without loading its results
+	 *
+	 * @syntax create species from: selectStream(params: params, select: "select string with question marks", values:
+	 * [...]) with: [...];
+	 *
+	 * @return a list made of the column names, the column types and a cursor on the rows, which are fetched from the
+	 * database as they are read
+	 */
+	@action (
+			name = "selectStream",
+			args = { @arg (
+					name = "params",
+					type = IType.MAP,
+					optional = false,
+					doc = @doc ("Connection parameters")),
+					@arg (
+							name = "select",
+							type = IType.STRING,
+							optional = false,
+							doc = @doc ("select string with question marks")),
+					@arg (
+							name = "values",
+							type = IType.LIST,
+							optional = true,
+							doc = @doc ("List of values that are used to replace question marks")),
+					@arg (
+							name = "fetchSize",
+							type = IType.INT,
+							optional = true,
+							doc = @doc ("Number of rows fetched from the database at once. Default is 1000"))
+			},
+			doc = @doc ("Returns a list made of the column names, the column types and a cursor on the rows, which can be used as the source of a create statement. The rows are fetched from the database as the agents are created, instead of being loaded at once"))
+	public IList selectStream(final IScope scope) throws GamaRuntimeException {
+
+		final String selectComm = (String) scope.getArg("select", IType.STRING);
+		final IList<Object> values =
+				scope.hasArg("values") ? (IList<Object>) scope.getArg("values", IType.LIST) : GamaListFactory.create();
+		final int fetchSize = scope.hasArg("fetchSize") ? scope.getIntArg("fetchSize") : 1000;
+		final SqlConnection sqlConn = SqlUtils.getSharedConnectionObject(scope);
+		final SqlCursor cursor = sqlConn.openCursor(scope, selectComm, values, fetchSize);
+		final IList result = GamaListFactory.create();
+		result.add(cursor.getColumnNames());
+		result.add(cursor.getColumnTypes());
+		result.add(cursor);
+		return result;
+	}
+
 	/**
 	 * List 2 matrix.
 	 *
@@ -16,6 +16,7 @@ import java.util.Map;
 import org.locationtech.jts.geom.Geometry;
 
 import irit.gaml.extensions.database.utils.sql.SqlConnection;
+import irit.gaml.extensions.database.utils.sql.SqlCursor;
 import msi.gama.common.interfaces.ICreateDelegate;
 import msi.gama.metamodel.shape.GamaShape;
 import msi.gama.runtime.IScope;
@@ -65,6 +66,17 @@ public class CreateFromDatabaseDelegate implements ICreateDelegate {
 		final IList<Object> colNames = input.get(0);
 		// get Column type
 		final IList<Object> colTypes = input.get(1);
+		// A cursor (returned by selectStream): the rows are fetched as they are read, and only the ones needed
+		if (input.get(2) instanceof SqlCursor) {
+			try (SqlCursor cursor = (SqlCursor) input.get(2)) {
+				for (int i = 0; (max == null || i < max) && cursor.hasNext(); i++) {
+					final Map map = GamaMapFactory.create(Types.NO_TYPE, Types.NO_TYPE);
+					computeInits(scope, map, cursor.next(), colTypes, colNames, init);
+					inits.add(map);
+				}
+			}
+			return true;
+		}
 		// Get ResultSet
 		final IList<IList<Object>> initValue = (IList) input.get(2);
 		// set initialValues to generate species
@@ -10,21 +10,31 @@
  ********************************************************************************************************/
 package irit.gaml.extensions.database.utils.sql;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.opengis.referencing.FactoryException;
 
 import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKTReader;
 
 import msi.gama.common.geometry.Envelope3D;
 import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.metamodel.shape.IShape;
 import msi.gama.metamodel.topology.projection.IProjection;
 import msi.gama.metamodel.topology.projection.Projection;
 import msi.gama.runtime.IScope;
@@ -124,6 +134,15 @@ public abstract class SqlConnection implements AutoCloseable {
 	// informations about GIS data
 	private Map<String, Object> params;
 
+	/** The maximum number of connections kept open. */
+	static final int MAX_IDLE_CONNECTIONS = 4;
+
+	/** The connections kept open, to be reused. */
+	private final Deque<Connection> idleConnections = new ArrayDeque<>();
+
+	/** The cursors opened and not closed yet, which hold a connection each. */
+	private final Set<SqlCursor> openCursors = new HashSet<>();
+
 	/**
 	 * Sets the gis.
 	 *
@@ -401,7 +420,7 @@ public abstract class SqlConnection implements AutoCloseable {
 	 * @return IList<IList<Object>>
 	 */
 	public IList<? super IList<? super IList>> selectDB(final IScope scope, final String selectComm) {
-		try (Connection conn = connectDB();) {
+		try (Connection conn = borrowConnection();) {
 			return selectDB(scope, conn, selectComm);
 		} catch (final Exception e) {
 			throw GamaRuntimeException.error("SQLConnection.selectDB: " + e.toString(), scope);
@@ -512,7 +531,7 @@ public abstract class SqlConnection implements AutoCloseable {
 	public int executeUpdateDB(final IScope scope, final String updateComm) throws GamaRuntimeException {
 
 		int n = 0;
-		try (Connection conn = connectDB(); final Statement st = conn.createStatement();) {
+		try (Connection conn = borrowConnection(); final Statement st = conn.createStatement();) {
 
 			n = st.executeUpdate(updateComm);
 
@@ -739,7 +758,7 @@ public abstract class SqlConnection implements AutoCloseable {
 	public int insertDB(final IScope scope, final String table_name, final IList<Object> cols,
 			final IList<Object> values) throws GamaRuntimeException {
 		int rec_no = -1;
-		try (Connection conn = connectDB();) {
+		try (Connection conn = borrowConnection();) {
 			rec_no = insertDB(scope, conn, table_name, cols, values);
 		} catch (final Exception e) {
 			throw GamaRuntimeException.error("SQLConnection.insertBD " + e.toString(), scope);
@@ -795,7 +814,7 @@ public abstract class SqlConnection implements AutoCloseable {
 	public int insertDB(final IScope scope, final String table_name, final IList<Object> values)
 			throws GamaRuntimeException {
 		int rec_no = -1;
-		try (Connection conn = connectDB();) {
+		try (Connection conn = borrowConnection();) {
 			rec_no = insertDB(scope, conn, table_name, values);
 		} catch (final Exception e) {
 			throw GamaRuntimeException.error("SQLConnection.insertBD " + e.toString(), scope);
@@ -899,7 +918,7 @@ public abstract class SqlConnection implements AutoCloseable {
 	public IList<Object> executeQueryDB(final IScope scope, final String queryStr, final IList<Object> condition_values)
 			throws GamaRuntimeException {
 		IList<Object> result;
-		try (Connection conn = connectDB();) {
+		try (Connection conn = borrowConnection();) {
 			result = executeQueryDB(scope, conn, queryStr, condition_values);
 			// set value for each condition
 		} catch (final Exception e) {
@@ -980,7 +999,7 @@ public abstract class SqlConnection implements AutoCloseable {
 	public int executeUpdateDB(final IScope scope, final String queryStr, final IList<Object> condition_values)
 			throws GamaRuntimeException {
 		int row_count = -1;
-		try (Connection conn = connectDB();) {
+		try (Connection conn = borrowConnection();) {
 			row_count = executeUpdateDB(scope, conn, queryStr, condition_values);
 
 			// set value for each condition
@@ -992,6 +1011,316 @@ public abstract class SqlConnection implements AutoCloseable {
 		return row_count;
 	}
 
+	/**
+	 * Borrows a connection from the connections kept open by this object, or opens a new one. Closing the returned
+	 * connection gives it back instead of closing it, so that it can be used with try-with-resources like the
+	 * connections returned by {@link #connectDB()}.
+	 *
+	 * @return the connection
+	 * @throws ClassNotFoundException the class not found exception
+	 * @throws InstantiationException the instantiation exception
+	 * @throws SQLException the SQL exception
+	 * @throws IllegalAccessException the illegal access exception
+	 */
+	public Connection borrowConnection()
+			throws ClassNotFoundException, InstantiationException, SQLException, IllegalAccessException {
+		Connection conn = null;
+		synchronized (idleConnections) {
+			while (conn == null && !idleConnections.isEmpty()) {
+				conn = idleConnections.pop();
+				if (conn.isClosed()) { conn = null; }
+			}
+		}
+		if (conn == null) { conn = connectDB(); }
+		if (conn == null) throw new SQLException("Unable to connect to " + dbName);
+		final Connection target = conn;
+		return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[] { Connection.class },
+				(proxy, method, args) -> {
+					if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+						releaseConnection(target);
+						return null;
+					}
+					try {
+						return method.invoke(target, args);
+					} catch (final InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+	}
+
+	/**
+	 * Gives back a connection: it is kept open for the next calls, unless enough connections are already kept.
+	 *
+	 * @param conn the connection
+	 */
+	private void releaseConnection(final Connection conn) {
+		try {
+			if (conn.isClosed()) return;
+			if (!conn.getAutoCommit()) {
+				conn.rollback();
+				conn.setAutoCommit(true);
+			}
+			synchronized (idleConnections) {
+				if (idleConnections.size() < MAX_IDLE_CONNECTIONS) {
+					idleConnections.push(conn);
+					return;
+				}
+			}
+			conn.close();
+		} catch (final SQLException e) {
+			DEBUG.OUT("SQLConnection.releaseConnection: " + e.toString());
+		}
+	}
+
+	/**
+	 * Closes the connections kept open by this object.
+	 */
+	public void closeIdleConnections() {
+		synchronized (idleConnections) {
+			for (final Connection conn : idleConnections) {
+				try {
+					conn.close();
+				} catch (final SQLException e) {}
+			}
+			idleConnections.clear();
+		}
+	}
+
+	/**
+	 * Closes the cursors that have not been consumed or closed, giving back their connections.
+	 */
+	public void closeOpenCursors() {
+		final List<SqlCursor> cursors;
+		synchronized (openCursors) {
+			cursors = new ArrayList<>(openCursors);
+		}
+		for (final SqlCursor cursor : cursors) { cursor.close(); }
+	}
+
+	/**
+	 * Forgets a cursor that has been closed.
+	 *
+	 * @param cursor the cursor
+	 */
+	void cursorClosed(final SqlCursor cursor) {
+		synchronized (openCursors) {
+			openCursors.remove(cursor);
+		}
+	}
+
+	/**
+	 * Gets the SQL function used to convert a WKT string into a geometry when inserting values.
+	 *
+	 * @return the name of the function, or null if the geometries are inserted as strings
+	 */
+	protected String getGeometryFunction() {
+		return null;
+	}
+
+	/**
+	 * Reads the value of a column of the current row of a result set.
+	 *
+	 * @param rs the result set
+	 * @param column the column (starting at 1)
+	 * @param isGeometry whether the column contains geometries
+	 * @return the value
+	 * @throws Exception the exception
+	 */
+	protected Object readValue(final ResultSet rs, final int column, final boolean isGeometry) throws Exception {
+		return isGeometry ? SqlUtils.read(rs.getBytes(column)) : rs.getObject(column);
+	}
+
+	/**
+	 * Converts a GAMA value into the value of a parameter of a prepared insert statement.
+	 *
+	 * @param colType the type of the column
+	 * @param value the value
+	 * @param saveProj the projection used to save geometries, if they are transformed
+	 * @return the object
+	 * @throws ParseException the parse exception
+	 */
+	protected Object toSqlValue(final String colType, final Object value, final IProjection saveProj)
+			throws ParseException {
+		if (value == null) return null;
+		if (GEOMETRYTYPE.equalsIgnoreCase(colType) && getGeometryFunction() != null) {
+			Geometry geo = value instanceof IShape ? ((IShape) value).getInnerGeometry()
+					: value instanceof Geometry ? (Geometry) value : new WKTReader().read(value.toString());
+			if (saveProj != null) { geo = saveProj.inverseTransform(geo); }
+			return geo.toText();
+		}
+		if (value instanceof Number || value instanceof Boolean || value instanceof String) return value;
+		return value.toString();
+	}
+
+	/**
+	 * Inserts rows in a table with a prepared statement, executed by batches.
+	 *
+	 * @param scope the scope
+	 * @param conn the connection
+	 * @param table_name the table name
+	 * @param cols the columns (if empty, all the columns of the table, in their order)
+	 * @param rows the rows, each being the list of the values of the columns
+	 * @param batchSize the number of rows sent to the database at once
+	 * @param transaction if true, all the rows are inserted in one transaction (and none is inserted if one fails);
+	 *            otherwise each batch is committed separately
+	 * @return the number of rows inserted
+	 * @throws GamaRuntimeException the gama runtime exception
+	 */
+	public int insertBatchDB(final IScope scope, final Connection conn, final String table_name,
+			final IList<Object> cols, final IList<? extends List<Object>> rows, final int batchSize,
+			final boolean transaction) throws GamaRuntimeException {
+		if (rows.isEmpty()) return 0;
+		int rec_no = 0;
+		try {
+			// The names and types of the columns are read once for all the rows
+			final StringBuilder colStr = new StringBuilder(cols.isEmpty() ? "*" : "");
+			for (int i = 0; i < cols.size(); i++) { colStr.append(i == 0 ? "" : ",").append(cols.get(i)); }
+			IList<Object> col_Names;
+			IList<Object> col_Types;
+			try (final Statement st = conn.createStatement();
+					ResultSet rs = st.executeQuery("SELECT " + colStr + " FROM " + table_name + " LIMIT 1")) {
+				final ResultSetMetaData rsmd = rs.getMetaData();
+				col_Names = getColumnName(rsmd);
+				col_Types = getColumnTypeName(rsmd);
+			}
+			final int col_no = col_Names.size();
+			final StringBuilder insertStr = new StringBuilder("INSERT INTO ").append(table_name).append("(");
+			final StringBuilder valueStr = new StringBuilder();
+			for (int i = 0; i < col_no; i++) {
+				if (i > 0) {
+					insertStr.append(",");
+					valueStr.append(",");
+				}
+				insertStr.append(col_Names.get(i));
+				final String function = GEOMETRYTYPE.equalsIgnoreCase((String) col_Types.get(i)) ? getGeometryFunction() : null;
+				valueStr.append(function == null ? "?" : function + "(?)");
+			}
+			insertStr.append(") VALUES(").append(valueStr).append(")");
+			if (DEBUG.IS_ON()) { DEBUG.OUT("SQLConnection.insertBatchDB:" + insertStr); }
+			final IProjection saveProj =
+					transformed && col_Types.contains(GEOMETRYTYPE) && getGeometryFunction() != null
+							? getSavingGisProjection(scope) : null;
+
+			final boolean autoCommit = conn.getAutoCommit();
+			conn.setAutoCommit(false);
+			try (final PreparedStatement pstmt = conn.prepareStatement(insertStr.toString())) {
+				int pending = 0;
+				for (final List<Object> row : rows) {
+					if (row.size() != col_no)
+						throw new IndexOutOfBoundsException("Size of columns list and values list are not equal");
+					for (int i = 0; i < col_no; i++) {
+						pstmt.setObject(i + 1, toSqlValue((String) col_Types.get(i), row.get(i), saveProj));
+					}
+					pstmt.addBatch();
+					if (++pending == batchSize) {
+						rec_no += count(pstmt.executeBatch());
+						pending = 0;
+						if (!transaction) { conn.commit(); }
+					}
+				}
+				if (pending > 0) { rec_no += count(pstmt.executeBatch()); }
+				conn.commit();
+			} catch (final SQLException | ParseException | RuntimeException e) {
+				conn.rollback();
+				throw e;
+			} finally {
+				conn.setAutoCommit(autoCommit);
+			}
+		} catch (final SQLException | ParseException e) {
+			throw GamaRuntimeException.error("SQLConnection.insertBatchDB " + e.toString(), scope);
+		}
+		return rec_no;
+	}
+
+	/**
+	 * Counts the rows affected by a batch.
+	 *
+	 * @param results the results of the batch
+	 * @return the number of rows
+	 */
+	private static int count(final int[] results) {
+		int n = 0;
+		// Drivers may only report that the statements succeeded
+		for (final int r : results) { n += r == Statement.SUCCESS_NO_INFO ? 1 : Math.max(r, 0); }
+		return n;
+	}
+
+	/**
+	 * Inserts rows in a table with a prepared statement, executed by batches, using a connection borrowed from this
+	 * object.
+	 *
+	 * @param scope the scope
+	 * @param table_name the table name
+	 * @param cols the columns
+	 * @param rows the rows
+	 * @param batchSize the batch size
+	 * @param transaction whether all the rows are inserted in one transaction
+	 * @return the number of rows inserted
+	 * @throws GamaRuntimeException the gama runtime exception
+	 */
+	public int insertBatchDB(final IScope scope, final String table_name, final IList<Object> cols,
+			final IList<? extends List<Object>> rows, final int batchSize, final boolean transaction)
+			throws GamaRuntimeException {
+		try (Connection conn = borrowConnection();) {
+			return insertBatchDB(scope, conn, table_name, cols, rows, batchSize, transaction);
+		} catch (final GamaRuntimeException e) {
+			throw e;
+		} catch (final Exception e) {
+			throw GamaRuntimeException.error("SQLConnection.insertBatchDB " + e.toString(), scope);
+		}
+	}
+
+	/**
+	 * Executes a query and returns a cursor on its results, which are read from the database as they are consumed
+	 * instead of being loaded at once. The cursor keeps a connection until it is closed, or until this object is
+	 * closed by {@link SqlUtils} if it is shared.
+	 *
+	 * @param scope the scope
+	 * @param queryStr the query, with question marks
+	 * @param condition_values the values that replace the question marks
+	 * @param fetchSize the number of rows fetched at once from the database
+	 * @return the cursor
+	 * @throws GamaRuntimeException the gama runtime exception
+	 */
+	public SqlCursor openCursor(final IScope scope, final String queryStr, final IList<Object> condition_values,
+			final int fetchSize) throws GamaRuntimeException {
+		Connection conn = null;
+		try {
+			conn = borrowConnection();
+			// Most drivers (e.g. Postgres) only stream the results outside of the auto-commit mode
+			conn.setAutoCommit(false);
+			final PreparedStatement pstmt = conn.prepareStatement(queryStr, ResultSet.TYPE_FORWARD_ONLY,
+					ResultSet.CONCUR_READ_ONLY);
+			pstmt.setFetchSize(fetchSize);
+			if (condition_values != null) {
+				for (int i = 0; i < condition_values.size(); i++) { pstmt.setObject(i + 1, condition_values.get(i)); }
+			}
+			final ResultSet rs = pstmt.executeQuery();
+			final ResultSetMetaData rsmd = rs.getMetaData();
+			final IList<Object> columns = getColumnTypeName(rsmd);
+			IProjection proj = null;
+			if (columns.contains(GEOMETRYTYPE) && transformed) {
+				proj = scope.getSimulation().getProjectionFactory().getWorld();
+				if (proj != null) {
+					final Envelope3D env = scope.getSimulation().getEnvelope();
+					proj = scope.getSimulation().getProjectionFactory().fromParams(scope, params, env);
+				}
+			}
+			final SqlCursor cursor = new SqlCursor(this, conn, pstmt, rs, getColumnName(rsmd), columns, proj);
+			synchronized (openCursors) {
+				openCursors.add(cursor);
+			}
+			return cursor;
+		} catch (final Exception e) {
+			if (conn != null) {
+				try {
+					conn.close();
+				} catch (final SQLException e1) {}
+			}
+			throw GamaRuntimeException.error("SQLConnection.openCursor: " + e.toString(), scope);
+		}
+	}
+
 	/**
 	 * Sets the transformed.
 	 *
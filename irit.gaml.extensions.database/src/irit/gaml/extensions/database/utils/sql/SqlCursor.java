@@ -0,0 +1,157 @@
+/*******************************************************************************************************
+ *
+ * SqlCursor.java, in irit.gaml.extensions.database, is part of the source code of the GAMA modeling and simulation
+ * platform (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package irit.gaml.extensions.database.utils.sql;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.locationtech.jts.geom.Geometry;
+
+import msi.gama.metamodel.topology.projection.IProjection;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.IList;
+
+/**
+ * A cursor on the results of a query, returned by {@link SqlConnection#openCursor}. The rows are read from the
+ * database as they are consumed, so that large results do not have to be loaded at once. The cursor is closed (and its
+ * connection given back) when the last row has been read, when {@link #close()} is called, or when the experiment that
+ * opened it is disposed.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public class SqlCursor implements Iterator<IList<Object>>, AutoCloseable {
+
+	/** The sql connection. */
+	final SqlConnection sqlConn;
+
+	/** The connection. */
+	final Connection conn;
+
+	/** The statement. */
+	final Statement statement;
+
+	/** The result set. */
+	final ResultSet rs;
+
+	/** The names of the columns. */
+	final IList<Object> columnNames;
+
+	/** The types of the columns. */
+	final IList<Object> columnTypes;
+
+	/** Whether each column contains geometries. */
+	final boolean[] geometries;
+
+	/** The projection applied to the geometries, if any. */
+	final IProjection gis;
+
+	/** Whether the next row has been read, and whether there is one. */
+	boolean fetched, hasNext;
+
+	/** Whether the cursor is closed. */
+	boolean closed;
+
+	/**
+	 * Instantiates a new cursor.
+	 *
+	 * @param sqlConn the sql connection
+	 * @param conn the connection
+	 * @param statement the statement
+	 * @param rs the result set
+	 * @param columnNames the column names
+	 * @param columnTypes the column types
+	 * @param gis the projection applied to the geometries, if any
+	 */
+	SqlCursor(final SqlConnection sqlConn, final Connection conn, final Statement statement, final ResultSet rs,
+			final IList<Object> columnNames, final IList<Object> columnTypes, final IProjection gis) {
+		this.sqlConn = sqlConn;
+		this.conn = conn;
+		this.statement = statement;
+		this.rs = rs;
+		this.columnNames = columnNames;
+		this.columnTypes = columnTypes;
+		this.gis = gis;
+		geometries = new boolean[columnTypes.size()];
+		for (int i = 0; i < geometries.length; i++) {
+			geometries[i] = SqlConnection.GEOMETRYTYPE.equalsIgnoreCase((String) columnTypes.get(i));
+		}
+	}
+
+	/**
+	 * Gets the names of the columns.
+	 *
+	 * @return the column names
+	 */
+	public IList<Object> getColumnNames() { return columnNames; }
+
+	/**
+	 * Gets the types of the columns.
+	 *
+	 * @return the column types
+	 */
+	public IList<Object> getColumnTypes() { return columnTypes; }
+
+	@Override
+	public boolean hasNext() {
+		if (closed) return false;
+		if (!fetched) {
+			try {
+				hasNext = rs.next();
+			} catch (final SQLException e) {
+				close();
+				throw GamaRuntimeException.create(e, null);
+			}
+			fetched = true;
+			if (!hasNext) { close(); }
+		}
+		return hasNext;
+	}
+
+	@Override
+	public IList<Object> next() {
+		if (!hasNext()) throw new NoSuchElementException();
+		fetched = false;
+		final IList<Object> row = GamaListFactory.create();
+		try {
+			for (int j = 0; j < geometries.length; j++) {
+				Object value = sqlConn.readValue(rs, j + 1, geometries[j]);
+				if (geometries[j] && gis != null && value != null) { value = gis.transform((Geometry) value); }
+				row.add(value);
+			}
+		} catch (final Exception e) {
+			close();
+			throw GamaRuntimeException.create(e, null);
+		}
+		return row;
+	}
+
+	@Override
+	public void close() {
+		if (closed) return;
+		closed = true;
+		try {
+			rs.close();
+			statement.close();
+		} catch (final SQLException e) {} finally {
+			try {
+				conn.close();
+			} catch (final SQLException e) {}
+			sqlConn.cursorClosed(this);
+		}
+	}
+
+}
@@ -15,11 +15,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.io.ParseException;
 import org.locationtech.jts.io.WKBReader;
 
+import msi.gama.kernel.experiment.IExperimentAgent;
 import msi.gama.metamodel.topology.projection.IProjection;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
@@ -40,6 +42,102 @@ import ummisco.gama.dev.utils.DEBUG;
 public class SqlUtils {
 
 	public static Map<String,ISqlConnector> externalConnectors = new HashMap<>();
+
+	/**
+	 * The connection objects shared by the SQL actions of each experiment, indexed by all their connection parameters
+	 * (including the projection and transformation ones, so that a shared object is never modified).
+	 */
+	private static final Map<IExperimentAgent, Map<String, SqlConnection>> sharedConnections = new HashMap<>();
+
+	/**
+	 * Returns the connection object shared by all the actions of the experiment that use the same connection
+	 * parameters, so that they reuse its open connections (and, for Postgres and MySQL, its data store) instead of
+	 * connecting to the database at each call. The shared objects must not be closed by their users: they are closed,
+	 * with their open connections and cursors, when the experiment is disposed.
+	 *
+	 * @param scope the scope
+	 * @param params the params
+	 * @return the sql connection
+	 * @throws GamaRuntimeException the gama runtime exception
+	 */
+	public static SqlConnection getSharedConnectionObject(final IScope scope, final Map<String, Object> params)
+			throws GamaRuntimeException {
+		final String key = new TreeMap<>(params).toString();
+		final IExperimentAgent experiment = scope.getExperiment();
+		synchronized (sharedConnections) {
+			Map<String, SqlConnection> connections = sharedConnections.get(experiment);
+			if (connections == null) {
+				connections = new HashMap<>();
+				sharedConnections.put(experiment, connections);
+				if (experiment != null) {
+					experiment.postDisposeAction(s -> {
+						closeSharedConnectionObjects(experiment);
+						return null;
+					});
+				}
+			}
+			SqlConnection sqlConn = connections.get(key);
+			if (sqlConn == null) {
+				sqlConn = createConnectionObject(scope, params);
+				connections.put(key, sqlConn);
+			}
+			return sqlConn;
+		}
+	}
+
+	/**
+	 * Returns the shared connection object for the "params" argument of the current action.
+	 *
+	 * @param scope the scope
+	 * @return the sql connection
+	 * @throws GamaRuntimeException the gama runtime exception
+	 */
+	public static SqlConnection getSharedConnectionObject(final IScope scope) throws GamaRuntimeException {
+		final Map params = (Map) scope.getArg("params", IType.MAP);
+		return getSharedConnectionObject(scope, params);
+	}
+
+	/**
+	 * Closes the shared connection objects of an experiment.
+	 *
+	 * @param experiment the experiment
+	 */
+	static void closeSharedConnectionObjects(final IExperimentAgent experiment) {
+		final Map<String, SqlConnection> connections;
+		synchronized (sharedConnections) {
+			connections = sharedConnections.remove(experiment);
+		}
+		if (connections != null) { close(connections.values()); }
+	}
+
+	/**
+	 * Closes the shared connection objects of all the experiments.
+	 */
+	public static void closeSharedConnectionObjects() {
+		synchronized (sharedConnections) {
+			for (final Map<String, SqlConnection> connections : sharedConnections.values()) {
+				close(connections.values());
+			}
+			sharedConnections.clear();
+		}
+	}
+
+	/**
+	 * Closes connection objects, with their open cursors and connections.
+	 *
+	 * @param connections the connections
+	 */
+	private static void close(final Iterable<SqlConnection> connections) {
+		for (final SqlConnection sqlConn : connections) {
+			sqlConn.closeOpenCursors();
+			sqlConn.closeIdleConnections();
+			try {
+				sqlConn.close();
+			} catch (final Exception e) {
+				DEBUG.OUT("SqlUtils.closeSharedConnectionObjects: " + e.toString());
+			}
+		}
+	}
 	
 	/**
 	 * Creates the connection object.
@@ -84,7 +182,7 @@ public class SqlUtils {
 	 * @throws GamaRuntimeException the gama runtime exception
 	 */
 	public static SqlConnection createConnectionObject(final IScope scope) throws GamaRuntimeException {
-		final java.util.Map params = (java.util.Map) scope.getArg("params", IType.MAP);
+		final Map params = (Map) scope.getArg("params", IType.MAP);
 		return createConnectionObject(scope, params);
 	}
 
@@ -367,6 +367,16 @@ public class MySqlConnection extends SqlConnection {
 		return insertStr;
 	}
 
+	@Override
+	protected String getGeometryFunction() {
+		return WKT2GEO;
+	}
+
+	@Override
+	protected Object readValue(final ResultSet rs, final int column, final boolean isGeometry) throws Exception {
+		return isGeometry ? SqlUtils.InputStream2Geometry(rs.getBinaryStream(column)) : rs.getObject(column);
+	}
+
 	@Override
 	public void close() throws Exception {
 		dataStore.dispose();
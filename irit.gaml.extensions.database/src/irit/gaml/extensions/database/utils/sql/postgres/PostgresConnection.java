@@ -348,6 +348,11 @@ public class PostgresConnection extends SqlConnection {
 		return insertStr;
 	}
 	
+	@Override
+	protected String getGeometryFunction() {
+		return WKT2GEO;
+	}
+
 	@Override
 	public void close() throws Exception {
 		dataStore.dispose();
@@ -725,7 +725,8 @@ public class GamaPreferences {
 
 		/** The Constant CONSTANT_OPTIMIZATION. */
 		public static final Pref<Boolean> CONSTANT_OPTIMIZATION = create("pref_optimize_constant_expressions",
-				"Optimize constant expressions (experimental, performs a rebuild of models)", false, IType.BOOL, true)
+				"Optimize constant expressions, computing once per cycle the ones that depend on 'const' global variables (experimental, performs a rebuild of models)",
+				false, IType.BOOL, true)
 						.in(NAME, OPTIMIZATIONS).onChange(v -> {
 							try {
 								ResourcesPlugin.getWorkspace().build(IncrementalProjectBuilder.CLEAN_BUILD, null);
@@ -758,6 +759,31 @@ public class GamaPreferences {
 		// interfere.",
 		// true, IType.BOOL, true).in(NAME, OPTIMIZATIONS);
 
+		/** The Constant AGENT_SLOTS_OPTIMIZATION. */
+		public static final Pref<Boolean> AGENT_SLOTS_OPTIMIZATION = create("pref_optimize_agent_slots",
+				"Store the attributes declared in species in arrays rather than in maps (reduces the memory footprint of agents, still experimental)",
+				false, IType.BOOL, true).in(NAME, OPTIMIZATIONS);
+
+		/** The Constant SPATIAL_HASH_OPTIMIZATION. */
+		public static final Pref<Boolean> SPATIAL_HASH_OPTIMIZATION = create("pref_optimize_spatial_hash",
+				"Index the species made of points with a spatial hash rather than a quadtree (unless their 'spatial_index' facet says otherwise)",
+				false, IType.BOOL, true).in(NAME, OPTIMIZATIONS);
+
+		/** The Constant EXPRESSION_COMPILATION. */
+		public static final Pref<Boolean> EXPRESSION_COMPILATION = create("pref_compile_expressions",
+				"Compile to JVM bytecode the expressions evaluated many times (still experimental)", false, IType.BOOL,
+				true).in(NAME, OPTIMIZATIONS).activates("pref_compile_expressions_threshold");
+
+		/** The Constant EXPRESSION_COMPILATION_THRESHOLD. */
+		public static final Pref<Integer> EXPRESSION_COMPILATION_THRESHOLD = create(
+				"pref_compile_expressions_threshold", "Number of evaluations after which an expression is compiled",
+				10000, IType.INT, true).in(NAME, OPTIMIZATIONS).between(1, null);
+
+		/** The Constant SHORTEST_PATH_CACHE_SIZE. */
+		public static final Pref<Integer> SHORTEST_PATH_CACHE_SIZE = create("pref_shortest_path_cache_size",
+				"Maximum number of edges stored in the cache of shortest paths of each graph", 1000000, IType.INT,
+				true).in(NAME, OPTIMIZATIONS).between(0, null);
+
 		/** The Constant USE_POOLING. */
 		public static final Pref<Boolean> USE_POOLING =
 				create("pref_use_pooling", "Use object pooling to reduce memory usage (still experimental)", false,
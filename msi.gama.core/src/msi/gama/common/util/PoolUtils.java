@@ -10,11 +10,12 @@
  ********************************************************************************************************/
 package msi.gama.common.util;
 
+import java.util.ArrayDeque;
 import java.util.LinkedHashSet;
-import java.util.Queue;
 import java.util.Set;
-
-import com.google.common.collect.Queues;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 import msi.gama.common.interfaces.IDisposable;
 import msi.gama.common.preferences.GamaPreferences;
@@ -27,9 +28,16 @@ public class PoolUtils {
 
 	/** The pools. */
 	static Set<ObjectPool> POOLS = new LinkedHashSet<>();
-	
+
 	/** The pool. */
 	static public boolean POOL = GamaPreferences.External.USE_POOLING.getValue();
+
+	/** The maximum number of objects kept by each thread in a pool. */
+	static final int LOCAL_CAPACITY = 64;
+
+	/** The maximum number of objects kept in the shared stack of a pool. */
+	static final int SHARED_CAPACITY = 1024;
+
 	static {
 		DEBUG.OFF();
 		GamaPreferences.External.USE_POOLING.onChange(v -> {
@@ -45,9 +53,14 @@ public class PoolUtils {
 		if (!DEBUG.IS_ON()) return;
 		DEBUG.SECTION("Pool statistics");
 		POOLS.forEach(p -> {
-			long percentage = p.accessed == 0 ? 100 : 100 - (long) (p.created * 100d / p.accessed);
-			DEBUG.OUT(p.name, 30, "instances created " + p.created + " / instances asked " + p.accessed + " = "
-					+ percentage + "% of coverage");
+			final long accessed = p.accessed.sum();
+			final long created = p.created.sum();
+			final long percentage = accessed == 0 ? 100 : 100 - (long) (created * 100d / accessed);
+			DEBUG.OUT(p.name, 30,
+					"instances created " + created + " / instances asked " + accessed + " = " + percentage
+							+ "% of coverage | hits: " + (accessed - created) + " (stolen from other threads: "
+							+ p.store.stolen() + ") | misses: " + created + " | released: " + p.released.sum()
+							+ " | dropped: " + p.store.dropped() + " | contention: " + p.store.contention());
 		});
 	}
 
@@ -91,6 +104,208 @@ public class PoolUtils {
   */
  void clean(T object); }
 
+	/**
+	 * The storage of the instances available in a pool.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 */
+	interface PoolStore<T> {
+
+		/**
+		 * Returns an available instance, or null if none is available.
+		 *
+		 * @return the t
+		 */
+		T poll();
+
+		/**
+		 * Makes the instance available again. Returns false if it has been dropped (because the store is full).
+		 *
+		 * @param t
+		 *            the t
+		 * @return true, if successful
+		 */
+		boolean offer(T t);
+
+		/**
+		 * Removes all the instances.
+		 */
+		void clear();
+
+		/**
+		 * Number of instances obtained from other threads
+		 *
+		 * @return the long
+		 */
+		default long stolen() {
+			return 0;
+		}
+
+		/**
+		 * Number of instances dropped because the store was full.
+		 *
+		 * @return the long
+		 */
+		default long dropped() {
+			return 0;
+		}
+
+		/**
+		 * Number of times a thread had to wait or retry to access the shared part of the store.
+		 *
+		 * @return the long
+		 */
+		long contention();
+	}
+
+	/**
+	 * A lock-free storage made of per-thread caches (bounded by {@link PoolUtils#LOCAL_CAPACITY}) backed by a bounded
+	 * shared stack (a Treiber stack bounded by {@link PoolUtils#SHARED_CAPACITY}). Threads first take and return
+	 * instances in their own cache; instances returned when this cache is full are pushed on the shared stack, from
+	 * which other threads can steal them when their cache is empty. Instances that do not fit anywhere are left to the
+	 * garbage collector.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 */
+	static class StripedStore<T> implements PoolStore<T> {
+
+		/**
+		 * A node of the shared stack
+		 *
+		 * @param <T>
+		 *            the generic type
+		 */
+		static final class Node<T> {
+
+			/** The item. */
+			final T item;
+
+			/** The next. */
+			Node<T> next;
+
+			/**
+			 * Instantiates a new node.
+			 *
+			 * @param item
+			 *            the item
+			 */
+			Node(final T item) {
+				this.item = item;
+			}
+		}
+
+		/**
+		 * The cache of a thread. The generation allows to discard the caches of all threads when the pool is disposed.
+		 *
+		 * @param <T>
+		 *            the generic type
+		 */
+		static final class Local<T> extends ArrayDeque<T> {
+
+			/** The generation. */
+			int generation;
+
+			/**
+			 * Instantiates a new local.
+			 */
+			Local() {
+				super(LOCAL_CAPACITY);
+			}
+		}
+
+		/** The caches of the threads. */
+		private final ThreadLocal<Local<T>> locals = ThreadLocal.withInitial(Local::new);
+
+		/** The head of the shared stack. */
+		private final AtomicReference<Node<T>> head = new AtomicReference<>();
+
+		/** The size of the shared stack (approximate, only used to bound it). */
+		private final AtomicInteger size = new AtomicInteger();
+
+		/** The current generation. */
+		private volatile int generation;
+
+		/** The statistics. */
+		private final LongAdder stolen = new LongAdder(), dropped = new LongAdder(), contention = new LongAdder();
+
+		/**
+		 * Returns the cache of the current thread, emptied if the store has been cleared since its last use.
+		 *
+		 * @return the local
+		 */
+		private Local<T> local() {
+			final Local<T> local = locals.get();
+			final int current = generation;
+			if (local.generation != current) {
+				local.clear();
+				local.generation = current;
+			}
+			return local;
+		}
+
+		@Override
+		public T poll() {
+			final T result = local().pollLast();
+			if (result != null) return result;
+			Node<T> top;
+			while ((top = head.get()) != null) {
+				if (head.compareAndSet(top, top.next)) {
+					size.decrementAndGet();
+					stolen.increment();
+					return top.item;
+				}
+				contention.increment();
+			}
+			return null;
+		}
+
+		@Override
+		public boolean offer(final T t) {
+			final Local<T> local = local();
+			if (local.size() < LOCAL_CAPACITY) {
+				local.addLast(t);
+				return true;
+			}
+			if (size.incrementAndGet() > SHARED_CAPACITY) {
+				size.decrementAndGet();
+				dropped.increment();
+				return false;
+			}
+			final Node<T> node = new Node<>(t);
+			Node<T> top;
+			do {
+				top = head.get();
+				node.next = top;
+				if (head.compareAndSet(top, node)) return true;
+				contention.increment();
+			} while (true);
+		}
+
+		@Override
+		public void clear() {
+			generation++;
+			head.set(null);
+			size.set(0);
+		}
+
+		@Override
+		public long stolen() {
+			return stolen.sum();
+		}
+
+		@Override
+		public long dropped() {
+			return dropped.sum();
+		}
+
+		@Override
+		public long contention() {
+			return contention.sum();
+		}
+	}
+
 	/**
 	 * The Class ObjectPool.
 	 *
@@ -100,22 +315,22 @@ public class PoolUtils {
 
 		/** The name. */
 		private String name;
-		
-		/** The created. */
-		private long accessed, released, created;
-		
+
+		/** The statistics. Kept in adders so that they remain accurate when the pool is accessed concurrently */
+		private final LongAdder accessed = new LongAdder(), released = new LongAdder(), created = new LongAdder();
+
 		/** The factory. */
 		private final ObjectFactory<T> factory;
-		
+
 		/** The copy. */
 		private final ObjectCopy<T> copy;
-		
+
 		/** The cleaner. */
 		private final ObjectCleaner<T> cleaner;
-		
+
 		/** The objects. */
-		private final Queue<T> objects;
-		
+		private final PoolStore<T> store = new StripedStore<>();
+
 		/** The active. */
 		public boolean active;
 
@@ -130,7 +345,6 @@ public class PoolUtils {
 			this.factory = factory;
 			this.copy = copy;
 			this.cleaner = cleaner;
-			objects = Queues.synchronizedDeque(Queues.newArrayDeque());
 		}
 
 		/**
@@ -140,11 +354,10 @@ public class PoolUtils {
 		 */
 		public T get() {
 			if (!POOL || !active) return factory.createNew();
-			accessed++;
-
-			T result = objects.poll();
+			accessed.increment();
+			T result = store.poll();
 			if (result == null) {
-				created++;
+				created.increment();
 				result = factory.createNew();
 			}
 			return result;
@@ -171,17 +384,14 @@ public class PoolUtils {
 			if (tt == null) return;
 			for (T t : tt) {
 				if (cleaner != null) { cleaner.clean(t); }
-				if (POOL && active) {
-					released++;
-					objects.offer(t);
-				}
+				if (POOL && active && store.offer(t)) { released.increment(); }
 			}
 
 		}
 
 		@Override
 		public void dispose() {
-			objects.clear();
+			store.clear();
 		}
 	}
 
@@ -505,6 +505,13 @@ public class RandomUtils {
 	 */
 	public Double getSeed() { return seed; }
 
+	/**
+	 * Gets the name of the generator.
+	 *
+	 * @return the generator name
+	 */
+	public String getGeneratorName() { return generatorName; }
+
 	/**
 	 * @return
 	 */
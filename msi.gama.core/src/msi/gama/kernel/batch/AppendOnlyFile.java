@@ -0,0 +1,158 @@
+/*******************************************************************************************************
+ *
+ * AppendOnlyFile.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.kernel.batch;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * A file of records where the state of an exploration is persisted as it goes (see {@link BatchJournal} and
+ * FitnessCache). The file starts with a magic number identifying what it contains; each record is made of its kind (a
+ * byte), its length and its bytes, and is flushed as soon as it is appended. When the file is reopened, its records
+ * are passed to a reader; a record truncated by a crash is ignored (and overwritten by the next one).
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public class AppendOnlyFile implements Closeable {
+
+	/**
+	 * The reader of the records of a file.
+	 */
+	@FunctionalInterface
+	public interface RecordReader {
+
+		/**
+		 * Reads a record.
+		 *
+		 * @param kind
+		 *            the kind of the record
+		 * @param record
+		 *            the bytes of the record
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		void read(byte kind, DataInputStream record) throws IOException;
+	}
+
+	/** The file. */
+	final File file;
+
+	/** The output, null once the file is closed. */
+	DataOutputStream out;
+
+	/**
+	 * Opens a file of records. If resume is true and the file is not empty, the records it contains are passed to the
+	 * reader and the new ones are appended to them; otherwise the file is overwritten.
+	 *
+	 * @param file
+	 *            the file
+	 * @param magic
+	 *            the magic number of the kind of file
+	 * @param description
+	 *            the description of the kind of file, used in the error messages
+	 * @param resume
+	 *            whether to read the existing records
+	 * @param reader
+	 *            the reader of the existing records
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public AppendOnlyFile(final File file, final int magic, final String description, final boolean resume,
+			final RecordReader reader) throws IOException {
+		this.file = file;
+		if (resume && file.length() > 0) {
+			final long valid = read(magic, description, reader);
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+				raf.setLength(valid);
+			}
+			out = new DataOutputStream(new FileOutputStream(file, true));
+		} else {
+			final File parent = file.getAbsoluteFile().getParentFile();
+			if (parent != null && !parent.exists()) { parent.mkdirs(); }
+			out = new DataOutputStream(new FileOutputStream(file, false));
+			out.writeInt(magic);
+			out.flush();
+		}
+	}
+
+	/**
+	 * Reads the records of the file.
+	 *
+	 * @param magic
+	 *            the magic number of the kind of file
+	 * @param description
+	 *            the description of the kind of file
+	 * @param reader
+	 *            the reader of the records
+	 * @return the length of the valid records
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private long read(final int magic, final String description, final RecordReader reader) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != magic) throw new IOException(file.getName() + " is not a " + description);
+			long valid = 4;
+			while (true) {
+				final byte kind;
+				final byte[] record;
+				try {
+					kind = in.readByte();
+					record = new byte[in.readInt()];
+					in.readFully(record);
+				} catch (final EOFException e) {
+					return valid;
+				}
+				reader.read(kind, new DataInputStream(new ByteArrayInputStream(record)));
+				valid += 5 + record.length;
+			}
+		}
+	}
+
+	/**
+	 * Appends a record and flushes it. Does nothing if the file is closed.
+	 *
+	 * @param kind
+	 *            the kind
+	 * @param record
+	 *            the record
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public synchronized void append(final byte kind, final ByteArrayOutputStream record) throws IOException {
+		if (out == null) return;
+		out.writeByte(kind);
+		out.writeInt(record.size());
+		record.writeTo(out);
+		out.flush();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (out == null) return;
+		try {
+			out.close();
+		} finally {
+			out = null;
+		}
+	}
+
+}
@@ -0,0 +1,326 @@
+/*******************************************************************************************************
+ *
+ * BatchJournal.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.kernel.batch;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import msi.gama.kernel.experiment.ParametersSet;
+import msi.gama.metamodel.shape.GamaPoint;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.GamaMapFactory;
+import msi.gaml.operators.Cast;
+
+/**
+ * An append-only journal of the points of the parameter space evaluated by a batch experiment, with their outputs, so
+ * that a long exploration that has been interrupted can be resumed. The journal also records the seed of the
+ * experiment: as the exploration algorithms only depend on it and on the outputs of the points they evaluate,
+ * resuming an exploration with the same seed and returning the recorded outputs instead of running the simulations
+ * again rebuilds their internal state (the population of a genetic algorithm, the tabu list of a tabu search, etc.)
+ * up to the point where the exploration has been interrupted.
+ *
+ * Each record is appended to the file (see {@link AppendOnlyFile}) as soon as a point is over; a record truncated
+ * by a crash is ignored (and overwritten) when the journal is resumed.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+@SuppressWarnings ("unchecked")
+public class BatchJournal implements Closeable {
+
+	/** The magic number. */
+	static final int MAGIC = 'G' << 24 | 'B' << 16 | 'J' << 8 | '1';
+
+	/** The kinds of records. */
+	static final byte SEED = 0, POINT = 1;
+
+	/** The types of values. */
+	static final byte NULL = 0, INT = 1, FLOAT = 2, BOOL = 3, STRING = 4, LIST = 5, POINT3D = 6;
+
+	/** The records. */
+	final AppendOnlyFile records;
+
+	/** The seed recorded, if any. */
+	Double seed;
+
+	/** The outputs of the points recorded, indexed by their key. */
+	final Map<String, Map<String, List<Object>>> points = new HashMap<>();
+
+	/**
+	 * Opens a journal. If resume is true and the file exists, the records it contains are read and the new ones are
+	 * appended to them; otherwise the file is overwritten.
+	 *
+	 * @param file
+	 *            the file
+	 * @param resume
+	 *            whether to resume the journal
+	 * @return the batch journal
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static BatchJournal open(final File file, final boolean resume) throws IOException {
+		return new BatchJournal(file, resume);
+	}
+
+	/**
+	 * Instantiates a new batch journal.
+	 *
+	 * @param file
+	 *            the file
+	 * @param resume
+	 *            whether to read the existing records
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private BatchJournal(final File file, final boolean resume) throws IOException {
+		records = new AppendOnlyFile(file, MAGIC, "batch journal", resume, this::read);
+	}
+
+	/**
+	 * Reads a record of the file.
+	 *
+	 * @param kind
+	 *            the kind of the record
+	 * @param data
+	 *            the bytes of the record
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void read(final byte kind, final DataInputStream data) throws IOException {
+		if (kind == SEED) {
+			seed = data.readDouble();
+		} else if (kind == POINT) {
+			final String key = readString(data);
+			final int nb = data.readInt();
+			final Map<String, List<Object>> outputs = new TreeMap<>();
+			for (int i = 0; i < nb; i++) { outputs.put(readString(data), (List<Object>) readValue(data)); }
+			points.put(key, outputs);
+		}
+	}
+
+	/**
+	 * Gets the seed recorded.
+	 *
+	 * @return the seed, or null if it has not been recorded yet
+	 */
+	public Double getSeed() { return seed; }
+
+	/**
+	 * Records the seed of the experiment.
+	 *
+	 * @param s
+	 *            the seed
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public synchronized void recordSeed(final Double s) throws IOException {
+		seed = s;
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new DataOutputStream(bytes).writeDouble(s);
+		records.append(SEED, bytes);
+	}
+
+	/**
+	 * Returns the outputs recorded for a point.
+	 *
+	 * @param point
+	 *            the point
+	 * @return a copy of the outputs, or null if the point has not been recorded
+	 */
+	public synchronized Map<String, List<Object>> get(final ParametersSet point) {
+		final Map<String, List<Object>> outputs = points.get(keyOf(point));
+		if (outputs == null) return null;
+		final Map<String, List<Object>> result = GamaMapFactory.create();
+		for (final Map.Entry<String, List<Object>> entry : outputs.entrySet()) {
+			final List<Object> values = GamaListFactory.create();
+			values.addAll(entry.getValue());
+			result.put(entry.getKey(), values);
+		}
+		return result;
+	}
+
+	/**
+	 * Records the outputs of a point.
+	 *
+	 * @param point
+	 *            the point
+	 * @param outputs
+	 *            the outputs
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public synchronized void record(final ParametersSet point, final Map<String, List<Object>> outputs)
+			throws IOException {
+		final String key = keyOf(point);
+		final Map<String, List<Object>> copy = new TreeMap<>();
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream data = new DataOutputStream(bytes);
+		writeString(data, key);
+		data.writeInt(outputs.size());
+		for (final Map.Entry<String, List<Object>> entry : outputs.entrySet()) {
+			writeString(data, entry.getKey());
+			writeValue(data, entry.getValue());
+			copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+		}
+		records.append(POINT, bytes);
+		points.put(key, copy);
+	}
+
+	/**
+	 * Returns the number of points recorded.
+	 *
+	 * @return the int
+	 */
+	public synchronized int size() {
+		return points.size();
+	}
+
+	@Override
+	public void close() throws IOException {
+		records.close();
+	}
+
+	/**
+	 * The key of a point: its parameters, sorted by name, and their values.
+	 *
+	 * @param point
+	 *            the point
+	 * @return the string
+	 */
+	public static String keyOf(final ParametersSet point) {
+		final StringBuilder sb = new StringBuilder();
+		for (final Map.Entry<String, Object> entry : new TreeMap<>(point.getElements()).entrySet()) {
+			final Object value = entry.getValue();
+			sb.append(entry.getKey()).append('=');
+			sb.append(value instanceof Number || value instanceof Boolean ? String.valueOf(value) : Cast.toGaml(value));
+			sb.append(';');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Writes a value (also used to exchange points and outputs with other processes). Numbers, booleans, strings,
+	 * points and lists of them are written as such; the other values are written as their GAML representation.
+	 *
+	 * @param out
+	 *            the out
+	 * @param value
+	 *            the value
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static void writeValue(final DataOutput out, final Object value) throws IOException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof Integer) {
+			out.writeByte(INT);
+			out.writeInt((Integer) value);
+		} else if (value instanceof Number) {
+			out.writeByte(FLOAT);
+			out.writeDouble(((Number) value).doubleValue());
+		} else if (value instanceof Boolean) {
+			out.writeByte(BOOL);
+			out.writeBoolean((Boolean) value);
+		} else if (value instanceof GamaPoint) {
+			final GamaPoint p = (GamaPoint) value;
+			out.writeByte(POINT3D);
+			out.writeDouble(p.x);
+			out.writeDouble(p.y);
+			out.writeDouble(p.z);
+		} else if (value instanceof List) {
+			final List<?> list = (List<?>) value;
+			out.writeByte(LIST);
+			out.writeInt(list.size());
+			for (final Object o : list) { writeValue(out, o); }
+		} else {
+			out.writeByte(STRING);
+			writeString(out, value instanceof String ? (String) value : Cast.toGaml(value));
+		}
+	}
+
+	/**
+	 * Reads a value written by {@link #writeValue(DataOutput, Object)}.
+	 *
+	 * @param in
+	 *            the in
+	 * @return the object
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static Object readValue(final DataInput in) throws IOException {
+		final byte type = in.readByte();
+		switch (type) {
+			case NULL:
+				return null;
+			case INT:
+				return in.readInt();
+			case FLOAT:
+				return in.readDouble();
+			case BOOL:
+				return in.readBoolean();
+			case STRING:
+				return readString(in);
+			case POINT3D:
+				return new GamaPoint(in.readDouble(), in.readDouble(), in.readDouble());
+			case LIST:
+				final int size = in.readInt();
+				final List<Object> list = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) { list.add(readValue(in)); }
+				return list;
+			default:
+				throw new IOException("Unknown type of value in the journal: " + type);
+		}
+	}
+
+	/**
+	 * Writes a string as its length followed by its UTF-8 bytes.
+	 *
+	 * @param out
+	 *            the out
+	 * @param s
+	 *            the s
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static void writeString(final DataOutput out, final String s) throws IOException {
+		final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a string written by {@link #writeString(DataOutput, String)}.
+	 *
+	 * @param in
+	 *            the in
+	 * @return the string
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static String readString(final DataInput in) throws IOException {
+		final byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+}
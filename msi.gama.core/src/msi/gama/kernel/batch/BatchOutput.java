@@ -48,6 +48,11 @@ import msi.gaml.types.IType;
 						name = IKeyword.DATA,
 						type = IType.NONE,
 						optional = true,
+						internal = true),
+				@facet (
+						name = IKeyword.TYPE,
+						type = IType.ID,
+						optional = true,
 						internal = true) },
 		omissible = IKeyword.DATA)
 public class BatchOutput extends Symbol {
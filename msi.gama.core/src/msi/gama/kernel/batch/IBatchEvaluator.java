@@ -0,0 +1,53 @@
+/*******************************************************************************************************
+ *
+ * IBatchEvaluator.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.kernel.batch;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+import msi.gama.kernel.experiment.ParametersSet;
+import msi.gama.runtime.IScope;
+
+/**
+ * An evaluator of the points of a batch experiment outside of the experiment itself (e.g. by a farm of worker
+ * processes). When one is set on an experiment plan, the batch agent hands it the points to evaluate instead of
+ * running their simulations.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public interface IBatchEvaluator {
+
+	/**
+	 * Evaluates a sequence of points, each of them with as many simulations as there are seeds, and returns when all
+	 * of them have been evaluated (or the scope has been interrupted). The outputs of each point are those that the
+	 * batch agent would have returned for it: the fitness combined over the simulations, if the exploration is fitness
+	 * based, and the values of the other outputs for each simulation. They are passed to the consumer, always in the
+	 * thread that called this method, as soon as they are known. As in
+	 * {@link msi.gama.kernel.experiment.BatchAgent#streamSimulationsWithSolutions(Iterator, BiConsumer)}, the points
+	 * are asked again each time a point has been evaluated, and the sequence is over when it has no next point while
+	 * no point is being evaluated.
+	 *
+	 * @param scope
+	 *            the scope of the batch agent
+	 * @param points
+	 *            the points to evaluate, pulled only when they can be evaluated
+	 * @param seeds
+	 *            the seeds of the simulations of each point
+	 * @param consumer
+	 *            the consumer of the outputs of each point
+	 */
+	void evaluate(IScope scope, Iterator<ParametersSet> points, Double[] seeds,
+			BiConsumer<ParametersSet, Map<String, List<Object>>> consumer);
+
+}
@@ -22,6 +22,7 @@ import msi.gama.kernel.batch.optimization.Swarm;
 import msi.gama.kernel.batch.optimization.TabuSearch;
 import msi.gama.kernel.batch.optimization.TabuSearchReactive;
 import msi.gama.kernel.batch.optimization.genetic.GeneticAlgorithm;
+import msi.gama.kernel.batch.optimization.genetic.IslandGeneticAlgorithm;
 import msi.gama.kernel.experiment.BatchAgent;
 import msi.gama.kernel.experiment.IParameter;
 import msi.gama.runtime.IScope;
@@ -42,7 +43,7 @@ public interface IExploration extends ISymbol {// , Runnable {
 @SuppressWarnings ("rawtypes") public static final Class[] CLASSES =
 			{ GeneticAlgorithm.class, SimulatedAnnealing.class, HillClimbing.class, TabuSearch.class,
 					TabuSearchReactive.class, ExhaustiveSearch.class, Swarm.class, ExplicitExploration.class,
-					SobolExploration.class,MorrisExploration.class};
+					SobolExploration.class,MorrisExploration.class, IslandGeneticAlgorithm.class};
 
 	/**
 	 * TODO
@@ -288,7 +288,7 @@ public class ExhaustiveSearch extends AExplorationAlgorithm {
 		List<ParametersSet> sets= morris_samples.MakeMorrisSampling(nb_levels,this.sample_size, parameters,scope);
 		
 		if (GamaExecutorService.CONCURRENCY_SIMULATIONS_ALL.getValue()) {
-			currentExperiment.launchSimulationsWithSolution(sets);
+			currentExperiment.streamSimulationsWithSolutions(sets.iterator(), null);
 		} else {
 			for (ParametersSet sol : sets) { currentExperiment.launchSimulationsWithSolution(sol); }
 		}	
@@ -315,7 +315,7 @@ public class ExhaustiveSearch extends AExplorationAlgorithm {
         List<ParametersSet> sets= LHS.LatinHypercubeSamples(sample_size, parameters, scope.getRandom().getGenerator(),scope);
         
 		if (GamaExecutorService.CONCURRENCY_SIMULATIONS_ALL.getValue()) {
-			currentExperiment.launchSimulationsWithSolution(sets);
+			currentExperiment.streamSimulationsWithSolutions(sets.iterator(), null);
 		} else {
 			for (ParametersSet sol : sets) { currentExperiment.launchSimulationsWithSolution(sol); }
 		}			
@@ -342,7 +342,7 @@ public class ExhaustiveSearch extends AExplorationAlgorithm {
         List<ParametersSet> sets= saltelli.MakeSaltelliSampling(scope, sample_size, parameters);
         
 		if (GamaExecutorService.CONCURRENCY_SIMULATIONS_ALL.getValue()) {
-			currentExperiment.launchSimulationsWithSolution(sets);
+			currentExperiment.streamSimulationsWithSolutions(sets.iterator(), null);
 		} else {
 			for (ParametersSet sol : sets) { currentExperiment.launchSimulationsWithSolution(sol); }
 		}	
@@ -377,7 +377,7 @@ public class ExhaustiveSearch extends AExplorationAlgorithm {
         List<ParametersSet> sets= ortho.OrthogonalSamples(sample_size,iterations, parameters,scope.getRandom().getGenerator(),scope);
         
 		if (GamaExecutorService.CONCURRENCY_SIMULATIONS_ALL.getValue()) {
-			currentExperiment.launchSimulationsWithSolution(sets);
+			currentExperiment.streamSimulationsWithSolutions(sets.iterator(), null);
 		} else {
 			for (ParametersSet sol : sets) { currentExperiment.launchSimulationsWithSolution(sol); }
 		}	
@@ -395,7 +395,7 @@ public class ExhaustiveSearch extends AExplorationAlgorithm {
 		sets.add(new ParametersSet());
 		System.out.println("Xp launch = testSolutionAll "+this);
 		final List<ParametersSet> solutions = buildParameterSets(scope,sets, 0);
-		currentExperiment.launchSimulationsWithSolution(solutions);
+		currentExperiment.streamSimulationsWithSolutions(solutions.iterator(), null);
 	}
 
 	/**
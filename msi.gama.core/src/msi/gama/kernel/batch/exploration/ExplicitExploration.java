@@ -120,7 +120,7 @@ public class ExplicitExploration extends AExplorationAlgorithm {
 			try {
 				List<ParametersSet> solutions = buildParametersFromCSV(scope,new_path,new ArrayList<>());
 				if (GamaExecutorService.CONCURRENCY_SIMULATIONS_ALL.getValue()) {
-					currentExperiment.launchSimulationsWithSolution(solutions);
+					currentExperiment.streamSimulationsWithSolutions(solutions.iterator(), null);
 				} else {
 					for (ParametersSet sol : solutions) { currentExperiment.launchSimulationsWithSolution(sol); }
 				}
@@ -131,7 +131,7 @@ public class ExplicitExploration extends AExplorationAlgorithm {
 
 			List<ParametersSet> solutions = buildParameterSets(scope, new ArrayList<>(), 0);
 			if (GamaExecutorService.CONCURRENCY_SIMULATIONS_ALL.getValue()) {
-				currentExperiment.launchSimulationsWithSolution(solutions);
+				currentExperiment.streamSimulationsWithSolutions(solutions.iterator(), null);
 			} else {
 				for (ParametersSet sol : solutions) { currentExperiment.launchSimulationsWithSolution(sol); }
 			}
@@ -14,11 +14,9 @@ package msi.gama.kernel.batch.optimization;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import msi.gama.kernel.batch.Neighborhood;
 import msi.gama.kernel.batch.Neighborhood1Var;
-import msi.gama.common.interfaces.IKeyword;
 import msi.gama.kernel.experiment.BatchAgent;
 import msi.gama.kernel.experiment.IParameter;
 import msi.gama.kernel.experiment.ParametersSet;
@@ -72,11 +70,7 @@ public abstract class ALocalSearchAlgorithm extends AOptimizationAlgorithm {
 				solTotest.add(sol);
 			}
 		}
-		Map<ParametersSet, Double> res = currentExperiment.launchSimulationsWithSolution(solTotest)
-				.entrySet().stream().collect(Collectors.toMap(
-						e -> e.getKey(), 
-						e -> (Double) e.getValue().get(IKeyword.FITNESS).get(0))
-						);
+		Map<ParametersSet, Double> res = evaluate(solTotest);
 		testedSolutions.putAll(res);
 		results.putAll(res);
 		
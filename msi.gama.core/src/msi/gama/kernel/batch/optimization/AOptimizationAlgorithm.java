@@ -10,11 +10,16 @@
  ********************************************************************************************************/
 package msi.gama.kernel.batch.optimization;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import msi.gama.common.interfaces.IKeyword;
+import msi.gama.common.util.FileUtils;
 import msi.gama.kernel.batch.IExploration;
 import msi.gama.kernel.experiment.BatchAgent;
 import msi.gama.kernel.experiment.IExperimentPlan;
@@ -27,11 +32,13 @@ import msi.gama.runtime.GAMA;
 import msi.gama.runtime.GAMA.InScope;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.GamaMapFactory;
 import msi.gaml.compilation.AbstractGamlAdditions;
 import msi.gaml.compilation.ISymbol;
 import msi.gaml.compilation.Symbol;
 import msi.gaml.descriptions.IDescription;
 import msi.gaml.expressions.IExpression;
+import msi.gaml.operators.Cast;
 import msi.gaml.types.IType;
 
 /**
@@ -48,6 +55,13 @@ public abstract class AOptimizationAlgorithm extends Symbol implements IExplorat
 	public final static String[] COMBINATIONS = new String[] { "maximum", "minimum", "average" };
 	static { AbstractGamlAdditions._constants(COMBINATIONS); }
 	
+	/** The facet naming the file in which the fitnesses computed are persisted. */
+	public final static String FITNESS_CACHE = "fitness_cache";
+	
+	/** The documentation of the fitness_cache facet, shared by the algorithms that accept it. */
+	public final static String FITNESS_CACHE_DOC =
+			"the file in which the fitnesses computed are stored, so that the solutions already evaluated (in this run or in previous runs with the same seeds) are not simulated again";
+	
 	/** The tested solutions. */
 	// private ContinuousUniformGenerator randUniform;
 	protected HashMap<ParametersSet, Double> testedSolutions;
@@ -71,6 +85,9 @@ public abstract class AOptimizationAlgorithm extends Symbol implements IExplorat
 	/** The combination. */
 	protected short combination;
 
+	/** The fitnesses persisted in the file named by the fitness_cache facet, if any (null otherwise). */
+	protected FitnessCache cache;
+
 	/**
 	 * Find best solution.
 	 *
@@ -84,6 +101,17 @@ public abstract class AOptimizationAlgorithm extends Symbol implements IExplorat
 	public void initializeFor(final IScope scope, final BatchAgent agent) throws GamaRuntimeException {
 		currentExperiment = agent;
 		// this.scope = scope;
+		if (hasFacet(FITNESS_CACHE)) {
+			final String prefix = (isMaximize ? IKeyword.MAXIMIZE : IKeyword.MINIMIZE) + " "
+					+ (fitnessExpression == null ? "" : fitnessExpression.serialize(false)) + " "
+					+ getCombinationName();
+			final String path = Cast.asString(scope, getFacetValue(scope, FITNESS_CACHE));
+			try {
+				cache = new FitnessCache(prefix, new File(FileUtils.constructAbsoluteFilePath(scope, path, false)));
+			} catch (final IOException e) {
+				throw GamaRuntimeException.create(e, scope);
+			}
+		}
 	}
 
 	// protected ContinuousUniformGenerator getRandUniform() {
@@ -141,6 +169,83 @@ public abstract class AOptimizationAlgorithm extends Symbol implements IExplorat
 			findBestSolution(scope);
 		} catch (final GamaRuntimeException e) {
 			GAMA.reportError(scope, e, false);
+		} finally {
+			if (cache != null) {
+				try {
+					cache.close();
+				} catch (final IOException e) {
+					GAMA.reportError(scope, GamaRuntimeException.create(e, scope), false);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the fitness of a solution: the one found in the cache if it has already been computed with the seeds
+	 * of the experiment, otherwise the one computed by running its simulations.
+	 *
+	 * @param sol the solution
+	 * @return the fitness
+	 */
+	protected Double evaluate(final ParametersSet sol) {
+		final Double[] seeds = currentExperiment.getSeeds();
+		Double fitness = cache == null ? null : cache.get(sol, seeds);
+		if (fitness != null) {
+			currentExperiment.reseedAsEvaluated();
+			updateBestFitness(sol, fitness);
+			return fitness;
+		}
+		fitness = (Double) currentExperiment.launchSimulationsWithSolution(sol).get(IKeyword.FITNESS).get(0);
+		store(sol, seeds, fitness);
+		return fitness;
+	}
+
+	/**
+	 * Returns the fitnesses of several solutions. Those that are not in the cache are computed together, so that
+	 * their simulations can run in parallel.
+	 *
+	 * @param solutions the solutions
+	 * @return the fitnesses, indexed by solution
+	 */
+	protected Map<ParametersSet, Double> evaluate(final List<ParametersSet> solutions) {
+		final Double[] seeds = currentExperiment.getSeeds();
+		final Map<ParametersSet, Double> results = GamaMapFactory.create();
+		final List<ParametersSet> toCompute = new ArrayList<>();
+		for (final ParametersSet sol : solutions) {
+			final Double fitness = cache == null ? null : cache.get(sol, seeds);
+			if (fitness != null) {
+				updateBestFitness(sol, fitness);
+				results.put(sol, fitness);
+			} else if (!toCompute.contains(sol)) { toCompute.add(sol); }
+		}
+		if (toCompute.isEmpty()) {
+			// As if the solutions had been simulated
+			if (!results.isEmpty()) { currentExperiment.reseedAsEvaluated(); }
+			return results;
+		}
+		for (final Map.Entry<ParametersSet, Map<String, List<Object>>> entry : currentExperiment
+				.launchSimulationsWithSolution(toCompute).entrySet()) {
+			final Double fitness = (Double) entry.getValue().get(IKeyword.FITNESS).get(0);
+			store(entry.getKey(), seeds, fitness);
+			results.put(entry.getKey(), fitness);
+		}
+		return results;
+	}
+
+	/**
+	 * Stores a fitness in the cache, unless the experiment has been stopped (the fitness being then incomplete).
+	 *
+	 * @param sol the solution
+	 * @param seeds the seeds
+	 * @param fitness the fitness
+	 */
+	protected void store(final ParametersSet sol, final Double[] seeds, final Double fitness) {
+		if (cache == null || currentExperiment.dead()) return;
+		try {
+			cache.put(sol, seeds, fitness);
+		} catch (final IOException e) {
+			GAMA.reportError(currentExperiment.getScope(), GamaRuntimeException.create(e, currentExperiment.getScope()),
+					false);
 		}
 	}
 
@@ -194,6 +299,16 @@ public abstract class AOptimizationAlgorithm extends Symbol implements IExplorat
 
 		});
 		
+		params.add(new ParameterAdapter("Fitness cache", IExperimentPlan.BATCH_CATEGORY_NAME, "", IType.STRING) {
+
+			@Override
+			public String value() {
+				final FitnessCache c = cache;
+				return c == null ? "-" : c.toString();
+			}
+
+		});
+		
 	}
 	
 	@Override
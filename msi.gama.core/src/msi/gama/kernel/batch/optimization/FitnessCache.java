@@ -0,0 +1,183 @@
+/*******************************************************************************************************
+ *
+ * FitnessCache.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.kernel.batch.optimization;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import msi.gama.kernel.batch.AppendOnlyFile;
+import msi.gama.kernel.batch.BatchJournal;
+import msi.gama.kernel.experiment.ParametersSet;
+
+/**
+ * The fitnesses already computed by an optimization algorithm, indexed by the canonical form of their parameter set
+ * and by the seeds of the simulations run to compute them, so that a point of the parameter space visited again
+ * (which is frequent in genetic algorithms, tabu searches or swarms, and between runs of an exploration) is not
+ * simulated again.
+ *
+ * The cache is persisted in a file (see {@link AppendOnlyFile}), where each new fitness is appended as soon as it is
+ * computed: the fitnesses written by a previous run (with the same fitness expression, aggregation and seeds) are
+ * then reused. Within a run, the algorithms keep the fitnesses of the points they have tested themselves.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public class FitnessCache implements Closeable {
+
+	/** The magic number. */
+	static final int MAGIC = 'G' << 24 | 'F' << 16 | 'C' << 8 | '1';
+
+	/** The kind of the records. */
+	static final byte FITNESS = 0;
+
+	/** The fitnesses, indexed by their key. */
+	final Map<String, Double> fitnesses = new HashMap<>();
+
+	/** The prefix of the keys: the fitness expression and its aggregation. */
+	final String prefix;
+
+	/** The records of the file of the cache. */
+	final AppendOnlyFile records;
+
+	/** The number of lookups and of hits. */
+	int lookups, hits;
+
+	/**
+	 * Instantiates a new fitness cache persisted in a file. The fitnesses it contains are read and the new ones are
+	 * appended to them; a record truncated by a crash is ignored (and overwritten).
+	 *
+	 * @param prefix
+	 *            the fitness expression and its aggregation
+	 * @param file
+	 *            the file
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public FitnessCache(final String prefix, final File file) throws IOException {
+		this.prefix = prefix;
+		records = new AppendOnlyFile(file, MAGIC, "fitness cache", true, this::read);
+	}
+
+	/**
+	 * Reads a fitness of the file.
+	 *
+	 * @param kind
+	 *            the kind of the record
+	 * @param data
+	 *            the bytes of the record
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void read(final byte kind, final DataInputStream data) throws IOException {
+		if (kind != FITNESS) return;
+		final String key = BatchJournal.readString(data);
+		fitnesses.put(key, data.readDouble());
+	}
+
+	/**
+	 * The key of a point evaluated with some seeds.
+	 *
+	 * @param point
+	 *            the point
+	 * @param seeds
+	 *            the seeds
+	 * @return the string
+	 */
+	String keyOf(final ParametersSet point, final Double[] seeds) {
+		return prefix + '|' + Arrays.toString(seeds) + '|' + BatchJournal.keyOf(point);
+	}
+
+	/**
+	 * Returns the fitness computed for a point with some seeds.
+	 *
+	 * @param point
+	 *            the point
+	 * @param seeds
+	 *            the seeds
+	 * @return the fitness, or null if it has not been computed yet
+	 */
+	public synchronized Double get(final ParametersSet point, final Double[] seeds) {
+		lookups++;
+		final Double fitness = fitnesses.get(keyOf(point, seeds));
+		if (fitness != null) { hits++; }
+		return fitness;
+	}
+
+	/**
+	 * Stores the fitness computed for a point with some seeds, and appends it to the file of the cache.
+	 *
+	 * @param point
+	 *            the point
+	 * @param seeds
+	 *            the seeds
+	 * @param fitness
+	 *            the fitness
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public synchronized void put(final ParametersSet point, final Double[] seeds, final Double fitness)
+			throws IOException {
+		if (fitness == null) return;
+		final String key = keyOf(point, seeds);
+		if (fitness.equals(fitnesses.put(key, fitness))) return;
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream data = new DataOutputStream(bytes);
+		BatchJournal.writeString(data, key);
+		data.writeDouble(fitness);
+		records.append(FITNESS, bytes);
+	}
+
+	/**
+	 * Returns the number of lookups.
+	 *
+	 * @return the int
+	 */
+	public synchronized int getLookups() { return lookups; }
+
+	/**
+	 * Returns the number of lookups that found a fitness.
+	 *
+	 * @return the int
+	 */
+	public synchronized int getHits() { return hits; }
+
+	/**
+	 * Returns the number of fitnesses stored.
+	 *
+	 * @return the int
+	 */
+	public synchronized int size() {
+		return fitnesses.size();
+	}
+
+	@Override
+	public synchronized String toString() {
+		if (lookups == 0) return "-";
+		return hits + " hits / " + lookups + " lookups (" + Math.round(100d * hits / lookups) + "%), " + size()
+				+ " fitnesses";
+	}
+
+	/**
+	 * Closes the file of the cache. The fitnesses stay available in memory.
+	 */
+	@Override
+	public void close() throws IOException {
+		records.close();
+	}
+
+}
@@ -82,7 +82,12 @@ import msi.gaml.types.IType;
 						type = IType.LABEL,
 						optional = true,
 						values = { IKeyword.MIN, IKeyword.MAX, "avr" },
-						doc = @doc ("the agregation method")) },
+						doc = @doc ("the agregation method")),
+				@facet (
+						name = AOptimizationAlgorithm.FITNESS_CACHE,
+						type = IType.STRING,
+						optional = true,
+						doc = @doc (AOptimizationAlgorithm.FITNESS_CACHE_DOC)) },
 		omissible = IKeyword.NAME)
 @doc (
 		value = "This algorithm is an implementation of the Hill Climbing algorithm. See the wikipedia article and [batch161 the batch dedicated page].",
@@ -137,7 +142,7 @@ public class HillClimbing extends ALocalSearchAlgorithm {
 	@Override
 	public ParametersSet findBestSolution(final IScope scope) throws GamaRuntimeException {
 		setBestSolution(this.solutionInit);
-		double currentFitness = (Double) currentExperiment.launchSimulationsWithSolution(getBestSolution()).get(IKeyword.FITNESS).get(0);
+		double currentFitness = evaluate(getBestSolution());
 		initializeTestedSolutions();
 		testedSolutions.put(getBestSolution(), currentFitness);
 		int nbIt = 0;
@@ -166,7 +171,7 @@ public class HillClimbing extends ALocalSearchAlgorithm {
 					}
 					Double neighborFitness = testedSolutions.get(neighborSol);
 					if (neighborFitness == null) {
-						neighborFitness = (Double) currentExperiment.launchSimulationsWithSolution(neighborSol).get(IKeyword.FITNESS).get(0);
+						neighborFitness = evaluate(neighborSol);
 					}
 					testedSolutions.put(neighborSol, neighborFitness);
 
@@ -14,7 +14,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import msi.gama.common.interfaces.IKeyword;
 import msi.gama.kernel.experiment.BatchAgent;
 import msi.gama.kernel.experiment.IParameter;
 import msi.gama.kernel.experiment.ParametersSet;
@@ -88,7 +87,7 @@ class Particle {
     public double eval () {
     	Double fitness = testedSolutions.get(position);
 		if (fitness == null) {
-			fitness = (Double) currentExperiment.launchSimulationsWithSolution(position).get(IKeyword.FITNESS).get(0);
+			fitness = algo.evaluate(position);
 			testedSolutions.put(position, fitness);
 		}
 		return fitness.doubleValue();
@@ -92,7 +92,12 @@ import msi.gaml.types.IType;
 						type = IType.LABEL,
 						optional = true,
 						values = { IKeyword.MIN, IKeyword.MAX },
-						doc = @doc ("the agregation method")) },
+						doc = @doc ("the agregation method")),
+				@facet (
+						name = AOptimizationAlgorithm.FITNESS_CACHE,
+						type = IType.STRING,
+						optional = true,
+						doc = @doc (AOptimizationAlgorithm.FITNESS_CACHE_DOC)) },
 		omissible = IKeyword.NAME)
 @doc (
 		value = "This algorithm is an implementation of the Simulated Annealing algorithm. See the wikipedia article and [batch161 the batch dedicated page].",
@@ -173,7 +178,7 @@ public class SimulatedAnnealing extends ALocalSearchAlgorithm {
 	public ParametersSet findBestSolution(final IScope scope) throws GamaRuntimeException {
 		initializeTestedSolutions();
 		setBestSolution(new ParametersSet(this.solutionInit));
-		double currentFitness = (Double) currentExperiment.launchSimulationsWithSolution(getBestSolution()).get(IKeyword.FITNESS).get(0);
+		double currentFitness = evaluate(getBestSolution());
 		ParametersSet bestSolutionAlgo = this.solutionInit;
 		testedSolutions.put(getBestSolution(), getBestFitness());
 		setBestFitness(currentFitness);
@@ -196,7 +201,7 @@ public class SimulatedAnnealing extends ALocalSearchAlgorithm {
 				}
 				Double neighborFitness = testedSolutions.get(neighborSol);
 				if (neighborFitness == null || neighborFitness == Double.MAX_VALUE) {
-					neighborFitness = (Double) currentExperiment.launchSimulationsWithSolution(neighborSol).get(IKeyword.FITNESS).get(0);
+					neighborFitness = evaluate(neighborSol);
 					testedSolutions.put(neighborSol, neighborFitness);
 				}
 
@@ -87,7 +87,12 @@ import msi.gaml.types.IType;
 						type = IType.LABEL,
 						optional = true,
 						values = { IKeyword.MIN, IKeyword.MAX, "avr" },
-						doc = @doc ("the agregation method")) },
+						doc = @doc ("the agregation method")),
+				@facet (
+						name = AOptimizationAlgorithm.FITNESS_CACHE,
+						type = IType.STRING,
+						optional = true,
+						doc = @doc (AOptimizationAlgorithm.FITNESS_CACHE_DOC)) },
 		omissible = IKeyword.NAME)
 @doc (
 		value = "This algorithm is an implementation of the Tabu Search algorithm. See the wikipedia article and [batch161 the batch dedicated page].",
@@ -150,8 +155,7 @@ public class TabuSearch extends ALocalSearchAlgorithm {
 		final List<ParametersSet> tabuList = new ArrayList<>();
 		ParametersSet bestSolutionAlgo = this.solutionInit;
 		tabuList.add(bestSolutionAlgo);
-		final double currentFitness = (Double) currentExperiment.launchSimulationsWithSolution(bestSolutionAlgo)
-				.get(IKeyword.FITNESS).get(0);
+		final double currentFitness = evaluate(bestSolutionAlgo);
 		testedSolutions.put(bestSolutionAlgo, currentFitness);
 		setBestSolution(new ParametersSet(bestSolutionAlgo));
 		setBestFitness(currentFitness);
@@ -195,8 +199,7 @@ public class TabuSearch extends ALocalSearchAlgorithm {
 					}
 					Double neighborFitness = testedSolutions.get(neighborSol);
 					if (neighborFitness == null || neighborFitness == Double.MAX_VALUE) {
-						neighborFitness = (Double) currentExperiment.launchSimulationsWithSolution(neighborSol
-								).get(IKeyword.FITNESS).get(0);
+						neighborFitness = evaluate(neighborSol);
 					} else {
 						continue;
 					}
@@ -112,7 +112,12 @@ import msi.gaml.types.IType;
 						type = IType.LABEL,
 						optional = true,
 						values = { IKeyword.MIN, IKeyword.MAX, "avr" },
-						doc = @doc ("the agregation method")) },
+						doc = @doc ("the agregation method")),
+				@facet (
+						name = AOptimizationAlgorithm.FITNESS_CACHE,
+						type = IType.STRING,
+						optional = true,
+						doc = @doc (AOptimizationAlgorithm.FITNESS_CACHE_DOC)) },
 		omissible = IKeyword.NAME)
 @doc (
 		value = "This algorithm is a simple implementation of the Reactive Tabu Search algorithm ((Battiti et al., 1993)). This Reactive Tabu Search is an enhance version of the Tabu search. It adds two new elements to the classic Tabu Search. The first one concerns the size of the tabu list: in the Reactive Tabu Search, this one is not constant anymore but it dynamically evolves according to the context. Thus, when the exploration process visits too often the same solutions, the tabu list is extended in order to favor the diversification of the search process. On the other hand, when the process has not visited an already known solution for a high number of iterations, the tabu list is shortened in order to favor the intensification of the search process. The second new element concerns the adding of cycle detection capacities. Thus, when a cycle is detected, the process applies random movements in order to break the cycle. See the batch dedicated page.",
@@ -246,8 +251,7 @@ public class TabuSearchReactive extends ALocalSearchAlgorithm {
 		int tabuListSize = tabuListSizeInit;
 		ParametersSet bestSolutionAlgo = this.solutionInit;
 		tabuList.add(bestSolutionAlgo);
-		double currentFitness = (Double) currentExperiment.launchSimulationsWithSolution(bestSolutionAlgo)
-				.get(IKeyword.FITNESS).get(0);
+		double currentFitness = evaluate(bestSolutionAlgo);
 		testedSolutions.put(bestSolutionAlgo, currentFitness);
 
 		
@@ -306,8 +310,7 @@ public class TabuSearchReactive extends ALocalSearchAlgorithm {
 					}
 					Double neighborFitness = testedSolutions.get(neighborSol);
 					if (neighborFitness == null || neighborFitness == Double.MAX_VALUE) {
-						neighborFitness = (Double) currentExperiment.launchSimulationsWithSolution(neighborSol)
-								.get(IKeyword.FITNESS).get(0);
+						neighborFitness = evaluate(neighborSol);
 					}
 					testedSolutions.put(neighborSol, neighborFitness);
 					if (keepSol(neighborSol, neighborFitness, bestFitnessAlgo)) {
@@ -345,8 +348,7 @@ public class TabuSearchReactive extends ALocalSearchAlgorithm {
 						}
 						tabuList.add(bestSolutionAlgo);
 					}
-					currentFitness = (Double) currentExperiment.launchSimulationsWithSolution(bestSolutionAlgo)
-							.get(IKeyword.FITNESS).get(0);
+					currentFitness = evaluate(bestSolutionAlgo);
 					testedSolutions.put(bestSolutionAlgo, currentFitness);
 					if (nbIt > iterMax) {
 						break;
@@ -112,7 +112,12 @@ import msi.gaml.types.IType;
 						type = IType.LABEL,
 						optional = true,
 						values = { IKeyword.MIN, IKeyword.MAX, "avr" },
-						doc = @doc ("the agregation method")) },
+						doc = @doc ("the agregation method")),
+				@facet (
+						name = AOptimizationAlgorithm.FITNESS_CACHE,
+						type = IType.STRING,
+						optional = true,
+						doc = @doc (AOptimizationAlgorithm.FITNESS_CACHE_DOC)) },
 		omissible = IKeyword.NAME)
 @doc (
 		value = "This is a simple implementation of Genetic Algorithms (GA). See the wikipedia article and [batch161 the batch dedicated page]. The principle of the GA is to search an optimal solution by applying evolution operators on an initial population of solutions. There are three types of evolution operators: crossover, mutation and selection. Different techniques can be applied for this selection. Most of them are based on the solution quality (fitness).",
@@ -322,11 +327,7 @@ public class GeneticAlgorithm extends AOptimizationAlgorithm {
 				solTotest.add(sol);
 			}
 		}
-		Map<ParametersSet, Double> fitnessRes = currentExperiment.launchSimulationsWithSolution(solTotest).entrySet().stream()
-				.collect(Collectors.toMap(
-						e -> e.getKey(), 
-						e -> (Double) e.getValue().get(IKeyword.FITNESS).get(0)
-						));
+		Map<ParametersSet, Double> fitnessRes = evaluate(solTotest);
 		testedSolutions.putAll(fitnessRes);
 		for (final Chromosome chromosome : population) {
 			ParametersSet ps = paramToCh.get(chromosome);
@@ -362,8 +363,7 @@ public class GeneticAlgorithm extends AOptimizationAlgorithm {
 		final ParametersSet sol = chromosome.convertToSolution(scope, currentExperiment.getParametersToExplore());
 		Double fitness = testedSolutions.get(sol);
 		if (fitness == null) {
-			fitness = (Double) currentExperiment.launchSimulationsWithSolution(sol)
-					.get(IKeyword.FITNESS).get(0);
+			fitness = evaluate(sol);
 		}
 		testedSolutions.put(sol, fitness);
 		chromosome.setFitness(fitness);
@@ -427,11 +427,7 @@ public class GeneticAlgorithm extends AOptimizationAlgorithm {
 				solTotest.add(sol);
 			}
 		}
-		Map<ParametersSet, Double> res = currentExperiment.launchSimulationsWithSolution(solTotest)
-				.entrySet().stream().collect(Collectors.toMap(
-						e -> e.getKey(), 
-						e -> (Double) e.getValue().get(IKeyword.FITNESS).get(0))
-						);
+		Map<ParametersSet, Double> res = evaluate(solTotest);
 		testedSolutions.putAll(res);
 		results.putAll(res);
 		
@@ -474,7 +470,7 @@ public class GeneticAlgorithm extends AOptimizationAlgorithm {
 					}
 					Double neighborFitness = testedSolutions.get(neighborSol);
 					if (neighborFitness == null) {
-						neighborFitness = (Double) currentExperiment.launchSimulationsWithSolution(neighborSol).get(IKeyword.FITNESS).get(0);
+						neighborFitness = evaluate(neighborSol);
 						testedSolutions.put(neighborSol, neighborFitness);
 					}
 					
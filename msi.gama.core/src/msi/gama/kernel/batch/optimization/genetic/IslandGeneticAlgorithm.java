@@ -0,0 +1,573 @@
+/*******************************************************************************************************
+ *
+ * IslandGeneticAlgorithm.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.kernel.batch.optimization.genetic;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+import msi.gama.common.interfaces.IKeyword;
+import msi.gama.kernel.batch.optimization.AOptimizationAlgorithm;
+import msi.gama.kernel.experiment.BatchAgent;
+import msi.gama.kernel.experiment.IExperimentPlan;
+import msi.gama.kernel.experiment.IParameter;
+import msi.gama.kernel.experiment.ParameterAdapter;
+import msi.gama.kernel.experiment.ParametersSet;
+import msi.gama.precompiler.GamlAnnotations.doc;
+import msi.gama.precompiler.GamlAnnotations.example;
+import msi.gama.precompiler.GamlAnnotations.facet;
+import msi.gama.precompiler.GamlAnnotations.facets;
+import msi.gama.precompiler.GamlAnnotations.inside;
+import msi.gama.precompiler.GamlAnnotations.symbol;
+import msi.gama.precompiler.GamlAnnotations.usage;
+import msi.gama.precompiler.IConcept;
+import msi.gama.precompiler.ISymbolKind;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gaml.descriptions.IDescription;
+import msi.gaml.expressions.IExpression;
+import msi.gaml.operators.Cast;
+import msi.gaml.types.IType;
+
+/**
+ * An island-model variant of the genetic algorithm. The population is split in several islands that evolve
+ * asynchronously: instead of evaluating a whole generation and waiting for its slowest simulation, a new child is bred
+ * in an island as soon as there is room for a new simulation, and replaces the worst chromosome of its island as soon
+ * as its fitness is known (steady-state replacement). Every <code>migration_interval</code> evaluations, the best
+ * chromosomes of an island migrate to the next one (ring topology). Each island can use its own selection, crossover
+ * and mutation operators.
+ *
+ * The children are handed one by one to the batch agent, which runs them as a stream: the simulations (or the
+ * workers of a headless farm) are thus always busy until the budget of evaluations is spent.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+@symbol (
+		name = IKeyword.ISLAND_GENETIC,
+		kind = ISymbolKind.BATCH_METHOD,
+		with_sequence = false,
+		concept = { IConcept.BATCH, IConcept.ALGORITHM })
+@inside (
+		kinds = { ISymbolKind.EXPERIMENT })
+@facets (
+		value = { @facet (
+				name = IKeyword.NAME,
+				type = IType.ID,
+				optional = false,
+				internal = true,
+				doc = @doc ("The name of this method. For internal use only")),
+				@facet (
+						name = GeneticAlgorithm.POP_DIM,
+						type = IType.INT,
+						optional = true,
+						doc = @doc ("size of the population of each island")),
+				@facet (
+						name = GeneticAlgorithm.CROSSOVER_PROB,
+						type = IType.FLOAT,
+						optional = true,
+						doc = @doc ("crossover probability between two individual solutions")),
+				@facet (
+						name = GeneticAlgorithm.MUTATION_PROB,
+						type = IType.FLOAT,
+						optional = true,
+						doc = @doc ("mutation probability for an individual solution")),
+				@facet (
+						name = GeneticAlgorithm.MAX_GEN,
+						type = IType.INT,
+						optional = true,
+						doc = @doc ("number of generations: each island breeds max_gen times pop_dim solutions")),
+				@facet (
+						name = GeneticAlgorithm.STOCHASTIC_SEL,
+						type = IType.BOOL,
+						optional = true,
+						doc = @doc ("if true, use a stochastic selection algorithm (roulette) rather a determistic one (keep the best solutions) in the islands that do not specify their own selection")),
+				@facet (
+						name = IslandGeneticAlgorithm.NB_ISLANDS,
+						type = IType.INT,
+						optional = true,
+						doc = @doc ("number of islands (4 by default)")),
+				@facet (
+						name = IslandGeneticAlgorithm.MIGRATION_INTERVAL,
+						type = IType.INT,
+						optional = true,
+						doc = @doc ("number of evaluations completed in an island between two migrations of its best solutions to the next island (pop_dim by default)")),
+				@facet (
+						name = IslandGeneticAlgorithm.MIGRATION_SIZE,
+						type = IType.INT,
+						optional = true,
+						doc = @doc ("number of solutions that migrate (1 by default)")),
+				@facet (
+						name = IslandGeneticAlgorithm.SELECTIONS,
+						type = IType.LIST,
+						of = IType.STRING,
+						optional = true,
+						doc = @doc ("the selection operators of the islands (\"best\" or \"roulette\"), used in turn by the successive islands")),
+				@facet (
+						name = IslandGeneticAlgorithm.CROSSOVERS,
+						type = IType.LIST,
+						of = IType.STRING,
+						optional = true,
+						doc = @doc ("the crossover operators of the islands (\"one_point\"), used in turn by the successive islands")),
+				@facet (
+						name = IslandGeneticAlgorithm.MUTATIONS,
+						type = IType.LIST,
+						of = IType.STRING,
+						optional = true,
+						doc = @doc ("the mutation operators of the islands (\"one_var\"), used in turn by the successive islands")),
+				@facet (
+						name = IKeyword.MAXIMIZE,
+						type = IType.FLOAT,
+						optional = true,
+						doc = @doc ("the value the algorithm tries to maximize")),
+				@facet (
+						name = IKeyword.MINIMIZE,
+						type = IType.FLOAT,
+						optional = true,
+						doc = @doc ("the value the algorithm tries to minimize")),
+				@facet (
+						name = IKeyword.AGGREGATION,
+						type = IType.LABEL,
+						optional = true,
+						values = { IKeyword.MIN, IKeyword.MAX, "avr" },
+						doc = @doc ("the agregation method")),
+				@facet (
+						name = AOptimizationAlgorithm.FITNESS_CACHE,
+						type = IType.STRING,
+						optional = true,
+						doc = @doc (AOptimizationAlgorithm.FITNESS_CACHE_DOC)) },
+		omissible = IKeyword.NAME)
+@doc (
+		value = "This is an island-model variant of the genetic algorithm: several populations evolve asynchronously, each child replacing the worst solution of its island as soon as it is evaluated, and the best solutions of each island regularly migrate to the next one. It keeps all the simulations busy instead of waiting for the slowest simulation of each generation.",
+		usages = { @usage (
+				value = "As other batch methods, the basic syntax of the `island_genetic` statement uses `method island_genetic` instead of the expected `island_genetic name: id` : ",
+				examples = { @example (
+						value = "method island_genetic [facet: value];",
+						isExecutable = false) }),
+				@usage (
+						value = "For example: ",
+						examples = { @example (
+								value = "method island_genetic maximize: food_gathered pop_dim: 8 nb_islands: 4 migration_interval: 16 selections: [\"best\", \"roulette\"] max_gen: 20; ",
+								isExecutable = false) }) })
+public class IslandGeneticAlgorithm extends GeneticAlgorithm {
+
+	/** The Constant NB_ISLANDS. */
+	protected static final String NB_ISLANDS = "nb_islands";
+
+	/** The Constant MIGRATION_INTERVAL. */
+	protected static final String MIGRATION_INTERVAL = "migration_interval";
+
+	/** The Constant MIGRATION_SIZE. */
+	protected static final String MIGRATION_SIZE = "migration_size";
+
+	/** The Constant SELECTIONS. */
+	protected static final String SELECTIONS = "selections";
+
+	/** The Constant CROSSOVERS. */
+	protected static final String CROSSOVERS = "crossovers";
+
+	/** The Constant MUTATIONS. */
+	protected static final String MUTATIONS = "mutations";
+
+	/** The selection operators, indexed by name. */
+	static final Map<String, Supplier<Selection>> SELECTION_OPS =
+			Map.of("best", SelectionBest::new, "roulette", SelectionRoulette::new);
+
+	/** The crossover operators, indexed by name. */
+	static final Map<String, Supplier<CrossOver>> CROSSOVER_OPS = Map.of("one_point", CrossOver1Pt::new);
+
+	/** The mutation operators, indexed by name. */
+	static final Map<String, Supplier<Mutation>> MUTATION_OPS = Map.of("one_var", Mutation1Var::new);
+
+	/**
+	 * An island: a population and the operators used to make it evolve.
+	 */
+	class Island {
+
+		/** The index. */
+		final int index;
+
+		/** The population, at most populationDim chromosomes whose fitness is known. */
+		final List<Chromosome> population = new ArrayList<>();
+
+		/** The operators. */
+		final Selection selection;
+
+		/** The cross over. */
+		final CrossOver crossOver;
+
+		/** The mutation. */
+		final Mutation mutation;
+
+		/** The number of chromosomes bred (including the initial ones) and evaluated. */
+		int bred, evaluated;
+
+		/**
+		 * Instantiates a new island.
+		 *
+		 * @param index
+		 *            the index
+		 * @param selection
+		 *            the selection
+		 * @param crossOver
+		 *            the cross over
+		 * @param mutation
+		 *            the mutation
+		 */
+		Island(final int index, final Selection selection, final CrossOver crossOver, final Mutation mutation) {
+			this.index = index;
+			this.selection = selection;
+			this.crossOver = crossOver;
+			this.mutation = mutation;
+		}
+
+		/**
+		 * Whether the island can breed a new chromosome now: its budget is not spent, and it has either initial
+		 * chromosomes to create or at least one evaluated chromosome to breed from.
+		 *
+		 * @return true, if successful
+		 */
+		boolean canBreed() {
+			return bred < maxGenerations * populationDim && (bred < populationDim || !population.isEmpty());
+		}
+
+		/**
+		 * Breeds a new chromosome: a random one while the initial population is not complete, otherwise a child of
+		 * two parents drawn from the mating pool returned by the selection operator, possibly crossed over and
+		 * mutated.
+		 *
+		 * @param scope
+		 *            the scope
+		 * @param variables
+		 *            the variables
+		 * @return the chromosome
+		 */
+		Chromosome breed(final IScope scope, final List<IParameter.Batch> variables) {
+			bred++;
+			if (bred <= populationDim) return new Chromosome(scope, variables, true);
+			List<Chromosome> pool = selection.select(scope, population, populationDim, isMaximize());
+			if (pool.isEmpty()) { pool = population; }
+			final Chromosome parent1 = pool.get(scope.getRandom().between(0, pool.size() - 1));
+			final Chromosome parent2 = pool.get(scope.getRandom().between(0, pool.size() - 1));
+			Chromosome child = null;
+			if (scope.getRandom().next() < crossoverProb && !variables.isEmpty()) {
+				final List<Chromosome> children = new ArrayList<>(crossOver.crossOver(scope, parent1, parent2));
+				if (!children.isEmpty()) { child = children.get(scope.getRandom().between(0, children.size() - 1)); }
+			}
+			if (child == null) { child = new Chromosome(parent1); }
+			if (scope.getRandom().next() < mutationProb && !variables.isEmpty()) {
+				child = mutation.mutate(scope, child, variables);
+			}
+			return child;
+		}
+
+		/**
+		 * Inserts an evaluated chromosome in the population: it is added if the population is not complete,
+		 * otherwise it replaces the worst chromosome if it is better.
+		 *
+		 * @param chromosome
+		 *            the chromosome
+		 */
+		void insert(final Chromosome chromosome) {
+			if (population.contains(chromosome)) return;
+			if (population.size() < populationDim) {
+				population.add(chromosome);
+				return;
+			}
+			int worst = 0;
+			for (int i = 1; i < population.size(); i++) {
+				if (isBetter(population.get(worst), population.get(i))) { worst = i; }
+			}
+			if (isBetter(chromosome, population.get(worst))) { population.set(worst, chromosome); }
+		}
+
+		/**
+		 * Returns the best chromosomes of the population.
+		 *
+		 * @param nb
+		 *            the number of chromosomes
+		 * @return the list
+		 */
+		List<Chromosome> best(final int nb) {
+			final List<Chromosome> sorted = new ArrayList<>(population);
+			sorted.sort((c1, c2) -> isBetter(c1, c2) ? -1 : isBetter(c2, c1) ? 1 : 0);
+			return sorted.subList(0, Math.min(nb, sorted.size()));
+		}
+	}
+
+	/**
+	 * A chromosome waiting for its fitness, and the island where it has been bred.
+	 */
+	static class Birth {
+
+		/** The island. */
+		final Island island;
+
+		/** The chromosome. */
+		final Chromosome chromosome;
+
+		/**
+		 * Instantiates a new birth.
+		 *
+		 * @param island
+		 *            the island
+		 * @param chromosome
+		 *            the chromosome
+		 */
+		Birth(final Island island, final Chromosome chromosome) {
+			this.island = island;
+			this.chromosome = chromosome;
+		}
+	}
+
+	/** The number of islands. */
+	int nbIslands = 4;
+
+	/** The migration interval. */
+	int migrationInterval = -1;
+
+	/** The migration size. */
+	int migrationSize = 1;
+
+	/** The names of the operators of the islands. */
+	List<String> selections, crossOvers, mutations;
+
+	/** The islands. */
+	List<Island> islands = new ArrayList<>();
+
+	/** The chromosomes being evaluated, indexed by their solution. */
+	final Map<ParametersSet, List<Birth>> pending = new HashMap<>();
+
+	/**
+	 * Instantiates a new island genetic algorithm.
+	 *
+	 * @param species
+	 *            the species
+	 */
+	public IslandGeneticAlgorithm(final IDescription species) {
+		super(species);
+	}
+
+	@Override
+	public void initParams(final IScope scope) {
+		super.initParams(scope);
+		final IExpression nb = getFacet(NB_ISLANDS);
+		if (nb != null) { nbIslands = Math.max(1, Cast.asInt(scope, nb.value(scope))); }
+		final IExpression interval = getFacet(MIGRATION_INTERVAL);
+		if (interval != null) { migrationInterval = Cast.asInt(scope, interval.value(scope)); }
+		final IExpression size = getFacet(MIGRATION_SIZE);
+		if (size != null) { migrationSize = Cast.asInt(scope, size.value(scope)); }
+		populationDim = Math.max(1, populationDim);
+		if (migrationInterval <= 0) { migrationInterval = populationDim; }
+		selections = operators(scope, SELECTIONS, SELECTION_OPS);
+		crossOvers = operators(scope, CROSSOVERS, CROSSOVER_OPS);
+		mutations = operators(scope, MUTATIONS, MUTATION_OPS);
+	}
+
+	/**
+	 * Reads the names of the operators of the islands.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param facet
+	 *            the facet
+	 * @param known
+	 *            the known operators
+	 * @return the names, or null if the facet is not defined
+	 */
+	private List<String> operators(final IScope scope, final String facet, final Map<String, ?> known) {
+		final IExpression exp = getFacet(facet);
+		if (exp == null) return null;
+		final List<String> names = new ArrayList<>();
+		for (final Object o : Cast.asList(scope, exp.value(scope))) {
+			final String name = Cast.asString(scope, o);
+			if (!known.containsKey(name)) throw GamaRuntimeException
+					.error("Unknown operator " + name + " in " + facet + ": use one of " + known.keySet(), scope);
+			names.add(name);
+		}
+		return names.isEmpty() ? null : names;
+	}
+
+	/**
+	 * Returns the operator of an island.
+	 *
+	 * @param <T>
+	 *            the type of operator
+	 * @param names
+	 *            the names of the operators of the islands
+	 * @param known
+	 *            the known operators
+	 * @param index
+	 *            the index of the island
+	 * @param defaultOp
+	 *            the operator used if no name is defined
+	 * @return the operator
+	 */
+	private static <T> T operator(final List<String> names, final Map<String, Supplier<T>> known, final int index,
+			final T defaultOp) {
+		if (names == null) return defaultOp;
+		return known.get(names.get(index % names.size())).get();
+	}
+
+	@Override
+	public ParametersSet findBestSolution(final IScope scope) throws GamaRuntimeException {
+		final List<IParameter.Batch> variables = currentExperiment.getParametersToExplore();
+		setBestFitness(null);
+		initializeTestedSolutions();
+		pending.clear();
+		islands = new ArrayList<>();
+		for (int i = 0; i < nbIslands; i++) {
+			islands.add(new Island(i, operator(selections, SELECTION_OPS, i, selectionOp),
+					operator(crossOvers, CROSSOVER_OPS, i, crossOverOp), operator(mutations, MUTATION_OPS, i, mutationOp)));
+		}
+		currentExperiment.streamSimulationsWithSolutions(new Iterator<>() {
+
+			/** The next solution to evaluate. */
+			ParametersSet next;
+
+			/** The island that will breed the next chromosome. */
+			int turn;
+
+			/**
+			 * Breeds children until one of them has to be evaluated. The children already known are evaluated at once
+			 * and count in the budget of their island, so that breeding always ends. Returns false when no island can
+			 * breed: either all the budgets are spent, or the islands wait for the fitness of the children being
+			 * evaluated, in which case the batch agent (or the evaluator) asks again as soon as one is known.
+			 */
+			@Override
+			public boolean hasNext() {
+				while (next == null && !currentExperiment.dead()) {
+					Island island = null;
+					for (int i = 0; i < islands.size() && island == null; i++) {
+						final Island candidate = islands.get((turn + i) % islands.size());
+						if (candidate.canBreed()) { island = candidate; }
+					}
+					if (island == null) return false;
+					turn = (island.index + 1) % islands.size();
+					final Chromosome child = island.breed(scope, variables);
+					final ParametersSet sol = child.convertToSolution(scope, variables);
+					final List<Birth> births = pending.get(sol);
+					if (births != null) {
+						// Already being evaluated: the child will get its fitness at the same time
+						births.add(new Birth(island, child));
+						continue;
+					}
+					Double fitness = testedSolutions.get(sol);
+					if (fitness == null && cache != null) {
+						fitness = cache.get(sol, currentExperiment.getSeeds());
+						if (fitness != null) { updateBestFitness(sol, fitness); }
+					}
+					if (fitness != null) {
+						testedSolutions.put(sol, fitness);
+						evaluated(new Birth(island, child), fitness);
+						continue;
+					}
+					final List<Birth> list = new ArrayList<>();
+					list.add(new Birth(island, child));
+					pending.put(sol, list);
+					next = sol;
+				}
+				return next != null;
+			}
+
+			@Override
+			public ParametersSet next() {
+				if (!hasNext()) throw new NoSuchElementException();
+				final ParametersSet result = next;
+				next = null;
+				return result;
+			}
+		}, (sol, outputs) -> {
+			final List<Birth> births = pending.remove(sol);
+			final List<Object> values = outputs.get(IKeyword.FITNESS);
+			if (births == null || values == null || values.isEmpty() || currentExperiment.dead()) return;
+			final Double fitness = Cast.asFloat(scope, values.get(0));
+			testedSolutions.put(sol, fitness);
+			store(sol, currentExperiment.getSeeds(), fitness);
+			for (final Birth birth : births) { evaluated(birth, fitness); }
+		});
+		return getBestSolution();
+	}
+
+	/**
+	 * Called when the fitness of a chromosome is known: it is inserted in its island, which sends its best
+	 * chromosomes to the next island if it is time to migrate.
+	 *
+	 * @param birth
+	 *            the birth
+	 * @param fitness
+	 *            the fitness
+	 */
+	void evaluated(final Birth birth, final double fitness) {
+		birth.chromosome.setFitness(fitness);
+		final Island island = birth.island;
+		island.insert(birth.chromosome);
+		island.evaluated++;
+		if (islands.size() > 1 && island.evaluated % migrationInterval == 0) {
+			final Island target = islands.get((island.index + 1) % islands.size());
+			for (final Chromosome migrant : island.best(migrationSize)) { target.insert(new Chromosome(migrant)); }
+		}
+	}
+
+	/**
+	 * Whether a chromosome is better than another one.
+	 *
+	 * @param c1
+	 *            the c 1
+	 * @param c2
+	 *            the c 2
+	 * @return true, if is better
+	 */
+	boolean isBetter(final Chromosome c1, final Chromosome c2) {
+		return isMaximize() ? c1.getFitness() > c2.getFitness() : c1.getFitness() < c2.getFitness();
+	}
+
+	@Override
+	public void addParametersTo(final List<IParameter.Batch> params, final BatchAgent agent) {
+		super.addParametersTo(params, agent);
+		params.add(new ParameterAdapter("Number of islands", IExperimentPlan.BATCH_CATEGORY_NAME, IType.INT) {
+
+			@Override
+			public Object value() {
+				return nbIslands;
+			}
+
+		});
+		params.add(new ParameterAdapter("Migration", IExperimentPlan.BATCH_CATEGORY_NAME, "", IType.STRING) {
+
+			@Override
+			public String value() {
+				return migrationSize + " solution(s) every " + migrationInterval + " evaluations";
+			}
+
+		});
+		params.add(new ParameterAdapter("Best fitness of the islands", IExperimentPlan.BATCH_CATEGORY_NAME, "",
+				IType.STRING) {
+
+			@Override
+			public String value() {
+				final StringBuilder sb = new StringBuilder();
+				for (final Island island : new ArrayList<>(islands)) {
+					final List<Chromosome> best = island.best(1);
+					if (sb.length() > 0) { sb.append(" | "); }
+					sb.append(best.isEmpty() ? "-" : String.valueOf(best.get(0).getFitness()));
+				}
+				return sb.toString();
+			}
+
+		});
+	}
+
+}
@@ -11,21 +11,31 @@ package msi.gama.kernel.experiment;
 
 import static msi.gaml.operators.Cast.asFloat;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Vector;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
 import java.util.stream.DoubleStream;
 
 import org.jfree.data.statistics.Statistics;
 
 import msi.gama.common.interfaces.IGui;
+import msi.gama.common.util.FileUtils;
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.interfaces.IScopedStepable;
+import msi.gama.kernel.batch.BatchJournal;
+import msi.gama.kernel.batch.IBatchEvaluator;
 import msi.gama.kernel.batch.exploration.AExplorationAlgorithm;
 import msi.gama.kernel.batch.optimization.AOptimizationAlgorithm;
 import msi.gama.kernel.experiment.IParameter.Batch;
@@ -38,6 +48,7 @@ import msi.gama.precompiler.GamlAnnotations.doc;
 import msi.gama.precompiler.GamlAnnotations.experiment;
 import msi.gama.runtime.GAMA;
 import msi.gama.runtime.IScope;
+import msi.gama.runtime.concurrent.GamaExecutorService;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.GamaListFactory;
 import msi.gama.util.GamaMapFactory;
@@ -89,6 +100,12 @@ public class BatchAgent extends ExperimentAgent {
 	/** Keep simulations between ''runs'' */
 	private boolean simDispose;
 
+	/** The journal of the points evaluated, if any. */
+	private BatchJournal journal;
+
+	/** Whether the journal has been opened by this agent (from the journal facet), and must be closed by it. */
+	private boolean ownsJournal;
+
 	/**
 	 * Instantiates a new batch agent.
 	 *
@@ -127,6 +144,29 @@ public class BatchAgent extends ExperimentAgent {
 	@Override
 	public void schedule(final IScope scope) {
 		super.schedule(scope);
+		// When resuming an exploration, the seed it used is restored so that the exploration algorithm follows the same
+		// path; the points already evaluated are then read from the journal
+		journal = getSpecies().getJournal();
+		if (journal == null && getSpecies().hasFacet(IKeyword.JOURNAL)) {
+			final String path = Cast.asString(scope, getSpecies().getFacet(IKeyword.JOURNAL).value(scope));
+			try {
+				journal = BatchJournal.open(new File(FileUtils.constructAbsoluteFilePath(scope, path, false)), true);
+			} catch (final IOException e) {
+				throw GamaRuntimeException.create(e, scope);
+			}
+			ownsJournal = true;
+		}
+		if (journal != null) {
+			if (journal.getSeed() != null) {
+				setSeed(journal.getSeed());
+			} else {
+				try {
+					journal.recordSeed(getSeed());
+				} catch (final IOException e) {
+					throw GamaRuntimeException.create(e, scope);
+				}
+			}
+		}
 		// Necessary to run it here, as if the seed has been fixed in the
 		// experiment, it is now defined and initialized
 		if (getSpecies().keepsSeed()) {
@@ -152,6 +192,18 @@ public class BatchAgent extends ExperimentAgent {
 		return false;
 	}
 
+	@Override
+	public void dispose() {
+		if (dead) return;
+		super.dispose();
+		if (!ownsJournal) return;
+		try {
+			journal.close();
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
+	}
+
 	@Override
 	public void reset() {
 		// We first save the results of the various simulations
@@ -266,21 +318,43 @@ public class BatchAgent extends ExperimentAgent {
 	public int getRunNumber() { return this.runNumber; }
 
 	/**
-	 * Creates the simulation.
-	 *
-	 * @param sim
-	 *            the sim
-	 * @param simToParameter
-	 *            the sim to parameter
-	 * @return the simulation agent
+	 * A point of the parameter space being evaluated by the simulations launched by
+	 * {@link BatchAgent#streamSimulationsWithSolutions(Iterator, BiConsumer)}: its outputs are gathered until all its
+	 * repetitions are over.
 	 */
-	private SimulationAgent createSimulation(final Map<String, Object> sim,
-			final Map<IAgent, ParametersSet> simToParameter) {
-		ParametersSet sol = (ParametersSet) sim.get("parameters");
-		final SimulationAgent s = createSimulation(sol, true);
-		s.setSeed((Double) sim.get("seed"));
-		simToParameter.put(s, sol);
-		return s;
+	private static class Point {
+
+		/** The parameters. */
+		final ParametersSet parameters;
+
+		/** The number of simulations created and finished. */
+		int created, finished;
+
+		/** The outputs of the finished simulations. */
+		final Map<String, List<Object>> outputs = GamaMapFactory.create();
+
+		/**
+		 * Instantiates a new point.
+		 *
+		 * @param parameters
+		 *            the parameters
+		 */
+		Point(final ParametersSet parameters) {
+			this.parameters = parameters;
+		}
+
+		/**
+		 * Adds the outputs of a finished simulation.
+		 *
+		 * @param out
+		 *            the out
+		 */
+		void add(final Map<String, Object> out) {
+			finished++;
+			for (final Map.Entry<String, Object> entry : out.entrySet()) {
+				outputs.computeIfAbsent(entry.getKey(), k -> GamaListFactory.create()).add(entry.getValue());
+			}
+		}
 	}
 
 	/**
@@ -294,69 +368,110 @@ public class BatchAgent extends ExperimentAgent {
 	 */
 	public IMap<ParametersSet, Map<String, List<Object>>> launchSimulationsWithSolution(final List<ParametersSet> sols)
 			throws GamaRuntimeException {
-		// We first reset the currentSolution and the fitness values
-		final SimulationPopulation pop = getSimulationPopulation();
 		/*
 		 * Results gives for each "parameter set" (a point in the parameter space) a mapping between the key outputs of
 		 * interest (as stated in facet 'outputs' or fitness if calibration process) and any results per repetition
 		 */
-		IMap<ParametersSet, Map<String, List<Object>>> res = GamaMapFactory.create();
-		if (pop == null) return res;
-
-		final List<Map<String, Object>> sims = new ArrayList<>();
-
-		int numberOfCores = pop.getMaxNumberOfConcurrentSimulations();
-		if (numberOfCores == 0) { numberOfCores = 1; }
-
-		// The values present in the solution are passed to the parameters of
-		// the experiment
-		// @Patrick What this set was for ?
-		// LinkedHashSet<ParametersSet> sols_u = new LinkedHashSet<>(sols);
-		for (ParametersSet sol : sols) {
-			for (int i = 0; i < getSeeds().length; i++) {
-				Map<String, Object> sim = new HashMap<>();
-				sim.put("parameters", sol);
-				sim.put("seed", getSeeds()[i]);
-				sims.add(sim);
+		final IMap<ParametersSet, Map<String, List<Object>>> res = GamaMapFactory.create();
+		// Each point is evaluated once, however many times it appears in the list
+		final Map<ParametersSet, Integer> occurrences = new LinkedHashMap<>();
+		for (final ParametersSet sol : sols) { occurrences.merge(sol, 1, Integer::sum); }
+		streamSimulationsWithSolutions(occurrences.keySet().iterator(), (ps, outputs) -> {
+			// The outputs of its repetitions are repeated as many times as the point (the fitness being already
+			// combined), and copied so that the lists of the journal are never modified
+			final int times = occurrences.get(ps);
+			final Map<String, List<Object>> copy = GamaMapFactory.create();
+			for (final Map.Entry<String, List<Object>> entry : outputs.entrySet()) {
+				final List<Object> values = GamaListFactory.create();
+				final int n = IKeyword.FITNESS.equals(entry.getKey()) ? 1 : times;
+				for (int i = 0; i < n; i++) { values.addAll(entry.getValue()); }
+				copy.put(entry.getKey(), values);
 			}
-		}
-
-		int nb = Math.min(sims.size(), numberOfCores);
-
-		List<Map<String, Object>> simsToRun = new Vector<>();
-
-		for (int i = 0; i < nb; i++) { simsToRun.add(sims.remove(0)); }
-		Map<IAgent, ParametersSet> simToParameter = GamaMapFactory.create();
-		Iterator<Map<String, Object>> it = simsToRun.iterator();
-		while (it.hasNext()) { createSimulation(it.next(), simToParameter); }
+			res.put(ps, copy);
+		});
+		return res;
+	}
 
-		while (pop.hasScheduledSimulations() && !dead) {
+	/**
+	 * Launch the simulations of a (possibly very large) sequence of solutions, each of them repeated as many times as
+	 * there are seeds. The solutions are pulled from the iterator only when there is room for new simulations: at most
+	 * as many simulations as the number of concurrent simulations allowed are alive at the same time, and no new
+	 * simulation is started while the memory used after the last garbage collection exceeds the share of the memory
+	 * allowed by {@link GamaExecutorService#CONCURRENCY_SIMULATIONS_MEMORY}. The outputs of a solution are combined
+	 * (for the fitness) and passed to the reducer as soon as all its simulations are over, so that they can be
+	 * aggregated or written immediately; if the simulations are not kept, they are disposed as soon as they are over.
+	 * If the experiment plan has a batch evaluator, the solutions are handed to it instead.
+	 *
+	 * The iterator is asked again for new solutions each time a solution has been evaluated: a sequence whose next
+	 * solutions depend on the outputs of the previous ones (like the children of a genetic algorithm) can thus answer
+	 * false while it waits for them. The sequence is over when it answers false while no simulation is running.
+	 *
+	 * @param sols
+	 *            the solutions to evaluate
+	 * @param reducer
+	 *            the reducer of the outputs of each solution (can be null)
+	 * @throws GamaRuntimeException
+	 *             the gama runtime exception
+	 */
+	public void streamSimulationsWithSolutions(final Iterator<ParametersSet> sols,
+			final BiConsumer<ParametersSet, Map<String, List<Object>>> reducer) throws GamaRuntimeException {
+		final SimulationPopulation pop = getSimulationPopulation();
+		if (pop == null) return;
+		final IBatchEvaluator evaluator = getSpecies().getBatchEvaluator();
+		if (evaluator != null) {
+			evaluateRemotely(evaluator, sols, reducer);
+			return;
+		}
+		final int numberOfCores = Math.max(1, pop.getMaxNumberOfConcurrentSimulations());
+		final Map<IAgent, Point> running = new HashMap<>();
+		Point current = null;
+		int done = 0;
+		int i = 0;
+		do {
+			// We fill the free slots with the next simulations to run
+			while (running.size() < numberOfCores && !dead && (running.isEmpty() || hasMemoryForNewSimulation())) {
+				if (current == null || current.created == getSeeds().length) {
+					if (!sols.hasNext()) { break; }
+					current = new Point(sols.next());
+					// The points already recorded in the journal are not evaluated again
+					final Map<String, List<Object>> recorded = journal == null ? null : journal.get(current.parameters);
+					if (recorded != null) {
+						replay(current.parameters, recorded);
+						if (reducer != null) { reducer.accept(current.parameters, recorded); }
+						current = null;
+						continue;
+					}
+				}
+				final SimulationAgent s = createSimulation(current.parameters, true);
+				s.setSeed(getSeeds()[current.created++]);
+				running.put(s, current);
+			}
+			if (running.isEmpty() || !pop.hasScheduledSimulations()) { break; }
 			// We step all the simulations
 			pop.step(getScope());
 			for (final IScopedStepable st : new ArrayList<>(pop.getActiveStepables())) {
 				final SimulationAgent agent = (SimulationAgent) st;
-				ParametersSet ps = simToParameter.get(agent);
-				currentSolution = new ParametersSet(ps);
-
+				final Point point = running.get(agent);
+				if (point == null) { continue; }
+				currentSolution = new ParametersSet(point.parameters);
 				// test the condition first in case it is paused
 				final boolean stopConditionMet = dead
 						|| Cast.asBool(agent.getScope(), agent.getScope().evaluate(stopCondition, agent).getValue());
 				final boolean mustStop = stopConditionMet || agent.dead() || agent.getScope().isPaused();
 				if (mustStop) {
 					pop.unscheduleSimulation(agent);
-					// pop.remove(agent);
-					IMap<String, Object> localRes = manageOutputAndCloseSimulation(agent, ps, false, simDispose);
-
-					if (!res.containsKey(ps)) { res.put(ps, GamaMapFactory.create()); }
-					for (String output : localRes.keySet()) {
-						if (!res.get(ps).containsKey(output)) { res.get(ps).put(output, GamaListFactory.create()); }
-						res.get(ps).get(output).add(localRes.get(output));
-					}
-
-					if (!sims.isEmpty()) { createSimulation(sims.remove(0), simToParameter); }
-
+					running.remove(agent);
+					point.add(manageOutputAndCloseSimulation(agent, point.parameters, false, simDispose));
+					done++;
+					if (point.finished == getSeeds().length) { reduce(point, reducer); }
 				}
 			}
+			// We inform the status line
+			if (!dead) {
+				getScope().getGui().getStatus().setStatus(done + " simulations over (" + running.size()
+						+ " running, using " + pop.getNumberOfActiveThreads() + " threads)", "small.batch" + i / 5);
+			}
+			if (++i == 20) { i = 0; }
 			// We then verify that the front scheduler has not been paused
 			while (getSpecies().getController().isPaused() && !dead) {
 				try {
@@ -365,7 +480,7 @@ public class BatchAgent extends ExperimentAgent {
 					e.printStackTrace();
 				}
 			}
-		}
+		} while (!dead);
 
 		// When the simulations are finished, we give a chance to the outputs of
 		// the experiment and the experiment
@@ -376,37 +491,185 @@ public class BatchAgent extends ExperimentAgent {
 		super.step(getScope());
 
 		// If the agent is dead, we return immediately
-		if (dead) return res;
+		if (dead) return;
 		// We reset the experiment agent to erase traces of the current
 		// simulations if any
 		this.reset();
 
+		// At last, we update the parameters (last fitness and best fitness)
+		getScope().getGui().showParameterView(getScope(), getSpecies());
+	}
+
+	/**
+	 * Combines the fitness values of a point whose simulations are all over, if the exploration is fitness based, and
+	 * passes its outputs to the reducer.
+	 *
+	 * @param point
+	 *            the point
+	 * @param reducer
+	 *            the reducer
+	 */
+	private void reduce(final Point point, final BiConsumer<ParametersSet, Map<String, List<Object>>> reducer) {
 		if (getSpecies().getExplorationAlgorithm().isFitnessBased()) {
 			// We then return the combination (average, min or max) of the different
 			// fitness values computed by the
 			// different simulation.
-			AOptimizationAlgorithm oAlgo = (AOptimizationAlgorithm) getSpecies().getExplorationAlgorithm();
+			final AOptimizationAlgorithm oAlgo = (AOptimizationAlgorithm) getSpecies().getExplorationAlgorithm();
 			final short fitnessCombination = oAlgo.getCombination();
+			lastSolution = point.parameters;
+			try (DoubleStream fit = point.outputs.get(IKeyword.FITNESS).stream()
+					.mapToDouble(o -> Double.parseDouble(o.toString()))) {
+				lastFitness = fitnessCombination == AOptimizationAlgorithm.C_MAX ? fit.max().getAsDouble()
+						: fitnessCombination == AOptimizationAlgorithm.C_MIN ? fit.min().getAsDouble()
+						: fit.average().getAsDouble();
+			}
+			point.outputs.put(IKeyword.FITNESS, GamaListFactory.createWithoutCasting(Types.FLOAT, lastFitness));
+			// we update the best solution found so far
+			oAlgo.updateBestFitness(lastSolution, lastFitness);
+		}
+		// The points interrupted by the death of the experiment are not recorded
+		if (!dead) { record(point.parameters, point.outputs); }
+		if (reducer != null) { reducer.accept(point.parameters, point.outputs); }
+	}
+
+	/**
+	 * Hands a sequence of solutions to a batch evaluator. The solutions already recorded in the journal are replayed
+	 * instead; the outputs returned by the evaluator are treated as the ones of the solutions evaluated by this agent
+	 * (fitness updated, logged, recorded and passed to the reducer).
+	 *
+	 * @param evaluator
+	 *            the evaluator
+	 * @param sols
+	 *            the sols
+	 * @param reducer
+	 *            the reducer (can be null)
+	 */
+	private void evaluateRemotely(final IBatchEvaluator evaluator, final Iterator<ParametersSet> sols,
+			final BiConsumer<ParametersSet, Map<String, List<Object>>> reducer) {
+		final Iterator<ParametersSet> toEvaluate = new Iterator<>() {
 
-			for (ParametersSet p : res.keySet()) {
-				lastSolution = p;
-				try (DoubleStream fit =
-						res.get(p).get(IKeyword.FITNESS).stream().mapToDouble(o -> Double.parseDouble(o.toString()))) {
-					lastFitness = fitnessCombination == AOptimizationAlgorithm.C_MAX ? fit.max().getAsDouble()
-							: fitnessCombination == AOptimizationAlgorithm.C_MIN ? fit.min().getAsDouble()
-							: fit.average().getAsDouble();
+			ParametersSet next;
+
+			@Override
+			public boolean hasNext() {
+				while (next == null && !dead && sols.hasNext()) {
+					final ParametersSet ps = sols.next();
+					final Map<String, List<Object>> recorded = journal == null ? null : journal.get(ps);
+					if (recorded == null) {
+						next = ps;
+					} else {
+						replay(ps, recorded);
+						if (reducer != null) { reducer.accept(ps, recorded); }
+					}
 				}
-				res.get(p).put(IKeyword.FITNESS, Arrays.asList(lastFitness));
-				// we update the best solution found so far
-				oAlgo.updateBestFitness(lastSolution, lastFitness);
+				return next != null;
+			}
 
+			@Override
+			public ParametersSet next() {
+				if (!hasNext()) throw new NoSuchElementException();
+				final ParametersSet result = next;
+				next = null;
+				return result;
 			}
+		};
+		evaluator.evaluate(getScope(), toEvaluate, getSeeds(), (ps, outputs) -> {
+			currentSolution = new ParametersSet(ps);
+			replay(ps, outputs);
+			log(ps, outputs);
+			if (!dead) { record(ps, outputs); }
+			if (reducer != null) { reducer.accept(ps, outputs); }
+		});
+		super.step(getScope());
+		if (dead) return;
+		this.reset();
+		getScope().getGui().showParameterView(getScope(), getSpecies());
+	}
+
+	/**
+	 * Writes the outputs of a solution evaluated by a batch evaluator to the log of the experiment, if any: one row per
+	 * simulation, the combined fitness being repeated on each row.
+	 *
+	 * @param sol
+	 *            the sol
+	 * @param outputs
+	 *            the outputs
+	 */
+	private void log(final ParametersSet sol, final Map<String, List<Object>> outputs) {
+		final FileOutput output = getSpecies().getLog();
+		if (output == null) return;
+		int rows = 1;
+		for (final List<Object> values : outputs.values()) { rows = Math.max(rows, values.size()); }
+		for (int r = 0; r < rows; r++) {
+			final IMap<String, Object> row = GamaMapFactory.create();
+			for (final Map.Entry<String, List<Object>> entry : outputs.entrySet()) {
+				final List<Object> values = entry.getValue();
+				row.put(entry.getKey(), values.isEmpty() ? null : values.get(Math.min(r, values.size() - 1)));
+			}
+			output.doRefreshWriteAndClose(sol, row);
 		}
+	}
 
-		// At last, we update the parameters (last fitness and best fitness)
-		getScope().getGui().showParameterView(getScope(), getSpecies());
-		return res;
+	/**
+	 * Records the outputs of a point in the journal, if any.
+	 *
+	 * @param sol
+	 *            the sol
+	 * @param outputs
+	 *            the outputs
+	 */
+	private void record(final ParametersSet sol, final Map<String, List<Object>> outputs) {
+		if (journal == null) return;
+		try {
+			journal.record(sol, outputs);
+		} catch (final IOException e) {
+			GAMA.reportError(getScope(), GamaRuntimeException.create(e, getScope()), false);
+		}
+	}
 
+	/**
+	 * Replays a point recorded in the journal: its fitness, if the exploration is fitness based, becomes the last one
+	 * and is used to update the best one found so far.
+	 *
+	 * @param sol
+	 *            the sol
+	 * @param outputs
+	 *            the outputs recorded
+	 */
+	private void replay(final ParametersSet sol, final Map<String, List<Object>> outputs) {
+		final List<Object> fitness = outputs.get(IKeyword.FITNESS);
+		if (!getSpecies().getExplorationAlgorithm().isFitnessBased() || fitness == null || fitness.isEmpty()) return;
+		lastSolution = sol;
+		lastFitness = Cast.asFloat(getScope(), fitness.get(0));
+		((AOptimizationAlgorithm) getSpecies().getExplorationAlgorithm()).updateBestFitness(lastSolution, lastFitness);
+	}
+
+	/**
+	 * Leaves the random number generator of the experiment in the state where the evaluation of solutions by
+	 * {@link #launchSimulationsWithSolution(ParametersSet)} leaves it, i.e. replaced by a new one when the experiment is
+	 * reset (see {@link #reset()}). Used when this evaluation is skipped (solutions replayed from the journal or found
+	 * in a cache), so that the algorithms drawing from this generator explore the same solutions as when it is run.
+	 */
+	public void reseedAsEvaluated() {
+		if (getSpecies().getBatchEvaluator() != null) return;
+		resetRandomGenerator();
+	}
+
+	/**
+	 * Checks whether a new simulation can be started, i.e. whether the memory used by the live objects (as measured
+	 * after the last garbage collection) is under the share of the memory allowed to the simulations.
+	 *
+	 * @return true, if successful
+	 */
+	private static boolean hasMemoryForNewSimulation() {
+		long used = 0;
+		for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() != MemoryType.HEAP) { continue; }
+			final MemoryUsage usage = pool.getCollectionUsage();
+			if (usage != null) { used += usage.getUsed(); }
+		}
+		return used < Runtime.getRuntime().maxMemory() / 100
+				* GamaExecutorService.CONCURRENCY_SIMULATIONS_MEMORY.getValue();
 	}
 
 	/**
@@ -429,6 +692,19 @@ public class BatchAgent extends ExperimentAgent {
 		currentSolution = new ParametersSet(sol);
 		fitnessValues.clear();
 		runNumber = runNumber + 1;
+		// The points already recorded in the journal are not evaluated again
+		final Map<String, List<Object>> recorded = journal == null ? null : journal.get(currentSolution);
+		if (recorded != null) {
+			reseedAsEvaluated();
+			replay(currentSolution, recorded);
+			return recorded;
+		}
+		final IBatchEvaluator evaluator = getSpecies().getBatchEvaluator();
+		if (evaluator != null) {
+			evaluateRemotely(evaluator, Collections.singletonList(currentSolution).iterator(),
+					(ps, out) -> outputs.putAll(out));
+			return outputs;
+		}
 		// The values present in the solution are passed to the parameters of
 		// the experiment
 		for (final Map.Entry<String, Object> entry : sol.entrySet()) {
@@ -524,6 +800,7 @@ public class BatchAgent extends ExperimentAgent {
 			// we update the best solution found so far
 			oAlgo.updateBestFitness(lastSolution, lastFitness);
 		}
+		record(currentSolution, outputs);
 
 		// At last, we update the parameters (last fitness and best fitness)
 		getScope().getGui().showParameterView(getScope(), getSpecies());
@@ -54,6 +54,7 @@ import msi.gama.util.GamaMap;
 import msi.gama.util.GamaMapFactory;
 import msi.gama.util.IList;
 import msi.gama.util.IMap;
+import msi.gama.util.file.OutputSinks;
 import msi.gaml.species.ISpecies;
 import msi.gaml.statements.IExecutable;
 import msi.gaml.types.GamaGeometryType;
@@ -229,10 +230,18 @@ public class ExperimentAgent extends GamlAgent implements IExperimentAgent {
 		if (random == null) {
 			random = new RandomUtils();
 		} else {
-			random = new RandomUtils(getDefinedSeed(), getDefinedRng());
+			resetRandomGenerator();
 		}
 	}
 
+	/**
+	 * Replaces the random number generator by a new one, built from the seed and the generator defined for the
+	 * experiment.
+	 */
+	protected void resetRandomGenerator() {
+		random = new RandomUtils(getDefinedSeed(), getDefinedRng());
+	}
+
 	@Override
 	public SimulationClock getClock() { return ownClock; }
 
@@ -306,6 +315,7 @@ public class ExperimentAgent extends GamlAgent implements IExperimentAgent {
 		dying = true;
 		getSpecies().getArchitecture().abort(ownScope);
 		closeSimulations();
+		OutputSinks.closeAll(ownScope);
 		GAMA.releaseScope(ownScope);
 		super.dispose();
 	}
@@ -27,6 +27,8 @@ import com.google.common.collect.Iterables;
 import msi.gama.common.interfaces.IGamlIssue;
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.kernel.batch.BatchJournal;
+import msi.gama.kernel.batch.IBatchEvaluator;
 import msi.gama.kernel.batch.BatchOutput;
 import msi.gama.kernel.batch.IExploration;
 import msi.gama.kernel.batch.exploration.ExhaustiveSearch;
@@ -150,6 +152,11 @@ import msi.gaml.variables.IVariable;
 						type = IType.BOOL,
 						optional = true,
 						doc = @doc ("In the case of a batch experiment, specifies whether or not the simulations should be kept in memory for further analysis or immediately discarded with only their fitness kept in memory")),
+				@facet (
+						name = IKeyword.JOURNAL,
+						type = IType.STRING,
+						optional = true,
+						doc = @doc ("In the case of a batch or test experiment, the path of a file in which the points of the parameter space are journaled as soon as they are evaluated. If the file already contains points (because a previous run has been interrupted), they are not evaluated again and the outputs recorded are used instead")),
 				@facet (
 						name = IKeyword.REPEAT,
 						type = IType.INT,
@@ -329,6 +336,12 @@ public class ExperimentPlan extends GamlSpecies implements IExperimentPlan {
 	/** The is headless. */
 	private boolean isHeadless;
 
+	/** The journal of the points evaluated by a batch experiment. */
+	private BatchJournal journal;
+
+	/** The evaluator of the points of a batch experiment, if they are not evaluated by the experiment itself. */
+	private IBatchEvaluator evaluator;
+
 	/** The keep seed. */
 	private final boolean keepSeed;
 
@@ -362,6 +375,14 @@ public class ExperimentPlan extends GamlSpecies implements IExperimentPlan {
 			super(null, expr);
 		}
 
+		/**
+		 * Experiment agents keep their attributes (and parameters) in maps
+		 */
+		@Override
+		protected boolean usesAttributeSlots() {
+			return false;
+		}
+
 		@SuppressWarnings ("null")
 		@Override
 		public IList<ExperimentAgent> createAgents(final IScope scope, final int number,
@@ -420,6 +441,18 @@ public class ExperimentPlan extends GamlSpecies implements IExperimentPlan {
 	@Override
 	public void setHeadless(final boolean headless) { isHeadless = headless; }
 
+	@Override
+	public BatchJournal getJournal() { return journal; }
+
+	@Override
+	public void setJournal(final BatchJournal journal) { this.journal = journal; }
+
+	@Override
+	public IBatchEvaluator getBatchEvaluator() { return evaluator; }
+
+	@Override
+	public void setBatchEvaluator(final IBatchEvaluator evaluator) { this.evaluator = evaluator; }
+
 	@Override
 	public ExperimentAgent getAgent() { return agent; }
 
@@ -490,6 +523,8 @@ public class ExperimentPlan extends GamlSpecies implements IExperimentPlan {
 			experimentOutputs.dispose();
 			experimentOutputs = null;
 		}
+		// The batch log is not one of the outputs, but can keep a file open
+		if (log != null) { log.closeColumnarWriter(); }
 		parameters.clear();
 		texts.clear();
 		GAMA.releaseScope(myScope);
@@ -635,7 +670,8 @@ public class ExperimentPlan extends GamlSpecies implements IExperimentPlan {
 		IExpression data = output.getFacet(IKeyword.DATA);
 		if (data == null) { data = exploration.getOutputs(); }
 		final String dataString = data == null ? "time" : data.serialize(false);
-		log = new FileOutput(output.getLiteral(IKeyword.TO), dataString, new ArrayList(parameters.keySet()), this);
+		log = new FileOutput(output.getLiteral(IKeyword.TO), dataString, new ArrayList(parameters.keySet()), this,
+				output.getLiteral(IKeyword.TYPE));
 	}
 
 	/**
@@ -902,6 +938,9 @@ public class ExperimentPlan extends GamlSpecies implements IExperimentPlan {
 	@Override
 	public FileOutput getLog() { return log; }
 
+	@Override
+	public void setLog(final FileOutput log) { this.log = log; }
+
 	/**
 	 * Adds the explorable parameter.
 	 *
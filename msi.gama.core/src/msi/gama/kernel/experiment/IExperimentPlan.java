@@ -13,6 +13,8 @@ package msi.gama.kernel.experiment;
 import java.util.List;
 import java.util.Map;
 
+import msi.gama.kernel.batch.BatchJournal;
+import msi.gama.kernel.batch.IBatchEvaluator;
 import msi.gama.kernel.batch.IExploration;
 import msi.gama.kernel.experiment.IParameter.Batch;
 import msi.gama.kernel.model.IModel;
@@ -163,6 +165,14 @@ public interface IExperimentPlan extends ISpecies {
 	 */
 	FileOutput getLog();
 
+	/**
+	 * Sets the log of a batch experiment (e.g. to null, so that the outputs are not logged).
+	 *
+	 * @param log
+	 *            the new log
+	 */
+	void setLog(FileOutput log);
+
 	/**
 	 * Checks if is batch.
 	 *
@@ -211,6 +221,37 @@ public interface IExperimentPlan extends ISpecies {
 	 */
 	void setHeadless(boolean headless);
 
+	/**
+	 * Gets the journal in which a batch experiment records the points it has evaluated.
+	 *
+	 * @return the journal, or null if the points are not recorded
+	 */
+	BatchJournal getJournal();
+
+	/**
+	 * Sets the journal in which a batch experiment records the points it has evaluated. The points already recorded in
+	 * it (if it has been resumed) are not evaluated again.
+	 *
+	 * @param journal
+	 *            the new journal
+	 */
+	void setJournal(BatchJournal journal);
+
+	/**
+	 * Gets the evaluator to which a batch experiment hands the points to evaluate.
+	 *
+	 * @return the evaluator, or null if the batch experiment runs the simulations itself
+	 */
+	IBatchEvaluator getBatchEvaluator();
+
+	/**
+	 * Sets the evaluator to which a batch experiment hands the points to evaluate.
+	 *
+	 * @param evaluator
+	 *            the new evaluator
+	 */
+	void setBatchEvaluator(IBatchEvaluator evaluator);
+
 	/**
 	 * Gets the experiment type.
 	 *
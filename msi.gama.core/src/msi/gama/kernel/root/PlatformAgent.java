@@ -46,6 +46,7 @@ import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.GamaColor;
 import msi.gama.util.GamaMapFactory;
 import msi.gama.util.IList;
+import msi.gaml.compilation.jit.ExpressionCompiler;
 import msi.gaml.compilation.kernel.GamaMetaModel;
 import msi.gaml.expressions.IExpression;
 import msi.gaml.operators.Containers;
@@ -102,6 +103,12 @@ import ummisco.gama.dev.utils.DEBUG;
 				constant = false,
 				doc = @doc (
 						value = "Returns the maximum amount of memory available to GAMA in bytes")),
+		@variable (
+				name = "compiled_operators",
+				type = IType.INT,
+				constant = false,
+				doc = @doc (
+						value = "Returns the number of operators compiled to JVM bytecode since GAMA has started (see the preference 'pref_compile_expressions')")),
 		@variable (
 				name = "workspace",
 				type = IType.FILE,
@@ -336,6 +343,16 @@ public class PlatformAgent extends GamlAgent implements ITopLevelAgent, IExpress
 			initializer = true)
 	public long getMaxMemory() { return Runtime.getRuntime().maxMemory(); }
 
+	/**
+	 * Gets the number of compiled operators.
+	 *
+	 * @return the number of compiled operators
+	 */
+	@getter (
+			value = "compiled_operators",
+			initializer = true)
+	public int getCompiledOperators() { return ExpressionCompiler.compiledCount(); }
+
 	/**
 	 * Gets the machine time.
 	 *
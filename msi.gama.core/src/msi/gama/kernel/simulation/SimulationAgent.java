@@ -54,11 +54,13 @@ import msi.gama.runtime.GAMA;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.concurrent.GamaExecutorService;
 import msi.gama.runtime.concurrent.GamaExecutorService.Caller;
+import msi.gama.runtime.concurrent.SpeciesScheduler;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.GamaColor;
 import msi.gama.util.GamaDate;
 import msi.gama.util.GamaMapFactory;
 import msi.gama.util.IReference;
+import msi.gama.util.file.OutputSinks;
 import msi.gaml.compilation.ISymbol;
 import msi.gaml.descriptions.IDescription;
 import msi.gaml.expressions.IExpression;
@@ -231,6 +233,9 @@ public class SimulationAgent extends GamlAgent implements ITopLevelAgent {
 	/** The topology. */
 	private RootTopology topology;
 
+	/** The scheduler of the populations, when they are stepped concurrently. */
+	private SpeciesScheduler scheduler;
+
 	/**
 	 * Instantiates a new simulation agent.
 	 *
@@ -305,6 +310,7 @@ public class SimulationAgent extends GamlAgent implements ITopLevelAgent {
 		// A topology has already been computed. We update it and updates all
 		// the agents present in the spatial index
 		final boolean[] parallel = { GamaExecutorService.CONCURRENCY_SPECIES.getValue()
+				|| GamaExecutorService.CONCURRENCY_SPECIES_SCHEDULING.getValue()
 				|| GamaPreferences.Experimental.QUADTREE_SYNCHRONIZATION.getValue() };
 
 		if (!parallel[0]) {
@@ -373,6 +379,14 @@ public class SimulationAgent extends GamlAgent implements ITopLevelAgent {
 		return super.preStep(scope);
 	}
 
+	@Override
+	protected boolean stepSubPopulations(final IScope scope) {
+		if (!GamaExecutorService.CONCURRENCY_SPECIES_SCHEDULING.getValue()) return super.stepSubPopulations(scope);
+		final IPopulation<? extends IAgent>[] pops = getMicroPopulations();
+		if (scheduler == null || !scheduler.isFor(pops)) { scheduler = new SpeciesScheduler(pops); }
+		return scheduler.step(scope);
+	}
+
 	@Override
 	protected void postStep(final IScope scope) {
 		super.postStep(scope);
@@ -420,6 +434,7 @@ public class SimulationAgent extends GamlAgent implements ITopLevelAgent {
 			outputs.dispose();
 			outputs = null;
 		}
+		OutputSinks.closeAll(getScope());
 		if (topology != null) {
 			if (!isMicroSimulation()) {
 				topology.dispose();
@@ -62,6 +62,14 @@ public class SimulationPopulation extends GamaPopulation<SimulationAgent> {
 		runner = SimulationRunner.of(this);
 	}
 
+	/**
+	 * Simulations keep their attributes in maps, as they are shared with the experiment and the parameters
+	 */
+	@Override
+	protected boolean usesAttributeSlots() {
+		return false;
+	}
+
 	/**
 	 * Gets the max number of concurrent simulations.
 	 *
@@ -0,0 +1,401 @@
+/*******************************************************************************************************
+ *
+ * AttributeSlots.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.agent;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import msi.gama.common.interfaces.BiConsumerWithPruning;
+import msi.gama.runtime.IScope;
+import msi.gaml.operators.Cast;
+import msi.gaml.types.IType;
+import msi.gaml.variables.IVariable;
+import msi.gaml.variables.Variable;
+
+/**
+ * Class AttributeSlots. An array-backed storage for the attributes declared in the species of an agent. Instead of
+ * hashing the name of the attribute in the map carried by the geometry of the agent, each eligible variable of the
+ * species receives, when the population is built, a fixed slot (encoded as an int, see {@link #encode(int, int)}) in
+ * one of three arrays: a flat Object[] and two primitive side arrays for float and int attributes. Attributes that are
+ * not declared in the species (so-called dynamic attributes) continue to be stored in the map of the geometry.
+ *
+ * The layout of the slots is shared by all the agents of a species ({@link Layout}) and only the arrays are allocated
+ * for each agent.
+ *
+ * @author agent
+ * @since 1.8.2
+ *
+ */
+public final class AttributeSlots {
+
+	/** The kinds of slots. The kind is stored in the 2 lowest bits of a slot code */
+	public static final int OBJECT = 0, FLOAT = 1, INT = 2;
+
+	/** The code returned when an attribute has no slot. */
+	public static final int NONE = -1;
+
+	/** The Constant EMPTY_OBJECTS. */
+	private static final Object[] EMPTY_OBJECTS = {};
+
+	/** The Constant EMPTY_DOUBLES. */
+	private static final double[] EMPTY_DOUBLES = {};
+
+	/** The Constant EMPTY_INTS. */
+	private static final int[] EMPTY_INTS = {};
+
+	/**
+	 * Encodes a kind and an index into a slot code.
+	 *
+	 * @param kind
+	 *            one of OBJECT, FLOAT, INT
+	 * @param index
+	 *            the index in the array corresponding to the kind
+	 * @return the slot code
+	 */
+	public static int encode(final int kind, final int index) {
+		return index << 2 | kind;
+	}
+
+	/**
+	 * Kind of.
+	 *
+	 * @param code
+	 *            the code
+	 * @return the int
+	 */
+	public static int kindOf(final int code) {
+		return code & 3;
+	}
+
+	/**
+	 * Index of.
+	 *
+	 * @param code
+	 *            the code
+	 * @return the int
+	 */
+	public static int indexOf(final int code) {
+		return code >>> 2;
+	}
+
+	/**
+	 * Builds the layout corresponding to the variables passed, and assigns their slots to the variables that can be
+	 * stored in them (i.e. variables that are declared in GAML, and that do not define getters, setters or functions).
+	 * The assignment is deterministic: the same species will always obtain the same layout.
+	 *
+	 * @param vars
+	 *            the variables of the species, in their initialization order
+	 * @return the layout, or null if none of the variables can be stored in a slot
+	 */
+	public static Layout layoutOf(final IVariable[] vars) {
+		final Layout layout = new Layout();
+		for (final IVariable v : vars) {
+			if (!(v instanceof Variable var) || !var.isSlottable()) { continue; }
+			final int id = var.getType().id();
+			var.setSlot(layout.add(var.getName(), id == IType.FLOAT ? FLOAT : id == IType.INT ? INT : OBJECT));
+		}
+		return layout.isEmpty() ? null : layout;
+	}
+
+	/**
+	 * The layout of the slots of a species: the names of the attributes and their codes, as well as the size of the
+	 * different arrays. Immutable once the population has been created.
+	 */
+	public static final class Layout {
+
+		/** The codes. */
+		private final Map<String, Integer> codes = new HashMap<>();
+
+		/** The ints. */
+		private int objects, doubles, ints;
+
+		/**
+		 * Adds the attribute to the layout and returns its code.
+		 *
+		 * @param name
+		 *            the name
+		 * @param kind
+		 *            the kind
+		 * @return the code
+		 */
+		int add(final String name, final int kind) {
+			final int code;
+			switch (kind) {
+				case FLOAT:
+					code = encode(FLOAT, doubles++);
+					break;
+				case INT:
+					code = encode(INT, ints++);
+					break;
+				default:
+					code = encode(OBJECT, objects++);
+			}
+			codes.put(name, code);
+			return code;
+		}
+
+		/**
+		 * Code of the attribute, or NONE if it has no slot.
+		 *
+		 * @param name
+		 *            the name
+		 * @return the int
+		 */
+		public int codeOf(final String name) {
+			final Integer code = codes.get(name);
+			return code == null ? NONE : code;
+		}
+
+		/**
+		 * Checks if is empty.
+		 *
+		 * @return true, if is empty
+		 */
+		public boolean isEmpty() { return codes.isEmpty(); }
+
+		/**
+		 * Allocates the storage of one agent.
+		 *
+		 * @return the attribute slots
+		 */
+		public AttributeSlots allocate() {
+			return new AttributeSlots(this);
+		}
+
+	}
+
+	/** The layout. */
+	private final Layout layout;
+
+	/** The objects. */
+	private final Object[] objects;
+
+	/** The doubles. */
+	private final double[] doubles;
+
+	/** The ints. */
+	private final int[] ints;
+
+	/**
+	 * Whether each slot has received a value (bits ordered as objects, then doubles, then ints). Atomic, as the slots
+	 * of an agent can be set concurrently (e.g. by a parallel 'ask')
+	 */
+	private final AtomicLongArray defined;
+
+	/**
+	 * Instantiates a new attribute slots.
+	 *
+	 * @param layout
+	 *            the layout
+	 */
+	private AttributeSlots(final Layout layout) {
+		this.layout = layout;
+		objects = layout.objects == 0 ? EMPTY_OBJECTS : new Object[layout.objects];
+		doubles = layout.doubles == 0 ? EMPTY_DOUBLES : new double[layout.doubles];
+		ints = layout.ints == 0 ? EMPTY_INTS : new int[layout.ints];
+		defined = new AtomicLongArray((layout.objects + layout.doubles + layout.ints + 63) >>> 6);
+	}
+
+	/**
+	 * Gets the layout.
+	 *
+	 * @return the layout
+	 */
+	public Layout getLayout() { return layout; }
+
+	/**
+	 * Code of the attribute in this storage, or NONE.
+	 *
+	 * @param name
+	 *            the name
+	 * @return the int
+	 */
+	public int codeOf(final String name) {
+		return layout.codeOf(name);
+	}
+
+	/**
+	 * Position of the defined bit of a slot
+	 *
+	 * @param code
+	 *            the code
+	 * @return the int
+	 */
+	private int bit(final int code) {
+		final int index = indexOf(code);
+		switch (kindOf(code)) {
+			case FLOAT:
+				return objects.length + index;
+			case INT:
+				return objects.length + doubles.length + index;
+			default:
+				return index;
+		}
+	}
+
+	/**
+	 * Checks if the slot has received a value.
+	 *
+	 * @param code
+	 *            the code
+	 * @return true, if is defined
+	 */
+	public boolean isDefined(final int code) {
+		final int bit = bit(code);
+		return (defined.get(bit >>> 6) & 1L << bit) != 0;
+	}
+
+	/**
+	 * Marks the slot as defined or not.
+	 *
+	 * @param code
+	 *            the code
+	 * @param value
+	 *            the value
+	 */
+	private void define(final int code, final boolean value) {
+		final int bit = bit(code);
+		final int word = bit >>> 6;
+		final long mask = 1L << bit;
+		long previous, next;
+		do {
+			previous = defined.get(word);
+			next = value ? previous | mask : previous & ~mask;
+			if (next == previous) return;
+		} while (!defined.compareAndSet(word, previous, next));
+	}
+
+	/**
+	 * Returns the value of the slot, boxed if necessary, or null if it has not received any value yet.
+	 *
+	 * @param code
+	 *            the code
+	 * @return the object
+	 */
+	public Object get(final int code) {
+		final int index = indexOf(code);
+		switch (kindOf(code)) {
+			case FLOAT:
+				return isDefined(code) ? (Object) doubles[index] : null;
+			case INT:
+				return isDefined(code) ? (Object) ints[index] : null;
+			default:
+				return objects[index];
+		}
+	}
+
+	/**
+	 * Returns the value of a float slot without boxing.
+	 *
+	 * @param code
+	 *            the code
+	 * @return the double
+	 */
+	public double getDouble(final int code) {
+		return doubles[indexOf(code)];
+	}
+
+	/**
+	 * Returns the value of an int slot without boxing.
+	 *
+	 * @param code
+	 *            the code
+	 * @return the int
+	 */
+	public int getInt(final int code) {
+		return ints[indexOf(code)];
+	}
+
+	/**
+	 * Sets the value of the slot. Setting null in a primitive slot marks it as undefined. The values that are not
+	 * numbers (e.g. put in the agent as strings) are cast to the type of a primitive slot.
+	 *
+	 * @param scope
+	 *            the scope, used to cast the values
+	 * @param code
+	 *            the code
+	 * @param value
+	 *            the value
+	 */
+	public void set(final IScope scope, final int code, final Object value) {
+		final int index = indexOf(code);
+		switch (kindOf(code)) {
+			case FLOAT:
+				if (value == null) {
+					doubles[index] = 0d;
+					define(code, false);
+					return;
+				}
+				doubles[index] = value instanceof Number n ? n.doubleValue() : Cast.asFloat(scope, value);
+				break;
+			case INT:
+				if (value == null) {
+					ints[index] = 0;
+					define(code, false);
+					return;
+				}
+				ints[index] = value instanceof Number n ? n.intValue() : Cast.asInt(scope, value);
+				break;
+			default:
+				objects[index] = value;
+		}
+		define(code, true);
+	}
+
+	/**
+	 * Sets the value of a float slot without boxing.
+	 *
+	 * @param code
+	 *            the code
+	 * @param value
+	 *            the value
+	 */
+	public void setDouble(final int code, final double value) {
+		doubles[indexOf(code)] = value;
+		define(code, true);
+	}
+
+	/**
+	 * Sets the value of an int slot without boxing.
+	 *
+	 * @param code
+	 *            the code
+	 * @param value
+	 *            the value
+	 */
+	public void setInt(final int code, final int value) {
+		ints[indexOf(code)] = value;
+		define(code, true);
+	}
+
+	/**
+	 * Visits the defined slots, in no particular order.
+	 *
+	 * @param visitor
+	 *            the visitor
+	 * @return false if the visit has been pruned by the visitor, true otherwise
+	 */
+	public boolean forEach(final BiConsumerWithPruning<String, Object> visitor) {
+		for (final Map.Entry<String, Integer> entry : layout.codes.entrySet()) {
+			final int code = entry.getValue();
+			if (isDefined(code) && !visitor.process(entry.getKey(), get(code))) return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "AttributeSlots " + Arrays.toString(objects) + Arrays.toString(doubles) + Arrays.toString(ints);
+	}
+
+}
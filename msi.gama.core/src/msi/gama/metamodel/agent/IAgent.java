@@ -298,6 +298,15 @@ public interface IAgent extends IShape, INamed, Comparable<IAgent>, IStepable, I
 	 */
 	void setDirectVarValue(IScope scope, String s, Object v) throws GamaRuntimeException;
 
+	/**
+	 * Returns the array-backed storage of the attributes declared in the species of this agent, if any. Variables that
+	 * have been assigned a slot read and write their values directly there.
+	 *
+	 * @see AttributeSlots
+	 * @return the attribute slots or null if all the attributes are stored in the map of attributes
+	 */
+	default AttributeSlots getSlots() { return null; }
+
 	/**
 	 * A utility method to notify any variable listener of a value change
 	 *
@@ -16,6 +16,7 @@ import java.util.Set;
 import org.locationtech.jts.geom.Geometry;
 
 import msi.gama.common.geometry.Envelope3D;
+import msi.gama.common.interfaces.BiConsumerWithPruning;
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.metamodel.population.IPopulation;
 import msi.gama.metamodel.shape.GamaPoint;
@@ -58,6 +59,9 @@ public class MinimalAgent extends AbstractAgent {
 	/** The hash code. */
 	private final int hashCode;
 
+	/** The storage of the attributes declared in the species, or null if they are stored in the geometry */
+	protected final AttributeSlots slots;
+
 	/**
 	 * @param s
 	 *            the population used to prototype the agent.
@@ -81,6 +85,7 @@ public class MinimalAgent extends AbstractAgent {
 		this.population = population;
 		this.hashCode = Objects.hash(getPopulation(), index);
 		this.geometry = geometry;
+		this.slots = population == null ? null : population.createSlots();
 		geometry.setAgent(this);
 	}
 
@@ -135,6 +140,49 @@ public class MinimalAgent extends AbstractAgent {
 		notifyVarValueChange(IKeyword.SHAPE, newLocalGeom);
 	}
 
+	@Override
+	public AttributeSlots getSlots() { return slots; }
+
+	@Override
+	public Object getAttribute(final String key) {
+		if (slots != null) {
+			final int code = slots.codeOf(key);
+			if (code != AttributeSlots.NONE) return slots.get(code);
+		}
+		return super.getAttribute(key);
+	}
+
+	@Override
+	public void setAttribute(final String key, final Object val) {
+		if (slots != null) {
+			final int code = slots.codeOf(key);
+			if (code != AttributeSlots.NONE) {
+				slots.set(getScope(), code, val);
+				return;
+			}
+		}
+		super.setAttribute(key, val);
+	}
+
+	@Override
+	public boolean hasAttribute(final String key) {
+		if (slots != null) {
+			final int code = slots.codeOf(key);
+			if (code != AttributeSlots.NONE) return slots.isDefined(code);
+		}
+		return super.hasAttribute(key);
+	}
+
+	/**
+	 * Visits the attributes stored in the slots, then the ones (dynamic or built-in) stored in the geometry. Note that
+	 * getOrCreateAttributes() only returns the latter.
+	 */
+	@Override
+	public void forEachAttribute(final BiConsumerWithPruning<String, Object> visitor) {
+		if (slots != null && !slots.forEach(visitor)) return;
+		super.forEachAttribute(visitor);
+	}
+
 	@Override
 	public String getName() {
 		if (name == null) { name = super.getName(); }
@@ -0,0 +1,155 @@
+/*******************************************************************************************************
+ *
+ * SlottedAttributes.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.agent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.google.common.collect.Iterables;
+
+import msi.gama.runtime.IScope;
+import msi.gama.util.GamaPair;
+import msi.gama.util.IContainer;
+
+/**
+ * The attributes of an agent that stores some of them in {@link AttributeSlots}, seen as a modifiable container by the
+ * 'add', 'put' and 'remove' statements (e.g. <code>put 10 at: "energy" in: an_agent</code>). The attributes that have
+ * a slot are read and written through the agent, so that they never diverge from the values seen by the variables;
+ * the other ones (dynamic attributes) are stored, as before, in the map of the geometry.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public class SlottedAttributes implements IContainer.Modifiable<Object, Object> {
+
+	/** The agent. */
+	private final IAgent agent;
+
+	/** The slots. */
+	private final AttributeSlots slots;
+
+	/**
+	 * Instantiates a new slotted attributes.
+	 *
+	 * @param agent
+	 *            the agent
+	 * @param slots
+	 *            the slots of the agent
+	 */
+	public SlottedAttributes(final IAgent agent, final AttributeSlots slots) {
+		this.agent = agent;
+		this.slots = slots;
+	}
+
+	/**
+	 * Whether the key designates an attribute stored in a slot.
+	 *
+	 * @param key
+	 *            the key
+	 * @return true, if is slot
+	 */
+	private boolean isSlot(final Object key) {
+		return key instanceof String s && slots.codeOf(s) != AttributeSlots.NONE;
+	}
+
+	/**
+	 * The names of the slots that have received a value.
+	 *
+	 * @return the list
+	 */
+	private List<String> definedSlots() {
+		final List<String> names = new ArrayList<>();
+		slots.forEach((name, value) -> names.add(name));
+		return names;
+	}
+
+	@Override
+	public void addValue(final IScope scope, final Object value) {
+		if (value instanceof GamaPair pair) {
+			setValueAtIndex(scope, pair.key, pair.value);
+		} else {
+			setValueAtIndex(scope, value, value);
+		}
+	}
+
+	@Override
+	public void addValueAtIndex(final IScope scope, final Object index, final Object value) {
+		setValueAtIndex(scope, index, value);
+	}
+
+	@Override
+	public void setValueAtIndex(final IScope scope, final Object index, final Object value) {
+		if (isSlot(index)) {
+			agent.setAttribute((String) index, value);
+		} else {
+			agent.getOrCreateAttributes().setValueAtIndex(scope, index, value);
+		}
+	}
+
+	@Override
+	public void addValues(final IScope scope, final Object index, final IContainer<?, ?> values) {
+		// Same behavior as maps: if an index is specified, only the last value is added
+		if (index != null) {
+			setValueAtIndex(scope, index, Iterables.getLast(values.iterable(scope)));
+		} else {
+			for (final Object o : values.iterable(scope)) { addValue(scope, o); }
+		}
+	}
+
+	@Override
+	public void setAllValues(final IScope scope, final Object value) {
+		agent.getOrCreateAttributes().setAllValues(scope, value);
+		for (final String name : definedSlots()) { agent.setAttribute(name, value); }
+	}
+
+	@Override
+	public void removeValue(final IScope scope, final Object value) {
+		if (agent.getOrCreateAttributes().containsValue(value)) {
+			agent.getOrCreateAttributes().removeValue(scope, value);
+			return;
+		}
+		for (final String name : definedSlots()) {
+			if (Objects.equals(agent.getAttribute(name), value)) {
+				agent.setAttribute(name, null);
+				return;
+			}
+		}
+	}
+
+	@Override
+	public void removeIndex(final IScope scope, final Object index) {
+		if (isSlot(index)) {
+			agent.setAttribute((String) index, null);
+		} else {
+			agent.getOrCreateAttributes().removeIndex(scope, index);
+		}
+	}
+
+	@Override
+	public void removeIndexes(final IScope scope, final IContainer<?, ?> index) {
+		for (final Object key : index.iterable(scope)) { removeIndex(scope, key); }
+	}
+
+	@Override
+	public void removeValues(final IScope scope, final IContainer<?, ?> values) {
+		for (final Object o : values.iterable(scope)) { removeValue(scope, o); }
+	}
+
+	@Override
+	public void removeAllOccurrencesOfValue(final IScope scope, final Object value) {
+		agent.getOrCreateAttributes().removeAllOccurrencesOfValue(scope, value);
+		for (final String name : definedSlots()) {
+			if (Objects.equals(agent.getAttribute(name), value)) { agent.setAttribute(name, null); }
+		}
+	}
+
+}
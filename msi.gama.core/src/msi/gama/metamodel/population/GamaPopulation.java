@@ -49,6 +49,8 @@ import com.google.common.collect.Iterators;
 
 import msi.gama.common.geometry.Envelope3D;
 import msi.gama.common.interfaces.IKeyword;
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.metamodel.agent.AttributeSlots;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.agent.IMacroAgent;
 import msi.gama.metamodel.shape.GamaPoint;
@@ -161,6 +163,9 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 	/** The ordered var names. */
 	private final LinkedHashSet<String> orderedVarNames = new LinkedHashSet<>();
 
+	/** The layout of the slots used to store the attributes of agents, or null if they are stored in maps */
+	private final AttributeSlots.Layout slotLayout;
+
 	/** The Constant isLiving. */
 	public final static IPopulation.IsLiving isLiving = new IPopulation.IsLiving();
 
@@ -277,6 +282,7 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 		orderedVars = orderAttributes(ecd, Predicates.alwaysTrue(), INIT_DEPENDENCIES_FACETS);
 		for (IVariable v : orderedVars) { orderedVarNames.add(v.getName()); }
 		updatableVars = orderAttributes(ecd, VariableDescription::isUpdatable, UPDATE_DEPENDENCIES_FACETS);
+		slotLayout = usesAttributeSlots() ? AttributeSlots.layoutOf(orderedVars) : null;
 		if (species.isMirror() && host != null) {
 			mirrorManagement = new MirrorPopulationManagement(species.getFacet(MIRRORS));
 		} else {
@@ -309,6 +315,22 @@ public class GamaPopulation<T extends IAgent> extends GamaList<T> implements IPo
 
 	}
 
+	/**
+	 * Whether the agents of this population store the attributes declared in the species in slots (see
+	 * {@link AttributeSlots}) rather than in the map of their geometry. Called once, during the construction of the
+	 * population.
+	 *
+	 * @return true if the corresponding preference is enabled
+	 */
+	protected boolean usesAttributeSlots() {
+		return GamaPreferences.External.AGENT_SLOTS_OPTIMIZATION.getValue();
+	}
+
+	@Override
+	public AttributeSlots createSlots() {
+		return slotLayout == null ? null : slotLayout.allocate();
+	}
+
 	@Override
 	public boolean step(final IScope scope) throws GamaRuntimeException {
 		final IExpression frequencyExp = species.getFrequency();
@@ -18,6 +18,7 @@ import com.google.common.base.Predicate;
 
 import msi.gama.common.interfaces.IDisposable;
 import msi.gama.common.interfaces.IStepable;
+import msi.gama.metamodel.agent.AttributeSlots;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.agent.IMacroAgent;
 import msi.gama.metamodel.shape.GamaPoint;
@@ -309,6 +310,16 @@ public interface IPopulation<T extends IAgent>
 	 */
 	IVariable getVar(final String s);
 
+	/**
+	 * Allocates the array-backed storage of the attributes of a new agent of this population, if the population uses
+	 * one (see {@link AttributeSlots}).
+	 *
+	 * @return the attribute slots, or null if the agents store their attributes in their map
+	 */
+	default AttributeSlots createSlots() {
+		return null;
+	}
+
 	/**
 	 * Checks for updatable variables.
 	 *
@@ -19,13 +19,15 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.locationtech.jts.geom.Envelope;
 
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Ordering;
 
 import msi.gama.common.geometry.Envelope3D;
+import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.population.IPopulation;
@@ -36,6 +38,7 @@ import msi.gama.metamodel.topology.grid.GamaSpatialMatrix.GridPopulation;
 import msi.gama.runtime.IScope;
 import msi.gama.util.Collector;
 import msi.gama.util.ICollector;
+import msi.gaml.expressions.IExpression;
 import msi.gaml.species.ISpecies;
 
 /**
@@ -43,14 +46,22 @@ import msi.gaml.species.ISpecies;
  */
 public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compound {
 
-	/** The disposed. */
-	boolean disposed = false;
+	/** The value of the "spatial_index" facet that selects a {@link ConcurrentQuadTree}. */
+	public static final String CONCURRENT = "concurrent";
+
+	/** The value of the "spatial_index" facet that selects a {@link GamaSpatialHash}. */
+	public static final String HASH = "hash";
 
-	/** The spatial indexes. */
+	/** The disposed. */
+	volatile boolean disposed = false;
 
-	private final WeakHashMap<ISpecies, ISpatialIndex> spatialIndexes = new WeakHashMap<>();
-	// private final Cache<IPopulation<? extends IAgent>, ISpatialIndex> spatialIndexes =
-	// newBuilder().weakKeys().weakValues().build();
+	/**
+	 * The spatial indexes. A concurrent map with weak keys, as agents can be inserted and removed concurrently (see
+	 * SpeciesScheduler) while the indexes of other species are being created. Only the creation of the indexes is
+	 * synchronized.
+	 */
+	private final ConcurrentMap<ISpecies, ISpatialIndex> spatialIndexes =
+			CacheBuilder.newBuilder().weakKeys().<ISpecies, ISpatialIndex> build().asMap();
 
 	/** The bounds. */
 	private Envelope bounds;
@@ -65,7 +76,8 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 	 * The cached species indices. Keeps a correspondance between species and the spatial indices to use to look for
 	 * agents. Used when passing a list of agents with a common species (and not a population)
 	 */
-	private final WeakHashMap<ISpecies, Iterable<ISpatialIndex>> cachedSpeciesIndices = new WeakHashMap<>();
+	private final ConcurrentMap<ISpecies, Iterable<ISpatialIndex>> cachedSpeciesIndices =
+			CacheBuilder.newBuilder().weakKeys().<ISpecies, Iterable<ISpatialIndex>> build().asMap();
 
 	/**
 	 * Instantiates a new compound spatial index.
@@ -87,17 +99,41 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 	public void insert(final IAgent agent) {
 		if (disposed || agent == null) return;
 		IPopulation<? extends IAgent> pop = agent.getPopulation();
-		ISpatialIndex index = spatialIndexes.getOrDefault(pop.getSpecies(), null);
+		ISpatialIndex index = spatialIndexes.get(pop.getSpecies());
 		if (index == null && !GamaPreferences.Experimental.QUADTREE_OPTIMIZATION.getValue()) {
 			index = add(pop, false);
 		}
+		if (index instanceof GamaSpatialHash hash) {
+			// The spatial hash may have been chosen when the population was empty or only made of points
+			if (!agent.isPoint() && !isExplicit(pop.getSpecies())) {
+				index = replaceHash(pop.getSpecies(), hash);
+			} else {
+				synchronized (hash) {
+					if (spatialIndexes.get(pop.getSpecies()) == hash) {
+						hash.insert(agent);
+						return;
+					}
+				}
+				index = spatialIndexes.get(pop.getSpecies());
+			}
+		}
 		if (index != null) { index.insert(agent); }
 	}
 
 	@Override
 	public void remove(final Envelope3D previous, final IAgent agent) {
 		if (disposed || agent == null) return;
-		ISpatialIndex index = spatialIndexes.getOrDefault(agent.getSpecies(), null);
+		ISpatialIndex index = spatialIndexes.get(agent.getSpecies());
+		if (index instanceof GamaSpatialHash hash) {
+			// Same check as in insert(), in case the hash is being replaced
+			synchronized (hash) {
+				if (spatialIndexes.get(agent.getSpecies()) == hash) {
+					hash.remove(previous, agent);
+					return;
+				}
+			}
+			index = spatialIndexes.get(agent.getSpecies());
+		}
 		if (index != null) { index.remove(previous, agent); }
 	}
 
@@ -209,6 +245,7 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 		if (disposed) return;
 		disposed = true;
 		spatialIndexes.clear();
+		cachedSpeciesIndices.clear();
 	}
 
 	/**
@@ -236,18 +273,90 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 	 */
 	private ISpatialIndex add(final IPopulation<? extends IAgent> pop, final boolean insertAgents) {
 		if (disposed || pop == null) return null;
-		ISpecies spec = pop.getSpecies();
-		ISpatialIndex index = spatialIndexes.getOrDefault(spec, null);
-		if (index == null) {
-			if (pop.isGrid()) {
-				index = ((GridPopulation) pop).getTopology().getPlaces();
-			} else {
-				index = GamaQuadTree.create(bounds, parallel);
+		ISpatialIndex index = spatialIndexes.get(pop.getSpecies());
+		if (index != null) return index;
+		// Synchronized as populations can be stepped concurrently (see SpeciesScheduler)
+		synchronized (this) {
+			ISpecies spec = pop.getSpecies();
+			index = spatialIndexes.get(spec);
+			if (index == null) {
+				if (pop.isGrid()) {
+					index = ((GridPopulation) pop).getTopology().getPlaces();
+				} else {
+					index = createIndexFor(pop);
+				}
+				if (insertAgents) { for (final IAgent ag : pop) { index.insert(ag); } }
+				// Published once filled, so that the queries made concurrently do not see a partial index
+				spatialIndexes.put(spec, index);
 			}
-			spatialIndexes.put(spec, index);
-			if (insertAgents) { for (final IAgent ag : pop) { index.insert(ag); } }
+			return index;
+		}
+	}
+
+	/**
+	 * Creates the spatial index of a (non-grid) population, depending on the value of the "spatial_index" facet of its
+	 * species. When no index is specified, a spatial hash is used for the populations made of points if the
+	 * corresponding preference is enabled, and a quadtree otherwise.
+	 *
+	 * @param pop
+	 *            the pop
+	 * @return the i spatial index
+	 */
+	private ISpatialIndex createIndexFor(final IPopulation<? extends IAgent> pop) {
+		final IExpression exp = pop.getSpecies().getFacet(IKeyword.SPATIAL_INDEX);
+		final String kind = exp == null ? null : exp.literalValue();
+		if (CONCURRENT.equals(kind)) return ConcurrentQuadTree.create(bounds);
+		if (HASH.equals(kind)
+				|| kind == null && GamaPreferences.External.SPATIAL_HASH_OPTIMIZATION.getValue() && hasOnlyPoints(pop))
+			return GamaSpatialHash.create(bounds, parallel);
+		return GamaQuadTree.create(bounds, parallel);
+	}
+
+	/**
+	 * Whether the kind of spatial index has been specified in the species.
+	 *
+	 * @param species
+	 *            the species
+	 * @return true, if is explicit
+	 */
+	private boolean isExplicit(final ISpecies species) {
+		return species.getFacet(IKeyword.SPATIAL_INDEX) != null;
+	}
+
+	/**
+	 * Replaces the spatial hash chosen automatically for the species by a quadtree, as soon as an agent that is not a
+	 * point is inserted (the hash being chosen when the population only contains points, e.g. when it is still empty).
+	 * The agents already indexed are transferred to the quadtree.
+	 *
+	 * @param species
+	 *            the species
+	 * @param hash
+	 *            the hash
+	 * @return the new index of the species
+	 */
+	private synchronized ISpatialIndex replaceHash(final ISpecies species, final GamaSpatialHash hash) {
+		final ISpatialIndex current = spatialIndexes.get(species);
+		if (current != hash) return current;
+		final ISpatialIndex tree = GamaQuadTree.create(bounds, parallel);
+		// Locks the hash so that no agent is inserted in, or removed from, it during the transfer
+		synchronized (hash) {
+			for (final IAgent a : hash.getAgents()) { tree.insert(a); }
+			spatialIndexes.put(species, tree);
+			hash.dispose();
 		}
-		return index;
+		return tree;
+	}
+
+	/**
+	 * Whether all the agents of the population are points.
+	 *
+	 * @param pop
+	 *            the pop
+	 * @return true, if successful
+	 */
+	private boolean hasOnlyPoints(final IPopulation<? extends IAgent> pop) {
+		for (final IAgent a : pop) { if (a != null && !a.isPoint()) return false; }
+		return true;
 	}
 
 	/**
@@ -265,12 +374,10 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 				(Collection<IPopulation<? extends IAgent>>) ((IPopulationSet) filter).getPopulations(scope),
 				each -> add(each, true));
 		ISpecies species = filter.getSpecies();
-		if (species == null) return spatialIndexes.values();
-		if (!cachedSpeciesIndices.containsKey(species)) {
-			cachedSpeciesIndices.put(species,
-					transform(concat(singleton(species), species.getSubSpecies(scope)), s -> add(scope, s, true)));
-		}
-		return cachedSpeciesIndices.get(species);
+		// A copy, as the indexes can be added or replaced while the caller iterates over them
+		if (species == null) return new ArrayList<>(spatialIndexes.values());
+		return cachedSpeciesIndices.computeIfAbsent(species,
+				s -> transform(concat(singleton(s), s.getSubSpecies(scope)), each -> add(scope, each, true)));
 	}
 
 	/**
@@ -289,10 +396,7 @@ public class CompoundSpatialIndex extends Object implements ISpatialIndex.Compou
 		this.bounds = envelope;
 		this.parallel = parallel;
 
-		final WeakHashMap<ISpecies, ISpatialIndex> spatialIndexesTmp = new WeakHashMap<>();
-		spatialIndexesTmp.putAll(spatialIndexes);
-
-		for (ISpecies species : spatialIndexesTmp.keySet()) {
+		for (ISpecies species : new ArrayList<>(spatialIndexes.keySet())) {
 			remove(species);
 			add(scope, species, true);
 		}
@@ -0,0 +1,449 @@
+/*******************************************************************************************************
+ *
+ * ConcurrentQuadTree.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.topology;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+
+import com.google.common.collect.Ordering;
+
+import msi.gama.common.geometry.Envelope3D;
+import msi.gama.common.geometry.IIntersectable;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.shape.GamaPoint;
+import msi.gama.metamodel.shape.IShape;
+import msi.gama.metamodel.topology.filter.IAgentFilter;
+import msi.gama.runtime.IScope;
+import msi.gama.util.Collector;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.ICollector;
+import msi.gama.util.IList;
+import msi.gaml.operators.Maths;
+import msi.gaml.types.Types;
+
+/**
+ * A variant of {@link GamaQuadTree} designed for populations whose agents are moved in parallel. Instead of
+ * synchronizing the map of each node, the leaves store their agents in concurrent maps and each node is protected by a
+ * {@link StampedLock} used as a version number:
+ * <ul>
+ * <li>insertions and removals take the lock in shared (read) mode, so that any number of them can proceed concurrently
+ * in the same leaf;</li>
+ * <li>splitting a leaf takes the lock in exclusive (write) mode, which makes sure that no agent is added to a leaf
+ * while it is being emptied into its children;</li>
+ * <li>queries never block: they read the leaves optimistically and only retry (in shared mode) the leaves that have
+ * been split while being visited.</li>
+ * </ul>
+ * As the iteration order of concurrent maps is not the insertion order, results are sorted by agent index before being
+ * shuffled, which makes them independent of the number of threads and of the order in which agents have been moved.
+ *
+ * This index is chosen by declaring <code>spatial_index: concurrent</code> in a species.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public class ConcurrentQuadTree implements ISpatialIndex {
+
+	/** The Constant BY_INDEX. */
+	static final Comparator<IAgent> BY_INDEX = Comparator.comparingInt(IAgent::getIndex);
+
+	/** The root. */
+	final QuadNode root;
+
+	/** The min size. */
+	final double minSize;
+
+	/**
+	 * Creates the.
+	 *
+	 * @param envelope
+	 *            the envelope
+	 * @return the concurrent quad tree
+	 */
+	public static ConcurrentQuadTree create(final Envelope envelope) {
+		return new ConcurrentQuadTree(envelope);
+	}
+
+	/**
+	 * Instantiates a new concurrent quad tree.
+	 *
+	 * @param bounds
+	 *            the bounds
+	 */
+	private ConcurrentQuadTree(final Envelope bounds) {
+		// See GamaQuadTree: all computations are made in 2D
+		minSize = bounds.getWidth() / 100d;
+		root = new QuadNode(new Envelope(bounds));
+	}
+
+	@Override
+	public void dispose() {
+		root.dispose();
+	}
+
+	@Override
+	public void insert(final IAgent agent) {
+		if (agent == null) return;
+		if (agent.isPoint()) {
+			root.add(agent.getLocation(), agent);
+		} else {
+			root.add(agent.getEnvelope(), agent);
+		}
+	}
+
+	@Override
+	public void remove(final Envelope3D previous, final IAgent agent) {
+		final Envelope3D current = previous == null ? agent.getEnvelope() : previous;
+		if (current == null) return;
+		// Null envelopes have no centre: they are removed like the other envelopes, from the nodes they intersect
+		if (!current.isNull() && current.getArea() == 0.0) {
+			root.remove(current.centre(), agent);
+		} else {
+			root.remove(current, agent);
+		}
+		current.dispose();
+	}
+
+	/**
+	 * Find intersects.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param source
+	 *            the source
+	 * @param r
+	 *            the r
+	 * @param filter
+	 *            the filter
+	 * @return the collection
+	 */
+	protected IList<IAgent> findIntersects(final IScope scope, final IShape source, final Envelope r,
+			final IAgentFilter filter) {
+		try (final ICollector<IAgent> set = Collector.getSet()) {
+			root.findIntersects(r, set);
+			if (set.isEmpty()) return GamaListFactory.create();
+			filter.filter(scope, source, set);
+			final IList<IAgent> result = GamaListFactory.create(Types.AGENT, set.size());
+			result.addAll(set.items());
+			// Adresses Issue 722: the order does not depend on the order of the updates before shuffling
+			result.sort(BY_INDEX);
+			scope.getRandom().shuffleInPlace(result);
+			return result;
+		}
+	}
+
+	@Override
+	public Collection<IAgent> allAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f) {
+		final Envelope3D env = Envelope3D.of(source.getEnvelope());
+		env.expandBy(dist * Maths.SQRT2);
+		try {
+			final IList<IAgent> result = findIntersects(scope, source, env, f);
+			if (result.isEmpty()) return result;
+			result.removeIf(each -> source.euclidianDistanceTo(each) > dist);
+			return result;
+		} finally {
+			env.dispose();
+		}
+	}
+
+	@Override
+	public Collection<IAgent> firstAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f, final int number, final Collection<IAgent> alreadyChosen) {
+		final Envelope3D env = Envelope3D.of(source.getEnvelope());
+		env.expandBy(dist * Maths.SQRT2);
+		try {
+			final IList<IAgent> in_square = findIntersects(scope, source, env, f);
+			in_square.removeAll(alreadyChosen);
+			if (in_square.size() <= number) return in_square;
+			final Ordering<IShape> ordering = Ordering.natural().onResultOf(input -> source.euclidianDistanceTo(input));
+			return ordering.leastOf(in_square, number);
+		} finally {
+			env.dispose();
+		}
+	}
+
+	@Override
+	public IAgent firstAtDistance(final IScope scope, final IShape source, final double dist, final IAgentFilter f) {
+		final Envelope3D env = Envelope3D.of(source.getEnvelope());
+		env.expandBy(dist * Maths.SQRT2);
+		try {
+			double min_distance = dist;
+			IAgent min_agent = null;
+			for (final IAgent a : findIntersects(scope, source, env, f)) {
+				final double dd = source.euclidianDistanceTo(a);
+				if (dd < min_distance) {
+					min_distance = dd;
+					min_agent = a;
+				}
+			}
+			return min_agent;
+		} finally {
+			env.dispose();
+		}
+	}
+
+	@Override
+	public Collection<IAgent> allInEnvelope(final IScope scope, final IShape source, final Envelope envelope,
+			final IAgentFilter f, final boolean contained) {
+		return findIntersects(scope, source, envelope, f);
+	}
+
+	/**
+	 * The Class QuadNode.
+	 */
+	private class QuadNode {
+
+		/** The bounds. */
+		final Envelope bounds;
+
+		/** The halfy. */
+		final double halfx, halfy;
+
+		/** The children. Once set, never reset to null (except when the tree is disposed) */
+		volatile QuadNode[] nodes = null;
+
+		/** The objects. */
+		final Map<IAgent, IIntersectable> objects = new ConcurrentHashMap<>();
+
+		/** The version of the node, changed when it is split. */
+		final StampedLock lock = new StampedLock();
+
+		/** The can split. */
+		final boolean canSplit;
+
+		/**
+		 * Instantiates a new quad node.
+		 *
+		 * @param bounds
+		 *            the bounds
+		 */
+		QuadNode(final Envelope bounds) {
+			this.bounds = bounds;
+			final double hw = bounds.getWidth();
+			final double hh = bounds.getHeight();
+			halfx = bounds.getMinX() + hw / 2;
+			halfy = bounds.getMinY() + hh / 2;
+			canSplit = hw > minSize && hh > minSize;
+		}
+
+		/**
+		 * Dispose.
+		 */
+		void dispose() {
+			objects.clear();
+			final QuadNode[] children = nodes;
+			if (children != null) {
+				for (final QuadNode n : children) { n.dispose(); }
+				nodes = null;
+			}
+		}
+
+		/**
+		 * Quadrant.
+		 *
+		 * @param p
+		 *            the p
+		 * @return the int
+		 */
+		int quadrant(final Coordinate p) {
+			final boolean north = p.y >= bounds.getMinY() && p.y < halfy;
+			final boolean west = p.x >= bounds.getMinX() && p.x < halfx;
+			return north ? west ? GamaQuadTree.NW : GamaQuadTree.NE : west ? GamaQuadTree.SW : GamaQuadTree.SE;
+		}
+
+		/**
+		 * Adds the agent to this node if it is still a leaf. Returns false if it has been split in the meantime.
+		 *
+		 * @param a
+		 *            the a
+		 * @param e
+		 *            the e
+		 * @return true, if successful
+		 */
+		private boolean addIfLeaf(final IAgent a, final IIntersectable e) {
+			final long stamp = lock.readLock();
+			try {
+				if (nodes != null) return false;
+				objects.put(a, e);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+			if (canSplit && objects.size() >= GamaQuadTree.maxCapacity) { split(); }
+			return true;
+		}
+
+		/**
+		 * Adds the.
+		 *
+		 * @param p
+		 *            the p
+		 * @param a
+		 *            the a
+		 */
+		void add(final GamaPoint p, final IAgent a) {
+			QuadNode node = this;
+			while (true) {
+				final QuadNode[] children = node.nodes;
+				if (children != null) {
+					node = children[node.quadrant(p)];
+				} else if (node.addIfLeaf(a, p)) { return; }
+			}
+		}
+
+		/**
+		 * Adds the.
+		 *
+		 * @param env
+		 *            the env
+		 * @param a
+		 *            the a
+		 */
+		void add(final Envelope3D env, final IAgent a) {
+			QuadNode[] children = nodes;
+			if (children == null) {
+				if (addIfLeaf(a, env)) return;
+				children = nodes;
+			}
+			for (final QuadNode node : children) { if (node.bounds.intersects(env)) { node.add(env, a); } }
+		}
+
+		/**
+		 * Split. Takes the lock in exclusive mode, so that concurrent insertions wait for the children to be ready.
+		 */
+		void split() {
+			final long stamp = lock.writeLock();
+			try {
+				if (nodes != null || objects.size() < GamaQuadTree.maxCapacity) return;
+				final double maxx = bounds.getMaxX();
+				final double minx = bounds.getMinX();
+				final double miny = bounds.getMinY();
+				final double maxy = bounds.getMaxY();
+				final QuadNode[] children = { new QuadNode(new Envelope(minx, halfx, miny, halfy)),
+						new QuadNode(new Envelope(halfx, maxx, miny, halfy)),
+						new QuadNode(new Envelope(minx, halfx, halfy, maxy)),
+						new QuadNode(new Envelope(halfx, maxx, halfy, maxy)) };
+				objects.forEach((a, e) -> {
+					if (a != null && !a.dead()) {
+						final IShape g = a.getGeometry();
+						if (g.isPoint()) {
+							children[quadrant(g.getLocation())].add(g.getLocation(), a);
+						} else {
+							final Envelope3D env = g.getEnvelope();
+							for (final QuadNode node : children) {
+								if (node.bounds.intersects(env)) { node.add(env, a); }
+							}
+						}
+					}
+				});
+				nodes = children;
+				objects.clear();
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		/**
+		 * Find intersects. Leaves are read optimistically; if a leaf has been split during the visit, it is visited
+		 * again, this time through its children. As the results are collected in a set, visiting an agent twice has
+		 * no consequence.
+		 *
+		 * @param r
+		 *            the r
+		 * @param result
+		 *            the result
+		 */
+		void findIntersects(final Envelope r, final Collection<IAgent> result) {
+			if (!bounds.intersects(r)) return;
+			final long stamp = lock.tryOptimisticRead();
+			QuadNode[] children = nodes;
+			if (children == null) {
+				objects.forEach((a, e) -> { if (e != null && e.intersects(r)) { result.add(a); } });
+				if (stamp != 0L && lock.validate(stamp)) return;
+				children = nodes;
+				if (children == null) {
+					// Either a split is in progress (in which case we wait for it) or the tree has been disposed
+					final long read = lock.readLock();
+					try {
+						children = nodes;
+						if (children == null) {
+							objects.forEach((a, e) -> { if (e != null && e.intersects(r)) { result.add(a); } });
+							return;
+						}
+					} finally {
+						lock.unlockRead(read);
+					}
+				}
+			}
+			for (final QuadNode node : children) { node.findIntersects(r, result); }
+		}
+
+		/**
+		 * Removes the.
+		 *
+		 * @param p
+		 *            the p
+		 * @param a
+		 *            the a
+		 */
+		void remove(final Coordinate p, final IShape a) {
+			QuadNode node = this;
+			while (true) {
+				final QuadNode[] children = node.nodes;
+				if (children != null) {
+					node = children[node.quadrant(p)];
+				} else if (node.removeIfLeaf(a)) { return; }
+			}
+		}
+
+		/**
+		 * Removes the.
+		 *
+		 * @param env
+		 *            the env
+		 * @param a
+		 *            the a
+		 */
+		void remove(final Envelope env, final IShape a) {
+			QuadNode[] children = nodes;
+			if (children == null) {
+				if (removeIfLeaf(a)) return;
+				children = nodes;
+			}
+			for (final QuadNode node : children) { if (node.bounds.intersects(env)) { node.remove(env, a); } }
+		}
+
+		/**
+		 * Removes the agent from this node if it is still a leaf. Returns false if it has been split in the meantime.
+		 *
+		 * @param a
+		 *            the a
+		 * @return true, if successful
+		 */
+		private boolean removeIfLeaf(final IShape a) {
+			final long stamp = lock.readLock();
+			try {
+				if (nodes != null) return false;
+				objects.remove(a);
+				return true;
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+	}
+
+}
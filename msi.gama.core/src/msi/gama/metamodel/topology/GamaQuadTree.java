@@ -165,6 +165,18 @@ public class GamaQuadTree implements ISpatialIndex {
 		}
 	}
 
+	/**
+	 * Adds to the collection passed the agents whose envelope intersects r, without filtering or shuffling them.
+	 *
+	 * @param r
+	 *            the r
+	 * @param result
+	 *            the result
+	 */
+	void collectIntersects(final Envelope r, final Collection<IAgent> result) {
+		root.findIntersects(r, result);
+	}
+
 	@Override
 	public Collection<IAgent> allAtDistance(final IScope scope, final IShape source, final double dist,
 			final IAgentFilter f) {
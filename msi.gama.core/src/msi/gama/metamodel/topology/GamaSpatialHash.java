@@ -0,0 +1,397 @@
+/*******************************************************************************************************
+ *
+ * GamaSpatialHash.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.topology;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.locationtech.jts.geom.Envelope;
+
+import com.google.common.collect.Ordering;
+
+import msi.gama.common.geometry.Envelope3D;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.shape.GamaPoint;
+import msi.gama.metamodel.shape.IShape;
+import msi.gama.metamodel.topology.filter.IAgentFilter;
+import msi.gama.runtime.IScope;
+import msi.gama.util.Collector;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.ICollector;
+import msi.gama.util.IList;
+import msi.gaml.types.Types;
+
+/**
+ * A spatial index dedicated to agents whose geometry is a point. The bounds of the environment are divided into a
+ * regular grid of cells; each cell holds the agents located in it in a plain array, and the position of each agent
+ * (cell and rank in the cell) is remembered, so that moving an agent costs two array operations whatever the number of
+ * agents. Queries only visit the cells that overlap the envelope they target.
+ *
+ * Agents that are not points are delegated to a {@link GamaQuadTree}, created the first time such an agent is
+ * inserted, so that the index remains correct if the shape of some agents changes during the simulation.
+ *
+ * This index is chosen by declaring <code>spatial_index: hash</code> in a species, or automatically for the species
+ * whose agents are all points when the corresponding preference is enabled.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public class GamaSpatialHash implements ISpatialIndex {
+
+	/** The number of cells along the largest dimension of the environment. */
+	static final int CELLS = 100;
+
+	/** The initial capacity of a cell. */
+	static final int CELL_CAPACITY = 4;
+
+	/** The origin of the grid. */
+	final double minX, minY;
+
+	/** The dimensions of the cells. */
+	final double cellSize;
+
+	/** The number of columns and rows. */
+	final int cols, rows;
+
+	/** The agents in each cell. */
+	final IAgent[][] cells;
+
+	/** The number of agents in each cell. */
+	final int[] counts;
+
+	/** For each agent, its cell and its rank in the cell. */
+	final Map<IAgent, int[]> positions = new IdentityHashMap<>();
+
+	/** The index used for the agents that are not points. Lazily created. */
+	GamaQuadTree others;
+
+	/** The bounds. */
+	final Envelope bounds;
+
+	/** Whether the index can be accessed by several threads. */
+	final boolean parallel;
+
+	/**
+	 * Creates the.
+	 *
+	 * @param envelope
+	 *            the envelope
+	 * @param parallel
+	 *            the parallel
+	 * @return the gama spatial hash
+	 */
+	public static GamaSpatialHash create(final Envelope envelope, final boolean parallel) {
+		return new GamaSpatialHash(envelope, parallel);
+	}
+
+	/**
+	 * Instantiates a new gama spatial hash.
+	 *
+	 * @param bounds
+	 *            the bounds
+	 * @param parallel
+	 *            the parallel
+	 */
+	private GamaSpatialHash(final Envelope bounds, final boolean parallel) {
+		// As in GamaQuadTree, all computations are made in 2D
+		this.bounds = new Envelope(bounds);
+		this.parallel = parallel;
+		minX = bounds.getMinX();
+		minY = bounds.getMinY();
+		final double size = Math.max(bounds.getWidth(), bounds.getHeight()) / CELLS;
+		cellSize = size > 0 ? size : 1d;
+		cols = Math.max(1, (int) Math.ceil(bounds.getWidth() / cellSize));
+		rows = Math.max(1, (int) Math.ceil(bounds.getHeight() / cellSize));
+		cells = new IAgent[cols * rows][];
+		counts = new int[cols * rows];
+	}
+
+	/**
+	 * Column of an x coordinate, clamped to the grid. Agents outside the bounds are stored in the border cells.
+	 *
+	 * @param x
+	 *            the x
+	 * @return the int
+	 */
+	private int col(final double x) {
+		final int c = (int) ((x - minX) / cellSize);
+		return c < 0 ? 0 : c >= cols ? cols - 1 : c;
+	}
+
+	/**
+	 * Row of an y coordinate, clamped to the grid.
+	 *
+	 * @param y
+	 *            the y
+	 * @return the int
+	 */
+	private int row(final double y) {
+		final int r = (int) ((y - minY) / cellSize);
+		return r < 0 ? 0 : r >= rows ? rows - 1 : r;
+	}
+
+	@Override
+	public void dispose() {
+		Arrays.fill(cells, null);
+		Arrays.fill(counts, 0);
+		positions.clear();
+		if (others != null) { others.dispose(); }
+	}
+
+	/**
+	 * Returns all the agents stored in this index, sorted by index, so that their order does not depend on the hashing
+	 * (e.g. when they are transferred to another index).
+	 *
+	 * @return the agents
+	 */
+	public List<IAgent> getAgents() {
+		final Set<IAgent> result = new LinkedHashSet<>();
+		if (parallel) {
+			synchronized (this) {
+				collectAll(result);
+			}
+		} else {
+			collectAll(result);
+		}
+		final List<IAgent> sorted = new ArrayList<>(result);
+		sorted.sort(Comparator.comparingInt(IAgent::getIndex));
+		return sorted;
+	}
+
+	/**
+	 * Collects all the agents, points and other shapes.
+	 *
+	 * @param result
+	 *            the result
+	 */
+	private void collectAll(final Collection<IAgent> result) {
+		result.addAll(positions.keySet());
+		if (others != null) {
+			others.collectIntersects(
+					new Envelope(-Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, Double.MAX_VALUE), result);
+		}
+	}
+
+	@Override
+	public void insert(final IAgent agent) {
+		if (agent == null) return;
+		if (parallel) {
+			synchronized (this) {
+				doInsert(agent);
+			}
+		} else {
+			doInsert(agent);
+		}
+	}
+
+	/**
+	 * Do insert.
+	 *
+	 * @param agent
+	 *            the agent
+	 */
+	private void doInsert(final IAgent agent) {
+		if (!agent.isPoint()) {
+			if (others == null) { others = GamaQuadTree.create(bounds, false); }
+			others.insert(agent);
+			return;
+		}
+		final GamaPoint p = agent.getLocation();
+		final int cell = row(p.y) * cols + col(p.x);
+		final int[] position = new int[2];
+		final int[] existing = positions.put(agent, position);
+		// Already present (inserted twice without being removed)
+		if (existing != null) { removeFromCell(existing); }
+		IAgent[] agents = cells[cell];
+		final int count = counts[cell];
+		if (agents == null) {
+			agents = cells[cell] = new IAgent[CELL_CAPACITY];
+		} else if (count == agents.length) { agents = cells[cell] = Arrays.copyOf(agents, count * 2); }
+		agents[count] = agent;
+		counts[cell] = count + 1;
+		position[0] = cell;
+		position[1] = count;
+	}
+
+	/**
+	 * Removes the agent described by this position from its cell, by replacing it with the last agent of the cell.
+	 *
+	 * @param position
+	 *            the position
+	 */
+	private void removeFromCell(final int[] position) {
+		final int cell = position[0];
+		final int rank = position[1];
+		final IAgent[] agents = cells[cell];
+		final int last = --counts[cell];
+		if (rank != last) {
+			final IAgent moved = agents[last];
+			agents[rank] = moved;
+			positions.get(moved)[1] = rank;
+		}
+		agents[last] = null;
+	}
+
+	@Override
+	public void remove(final Envelope3D previous, final IAgent agent) {
+		if (agent == null) return;
+		if (parallel) {
+			synchronized (this) {
+				doRemove(previous, agent);
+			}
+		} else {
+			doRemove(previous, agent);
+		}
+	}
+
+	/**
+	 * Do remove.
+	 *
+	 * @param previous
+	 *            the previous
+	 * @param agent
+	 *            the agent
+	 */
+	private void doRemove(final Envelope3D previous, final IAgent agent) {
+		final int[] position = positions.remove(agent);
+		if (position != null) {
+			removeFromCell(position);
+			if (previous != null) { previous.dispose(); }
+		} else if (others != null) {
+			others.remove(previous, agent);
+		} else if (previous != null) { previous.dispose(); }
+	}
+
+	/**
+	 * Collects the agents located in the envelope, visiting only the cells it overlaps.
+	 *
+	 * @param r
+	 *            the r
+	 * @param result
+	 *            the result
+	 */
+	private void collect(final Envelope r, final Collection<IAgent> result) {
+		final int c0 = col(r.getMinX()), c1 = col(r.getMaxX());
+		final int r0 = row(r.getMinY()), r1 = row(r.getMaxY());
+		for (int j = r0; j <= r1; j++) {
+			for (int i = c0; i <= c1; i++) {
+				final int cell = j * cols + i;
+				final IAgent[] agents = cells[cell];
+				final int count = counts[cell];
+				for (int k = 0; k < count; k++) {
+					final IAgent a = agents[k];
+					final GamaPoint p = a.getLocation();
+					if (r.intersects(p.x, p.y)) { result.add(a); }
+				}
+			}
+		}
+		if (others != null) { others.collectIntersects(r, result); }
+	}
+
+	/**
+	 * Find intersects.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param source
+	 *            the source
+	 * @param r
+	 *            the r
+	 * @param filter
+	 *            the filter
+	 * @return the collection
+	 */
+	protected IList<IAgent> findIntersects(final IScope scope, final IShape source, final Envelope r,
+			final IAgentFilter filter) {
+		try (final ICollector<IAgent> set = Collector.getOrderedSet()) {
+			if (parallel) {
+				synchronized (this) {
+					collect(r, set);
+				}
+			} else {
+				collect(r, set);
+			}
+			if (set.isEmpty()) return GamaListFactory.create();
+			filter.filter(scope, source, set);
+			final IList<IAgent> result = GamaListFactory.create(Types.AGENT, set.size());
+			result.addAll(set.items());
+			// Adresses Issue 722 by explicitly shuffling the results with GAMA random procedures
+			scope.getRandom().shuffleInPlace(result);
+			return result;
+		}
+	}
+
+	@Override
+	public Collection<IAgent> allAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f) {
+		// A point at distance dist of the source is always inside its envelope expanded by dist
+		final Envelope3D env = Envelope3D.of(source.getEnvelope());
+		env.expandBy(dist);
+		try {
+			final IList<IAgent> result = findIntersects(scope, source, env, f);
+			if (result.isEmpty()) return result;
+			result.removeIf(each -> source.euclidianDistanceTo(each) > dist);
+			return result;
+		} finally {
+			env.dispose();
+		}
+	}
+
+	@Override
+	public Collection<IAgent> firstAtDistance(final IScope scope, final IShape source, final double dist,
+			final IAgentFilter f, final int number, final Collection<IAgent> alreadyChosen) {
+		final Envelope3D env = Envelope3D.of(source.getEnvelope());
+		env.expandBy(dist);
+		try {
+			final IList<IAgent> in_square = findIntersects(scope, source, env, f);
+			in_square.removeAll(alreadyChosen);
+			if (in_square.size() <= number) return in_square;
+			final Ordering<IShape> ordering = Ordering.natural().onResultOf(input -> source.euclidianDistanceTo(input));
+			return ordering.leastOf(in_square, number);
+		} finally {
+			env.dispose();
+		}
+	}
+
+	@Override
+	public IAgent firstAtDistance(final IScope scope, final IShape source, final double dist, final IAgentFilter f) {
+		final Envelope3D env = Envelope3D.of(source.getEnvelope());
+		env.expandBy(dist);
+		try {
+			double min_distance = dist;
+			IAgent min_agent = null;
+			for (final IAgent a : findIntersects(scope, source, env, f)) {
+				final double dd = source.euclidianDistanceTo(a);
+				if (dd < min_distance) {
+					min_distance = dd;
+					min_agent = a;
+				}
+			}
+			return min_agent;
+		} finally {
+			env.dispose();
+		}
+	}
+
+	@Override
+	public Collection<IAgent> allInEnvelope(final IScope scope, final IShape source, final Envelope envelope,
+			final IAgentFilter f, final boolean contained) {
+		return findIntersects(scope, source, envelope, f);
+	}
+
+}
@@ -0,0 +1,194 @@
+/*******************************************************************************************************
+ *
+ * DiffusionKernel.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.metamodel.topology.grid;
+
+import java.util.concurrent.ForkJoinPool;
+
+import msi.gama.runtime.concurrent.GamaExecutorService;
+import one.util.streamex.IntStreamEx;
+
+/**
+ * The convolution used by {@link GridDiffuser} and {@link FieldDiffuser} when no value has to be redistributed (i.e.
+ * when the diffusion does not avoid a mask). It computes exactly the same values as the generic loop of the diffusers,
+ * in the same order, but:
+ * <ul>
+ * <li>the kernel is flattened and flipped once;</li>
+ * <li>the handling of the torus and of the bounds is moved out of the inner loop, in tables giving, for each output
+ * column (resp. row) and each column (resp. row) of the kernel, the input column (resp. row) it reads, or -1;</li>
+ * <li>the mask is flattened into the layout of the input;</li>
+ * <li>the output rows are processed in bands, which are distributed over the agent parallel executor when the grid is
+ * large enough. As each output cell is only written by its own computation, the result does not depend on the number
+ * of threads.</li>
+ * </ul>
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+final class DiffusionKernel {
+
+	/** The number of cells under which the convolution is sequential. */
+	static final int PARALLEL_THRESHOLD = 128 * 128;
+
+	/** The approximate number of cells of each band of rows. */
+	static final int BAND_SIZE = 16 * 1024;
+
+	/** The input and output arrays, in row-major order. */
+	final double[] input, output;
+
+	/** The dimensions of the grid. */
+	final int nbRows, nbCols;
+
+	/** The dimensions of the kernel. */
+	final int kRows, kCols;
+
+	/** The flipped kernel, in row-major order. */
+	final double[] weights;
+
+	/** For each output column and kernel column, the input column read, or -1. */
+	final int[] columns;
+
+	/** For each output row and kernel row, the input row read, or -1. */
+	final int[] rows;
+
+	/** Whether each input cell can diffuse. Null if there is no mask. */
+	final boolean[] open;
+
+	/** Whether values are maximized rather than summed. */
+	final boolean gradient;
+
+	/**
+	 * Instantiates a new diffusion kernel.
+	 *
+	 * @param input
+	 *            the input
+	 * @param output
+	 *            the output
+	 * @param nbRows
+	 *            the nb rows
+	 * @param nbCols
+	 *            the nb cols
+	 * @param torus
+	 *            the torus
+	 * @param matrix
+	 *            the diffusion matrix
+	 * @param mask
+	 *            the mask, or null
+	 * @param gradient
+	 *            the gradient
+	 */
+	DiffusionKernel(final double[] input, final double[] output, final int nbRows, final int nbCols,
+			final boolean torus, final double[][] matrix, final double[][] mask, final boolean gradient) {
+		this.input = input;
+		this.output = output;
+		this.nbRows = nbRows;
+		this.nbCols = nbCols;
+		this.gradient = gradient;
+		kRows = matrix.length;
+		kCols = matrix[0].length;
+		final int kCenterX = kCols / 2;
+		final int kCenterY = kRows / 2;
+		weights = new double[kRows * kCols];
+		for (int m = 0; m < kRows; m++) {
+			for (int n = 0; n < kCols; n++) { weights[m * kCols + n] = matrix[kRows - m - 1][kCols - n - 1]; }
+		}
+		// The wrapping of the indices reproduces the one of the diffusers (columns are wrapped by the number of rows
+		// and conversely)
+		columns = new int[nbCols * kCols];
+		for (int i = 0; i < nbCols; i++) {
+			for (int n = 0; n < kCols; n++) {
+				int ii = i + n - kCenterX;
+				if (torus) {
+					if (ii < 0) {
+						ii = nbRows + ii;
+					} else if (ii >= nbRows) { ii = ii - nbRows; }
+				}
+				columns[i * kCols + n] = ii >= 0 && ii < nbCols ? ii : -1;
+			}
+		}
+		rows = new int[nbRows * kRows];
+		for (int j = 0; j < nbRows; j++) {
+			for (int m = 0; m < kRows; m++) {
+				int jj = j + m - kCenterY;
+				if (torus) {
+					if (jj < 0) {
+						jj = nbCols + jj;
+					} else if (jj >= nbCols) { jj = jj - nbCols; }
+				}
+				rows[j * kRows + m] = jj >= 0 && jj < nbRows ? jj : -1;
+			}
+		}
+		if (mask == null) {
+			open = null;
+		} else {
+			open = new boolean[nbRows * nbCols];
+			// Cells outside of the mask are considered as masked
+			for (int ii = 0; ii < Math.min(nbCols, mask.length); ii++) {
+				final double[] column = mask[ii];
+				for (int jj = 0; jj < Math.min(nbRows, column.length); jj++) {
+					open[jj * nbCols + ii] = column[jj] == 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs the convolution, in parallel if the grid is large enough and the agent parallel executor is available.
+	 */
+	void run() {
+		final ForkJoinPool pool = GamaExecutorService.AGENT_PARALLEL_EXECUTOR;
+		final int band = Math.max(1, BAND_SIZE / Math.max(1, nbCols));
+		final int bands = (nbRows + band - 1) / band;
+		if (pool == null || bands < 2 || nbRows * nbCols < PARALLEL_THRESHOLD) {
+			convolve(0, nbRows);
+		} else {
+			IntStreamEx.range(bands).parallel(pool).forEach(b -> convolve(b * band, Math.min(nbRows, (b + 1) * band)));
+		}
+	}
+
+	/**
+	 * Computes the output rows between two indices.
+	 *
+	 * @param from
+	 *            the first row (inclusive)
+	 * @param to
+	 *            the last row (exclusive)
+	 */
+	void convolve(final int from, final int to) {
+		for (int j = from; j < to; j++) {
+			final int rowOffset = j * kRows;
+			for (int i = 0; i < nbCols; i++) {
+				final int index = j * nbCols + i;
+				final int colOffset = i * kCols;
+				double value = output[index];
+				for (int m = 0; m < kRows; m++) {
+					final int jj = rows[rowOffset + m];
+					if (jj < 0) { continue; }
+					final int line = jj * nbCols;
+					final int kernel = m * kCols;
+					for (int n = 0; n < kCols; n++) {
+						final int ii = columns[colOffset + n];
+						if (ii < 0 || open != null && !open[line + ii]) { continue; }
+						final double contribution = input[line + ii] * weights[kernel + n];
+						if (value == -Double.MAX_VALUE) {
+							value = contribution;
+						} else if (gradient) {
+							if (value < contribution) { value = contribution; }
+						} else {
+							value += contribution;
+						}
+					}
+				}
+				output[index] = value;
+			}
+		}
+	}
+
+}
@@ -352,6 +352,12 @@ public class FieldDiffuser {
 	 */
 	public void diffusionWithConvolution() {
 		// default method : convolution
+		if (!diffusion.avoidMask || diffusion.mask == null) {
+			// Nothing to redistribute: each output cell only depends on the input
+			new DiffusionKernel(input, output, context.nbRows, context.nbCols, context.isTorus,
+					diffusion.diffusionMatrix, diffusion.mask, diffusion.isGradient).run();
+			return;
+		}
 
 		final int kRows = diffusion.diffusionMatrix.length;
 		final int kCols = diffusion.diffusionMatrix[0].length;
@@ -925,8 +925,7 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 		// covered cells
 		final Set<IAgent> allPlaces = new LinkedHashSet();
 		for (final IAgent ag : coveredPlaces) {
-			allPlaces.addAll(
-					getNeighborhood().getNeighborsIn(scope, getPlaceIndexAt(ag.getLocation()), distance.intValue()));
+			getNeighborhood().addNeighborsIn(scope, getPlaceIndexAt(ag.getLocation()), distance.intValue(), allPlaces);
 		}
 
 		// And we filter these cells by removing those that are in the "interior
@@ -1935,7 +1934,7 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 			createAgents(scope, null);
 			for (final Map attr : initialValues) {
 				final IAgent agt = getAgent((Integer) attr.get("grid_x"), (Integer) attr.get("grid_y"));
-				agt.getOrCreateAttributes().putAll(attr);
+				attr.forEach((name, value) -> agt.setAttribute((String) name, value));
 			}
 			return (IList) getAgents(scope);
 		}
@@ -2240,7 +2239,7 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 
 			@Override
 			public IList<IAgent> getNeighbors(final IScope scope) {
-				return Cast.asList(scope, getNeighborhood().getNeighborsIn(scope, getIndex(), 1));
+				return getNeighborhood().getNeighborListIn(scope, getIndex(), 1);
 			}
 
 		}
@@ -2317,7 +2316,7 @@ public class GamaSpatialMatrix extends GamaMatrix<IShape> implements IGrid {
 
 			@Override
 			public IList<IAgent> getNeighbors(final IScope scope) {
-				return Cast.asList(scope, getNeighborhood().getNeighborsIn(scope, getIndex(), 1));
+				return getNeighborhood().getNeighborListIn(scope, getIndex(), 1);
 			}
 
 			/**
@@ -350,6 +350,11 @@ public class GridDiffuser {
 	 */
 	public void doDiffusion_with_convolution() {
 		// default method : convolution
+		if (!avoid_mask || mask == null) {
+			// Nothing to redistribute: each output cell only depends on the input
+			new DiffusionKernel(input, output, nbRows, nbCols, is_torus, mat_diffu, mask, is_gradient).run();
+			return;
+		}
 
 		final int kRows = mat_diffu.length;
 		final int kCols = mat_diffu[0].length;
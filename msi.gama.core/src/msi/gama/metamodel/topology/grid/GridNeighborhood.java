@@ -6,34 +6,71 @@
  * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
  *
  * Visit https://github.com/gama-platform/gama for license information and contacts.
- * 
+ *
  ********************************************************************************************************/
 package msi.gama.metamodel.topology.grid;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
 
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.runtime.IScope;
 import msi.gama.util.Collector;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.IList;
+import msi.gaml.types.Types;
 
 /**
  * Written by drogoul Modified on 8 mars 2011
  *
- * @todo Description
+ * The neighbors of the cells are stored by layers: the layer of radius r contains the neighbors that are at radius r
+ * and not at a smaller radius, in a compressed sparse row format (one array of offsets indexed by the cells and one
+ * array of indices). Each layer is divided in ranges of {@link #RANGE_SIZE} consecutive cells, which are computed
+ * lazily, the first time the neighbors of one of their cells are asked at this radius. The ranges are never modified
+ * once published, so that they can be read, and computed, concurrently by the agents of a grid scheduled in parallel.
  *
  */
 public abstract class GridNeighborhood implements INeighborhood {
 
+	/** The number of consecutive cells whose neighbors are computed together. */
+	static final int RANGE_SIZE = 1024;
+
+	/**
+	 * The neighbors at a given radius of a range of cells.
+	 */
+	static final class Range {
+
+		/** The offsets: the neighbors of the cell first + i are in indices[offsets[i]] .. indices[offsets[i+1]-1]. */
+		final int[] offsets;
+
+		/** The indices of the neighbors. */
+		final int[] indices;
+
+		/**
+		 * Instantiates a new range.
+		 *
+		 * @param offsets
+		 *            the offsets
+		 * @param indices
+		 *            the indices
+		 */
+		Range(final int[] offsets, final int[] indices) {
+			this.offsets = offsets;
+			this.indices = indices;
+		}
+	}
+
 	/** The matrix. */
 	protected final GamaSpatialMatrix matrix;
-	
-	/** The neighbors. */
-	// i : index of agents; j : index of neighbors
-	protected int[][] neighbors;
-	
-	/** The neighbors indexes. */
-	// i : index of agents; j : index of the neighbors by distance
-	protected int[][] neighborsIndexes;
+
+	/**
+	 * The layers. layers[r - 1] contains the ranges of the neighbors at radius r (null until they are computed).
+	 * Replaced (under the lock) when it grows
+	 */
+	protected volatile AtomicReferenceArray<Range>[] layers = newLayers(0);
 
 	/**
 	 * Instantiates a new grid neighborhood.
@@ -42,114 +79,185 @@ public abstract class GridNeighborhood implements INeighborhood {
 	 */
 	public GridNeighborhood(final GamaSpatialMatrix matrix) {
 		this.matrix = matrix;
-		neighbors = new int[matrix.matrix.length][0];
-		// neighborsIndexes = new ArrayList[agents.length];
-		neighborsIndexes = new int[matrix.matrix.length][];
 	}
 
-	@Override
-	public int[] getRawNeighborsIncluding(final IScope scope, final int placeIndex, final int radius) {
-		// List<Integer> n = neighborsIndexes[placeIndex];
-		int[] n = neighborsIndexes[placeIndex];
-		if (n == null) {
-			// n = new ArrayList<Integer>();
-			n = new int[0];
-			neighborsIndexes[placeIndex] = n;
-		}
-		// final int size = n.size();
-		final int size = n.length;
-		if (radius > size) {
-			computeNeighborsFrom(placeIndex, size + 1, radius);
+	/**
+	 * Creates an array of layers.
+	 *
+	 * @param size the size
+	 * @return the array
+	 */
+	@SuppressWarnings ("unchecked")
+	private static AtomicReferenceArray<Range>[] newLayers(final int size) {
+		return new AtomicReferenceArray[size];
+	}
+
+	/**
+	 * Returns the layers up to this radius, adding the missing ones (empty).
+	 *
+	 * @param radius the radius
+	 * @return the layers
+	 */
+	private AtomicReferenceArray<Range>[] layers(final int radius) {
+		final AtomicReferenceArray<Range>[] current = layers;
+		if (current.length >= radius) return current;
+		synchronized (this) {
+			if (layers.length >= radius) return layers;
+			final AtomicReferenceArray<Range>[] result = Arrays.copyOf(layers, radius);
+			final int nbRanges = (matrix.matrix.length + RANGE_SIZE - 1) / RANGE_SIZE;
+			for (int r = 0; r < result.length; r++) {
+				if (result[r] == null) { result[r] = new AtomicReferenceArray<>(nbRanges); }
+			}
+			layers = result;
+			return result;
 		}
-		return neighbors[placeIndex];
 	}
 
 	/**
-	 * Gets the neighbors at radius.
+	 * Returns the neighbors at a radius of the range of cells that contains a cell, computing them if needed.
 	 *
+	 * @param layers the layers, up to this radius at least
 	 * @param placeIndex the place index
 	 * @param radius the radius
-	 * @return the neighbors at radius
+	 * @return the range
 	 */
-	protected abstract Set<Integer> getNeighborsAtRadius(final int placeIndex, final int radius);
+	private Range range(final AtomicReferenceArray<Range>[] layers, final int placeIndex, final int radius) {
+		final AtomicReferenceArray<Range> layer = layers[radius - 1];
+		final int index = placeIndex / RANGE_SIZE;
+		final Range range = layer.get(index);
+		if (range != null) return range;
+		// Another thread can only have published the same range
+		final Range computed = computeRange(layers, index, radius);
+		return layer.compareAndSet(index, null, computed) ? computed : layer.get(index);
+	}
 
 	/**
-	 * Compute neighbors from.
+	 * Computes the neighbors at a radius of a range of cells that are not at a smaller radius, in the order of
+	 * {@link #getNeighborsAtRadius(int, int)}.
 	 *
-	 * @param placeIndex the place index
-	 * @param begin the begin
-	 * @param end the end
+	 * @param layers the layers, up to this radius at least
+	 * @param index the index of the range
+	 * @param radius the radius
+	 * @return the range
 	 */
-	private void computeNeighborsFrom(final int placeIndex, final int begin, final int end) {
-		for (int i = begin; i <= end; i++) {
-			// final int previousIndex = i == 1 ? 0 :
-			// neighborsIndexes[placeIndex].get(i - 2);
-			final int previousIndex = i == 1 ? 0 : neighborsIndexes[placeIndex][i - 2];
-			final Set<Integer> list = getNeighborsAtRadius(placeIndex, i);
-			final int[] listArray = new int[list.size()];
-			int index = 0;
-			for (final Integer ii : list) {
-				listArray[index++] = ii.intValue();
-			}
-			final int size = listArray.length;
-			final int[] newArray = new int[neighbors[placeIndex].length + size];
-			if (neighbors[placeIndex].length != 0) {
-				java.lang.System.arraycopy(neighbors[placeIndex], 0, newArray, 0, neighbors[placeIndex].length);
+	private Range computeRange(final AtomicReferenceArray<Range>[] layers, final int index, final int radius) {
+		final int first = index * RANGE_SIZE;
+		final int size = Math.min(RANGE_SIZE, matrix.matrix.length - first);
+		final Range[] previous = new Range[radius - 1];
+		for (int r = 1; r < radius; r++) { previous[r - 1] = range(layers, first, r); }
+		final int[][] neighbors = new int[size][];
+		final int[] offsets = new int[size + 1];
+		for (int i = 0; i < size; i++) {
+			final Set<Integer> set = getNeighborsAtRadius(first + i, radius);
+			for (final Range p : previous) {
+				for (int k = p.offsets[i]; k < p.offsets[i + 1]; k++) { set.remove(p.indices[k]); }
 			}
-			java.lang.System.arraycopy(listArray, 0, newArray, neighbors[placeIndex].length, size);
-			neighbors[placeIndex] = newArray;
-			addToNeighborsIndex(placeIndex, previousIndex + size);
+			final int[] cell = new int[set.size()];
+			int k = 0;
+			for (final Integer n : set) { cell[k++] = n; }
+			neighbors[i] = cell;
+			offsets[i + 1] = offsets[i] + cell.length;
 		}
+		final int[] indices = new int[offsets[size]];
+		for (int i = 0; i < size; i++) { System.arraycopy(neighbors[i], 0, indices, offsets[i], neighbors[i].length); }
+		return new Range(offsets, indices);
 	}
 
 	/**
-	 * Adds the to neighbors index.
+	 * Gets the neighbors at radius.
 	 *
 	 * @param placeIndex the place index
-	 * @param newIndex the new index
+	 * @param radius the radius
+	 * @return the neighbors at radius
 	 */
-	private final void addToNeighborsIndex(final int placeIndex, final int newIndex) {
-		final int[] previous = neighborsIndexes[placeIndex];
-		final int[] newOne = new int[previous.length + 1];
-		java.lang.System.arraycopy(previous, 0, newOne, 0, previous.length);
-		newOne[previous.length] = newIndex;
-		neighborsIndexes[placeIndex] = newOne;
+	protected abstract Set<Integer> getNeighborsAtRadius(final int placeIndex, final int radius);
+
+	@Override
+	public int countNeighborsIn(final int placeIndex, final int radius) {
+		final AtomicReferenceArray<Range>[] l = layers(radius);
+		final int i = placeIndex % RANGE_SIZE;
+		int count = 0;
+		for (int r = 1; r <= radius; r++) {
+			final Range range = range(l, placeIndex, r);
+			count += range.offsets[i + 1] - range.offsets[i];
+		}
+		return count;
+	}
+
+	@Override
+	public void forEachNeighborIn(final int placeIndex, final int radius, final IntConsumer action) {
+		final AtomicReferenceArray<Range>[] l = layers(radius);
+		final int i = placeIndex % RANGE_SIZE;
+		for (int r = 1; r <= radius; r++) {
+			final Range range = range(l, placeIndex, r);
+			for (int k = range.offsets[i]; k < range.offsets[i + 1]; k++) { action.accept(range.indices[k]); }
+		}
+	}
+
+	/**
+	 * Returns the indices of the neighbors of a cell, shuffled with the random generator of the scope.
+	 *
+	 * @param scope the scope
+	 * @param placeIndex the place index
+	 * @param radius the radius
+	 * @return the int[]
+	 */
+	private int[] getShuffledNeighbors(final IScope scope, final int placeIndex, final int radius) {
+		final int[] result = getRawNeighborsIncluding(scope, placeIndex, radius);
+		// Addresses Issue 1071 by explicitly shuffling the result. Like the shuffling of collections, does not draw any
+		// number when there is nothing to shuffle, so that the random sequence of the simulation is not modified
+		if (result.length > 1) { scope.getRandom().shuffleInPlace(result); }
+		return result;
+	}
+
+	@Override
+	public int[] getRawNeighborsIncluding(final IScope scope, final int placeIndex, final int radius) {
+		final AtomicReferenceArray<Range>[] l = layers(radius);
+		final int i = placeIndex % RANGE_SIZE;
+		final int[] result = new int[countNeighborsIn(placeIndex, radius)];
+		int index = 0;
+		for (int r = 1; r <= radius; r++) {
+			final Range range = range(l, placeIndex, r);
+			final int begin = range.offsets[i];
+			final int length = range.offsets[i + 1] - begin;
+			System.arraycopy(range.indices, begin, result, index, length);
+			index += length;
+		}
+		return result;
 	}
 
 	@Override
 	public int neighborsIndexOf(final IScope scope, final int placeIndex, final int n) {
 		if (n == 1) { return 0; }
-		final int size = neighborsIndexes[placeIndex].length;
-		if (n > size) { return neighbors[placeIndex].length - 1; }
-		return neighborsIndexes[placeIndex][n - 2];
+		return countNeighborsIn(placeIndex, n - 1);
 	}
 
 	@Override
 	public Set<IAgent> getNeighborsIn(final IScope scope, final int placeIndex, final int radius) {
-		int[] n = neighborsIndexes[placeIndex];
-		if (n == null) {
-			n = new int[0];
-			neighborsIndexes[placeIndex] = n;
-		}
-		final int size = n.length;
-		if (radius > size) {
-			computeNeighborsFrom(placeIndex, size + 1, radius);
-		}
-		final int[] nn = neighbors[placeIndex];
-		final int nnSize = neighborsIndexes[placeIndex][radius - 1];
 		try (final Collector.AsOrderedSet<IAgent> result = Collector.getOrderedSet()) {
-			for (int i = 0; i < nnSize; i++) {
-				result.add(matrix.matrix[nn[i]].getAgent());
-			}
-			result.shuffleInPlaceWith(scope.getRandom());
+			addNeighborsIn(scope, placeIndex, radius, result);
 			return result.items();
 		}
 	}
 
+	@Override
+	public void addNeighborsIn(final IScope scope, final int placeIndex, final int radius,
+			final Collection<IAgent> result) {
+		for (final int i : getShuffledNeighbors(scope, placeIndex, radius)) {
+			result.add(matrix.matrix[i].getAgent());
+		}
+	}
+
+	@Override
+	public IList<IAgent> getNeighborListIn(final IScope scope, final int placeIndex, final int radius) {
+		final IList<IAgent> result = GamaListFactory.create(Types.NO_TYPE, countNeighborsIn(placeIndex, radius));
+		addNeighborsIn(scope, placeIndex, radius, result);
+		return result;
+	}
+
 	@Override
 	public void clear() {
-		neighbors = null;
-		neighborsIndexes = null;
+		layers = newLayers(0);
 	}
 
-}
\ No newline at end of file
+}
@@ -10,9 +10,15 @@
  ********************************************************************************************************/
 package msi.gama.metamodel.topology.grid;
 
+import java.util.Collection;
 import java.util.Set;
+import java.util.function.IntConsumer;
+
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.runtime.IScope;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.IList;
+import msi.gaml.types.Types;
 
 /**
  * Class INeighborhood.
@@ -33,6 +39,51 @@ public interface INeighborhood {
 	 */
 	public abstract Set<IAgent> getNeighborsIn(IScope scope, final int placeIndex, final int radius);
 
+	/**
+	 * Gets the neighbors in, as a list (in the same order as {@link #getNeighborsIn(IScope, int, int)}).
+	 *
+	 * @param scope the scope
+	 * @param placeIndex the place index
+	 * @param radius the radius
+	 * @return the neighbors in
+	 */
+	default IList<IAgent> getNeighborListIn(final IScope scope, final int placeIndex, final int radius) {
+		return GamaListFactory.create(scope, Types.NO_TYPE, getNeighborsIn(scope, placeIndex, radius));
+	}
+
+	/**
+	 * Adds the neighbors of a cell to a collection, in the same order as {@link #getNeighborsIn(IScope, int, int)},
+	 * without building an intermediate set.
+	 *
+	 * @param scope the scope
+	 * @param placeIndex the place index
+	 * @param radius the radius
+	 * @param result the collection to which the neighbors are added
+	 */
+	default void addNeighborsIn(final IScope scope, final int placeIndex, final int radius,
+			final Collection<IAgent> result) {
+		result.addAll(getNeighborsIn(scope, placeIndex, radius));
+	}
+
+	/**
+	 * Visits the indices of the neighbors of a cell, nearest first, without shuffling them. Does not allocate anything
+	 * when the neighbors are cached.
+	 *
+	 * @param placeIndex the place index
+	 * @param radius the radius
+	 * @param action the action
+	 */
+	public abstract void forEachNeighborIn(int placeIndex, int radius, IntConsumer action);
+
+	/**
+	 * Counts the neighbors of a cell.
+	 *
+	 * @param placeIndex the place index
+	 * @param radius the radius
+	 * @return the number of neighbors
+	 */
+	public abstract int countNeighborsIn(int placeIndex, int radius);
+
 	/**
 	 * Checks if is vn.
 	 *
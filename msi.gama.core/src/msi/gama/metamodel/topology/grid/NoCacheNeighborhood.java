@@ -11,8 +11,10 @@
 package msi.gama.metamodel.topology.grid;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.function.IntConsumer;
 
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.runtime.IScope;
@@ -51,6 +53,24 @@ public class NoCacheNeighborhood implements INeighborhood {
 		return computeNeighborsFrom(scope, placeIndex, 1, radius);
 	}
 
+	@Override
+	public void forEachNeighborIn(final int placeIndex, final int radius, final IntConsumer action) {
+		final Set<Integer> visited = new HashSet<>();
+		for (int i = 1; i <= radius; i++) {
+			for (final Integer index : matrix.usesVN ? get4NeighborsAtRadius(placeIndex, i)
+					: get8NeighborsAtRadius(placeIndex, i)) {
+				if (visited.add(index)) { action.accept(index); }
+			}
+		}
+	}
+
+	@Override
+	public int countNeighborsIn(final int placeIndex, final int radius) {
+		final int[] count = { 0 };
+		forEachNeighborIn(placeIndex, radius, i -> count[0]++);
+		return count[0];
+	}
+
 	/**
 	 * Compute neighbors from.
 	 *
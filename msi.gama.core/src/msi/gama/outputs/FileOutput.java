@@ -16,6 +16,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.List;
@@ -34,6 +35,8 @@ import msi.gama.precompiler.ISymbolKind;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.IMap;
+import msi.gama.util.file.columnar.ColumnarFormat;
+import msi.gama.util.file.columnar.ColumnarWriter;
 import msi.gaml.compilation.GAML;
 import msi.gaml.descriptions.IDescription;
 import msi.gaml.expressions.IExpression;
@@ -102,10 +105,10 @@ import msi.gaml.types.IType;
 				@facet (
 						name = IKeyword.TYPE,
 						type = IType.ID,
-						values = { IKeyword.CSV, IKeyword.TEXT, IKeyword.XML },
+						values = { IKeyword.CSV, IKeyword.TEXT, IKeyword.XML, FileOutput.COLUMNAR_TYPE },
 						optional = true,
 						doc = @doc (
-								value = "The type of your output data")) },
+								value = "The type of your output data. \"columnar\" writes a binary file with typed and compressed columns (.gcol), that can be read back with columnar_file")) },
 		omissible = IKeyword.NAME)
 public class FileOutput extends AbstractOutput {
 
@@ -123,6 +126,9 @@ public class FileOutput extends AbstractOutput {
 	/** The writer. */
 	private PrintWriter writer = null;
 
+	/** The writer of the columnar files. */
+	private ColumnarWriter columnarWriter = null;
+
 	/** The file. */
 	File file = null;
 	
@@ -170,9 +176,15 @@ public class FileOutput extends AbstractOutput {
 	
 	/** The Constant TEXT. */
 	private static final int TEXT = 0;
+
+	/** The Constant COLUMNAR. */
+	private static final int COLUMNAR = 3;
+
+	/** The name of the columnar type. */
+	public static final String COLUMNAR_TYPE = "columnar";
 	
 	/** The Constant extensions. */
-	private static final List<String> extensions = Arrays.asList("txt", "xml", "csv");
+	private static final List<String> extensions = Arrays.asList("txt", "xml", "csv", ColumnarFormat.EXTENSION);
 	
 	/** The type. */
 	private int type;
@@ -182,7 +194,7 @@ public class FileOutput extends AbstractOutput {
 	 */
 	private void createType() {
 		final String t = getLiteral(IKeyword.TYPE, IKeyword.TEXT);
-		type = IKeyword.CSV.equals(t) ? CSV : IKeyword.XML.equals(t) ? XML : TEXT;
+		type = IKeyword.CSV.equals(t) ? CSV : IKeyword.XML.equals(t) ? XML : COLUMNAR_TYPE.equals(t) ? COLUMNAR : TEXT;
 	}
 
 	/**
@@ -288,9 +300,24 @@ public class FileOutput extends AbstractOutput {
 		}
 		writer.flush();
 		writer.close();
+		closeColumnarWriter();
 		super.close();
 	}
 
+	/**
+	 * Closes the columnar file, which stays open as long as rows are written to it (e.g. for the whole exploration of a
+	 * batch experiment).
+	 */
+	public void closeColumnarWriter() {
+		if (columnarWriter == null) return;
+		try {
+			columnarWriter.close();
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
+		columnarWriter = null;
+	}
+
 	@Override
 	public boolean init(final IScope scope) throws GamaRuntimeException {
 		final boolean result = super.init(scope);
@@ -315,12 +342,27 @@ public class FileOutput extends AbstractOutput {
 	 */
 	public FileOutput(final String name, final String expr, final List<String> columns, final IExperimentPlan exp)
 			throws GamaRuntimeException {
+		this(name, expr, columns, exp, IKeyword.CSV);
+	}
+
+	/**
+	 * Instantiates a new file output of a given type.
+	 *
+	 * @param name the name
+	 * @param expr the expr
+	 * @param columns the columns
+	 * @param exp the exp
+	 * @param type the type (csv, text, xml or columnar)
+	 * @throws GamaRuntimeException the gama runtime exception
+	 */
+	public FileOutput(final String name, final String expr, final List<String> columns, final IExperimentPlan exp,
+			final String type) throws GamaRuntimeException {
 		// WARNING Created by the batch. Is it still necessary to keep this ?
 		// TODO Should be deprecated in favor of a regular file output in the
 		// permanent
 		// outputs of the experiment.
-		super(DescriptionFactory.create(IKeyword.FILE, IKeyword.DATA, expr, IKeyword.TYPE, IKeyword.CSV, IKeyword.NAME,
-				name == null ? expr : name));
+		super(DescriptionFactory.create(IKeyword.FILE, IKeyword.DATA, expr, IKeyword.TYPE,
+				type == null ? IKeyword.CSV : type, IKeyword.NAME, name == null ? expr : name));
 		// prepare(exp);
 		expressionText = expr;
 		refreshExpression();
@@ -478,6 +520,26 @@ public class FileOutput extends AbstractOutput {
 					e.printStackTrace();
 				}
 
+				break;
+			case COLUMNAR:
+				if (solution == null) return;
+				final List<String> names = new ArrayList<>(loggedBatchParam);
+				final List<Object> row = new ArrayList<>();
+				for (final String var : loggedBatchParam) { row.add(solution.get(var)); }
+				if (lastValue != null) {
+					names.add(expressionText);
+					row.add(lastValue);
+				} else if (lastValues != null && !lastValues.isEmpty()) {
+					names.addAll(outputs.keySet());
+					row.addAll(lastValues);
+				}
+				// The same writer is kept for the whole exploration, and closed with the output
+				try {
+					if (columnarWriter == null) { columnarWriter = ColumnarWriter.open(file, names, row.toArray(), true); }
+					columnarWriter.append(row.toArray());
+				} catch (final IOException e) {
+					throw GamaRuntimeException.create(e, getScope());
+				}
 				break;
 		}
 	}
@@ -498,6 +560,17 @@ public class FileOutput extends AbstractOutput {
 				getWriter().println("<data step=\"" + cycle + "\" value=\"" + getLastValue() + "\" />");
 				getWriter().flush();
 				break;
+			case COLUMNAR:
+				final Object[] row = { cycle, getLastValue() };
+				try {
+					if (columnarWriter == null) {
+						columnarWriter = ColumnarWriter.open(file, Arrays.asList("cycle", expressionText), row, true);
+					}
+					columnarWriter.append(row);
+				} catch (final IOException e) {
+					throw GamaRuntimeException.create(e, getScope());
+				}
+				break;
 			default:
 		}
 	}
@@ -105,6 +105,9 @@ public class ExecutionScope implements IScope {
 
 		/** The current error. */
 		GamaRuntimeException currentError;
+
+		/** The random number generator, when it is not the one of the root agent. */
+		RandomUtils random;
 		//
 		// /** The horizontal pixel context. */
 		// boolean horizontalPixelContext = false;
@@ -120,6 +123,7 @@ public class ExecutionScope implements IScope {
 			gui = null;
 			types = null;
 			currentError = null;
+			random = null;
 		}
 
 		/**
@@ -137,6 +141,7 @@ public class ExecutionScope implements IScope {
 			gui = specialContext.gui;
 			types = specialContext.types;
 			currentError = specialContext.currentError;
+			random = specialContext.random;
 		}
 
 	}
@@ -993,11 +998,15 @@ public class ExecutionScope implements IScope {
 	 */
 	@Override
 	public RandomUtils getRandom() {
+		if (additionalContext.random != null) return additionalContext.random;
 		final ITopLevelAgent root = getRoot();
 		if (root == null) return new RandomUtils();
 		return root.getRandomGenerator();
 	}
 
+	@Override
+	public void setRandom(final RandomUtils random) { additionalContext.random = random; }
+
 	@Override
 	public IScope copy(final String additionalName) {
 		final ExecutionScope scope = new ExecutionScope(getRoot(), additionalName);
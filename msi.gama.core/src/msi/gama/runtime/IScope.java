@@ -369,6 +369,16 @@ public interface IScope extends Closeable, IBenchmarkable {
 
 	RandomUtils getRandom();
 
+	/**
+	 * Makes this scope (and the scopes copied from it) use a specific random number generator instead of the one of
+	 * the root agent. Used when several parts of a simulation are run concurrently, so that each of them draws its
+	 * numbers from its own sequence.
+	 *
+	 * @param random
+	 *            the random number generator, or null to use the one of the root agent again
+	 */
+	void setRandom(RandomUtils random);
+
 	/**
 	 * Gets the gui.
 	 *
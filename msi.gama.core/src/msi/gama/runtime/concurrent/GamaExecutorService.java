@@ -94,6 +94,16 @@ public abstract class GamaExecutorService {
 			"In batch mode, allow to run simulations with different parameter sets in parallel", false, IType.BOOL,
 			true).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
 
+	/** The Constant CONCURRENCY_SIMULATIONS_MEMORY. */
+	public static final Pref<Integer> CONCURRENCY_SIMULATIONS_MEMORY = create("pref_parallel_simulations_memory",
+			"In batch mode, max. percentage of the memory used by simulations before new ones are started", 80,
+			IType.INT, true).between(10, 100).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
+
+	/** The Constant CONCURRENCY_SPECIES_SCHEDULING. */
+	public static final Pref<Boolean> CONCURRENCY_SPECIES_SCHEDULING = create("pref_parallel_species_scheduling",
+			"Make simulations step concurrently the species that do not depend on each other (each of them using its own random number generator, so that simulations remain reproducible)",
+			false, IType.BOOL, true).in(GamaPreferences.Runtime.NAME, GamaPreferences.Runtime.CONCURRENCY);
+
 	/** The Constant CONCURRENCY_GRID. */
 	public static final Pref<Boolean> CONCURRENCY_GRID = create("pref_parallel_grids",
 			"Make grids schedule their agents in parallel (beware that setting this to true no longer allows GAMA to ensure the reproducibility of simulations)",
@@ -0,0 +1,367 @@
+/*******************************************************************************************************
+ *
+ * SpeciesScheduler.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.runtime.concurrent;
+
+import static msi.gama.common.interfaces.IKeyword.ACTION;
+import static msi.gama.common.interfaces.IKeyword.ADD;
+import static msi.gama.common.interfaces.IKeyword.ASK;
+import static msi.gama.common.interfaces.IKeyword.ASPECT;
+import static msi.gama.common.interfaces.IKeyword.CAPTURE;
+import static msi.gama.common.interfaces.IKeyword.DO;
+import static msi.gama.common.interfaces.IKeyword.FROM;
+import static msi.gama.common.interfaces.IKeyword.INVOKE;
+import static msi.gama.common.interfaces.IKeyword.MIGRATE;
+import static msi.gama.common.interfaces.IKeyword.NAME;
+import static msi.gama.common.interfaces.IKeyword.PUT;
+import static msi.gama.common.interfaces.IKeyword.RELEASE;
+import static msi.gama.common.interfaces.IKeyword.REMOVE;
+import static msi.gama.common.interfaces.IKeyword.SAVE;
+import static msi.gama.common.interfaces.IKeyword.SET;
+import static msi.gama.common.interfaces.IKeyword.TARGET;
+import static msi.gama.common.interfaces.IKeyword.TO;
+import static msi.gama.common.interfaces.IKeyword.WRITE;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+import msi.gama.common.util.RandomUtils;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.population.IPopulation;
+import msi.gama.runtime.GAMA;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gaml.descriptions.IDescription;
+import msi.gaml.descriptions.SpeciesDescription;
+import msi.gaml.expressions.IExpression;
+import msi.gaml.expressions.operators.PrimitiveOperator;
+import msi.gaml.expressions.variables.GlobalVariableExpression;
+import msi.gaml.types.IType;
+
+/**
+ * Steps the populations of a simulation concurrently when they do not depend on each other. The dependencies are
+ * computed once, from the descriptions of the species, by a conservative analysis of what the step of each population
+ * may read and write:
+ * <ul>
+ * <li>the global variables it reads and writes (the targets of <code>set</code>, <code>add</code>, <code>put</code>
+ * and <code>remove</code>);</li>
+ * <li>the other species it refers to (through any expression whose type is an agent, a list of agents or a species of
+ * another species, e.g. in <code>ask</code>, <code>create</code> or spatial queries);</li>
+ * <li>whether it writes to files or to the console.</li>
+ * </ul>
+ * A population whose step cannot be analysed (an expression typed by the generic <code>agent</code> type, an action that
+ * cannot be resolved, a capture, a release or a migration) depends on all the other ones. Two populations whose steps
+ * may interfere keep the order of the simulation; the others are stepped in parallel on the agent parallel executor.
+ *
+ * Each population draws its random numbers from its own generator, seeded (in the order of the populations) by the
+ * generator of the simulation: a run gives different results than the sequential scheduling, but it remains
+ * reproducible.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public class SpeciesScheduler {
+
+	/**
+	 * What the step of a population may read and write.
+	 */
+	static final class Footprint {
+
+		/** The names of the species whose agents are stepped by the population (its species, their parents and their
+		 * micro-species). */
+		final Set<String> own = new HashSet<>();
+
+		/** The names of the global variables read. */
+		final Set<String> reads = new HashSet<>();
+
+		/** The names of the global variables written. */
+		final Set<String> writes = new HashSet<>();
+
+		/** The names of the species referred to. */
+		final Set<String> species = new HashSet<>();
+
+		/** The descriptions already visited. */
+		final Set<IDescription> visited = new HashSet<>();
+
+		/** Whether the step writes to files or to the console. */
+		boolean io;
+
+		/** Whether the step cannot be analysed. */
+		boolean opaque;
+
+		/**
+		 * Instantiates a new footprint.
+		 *
+		 * @param description
+		 *            the description of the species of the population
+		 */
+		Footprint(final SpeciesDescription description) {
+			visit(description);
+			species.removeAll(own);
+		}
+
+		/**
+		 * Visits a description and its children.
+		 *
+		 * @param d
+		 *            the description
+		 */
+		void visit(final IDescription d) {
+			if (d == null || opaque || !visited.add(d)) return;
+			if (d instanceof SpeciesDescription) {
+				final SpeciesDescription sd = (SpeciesDescription) d;
+				own.add(sd.getName());
+				final SpeciesDescription parent = sd.getParent();
+				if (parent != null && parent != sd && !parent.isBuiltIn()) { visit(parent); }
+			}
+			final String keyword = d.getKeyword();
+			if (ASPECT.equals(keyword)) return;
+			switch (keyword) {
+				case SET:
+					target(d.getFacetExpr(NAME));
+					break;
+				case ADD:
+				case PUT:
+					target(d.getFacetExpr(TO));
+					break;
+				case REMOVE:
+					target(d.getFacetExpr(FROM));
+					break;
+				case ASK:
+					target(d.getFacetExpr(TARGET));
+					break;
+				case WRITE:
+				case SAVE:
+					io = true;
+					break;
+				case CAPTURE:
+				case RELEASE:
+				case MIGRATE:
+					opaque = true;
+					return;
+				case DO:
+				case INVOKE:
+					final SpeciesDescription context = d.getSpeciesContext();
+					final IDescription action = context == null ? null : context.getAction(d.getLitteral(ACTION));
+					if (action == null) {
+						opaque = true;
+						return;
+					}
+					visit(action);
+					break;
+				default:
+					break;
+			}
+			d.visitFacets((name, exp) -> {
+				final IExpression e = exp.getExpression();
+				if (e != null) { read(e); }
+				return !opaque;
+			});
+			d.visitOwnChildren(child -> {
+				visit(child);
+				return !opaque;
+			});
+		}
+
+		/**
+		 * Records an expression that is the target of a modification.
+		 *
+		 * @param e
+		 *            the expression
+		 */
+		void target(final IExpression e) {
+			if (e == null) return;
+			e.findAny(x -> {
+				if (x instanceof GlobalVariableExpression) { writes.add(x.getName()); }
+				final SpeciesDescription s = speciesOf(x.getGamlType());
+				// Modifying the world (or its attributes) through an expression cannot be analysed
+				if (s != null && s.isModel()) { opaque = true; }
+				return false;
+			});
+		}
+
+		/**
+		 * Records the variables and species an expression refers to.
+		 *
+		 * @param e
+		 *            the expression
+		 */
+		void read(final IExpression e) {
+			e.findAny(x -> {
+				if (x instanceof GlobalVariableExpression) {
+					reads.add(x.getName());
+				} else if (x instanceof PrimitiveOperator) {
+					final PrimitiveOperator op = (PrimitiveOperator) x;
+					visit(op.getAction());
+					if (op.getArguments() != null) {
+						op.getArguments().forEachFacet((name, exp) -> {
+							final IExpression arg = exp.getExpression();
+							if (arg != null) { read(arg); }
+							return true;
+						});
+					}
+				}
+				refer(x.getGamlType());
+				return opaque;
+			});
+		}
+
+		/**
+		 * Records the species denoted by a type, if any.
+		 *
+		 * @param type
+		 *            the type
+		 */
+		void refer(final IType<?> type) {
+			for (final IType<?> t : new IType[] { type, type.getContentType(), type.getKeyType() }) {
+				if (t == null || !t.isAgentType()) { continue; }
+				final SpeciesDescription s = t.getSpecies();
+				if (s == null || s.isBuiltIn() && !s.isModel()) {
+					// The generic agent type (or a built-in species) can denote any agent
+					opaque = true;
+				} else if (!s.isModel()) { species.add(s.getName()); }
+			}
+		}
+
+		/**
+		 * Returns the species denoted by a type, if any.
+		 *
+		 * @param type
+		 *            the type
+		 * @return the species description
+		 */
+		static SpeciesDescription speciesOf(final IType<?> type) {
+			return type != null && type.isAgentType() ? type.getSpecies() : null;
+		}
+
+		/**
+		 * Whether the steps of the two populations may interfere.
+		 *
+		 * @param other
+		 *            the other footprint
+		 * @return true, if successful
+		 */
+		boolean conflictsWith(final Footprint other) {
+			if (opaque || other.opaque || io && other.io) return true;
+			if (!Collections.disjoint(species, other.own) || !Collections.disjoint(other.species, own)) return true;
+			return !Collections.disjoint(writes, other.reads) || !Collections.disjoint(writes, other.writes)
+					|| !Collections.disjoint(other.writes, reads);
+		}
+	}
+
+	/** The populations, in the order of the simulation. */
+	final IPopulation<? extends IAgent>[] populations;
+
+	/** For each population, the indices of the populations that must be stepped before. */
+	final int[][] predecessors;
+
+	/**
+	 * Instantiates a new species scheduler.
+	 *
+	 * @param populations
+	 *            the populations, in the order in which they are stepped sequentially
+	 */
+	public SpeciesScheduler(final IPopulation<? extends IAgent>[] populations) {
+		this.populations = populations;
+		final int n = populations.length;
+		final Footprint[] footprints = new Footprint[n];
+		for (int i = 0; i < n; i++) { footprints[i] = new Footprint(populations[i].getSpecies().getDescription()); }
+		predecessors = new int[n][];
+		for (int i = 0; i < n; i++) {
+			final List<Integer> before = new ArrayList<>();
+			for (int j = 0; j < i; j++) { if (footprints[i].conflictsWith(footprints[j])) { before.add(j); } }
+			predecessors[i] = before.stream().mapToInt(Integer::intValue).toArray();
+		}
+	}
+
+	/**
+	 * Whether this scheduler has been built for these populations.
+	 *
+	 * @param pops
+	 *            the populations
+	 * @return true, if successful
+	 */
+	public boolean isFor(final IPopulation<? extends IAgent>[] pops) {
+		return pops == populations;
+	}
+
+	/**
+	 * Steps the populations. The populations that do not depend on each other are stepped concurrently, each within its
+	 * own copy of the scope and with its own random number generator. A population is not stepped if one of the
+	 * populations it depends on has not been stepped successfully.
+	 *
+	 * @param scope
+	 *            the scope of the simulation
+	 * @return true, if all the populations have been stepped successfully
+	 * @throws GamaRuntimeException
+	 *             the first error raised by the step of a population
+	 */
+	@SuppressWarnings ("unchecked")
+	public boolean step(final IScope scope) throws GamaRuntimeException {
+		final ForkJoinPool pool = GamaExecutorService.AGENT_PARALLEL_EXECUTOR;
+		final int n = populations.length;
+		if (pool == null || n < 2) {
+			for (final IPopulation<? extends IAgent> pop : populations) { if (!scope.step(pop).passed()) return false; }
+			return true;
+		}
+		final RandomUtils random = scope.getRandom();
+		final CompletableFuture<Boolean>[] tasks = new CompletableFuture[n];
+		for (int i = 0; i < n; i++) {
+			final IPopulation<? extends IAgent> pop = populations[i];
+			final int[] before = predecessors[i];
+			// Drawn sequentially so that the generators do not depend on the order of execution
+			final RandomUtils generator = new RandomUtils(random.next(), random.getGeneratorName());
+			final CompletableFuture<?>[] waitFor = new CompletableFuture[before.length];
+			for (int k = 0; k < before.length; k++) { waitFor[k] = tasks[before[k]]; }
+			tasks[i] = CompletableFuture.allOf(waitFor).thenApplyAsync(v -> {
+				for (final int k : before) { if (!tasks[k].join()) return false; }
+				return step(scope, pop, generator);
+			}, pool);
+		}
+		boolean result = true;
+		try {
+			for (final CompletableFuture<Boolean> task : tasks) { result &= task.join(); }
+		} catch (final CompletionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof GamaRuntimeException) throw (GamaRuntimeException) cause;
+			throw GamaRuntimeException.create(cause == null ? e : cause, scope);
+		}
+		return result;
+	}
+
+	/**
+	 * Steps a population in a copy of the scope.
+	 *
+	 * @param scope
+	 *            the scope of the simulation
+	 * @param pop
+	 *            the population
+	 * @param generator
+	 *            the random number generator to use
+	 * @return true, if successful
+	 */
+	private static boolean step(final IScope scope, final IPopulation<? extends IAgent> pop,
+			final RandomUtils generator) {
+		final IScope forked = scope.copy(" - forked - ");
+		try {
+			forked.setRandom(generator);
+			return forked.step(pop).passed();
+		} finally {
+			GAMA.releaseScope(forked);
+		}
+	}
+
+}
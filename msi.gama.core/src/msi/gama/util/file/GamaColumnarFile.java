@@ -0,0 +1,147 @@
+/*******************************************************************************************************
+ *
+ * GamaColumnarFile.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.file;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import msi.gama.common.geometry.Envelope3D;
+import msi.gama.precompiler.GamlAnnotations.doc;
+import msi.gama.precompiler.GamlAnnotations.example;
+import msi.gama.precompiler.GamlAnnotations.file;
+import msi.gama.precompiler.IConcept;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.IList;
+import msi.gama.util.file.columnar.ColumnarFormat;
+import msi.gama.util.file.columnar.ColumnarReader;
+import msi.gama.util.file.columnar.ColumnarWriter;
+import msi.gama.util.matrix.GamaObjectMatrix;
+import msi.gama.util.matrix.IMatrix;
+import msi.gaml.statements.Facets;
+import msi.gaml.types.IContainerType;
+import msi.gaml.types.IType;
+import msi.gaml.types.Types;
+
+/**
+ * The files written in the binary {@link ColumnarFormat} (by the <code>save</code> statement with
+ * <code>type: "columnar"</code> or by batch outputs). Their contents are read as a matrix with one column per saved
+ * attribute and one row per saved row; the names of the columns are its attributes.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+@file (
+		name = "columnar",
+		extensions = { ColumnarFormat.EXTENSION },
+		buffer_type = IType.MATRIX,
+		buffer_index = IType.POINT,
+		concept = { IConcept.FILE },
+		doc = @doc ("A binary file that contains typed columns of values, written by the save statement with type: \"columnar\""))
+@SuppressWarnings ({ "unchecked", "rawtypes" })
+public class GamaColumnarFile extends GamaFile<IMatrix<Object>, Object> {
+
+	/** The names of the columns. */
+	IList<String> headers;
+
+	/**
+	 * Instantiates a new gama columnar file.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param pathName
+	 *            the path name
+	 * @throws GamaRuntimeException
+	 *             the gama runtime exception
+	 */
+	@doc (
+			value = "This file constructor allows to read a columnar file (.gcol), as a matrix whose columns are the saved attributes",
+			examples = { @example (
+					value = "columnar_file f <- columnar_file(\"results.gcol\");",
+					isExecutable = false) })
+	public GamaColumnarFile(final IScope scope, final String pathName) throws GamaRuntimeException {
+		super(scope, pathName);
+	}
+
+	/**
+	 * Instantiates a new gama columnar file.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param pathName
+	 *            the path name
+	 * @param matrix
+	 *            the matrix
+	 */
+	@doc (
+			value = "This file constructor allows to store a matrix in a columnar file (it does not save it - just store it in memory)",
+			examples = { @example (
+					value = "columnar_file f <- columnar_file(\"results.gcol\", matrix([[1,2],[3,4]]));",
+					isExecutable = false) })
+	public GamaColumnarFile(final IScope scope, final String pathName, final IMatrix<Object> matrix) {
+		super(scope, pathName, matrix);
+	}
+
+	@Override
+	protected void fillBuffer(final IScope scope) throws GamaRuntimeException {
+		if (getBuffer() != null) return;
+		try {
+			final ColumnarReader.Table table = ColumnarReader.read(getFile(scope));
+			final int cols = table.names.length;
+			final Object[] values = new Object[cols * table.rows];
+			for (int c = 0; c < cols; c++) {
+				final Object[] column = table.columns.get(c);
+				for (int r = 0; r < table.rows; r++) { values[r * cols + c] = column[r]; }
+			}
+			headers = GamaListFactory.wrap(Types.STRING, table.names);
+			setBuffer(new GamaObjectMatrix(cols, table.rows, values, Types.NO_TYPE));
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+	@Override
+	protected void flushBuffer(final IScope scope, final Facets facets) throws GamaRuntimeException {
+		final IMatrix<Object> matrix = getBuffer();
+		if (matrix == null) return;
+		final int cols = matrix.getCols(scope);
+		final int rows = matrix.getRows(scope);
+		final List<String> names = new ArrayList<>(cols);
+		for (int c = 0; c < cols; c++) {
+			names.add(headers != null && c < headers.size() ? headers.get(c) : "column" + c);
+		}
+		final Object[][] data = new Object[rows][cols];
+		for (int r = 0; r < rows; r++) { for (int c = 0; c < cols; c++) { data[r][c] = matrix.get(scope, c, r); } }
+		try (ColumnarWriter writer =
+				ColumnarWriter.open(getFile(scope), names, rows == 0 ? null : data[0], false)) {
+			for (final Object[] row : data) { writer.append(row); }
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+	@Override
+	public IContainerType getGamlType() { return Types.FILE.of(Types.NO_TYPE); }
+
+	@Override
+	public IList<String> getAttributes(final IScope scope) {
+		fillBuffer(scope);
+		return headers == null ? GamaListFactory.EMPTY_LIST : headers;
+	}
+
+	@Override
+	public Envelope3D computeEnvelope(final IScope scope) {
+		return null;
+	}
+
+}
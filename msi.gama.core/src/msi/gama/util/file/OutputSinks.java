@@ -0,0 +1,319 @@
+/*******************************************************************************************************
+ *
+ * OutputSinks.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.file;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import msi.gama.runtime.GAMA;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.concurrent.SimulationLocal;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.file.columnar.ColumnarWriter;
+
+/**
+ * The files kept open by the <code>save</code> statement in a simulation or an experiment. Text files (saved with
+ * <code>async: true</code>) are opened once; the rows saved are buffered in memory and written by a background
+ * thread, in the order in which they were saved. When the writer thread lags behind, the threads that save new rows
+ * are blocked until the amount of text waiting to be written goes under a limit. Columnar files are kept open so that
+ * their rows are grouped in large row groups.
+ *
+ * Several simulations can save asynchronously to the same file: each of them opens its own sink, but the chunks of
+ * rows (made of whole rows) are written and flushed one after the other by the writer thread, so that the rows of
+ * different simulations never overlap in the file.
+ *
+ * The files are flushed and closed when the simulation (or experiment) is disposed, or before being written
+ * synchronously or rewritten.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public class OutputSinks {
+
+	/** The number of characters buffered for a file before they are handed to the writer thread. */
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	/** The maximum number of characters waiting to be written, for all the files. */
+	static final int MAX_PENDING = 16 * 1024 * 1024;
+
+	/** The thread that writes the files. */
+	private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(r -> {
+		final Thread t = new Thread(r, "GAMA asynchronous save");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/** The characters that can still be handed to the writer thread. */
+	private static final Semaphore PENDING = new Semaphore(MAX_PENDING);
+
+	/** The sinks of each simulation or experiment. */
+	private static final SimulationLocal<OutputSinks> SINKS = SimulationLocal.withInitial(s -> new OutputSinks());
+
+	/**
+	 * A file kept open.
+	 */
+	static final class Sink implements Closeable {
+
+		/** The writer. */
+		final Writer writer;
+
+		/** The rows not yet handed to the writer thread. */
+		final StringBuilder buffer = new StringBuilder();
+
+		/** The last write submitted. */
+		Future<?> last;
+
+		/** The error raised by the writer thread, if any. */
+		volatile IOException error;
+
+		/**
+		 * Instantiates a new sink.
+		 *
+		 * @param file
+		 *            the file, opened in append mode
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		Sink(final File file) throws IOException {
+			writer = new FileWriter(file, true);
+		}
+
+		/**
+		 * Appends some text, handing the buffer to the writer thread when it is full.
+		 *
+		 * @param text
+		 *            the text
+		 * @throws IOException
+		 *             the error raised by a previous write
+		 */
+		synchronized void append(final String text) throws IOException {
+			if (error != null) throw error;
+			buffer.append(text);
+			if (buffer.length() >= BUFFER_SIZE) { submit(); }
+		}
+
+		/**
+		 * Hands the buffer to the writer thread.
+		 */
+		private void submit() {
+			final String chunk = buffer.toString();
+			buffer.setLength(0);
+			final int permits = Math.min(chunk.length(), MAX_PENDING);
+			PENDING.acquireUninterruptibly(permits);
+			last = WRITER.submit(() -> {
+				try {
+					writer.write(chunk);
+					// Flushed at once so that the chunks of the simulations saving to the same file are never mixed
+					writer.flush();
+				} catch (final IOException e) {
+					error = e;
+				} finally {
+					PENDING.release(permits);
+				}
+			});
+		}
+
+		/**
+		 * Writes all the text appended so far and waits for it to be written.
+		 *
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		synchronized void flush() throws IOException {
+			if (buffer.length() > 0) { submit(); }
+			if (last != null) {
+				try {
+					last.get();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} catch (final ExecutionException e) {
+					throw new IOException(e.getCause());
+				}
+				last = null;
+			}
+			if (error != null) throw error;
+			writer.flush();
+		}
+
+		/**
+		 * Writes all the text appended so far and closes the file.
+		 *
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		@Override
+		public synchronized void close() throws IOException {
+			try {
+				flush();
+			} finally {
+				writer.close();
+			}
+		}
+	}
+
+	/** The sinks, indexed by the absolute path of their file. */
+	private final Map<String, Closeable> sinks = new HashMap<>();
+
+	/**
+	 * Returns the sinks of the simulation or experiment of the scope.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @return the output sinks
+	 */
+	public static OutputSinks of(final IScope scope) {
+		synchronized (SINKS) {
+			return SINKS.get(scope);
+		}
+	}
+
+	/**
+	 * Flushes and closes all the files of the simulation or experiment of the scope. Called when it is disposed: the
+	 * errors are reported rather than thrown.
+	 *
+	 * @param scope
+	 *            the scope
+	 */
+	public static void closeAll(final IScope scope) {
+		final OutputSinks sinks;
+		synchronized (SINKS) {
+			if (!SINKS.isPresent(scope)) return;
+			sinks = SINKS.get(scope);
+			SINKS.remove(scope);
+		}
+		sinks.close(scope);
+	}
+
+	/**
+	 * Flushes and closes a file, if it is kept open by the simulation or experiment of the scope, so that it can be
+	 * written synchronously or rewritten.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param file
+	 *            the file
+	 */
+	public static void release(final IScope scope, final File file) {
+		final OutputSinks sinks;
+		synchronized (SINKS) {
+			if (!SINKS.isPresent(scope)) return;
+			sinks = SINKS.get(scope);
+		}
+		final Closeable sink;
+		synchronized (sinks) {
+			sink = sinks.sinks.remove(file.getAbsolutePath());
+		}
+		if (sink == null) return;
+		try {
+			sink.close();
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+	/**
+	 * Appends some text to a file, which is opened (in append mode) if it is not already.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param file
+	 *            the file
+	 * @param text
+	 *            the text
+	 */
+	public void append(final IScope scope, final File file, final String text) {
+		try {
+			final Sink sink;
+			synchronized (this) {
+				final Closeable existing = sinks.get(file.getAbsolutePath());
+				if (existing instanceof Sink) {
+					sink = (Sink) existing;
+				} else {
+					if (existing != null) { existing.close(); }
+					sink = new Sink(file);
+					sinks.put(file.getAbsolutePath(), sink);
+				}
+			}
+			sink.append(text);
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+	/**
+	 * Returns the writer of a columnar file, which is opened (in append mode) if it is not already.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param file
+	 *            the file
+	 * @param names
+	 *            the names of the columns
+	 * @param firstRow
+	 *            the first row to write, used to infer the types of the columns of a new file
+	 * @return the columnar writer
+	 */
+	public synchronized ColumnarWriter columnar(final IScope scope, final File file, final List<String> names,
+			final Object[] firstRow) {
+		try {
+			final Closeable existing = sinks.get(file.getAbsolutePath());
+			if (existing instanceof ColumnarWriter
+					&& Arrays.asList(((ColumnarWriter) existing).getNames()).equals(names))
+				return (ColumnarWriter) existing;
+			if (existing != null) {
+				sinks.remove(file.getAbsolutePath());
+				existing.close();
+			}
+			final ColumnarWriter writer = ColumnarWriter.open(file, names, firstRow, true);
+			sinks.put(file.getAbsolutePath(), writer);
+			return writer;
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+	/**
+	 * Flushes and closes all the files, reporting the first error.
+	 *
+	 * @param scope
+	 *            the scope
+	 */
+	private void close(final IScope scope) {
+		final List<Closeable> all;
+		synchronized (this) {
+			all = new ArrayList<>(sinks.values());
+			sinks.clear();
+		}
+		IOException error = null;
+		for (final Closeable sink : all) {
+			try {
+				sink.close();
+			} catch (final IOException e) {
+				if (error == null) { error = e; }
+			}
+		}
+		if (error != null) { GAMA.reportError(scope, GamaRuntimeException.create(error, scope), false); }
+	}
+
+}
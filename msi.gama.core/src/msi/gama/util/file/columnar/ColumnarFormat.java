@@ -0,0 +1,186 @@
+/*******************************************************************************************************
+ *
+ * ColumnarFormat.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.file.columnar;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The binary columnar format used to save large tables of results (e.g. agent traces or batch explorations). A file is
+ * made of:
+ * <ul>
+ * <li>a header: the magic number <code>GCOL</code>, the version of the format, the number of columns and, for each
+ * column, its name and its type ({@link #INT}, {@link #FLOAT}, {@link #BOOL} or {@link #STRING});</li>
+ * <li>any number of row groups, which can be appended to an existing file. A row group begins with its number of rows,
+ * the length of its data and the length of its compressed data, followed by the data, compressed with deflate. The
+ * data contains, for each column, a bitmap of the null values followed by the values: integers (up to 64 bits) are
+ * written as zig-zag variable length integers, floats as doubles, booleans as bytes, and strings are
+ * dictionary-encoded (the distinct strings of the row group, followed by the index of the string of each row).</li>
+ * </ul>
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public final class ColumnarFormat {
+
+	/** The magic number. */
+	static final int MAGIC = 'G' << 24 | 'C' << 16 | 'O' << 8 | 'L';
+
+	/** The version. */
+	static final byte VERSION = 1;
+
+	/** The extension of the files. */
+	public static final String EXTENSION = "gcol";
+
+	/** The type of integer columns. */
+	public static final byte INT = 0;
+
+	/** The type of float columns. */
+	public static final byte FLOAT = 1;
+
+	/** The type of boolean columns. */
+	public static final byte BOOL = 2;
+
+	/** The type of string columns. */
+	public static final byte STRING = 3;
+
+	/**
+	 * Instantiates a new columnar format.
+	 */
+	private ColumnarFormat() {}
+
+	/**
+	 * The type of the column able to store a value.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the type
+	 */
+	public static byte typeOf(final Object value) {
+		if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)
+			return INT;
+		if (value instanceof Number) return FLOAT;
+		if (value instanceof Boolean) return BOOL;
+		return STRING;
+	}
+
+	/**
+	 * Writes a string as its length followed by its UTF-8 bytes (unlike {@link DataOutput#writeUTF(String)}, its length
+	 * is not limited).
+	 *
+	 * @param out
+	 *            the out
+	 * @param s
+	 *            the s
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static void writeString(final DataOutput out, final String s) throws IOException {
+		final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(out, bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a string written by {@link #writeString(DataOutput, String)}.
+	 *
+	 * @param in
+	 *            the in
+	 * @return the string
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static String readString(final DataInput in) throws IOException {
+		final byte[] bytes = new byte[readVarInt(in)];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes a positive integer on 1 to 5 bytes.
+	 *
+	 * @param out
+	 *            the out
+	 * @param value
+	 *            the value
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static void writeVarInt(final DataOutput out, final int value) throws IOException {
+		int v = value;
+		while ((v & ~0x7F) != 0) {
+			out.writeByte(v & 0x7F | 0x80);
+			v >>>= 7;
+		}
+		out.writeByte(v);
+	}
+
+	/**
+	 * Reads an integer written by {@link #writeVarInt(DataOutput, int)}.
+	 *
+	 * @param in
+	 *            the in
+	 * @return the int
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static int readVarInt(final DataInput in) throws IOException {
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			final int b = in.readByte();
+			result |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return result;
+		}
+		throw new IOException("Malformed integer");
+	}
+
+	/**
+	 * Writes a signed integer as a zig-zag variable length integer, so that small negative values are short too. The
+	 * values that fit in an int are written on the same bytes as a zig-zag int would be.
+	 *
+	 * @param out
+	 *            the out
+	 * @param value
+	 *            the value
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static void writeZigZag(final DataOutput out, final long value) throws IOException {
+		long v = value << 1 ^ value >> 63;
+		while ((v & ~0x7FL) != 0) {
+			out.writeByte((int) (v & 0x7F | 0x80));
+			v >>>= 7;
+		}
+		out.writeByte((int) v);
+	}
+
+	/**
+	 * Reads an integer written by {@link #writeZigZag(DataOutput, long)}.
+	 *
+	 * @param in
+	 *            the in
+	 * @return the long
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static long readZigZag(final DataInput in) throws IOException {
+		long v = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final int b = in.readByte();
+			v |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) return v >>> 1 ^ -(v & 1);
+		}
+		throw new IOException("Malformed integer");
+	}
+
+}
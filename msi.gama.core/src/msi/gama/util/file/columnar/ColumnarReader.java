@@ -0,0 +1,258 @@
+/*******************************************************************************************************
+ *
+ * ColumnarReader.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.file.columnar;
+
+import static msi.gama.util.file.columnar.ColumnarFormat.BOOL;
+import static msi.gama.util.file.columnar.ColumnarFormat.FLOAT;
+import static msi.gama.util.file.columnar.ColumnarFormat.INT;
+import static msi.gama.util.file.columnar.ColumnarFormat.MAGIC;
+import static msi.gama.util.file.columnar.ColumnarFormat.VERSION;
+import static msi.gama.util.file.columnar.ColumnarFormat.readString;
+import static msi.gama.util.file.columnar.ColumnarFormat.readVarInt;
+import static msi.gama.util.file.columnar.ColumnarFormat.readZigZag;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads the files written in the {@link ColumnarFormat}.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public class ColumnarReader {
+
+	/**
+	 * The header of a file: the names and types of its columns.
+	 */
+	public static class Header {
+
+		/** The names. */
+		public final String[] names;
+
+		/** The types. */
+		public final byte[] types;
+
+		/**
+		 * Instantiates a new header.
+		 *
+		 * @param names
+		 *            the names
+		 * @param types
+		 *            the types
+		 */
+		Header(final String[] names, final byte[] types) {
+			this.names = names;
+			this.types = types;
+		}
+	}
+
+	/**
+	 * The contents of a file: its header and its values, column by column.
+	 */
+	public static class Table extends Header {
+
+		/** The values of each column (Integer, Double, Boolean, String or null). */
+		public final List<Object[]> columns;
+
+		/** The number of rows. */
+		public final int rows;
+
+		/**
+		 * Instantiates a new table.
+		 *
+		 * @param header
+		 *            the header
+		 * @param columns
+		 *            the columns
+		 * @param rows
+		 *            the rows
+		 */
+		Table(final Header header, final List<Object[]> columns, final int rows) {
+			super(header.names, header.types);
+			this.columns = columns;
+			this.rows = rows;
+		}
+	}
+
+	/**
+	 * Instantiates a new columnar reader.
+	 */
+	private ColumnarReader() {}
+
+	/**
+	 * Reads the header of a file.
+	 *
+	 * @param file
+	 *            the file
+	 * @return the header
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static Header readHeader(final File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			return readHeader(in);
+		}
+	}
+
+	/**
+	 * Reads the header.
+	 *
+	 * @param in
+	 *            the in
+	 * @return the header
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static Header readHeader(final DataInputStream in) throws IOException {
+		if (in.readInt() != MAGIC) throw new IOException("Not a columnar file");
+		final byte version = in.readByte();
+		if (version > VERSION) throw new IOException("Unsupported version of the columnar format: " + version);
+		final int nb = readVarInt(in);
+		final String[] names = new String[nb];
+		final byte[] types = new byte[nb];
+		for (int i = 0; i < nb; i++) {
+			names[i] = readString(in);
+			types[i] = in.readByte();
+		}
+		return new Header(names, types);
+	}
+
+	/**
+	 * Reads a whole file.
+	 *
+	 * @param file
+	 *            the file
+	 * @return the table
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static Table read(final File file) throws IOException {
+		try (DataInputStream in =
+				new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024))) {
+			final Header header = readHeader(in);
+			final int nb = header.names.length;
+			final List<List<Object[]>> groups = new ArrayList<>();
+			int total = 0;
+			while (true) {
+				final int rows;
+				try {
+					rows = in.readInt();
+				} catch (final EOFException e) {
+					break;
+				}
+				final byte[] raw = new byte[in.readInt()];
+				final byte[] compressed = new byte[in.readInt()];
+				in.readFully(compressed);
+				inflate(compressed, raw);
+				final DataInputStream data = new DataInputStream(new ByteArrayInputStream(raw));
+				final List<Object[]> group = new ArrayList<>(nb);
+				for (int c = 0; c < nb; c++) { group.add(readColumn(data, header.types[c], rows)); }
+				groups.add(group);
+				total += rows;
+			}
+			final List<Object[]> columns = new ArrayList<>(nb);
+			for (int c = 0; c < nb; c++) {
+				final Object[] column = new Object[total];
+				int offset = 0;
+				for (final List<Object[]> group : groups) {
+					final Object[] values = group.get(c);
+					System.arraycopy(values, 0, column, offset, values.length);
+					offset += values.length;
+				}
+				columns.add(column);
+			}
+			return new Table(header, columns, total);
+		}
+	}
+
+	/**
+	 * Inflates the data of a row group.
+	 *
+	 * @param compressed
+	 *            the compressed
+	 * @param raw
+	 *            the raw
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static void inflate(final byte[] compressed, final byte[] raw) throws IOException {
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed);
+			int length = 0;
+			while (length < raw.length && !inflater.finished()) {
+				final int n = inflater.inflate(raw, length, raw.length - length);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+				length += n;
+			}
+			if (length != raw.length) throw new IOException("Truncated row group");
+		} catch (final DataFormatException e) {
+			throw new IOException(e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Reads the values of a column in a row group.
+	 *
+	 * @param data
+	 *            the data
+	 * @param type
+	 *            the type
+	 * @param rows
+	 *            the rows
+	 * @return the object[]
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private static Object[] readColumn(final DataInputStream data, final byte type, final int rows)
+			throws IOException {
+		final byte[] nulls = new byte[(rows + 7) / 8];
+		data.readFully(nulls);
+		final Object[] values = new Object[rows];
+		String[] dictionary = null;
+		if (type != INT && type != FLOAT && type != BOOL) {
+			dictionary = new String[readVarInt(data)];
+			for (int i = 0; i < dictionary.length; i++) { dictionary[i] = readString(data); }
+		}
+		for (int r = 0; r < rows; r++) {
+			if ((nulls[r >> 3] & 1 << (r & 7)) != 0) { continue; }
+			switch (type) {
+				case INT:
+					final long v = readZigZag(data);
+					// The values that do not fit in an int are returned as longs rather than truncated
+					values[r] = v == (int) v ? (Object) (int) v : (Object) v;
+					break;
+				case FLOAT:
+					values[r] = data.readDouble();
+					break;
+				case BOOL:
+					values[r] = data.readByte() != 0;
+					break;
+				default:
+					values[r] = dictionary[readVarInt(data)];
+			}
+		}
+		return values;
+	}
+
+}
@@ -0,0 +1,343 @@
+/*******************************************************************************************************
+ *
+ * ColumnarWriter.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.file.columnar;
+
+import static msi.gama.util.file.columnar.ColumnarFormat.BOOL;
+import static msi.gama.util.file.columnar.ColumnarFormat.FLOAT;
+import static msi.gama.util.file.columnar.ColumnarFormat.INT;
+import static msi.gama.util.file.columnar.ColumnarFormat.MAGIC;
+import static msi.gama.util.file.columnar.ColumnarFormat.STRING;
+import static msi.gama.util.file.columnar.ColumnarFormat.VERSION;
+import static msi.gama.util.file.columnar.ColumnarFormat.writeString;
+import static msi.gama.util.file.columnar.ColumnarFormat.writeVarInt;
+import static msi.gama.util.file.columnar.ColumnarFormat.writeZigZag;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes rows to a file in the {@link ColumnarFormat}. The rows are buffered and written by row groups of
+ * {@link #ROW_GROUP_SIZE} rows (or less, when the writer is flushed or closed). In a new file, the type of each column
+ * is inferred from all the values of the first row group, widened if necessary (from int to float, or to string when
+ * the values are of different kinds). The next values are converted to the type of their column when it can be done
+ * without loss; otherwise, an exception is thrown.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public class ColumnarWriter implements Closeable {
+
+	/** The maximum number of rows of a row group. */
+	public static final int ROW_GROUP_SIZE = 16 * 1024;
+
+	/** The names of the columns. */
+	final String[] names;
+
+	/** The type of a column whose type is not known yet (only null values so far). */
+	static final byte UNKNOWN = -1;
+
+	/** The names of the types, for the error messages. */
+	private static final String[] TYPE_NAMES = { "int", "float", "bool", "string" };
+
+	/** The types of the columns. Can be widened until the header is written. */
+	final byte[] types;
+
+	/** Whether the header (and thus the types) have been written. */
+	boolean headerWritten;
+
+	/** The rows not yet written, column by column. */
+	final Object[][] columns;
+
+	/** The number of rows not yet written. */
+	int rows;
+
+	/** The output. */
+	final DataOutputStream out;
+
+	/**
+	 * Opens a file for writing. If the file is not empty and append is true, its columns must have the same names as the
+	 * ones given and the rows are added after the existing ones; otherwise, the file is overwritten and the types of
+	 * the columns are inferred from the rows of the first row group.
+	 *
+	 * @param file
+	 *            the file
+	 * @param names
+	 *            the names of the columns
+	 * @param firstRow
+	 *            the first row to write, or null, used as a first hint of the types of the columns
+	 * @param append
+	 *            whether to append the rows to the existing ones
+	 * @return the columnar writer
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred, or that the columns of the file are different
+	 */
+	public static ColumnarWriter open(final File file, final List<String> names, final Object[] firstRow,
+			final boolean append) throws IOException {
+		if (append && file.length() > 0) {
+			final ColumnarReader.Header header = ColumnarReader.readHeader(file);
+			if (!Arrays.equals(header.names, names.toArray(new String[0]))) throw new IOException(
+					"The columns of " + file.getName() + " are " + Arrays.toString(header.names) + ", not " + names);
+			return new ColumnarWriter(new FileOutputStream(file, true), header.names, header.types, false);
+		}
+		final byte[] types = new byte[names.size()];
+		for (int i = 0; i < types.length; i++) {
+			final Object value = firstRow == null || i >= firstRow.length ? null : firstRow[i];
+			types[i] = value == null ? UNKNOWN : ColumnarFormat.typeOf(value);
+		}
+		return new ColumnarWriter(new FileOutputStream(file, false), names.toArray(new String[0]), types, true);
+	}
+
+	/**
+	 * Instantiates a new columnar writer.
+	 *
+	 * @param stream
+	 *            the stream
+	 * @param names
+	 *            the names
+	 * @param types
+	 *            the types
+	 * @param writeHeader
+	 *            whether to write the header
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private ColumnarWriter(final FileOutputStream stream, final String[] names, final byte[] types,
+			final boolean writeHeader) throws IOException {
+		this.names = names;
+		this.types = types;
+		columns = new Object[names.length][ROW_GROUP_SIZE];
+		out = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+		headerWritten = !writeHeader;
+	}
+
+	/**
+	 * Writes the header, once the types of the columns are known. The columns that only contained null values are
+	 * written as strings.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void writeHeader() throws IOException {
+		if (headerWritten) return;
+		headerWritten = true;
+		out.writeInt(MAGIC);
+		out.writeByte(VERSION);
+		writeVarInt(out, names.length);
+		for (int i = 0; i < names.length; i++) {
+			if (types[i] == UNKNOWN) { types[i] = STRING; }
+			writeString(out, names[i]);
+			out.writeByte(types[i]);
+		}
+	}
+
+	/**
+	 * The narrowest type able to store the values of two types.
+	 *
+	 * @param a
+	 *            the a
+	 * @param b
+	 *            the b
+	 * @return the type
+	 */
+	private static byte widen(final byte a, final byte b) {
+		if (a == UNKNOWN || a == b) return b;
+		if (a == INT && b == FLOAT || a == FLOAT && b == INT) return FLOAT;
+		return STRING;
+	}
+
+	/**
+	 * Gets the names of the columns.
+	 *
+	 * @return the names
+	 */
+	public String[] getNames() { return names; }
+
+	/**
+	 * Appends a row. Missing values are considered as null; extra values are ignored.
+	 *
+	 * @param row
+	 *            the row
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred, or that a value cannot be stored in its column
+	 */
+	public synchronized void append(final Object[] row) throws IOException {
+		for (int c = 0; c < columns.length; c++) {
+			final Object value = c < row.length ? row[c] : null;
+			if (value == null) { continue; }
+			if (headerWritten) {
+				// Fails before the row is partially stored
+				convert(c, value);
+			} else {
+				types[c] = widen(types[c], ColumnarFormat.typeOf(value));
+			}
+		}
+		for (int c = 0; c < columns.length; c++) { columns[c][rows] = c < row.length ? row[c] : null; }
+		if (++rows == ROW_GROUP_SIZE) { writeRowGroup(); }
+	}
+
+	/**
+	 * Writes the rows buffered as a row group.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void writeRowGroup() throws IOException {
+		writeHeader();
+		if (rows == 0) return;
+		final ByteArrayOutputStream raw = new ByteArrayOutputStream(rows * columns.length * 4);
+		final DataOutputStream data = new DataOutputStream(raw);
+		for (int c = 0; c < columns.length; c++) { writeColumn(data, c); }
+		data.flush();
+		final ByteArrayOutputStream compressed = new ByteArrayOutputStream(raw.size() / 2 + 64);
+		final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try (DeflaterOutputStream dos = new DeflaterOutputStream(compressed, deflater)) {
+			raw.writeTo(dos);
+		} finally {
+			deflater.end();
+		}
+		out.writeInt(rows);
+		out.writeInt(raw.size());
+		out.writeInt(compressed.size());
+		compressed.writeTo(out);
+		for (final Object[] column : columns) { Arrays.fill(column, 0, rows, null); }
+		rows = 0;
+	}
+
+	/**
+	 * Writes the values of a column.
+	 *
+	 * @param data
+	 *            the data
+	 * @param c
+	 *            the index of the column
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private void writeColumn(final DataOutputStream data, final int c) throws IOException {
+		final byte type = types[c];
+		final Object[] values = columns[c];
+		final Object[] converted = new Object[rows];
+		final byte[] nulls = new byte[(rows + 7) / 8];
+		for (int r = 0; r < rows; r++) {
+			converted[r] = convert(c, values[r]);
+			if (converted[r] == null) { nulls[r >> 3] |= 1 << (r & 7); }
+		}
+		data.write(nulls);
+		switch (type) {
+			case INT:
+				for (int r = 0; r < rows; r++) { if (converted[r] != null) { writeZigZag(data, (Long) converted[r]); } }
+				break;
+			case FLOAT:
+				for (int r = 0; r < rows; r++) { if (converted[r] != null) { data.writeDouble((Double) converted[r]); } }
+				break;
+			case BOOL:
+				for (int r = 0; r < rows; r++) {
+					if (converted[r] != null) { data.writeByte((Boolean) converted[r] ? 1 : 0); }
+				}
+				break;
+			default:
+				final Map<String, Integer> dictionary = new HashMap<>();
+				final String[] entries = new String[rows];
+				final int[] indices = new int[rows];
+				for (int r = 0; r < rows; r++) {
+					if (converted[r] == null) { continue; }
+					final String s = (String) converted[r];
+					Integer index = dictionary.get(s);
+					if (index == null) {
+						index = dictionary.size();
+						dictionary.put(s, index);
+						entries[index] = s;
+					}
+					indices[r] = index;
+				}
+				writeVarInt(data, dictionary.size());
+				for (int i = 0; i < dictionary.size(); i++) { writeString(data, entries[i]); }
+				for (int r = 0; r < rows; r++) { if (converted[r] != null) { writeVarInt(data, indices[r]); } }
+		}
+	}
+
+	/**
+	 * Converts a value to the type of a column: a long for the int columns, a double for the float columns, a boolean or
+	 * a string.
+	 *
+	 * @param c
+	 *            the index of the column
+	 * @param value
+	 *            the value
+	 * @return the converted value, or null if the value is null
+	 * @throws IOException
+	 *             if the value cannot be converted without loss
+	 */
+	private Object convert(final int c, final Object value) throws IOException {
+		if (value == null) return null;
+		try {
+			switch (types[c]) {
+				case INT:
+					if (value instanceof Integer || value instanceof Long || value instanceof Short
+							|| value instanceof Byte)
+						return ((Number) value).longValue();
+					if (value instanceof Number n) {
+						final double d = n.doubleValue();
+						if (d == (long) d) return (long) d;
+						break;
+					}
+					if (value instanceof Boolean b) return b ? 1L : 0L;
+					return Long.valueOf(value.toString().trim());
+				case FLOAT:
+					if (value instanceof Number n) return n.doubleValue();
+					if (value instanceof Boolean b) return b ? 1d : 0d;
+					return Double.valueOf(value.toString().trim());
+				case BOOL:
+					if (value instanceof Boolean) return value;
+					if (value instanceof Number n) return n.doubleValue() != 0;
+					final String s = value.toString().trim();
+					if ("true".equalsIgnoreCase(s) || "false".equalsIgnoreCase(s)) return Boolean.valueOf(s);
+					break;
+				default:
+					return value.toString();
+			}
+		} catch (final NumberFormatException e) {}
+		throw new IOException("The value " + value + " cannot be stored in the column '" + names[c] + "' of type "
+				+ TYPE_NAMES[types[c]]);
+	}
+
+	/**
+	 * Writes the rows buffered as a row group and flushes the file.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public synchronized void flush() throws IOException {
+		writeRowGroup();
+		out.flush();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			writeRowGroup();
+		} finally {
+			out.close();
+		}
+	}
+
+}
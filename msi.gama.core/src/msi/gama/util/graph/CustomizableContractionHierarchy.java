@@ -0,0 +1,909 @@
+/*******************************************************************************************************
+ *
+ * CustomizableContractionHierarchy.java, in msi.gama.core, is part of the source code of the GAMA modeling and
+ * simulation platform (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.graph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import ummisco.gama.dev.utils.DEBUG;
+
+/**
+ * A customizable contraction hierarchy (CCH) for the shortest path computations in {@link GamaGraph}. The computation
+ * is split in three phases:
+ * <ul>
+ * <li>the <b>contraction</b>, which only depends on the topology of the graph: the vertices are ordered (using a
+ * minimum degree heuristic) and eliminated in this order, each elimination connecting the remaining neighbours of the
+ * vertex. The result (the order and the upward arcs) can be saved to a file, keyed by a hash of the topology, and
+ * reloaded when the same network is used again;</li>
+ * <li>the <b>customization</b>, which computes the weights of the arcs of the hierarchy from the weights of the edges
+ * of the graph. It is run again (without contracting anything) every time the weights change, which is much cheaper
+ * than rebuilding the hierarchy;</li>
+ * <li>the <b>queries</b>, which are bidirectional upward Dijkstra searches in the hierarchy.</li>
+ * </ul>
+ *
+ * @author agent
+ * @since 1.8.2
+ *
+ * @param <V>
+ *            the value type
+ * @param <E>
+ *            the element type
+ */
+public class CustomizableContractionHierarchy<V, E> {
+
+	static {
+		DEBUG.OFF();
+	}
+
+	/** The magic number of the files. */
+	private static final int MAGIC = 0x47434348;
+
+	/** The extension of the files. */
+	public static final String EXTENSION = ".cch";
+
+	/** The graph. */
+	final GamaGraph<V, E> graph;
+
+	/** The hash of the topology of the graph when the hierarchy was built. */
+	final long topologyHash;
+
+	/** The vertices and their ids. */
+	final Object[] vertices;
+
+	/** The ids. */
+	final Map<Object, Integer> ids;
+
+	/** The rank of each vertex in the contraction order. */
+	final int[] rank;
+
+	/** The vertices, ordered by rank. */
+	final int[] byRank;
+
+	/** The arcs leaving each vertex towards higher ranked vertices (CSR layout, heads sorted by id). */
+	final int[] upStart, upHead;
+
+	/** The tail (lower vertex) of each arc. */
+	final int[] tail;
+
+	/**
+	 * The current metric. Each customization publishes a new one instead of modifying it, so that the queries, and the
+	 * trees computed before, keep reading coherent costs and shortcuts.
+	 */
+	private volatile Metric metric;
+
+	/** The version of the graph at the last customization. */
+	int customizedVersion = -1;
+
+	/** The per-thread search state. */
+	private final ThreadLocal<Search> searches;
+
+	/**
+	 * Builds (or loads from the file, if it is not null and matches the topology) the hierarchy of the graph, and
+	 * customizes it with its current weights.
+	 *
+	 * @param graph
+	 *            the graph
+	 * @param file
+	 *            the file in which the contraction is saved, or null
+	 * @return the customizable contraction hierarchy
+	 */
+	public static <V, E> CustomizableContractionHierarchy<V, E> create(final GamaGraph<V, E> graph,
+			final String file) {
+		final Object[] vertices = graph.vertexMap.keySet().toArray();
+		final Map<Object, Integer> ids = new HashMap<>(vertices.length * 2);
+		for (int i = 0; i < vertices.length; i++) { ids.put(vertices[i], i); }
+		final long hash = topologyHash(graph, ids);
+		CustomizableContractionHierarchy<V, E> result = null;
+		final File f = file == null ? null : fileFor(file, hash);
+		if (f != null && f.exists()) { result = load(graph, f, vertices, ids, hash); }
+		if (result == null) {
+			result = contract(graph, vertices, ids, hash);
+			if (f != null) { result.save(f); }
+		}
+		result.customize();
+		return result;
+	}
+
+	/**
+	 * The file used to save the hierarchy of a graph built from a given file.
+	 *
+	 * @param file
+	 *            the file
+	 * @param hash
+	 *            the hash
+	 * @return the file
+	 */
+	static File fileFor(final String file, final long hash) {
+		return new File(file + "." + Long.toHexString(hash) + EXTENSION);
+	}
+
+	/**
+	 * Computes a hash of the topology of the graph: its vertices, its edges and whether it is directed. The weights are
+	 * not taken into account.
+	 *
+	 * @param graph
+	 *            the graph
+	 * @param ids
+	 *            the ids
+	 * @return the long
+	 */
+	static long topologyHash(final GamaGraph<?, ?> graph, final Map<Object, Integer> ids) {
+		// FNV-1a
+		long h = 0xcbf29ce484222325L;
+		h = (h ^ ids.size()) * 0x100000001b3L;
+		h = (h ^ (graph.isDirected() ? 1 : 0)) * 0x100000001b3L;
+		for (final _Edge<?, ?> e : graph.edgeMap.values()) {
+			h = (h ^ ids.get(e.getSource())) * 0x100000001b3L;
+			h = (h ^ ids.get(e.getTarget())) * 0x100000001b3L;
+		}
+		return h;
+	}
+
+	/**
+	 * Checks whether the hierarchy still corresponds to the topology of the graph.
+	 *
+	 * @return true, if successful
+	 */
+	public boolean matchesTopology() {
+		if (graph.vertexMap.size() != vertices.length) return false;
+		for (final Object v : vertices) { if (!graph.vertexMap.containsKey(v)) return false; }
+		return topologyHash(graph, ids) == topologyHash;
+	}
+
+	/**
+	 * Contracts the graph: orders the vertices by minimum degree and eliminates them, adding the arcs needed to
+	 * connect their higher ranked neighbours.
+	 *
+	 * @param graph
+	 *            the graph
+	 * @param vertices
+	 *            the vertices
+	 * @param ids
+	 *            the ids
+	 * @param hash
+	 *            the hash
+	 * @return the customizable contraction hierarchy
+	 */
+	private static <V, E> CustomizableContractionHierarchy<V, E> contract(final GamaGraph<V, E> graph,
+			final Object[] vertices, final Map<Object, Integer> ids, final long hash) {
+		final int n = vertices.length;
+		final List<Set<Integer>> neighbours = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) { neighbours.add(new HashSet<>()); }
+		for (final _Edge<?, ?> e : graph.edgeMap.values()) {
+			final int s = ids.get(e.getSource());
+			final int t = ids.get(e.getTarget());
+			if (s == t) { continue; }
+			neighbours.get(s).add(t);
+			neighbours.get(t).add(s);
+		}
+		final int[] rank = new int[n];
+		Arrays.fill(rank, -1);
+		final int[][] upper = new int[n][];
+		// Minimum degree elimination, with lazy updates of the degrees in the queue
+		final PriorityQueue<long[]> queue = new PriorityQueue<>(Math.max(1, n),
+				(a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+		for (int i = 0; i < n; i++) { queue.add(new long[] { neighbours.get(i).size(), i }); }
+		int next = 0;
+		while (!queue.isEmpty()) {
+			final long[] top = queue.poll();
+			final int v = (int) top[1];
+			final Set<Integer> nv = neighbours.get(v);
+			if (rank[v] >= 0 || top[0] != nv.size()) { continue; }
+			rank[v] = next++;
+			final int[] remaining = new int[nv.size()];
+			int k = 0;
+			for (final Integer u : nv) { remaining[k++] = u; }
+			upper[v] = remaining;
+			for (final int u : remaining) { neighbours.get(u).remove(v); }
+			for (int i = 0; i < remaining.length; i++) {
+				final Set<Integer> nu = neighbours.get(remaining[i]);
+				for (int j = 0; j < remaining.length; j++) { if (i != j) { nu.add(remaining[j]); } }
+			}
+			for (final int u : remaining) { queue.add(new long[] { neighbours.get(u).size(), u }); }
+			nv.clear();
+		}
+		DEBUG.OUT("Contraction hierarchy built for " + n + " vertices");
+		return new CustomizableContractionHierarchy<>(graph, vertices, ids, hash, rank, upper);
+	}
+
+	/**
+	 * Instantiates a new customizable contraction hierarchy.
+	 *
+	 * @param graph
+	 *            the graph
+	 * @param vertices
+	 *            the vertices
+	 * @param ids
+	 *            the ids
+	 * @param hash
+	 *            the hash
+	 * @param rank
+	 *            the rank
+	 * @param upper
+	 *            the higher ranked neighbours of each vertex when it was eliminated
+	 */
+	private CustomizableContractionHierarchy(final GamaGraph<V, E> graph, final Object[] vertices,
+			final Map<Object, Integer> ids, final long hash, final int[] rank, final int[][] upper) {
+		this.graph = graph;
+		this.vertices = vertices;
+		this.ids = ids;
+		this.topologyHash = hash;
+		this.rank = rank;
+		final int n = vertices.length;
+		byRank = new int[n];
+		for (int v = 0; v < n; v++) { byRank[rank[v]] = v; }
+		upStart = new int[n + 1];
+		for (int v = 0; v < n; v++) {
+			Arrays.sort(upper[v]);
+			upStart[v + 1] = upStart[v] + upper[v].length;
+		}
+		final int m = upStart[n];
+		upHead = new int[m];
+		tail = new int[m];
+		for (int v = 0; v < n; v++) {
+			System.arraycopy(upper[v], 0, upHead, upStart[v], upper[v].length);
+			Arrays.fill(tail, upStart[v], upStart[v + 1], v);
+		}
+		searches = ThreadLocal.withInitial(() -> new Search(n));
+	}
+
+	/**
+	 * Saves the contraction (order and arcs) to a file.
+	 *
+	 * @param f
+	 *            the f
+	 */
+	void save(final File f) {
+		try (DataOutputStream out =
+				new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeLong(topologyHash);
+			out.writeInt(vertices.length);
+			out.writeInt(upHead.length);
+			for (final int r : rank) { out.writeInt(r); }
+			for (final int s : upStart) { out.writeInt(s); }
+			for (final int h : upHead) { out.writeInt(h); }
+		} catch (final IOException e) {
+			DEBUG.ERR("Impossible to save the contraction hierarchy in " + f + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Loads the contraction from a file. Returns null if the file does not correspond to the topology of the graph.
+	 *
+	 * @param graph
+	 *            the graph
+	 * @param f
+	 *            the f
+	 * @param vertices
+	 *            the vertices
+	 * @param ids
+	 *            the ids
+	 * @param hash
+	 *            the hash
+	 * @return the customizable contraction hierarchy
+	 */
+	private static <V, E> CustomizableContractionHierarchy<V, E> load(final GamaGraph<V, E> graph, final File f,
+			final Object[] vertices, final Map<Object, Integer> ids, final long hash) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), 1 << 16))) {
+			if (in.readInt() != MAGIC || in.readLong() != hash) return null;
+			final int n = in.readInt();
+			if (n != vertices.length) return null;
+			final int m = in.readInt();
+			final int[] rank = new int[n];
+			for (int i = 0; i < n; i++) { rank[i] = in.readInt(); }
+			final int[] start = new int[n + 1];
+			for (int i = 0; i <= n; i++) { start[i] = in.readInt(); }
+			if (start[n] != m) return null;
+			final int[][] upper = new int[n][];
+			for (int v = 0; v < n; v++) {
+				upper[v] = new int[start[v + 1] - start[v]];
+				for (int j = 0; j < upper[v].length; j++) { upper[v][j] = in.readInt(); }
+			}
+			return new CustomizableContractionHierarchy<>(graph, vertices, ids, hash, rank, upper);
+		} catch (final IOException | RuntimeException e) {
+			DEBUG.ERR("Impossible to load the contraction hierarchy from " + f + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * The arc between a vertex and one of its higher ranked neighbours, or -1.
+	 *
+	 * @param lo
+	 *            the lo
+	 * @param hi
+	 *            the hi
+	 * @return the int
+	 */
+	int arc(final int lo, final int hi) {
+		final int i = Arrays.binarySearch(upHead, upStart[lo], upStart[lo + 1], hi);
+		return i < 0 ? -1 : i;
+	}
+
+	/**
+	 * Recomputes the weights of the arcs if the weights of the edges have changed since the last customization.
+	 * Returns false if the topology of the graph has changed, in which case the hierarchy must be rebuilt.
+	 *
+	 * @return true, if successful
+	 */
+	public synchronized boolean update() {
+		final int version = graph.getVersion();
+		if (version == customizedVersion) return true;
+		if (!matchesTopology()) return false;
+		final double[] weights = currentWeights();
+		if (!Arrays.equals(weights, metric.weights)) { metric = customize(weights); }
+		customizedVersion = version;
+		return true;
+	}
+
+	/**
+	 * Current weights of the edges, in the iteration order of the edges.
+	 *
+	 * @return the double[]
+	 */
+	private double[] currentWeights() {
+		final double[] weights = new double[graph.edgeMap.size()];
+		int i = 0;
+		for (final _Edge<?, ?> e : graph.edgeMap.values()) { weights[i++] = e.getWeight(); }
+		return weights;
+	}
+
+	/**
+	 * Customizes the hierarchy with the current weights of the graph.
+	 */
+	synchronized void customize() {
+		metric = customize(currentWeights());
+		customizedVersion = graph.getVersion();
+	}
+
+	/**
+	 * Customization: the arcs first receive the weights of the original edges, then the vertices are processed by
+	 * increasing rank and each "lower triangle" (v, u, w) with v below u and w is used to shorten the arc between u and
+	 * w.
+	 *
+	 * @param weights
+	 *            the weights of the edges
+	 * @return the new metric
+	 */
+	private Metric customize(final double[] weights) {
+		final Metric m = new Metric(upHead.length, weights);
+		final double[] up = m.up;
+		final double[] down = m.down;
+		final boolean directed = graph.isDirected();
+		int i = 0;
+		for (final Map.Entry<E, _Edge<V, E>> entry : graph.edgeMap.entrySet()) {
+			final double w = weights[i++];
+			final _Edge<V, E> edge = entry.getValue();
+			final int s = ids.get(edge.getSource());
+			final int t = ids.get(edge.getTarget());
+			if (s == t) { continue; }
+			final boolean upward = rank[s] < rank[t];
+			final int a = upward ? arc(s, t) : arc(t, s);
+			if (upward || !directed) { m.setUp(a, w, entry.getKey()); }
+			if (!upward || !directed) { m.setDown(a, w, entry.getKey()); }
+		}
+		for (final int v : byRank) {
+			for (int a1 = upStart[v]; a1 < upStart[v + 1]; a1++) {
+				for (int a2 = upStart[v]; a2 < upStart[v + 1]; a2++) {
+					if (a1 == a2) { continue; }
+					final int u = upHead[a1];
+					final int w = upHead[a2];
+					if (rank[u] > rank[w]) { continue; }
+					// u is below w: the arc between them is stored with u
+					final int a3 = arc(u, w);
+					final double uw = down[a1] + up[a2];
+					if (uw < up[a3]) {
+						up[a3] = uw;
+						m.upMid[a3] = v;
+						m.upEdge[a3] = null;
+					}
+					final double wu = down[a2] + up[a1];
+					if (wu < down[a3]) {
+						down[a3] = wu;
+						m.downMid[a3] = v;
+						m.downEdge[a3] = null;
+					}
+				}
+			}
+		}
+		return m;
+	}
+
+	/**
+	 * The costs of the arcs and the way to unpack them, computed by a customization. Never modified once published.
+	 */
+	private static class Metric {
+
+		/** The weights of the edges used by the customization. */
+		final double[] weights;
+
+		/** The cost of going up (tail to head) and down (head to tail) each arc. */
+		final double[] up, down;
+
+		/** The vertex in the middle of the shortcut, or -1 for an original edge. */
+		final int[] upMid, downMid;
+
+		/** The original edges, for the arcs that are not shortcuts. */
+		final Object[] upEdge, downEdge;
+
+		/**
+		 * Instantiates a new metric, where no arc can be traversed.
+		 *
+		 * @param m
+		 *            the number of arcs
+		 * @param weights
+		 *            the weights
+		 */
+		Metric(final int m, final double[] weights) {
+			this.weights = weights;
+			up = new double[m];
+			down = new double[m];
+			upMid = new int[m];
+			downMid = new int[m];
+			upEdge = new Object[m];
+			downEdge = new Object[m];
+			Arrays.fill(up, Double.POSITIVE_INFINITY);
+			Arrays.fill(down, Double.POSITIVE_INFINITY);
+			Arrays.fill(upMid, -1);
+			Arrays.fill(downMid, -1);
+		}
+
+		/**
+		 * Sets the up.
+		 *
+		 * @param a
+		 *            the a
+		 * @param w
+		 *            the w
+		 * @param e
+		 *            the e
+		 */
+		void setUp(final int a, final double w, final Object e) {
+			if (w < up[a]) {
+				up[a] = w;
+				upEdge[a] = e;
+			}
+		}
+
+		/**
+		 * Sets the down.
+		 *
+		 * @param a
+		 *            the a
+		 * @param w
+		 *            the w
+		 * @param e
+		 *            the e
+		 */
+		void setDown(final int a, final double w, final Object e) {
+			if (w < down[a]) {
+				down[a] = w;
+				downEdge[a] = e;
+			}
+		}
+	}
+
+	/**
+	 * Computes the shortest path between two vertices.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @return the list of edges, or null if the target cannot be reached
+	 */
+	@SuppressWarnings ("unchecked")
+	public List<E> getPath(final V source, final V target) {
+		final Integer s = ids.get(source);
+		final Integer t = ids.get(target);
+		if (s == null || t == null) return null;
+		final List<Object> result = new ArrayList<>();
+		if (s.equals(t)) return (List<E>) result;
+		return (List<E>) findPath(metric, s, t, result);
+	}
+
+	/**
+	 * Runs the search and unpacks the path found.
+	 *
+	 * @param m
+	 *            the metric
+	 * @param s
+	 *            the s
+	 * @param t
+	 *            the t
+	 * @param result
+	 *            the result
+	 * @return the list, or null
+	 */
+	private List<Object> findPath(final Metric m, final int s, final int t, final List<Object> result) {
+		final Search search = searches.get();
+		final int meeting = search.run(m, s, t);
+		if (meeting < 0) return null;
+		// From the source to the meeting vertex: upward arcs, collected backwards
+		final List<Integer> arcs = new ArrayList<>();
+		for (int v = meeting; v != s;) {
+			final int a = search.forward.parent[v];
+			arcs.add(a);
+			v = tail[a];
+		}
+		for (int i = arcs.size() - 1; i >= 0; i--) { unpack(m, arcs.get(i), true, result); }
+		// From the meeting vertex to the target: downward arcs
+		for (int v = meeting; v != t;) {
+			final int a = search.backward.parent[v];
+			unpack(m, a, false, result);
+			v = tail[a];
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the shortest paths from a source to all the vertices (PHAST): an upward search from the source, followed
+	 * by a sweep of all the vertices by decreasing rank along the downward arcs. Much faster than a Dijkstra search when
+	 * many routes share the same origin.
+	 *
+	 * @param source
+	 *            the source
+	 * @return the tree, or null if the source is not in the graph
+	 */
+	public Tree tree(final V source) {
+		final Integer s = ids.get(source);
+		if (s == null) return null;
+		final Metric m = metric;
+		final Side search = new Side(vertices.length, true);
+		search.relax(s, 0d, -1);
+		while (search.heapSize > 0) { search.step(m); }
+		final double[] dist = search.dist;
+		final int[] parent = search.parent;
+		final boolean[] down = new boolean[vertices.length];
+		for (int r = byRank.length - 1; r >= 0; r--) {
+			final int v = byRank[r];
+			for (int a = upStart[v]; a < upStart[v + 1]; a++) {
+				final double d = dist[upHead[a]] + m.down[a];
+				if (d < dist[v]) {
+					dist[v] = d;
+					parent[v] = a;
+					down[v] = true;
+				}
+			}
+		}
+		return new Tree(m, s, dist, parent, down);
+	}
+
+	/**
+	 * The shortest paths from one source to all the vertices, as computed by {@link #tree(Object)}.
+	 */
+	public class Tree {
+
+		/** The metric with which the tree has been computed, also used to unpack its paths. */
+		final Metric metric;
+
+		/** The source. */
+		final int source;
+
+		/** The distances. */
+		final double[] dist;
+
+		/** The arc by which each vertex is reached. */
+		final int[] parent;
+
+		/** Whether this arc is traversed downwards. */
+		final boolean[] down;
+
+		/**
+		 * Instantiates a new tree.
+		 *
+		 * @param metric
+		 *            the metric
+		 * @param source
+		 *            the source
+		 * @param dist
+		 *            the dist
+		 * @param parent
+		 *            the parent
+		 * @param down
+		 *            the down
+		 */
+		Tree(final Metric metric, final int source, final double[] dist, final int[] parent, final boolean[] down) {
+			this.metric = metric;
+			this.source = source;
+			this.dist = dist;
+			this.parent = parent;
+			this.down = down;
+		}
+
+		/**
+		 * The shortest path to the target.
+		 *
+		 * @param target
+		 *            the target
+		 * @return the list of edges, or null if the target cannot be reached
+		 */
+		@SuppressWarnings ("unchecked")
+		public List<E> pathTo(final V target) {
+			final Integer t = ids.get(target);
+			if (t == null || dist[t] == Double.POSITIVE_INFINITY) return null;
+			final List<Integer> arcs = new ArrayList<>();
+			for (int v = t; v != source;) {
+				final int a = parent[v];
+				arcs.add(down[v] ? -a - 1 : a);
+				v = down[v] ? upHead[a] : tail[a];
+			}
+			final List<Object> result = new ArrayList<>();
+			for (int i = arcs.size() - 1; i >= 0; i--) {
+				final int a = arcs.get(i);
+				if (a < 0) {
+					unpack(metric, -a - 1, false, result);
+				} else {
+					unpack(metric, a, true, result);
+				}
+			}
+			return (List<E>) result;
+		}
+	}
+
+	/**
+	 * Unpacks an arc (upward or downward) into the original edges it represents.
+	 *
+	 * @param m
+	 *            the metric
+	 * @param a
+	 *            the arc
+	 * @param upward
+	 *            the direction
+	 * @param result
+	 *            the result
+	 */
+	private void unpack(final Metric m, final int a, final boolean upward, final List<Object> result) {
+		final int mid = upward ? m.upMid[a] : m.downMid[a];
+		if (mid < 0) {
+			result.add(upward ? m.upEdge[a] : m.downEdge[a]);
+			return;
+		}
+		final int lo = tail[a];
+		final int hi = upHead[a];
+		if (upward) {
+			// lo -> mid -> hi
+			unpack(m, arc(mid, lo), false, result);
+			unpack(m, arc(mid, hi), true, result);
+		} else {
+			// hi -> mid -> lo
+			unpack(m, arc(mid, hi), false, result);
+			unpack(m, arc(mid, lo), true, result);
+		}
+	}
+
+	/**
+	 * The state of one upward Dijkstra search. Only the vertices touched by a search are reset before the next one.
+	 */
+	private class Side {
+
+		/** The dist. */
+		final double[] dist;
+
+		/** The parent arc of each vertex. */
+		final int[] parent;
+
+		/** The touched vertices. */
+		int[] touched = new int[64];
+
+		/** The number of touched vertices. */
+		int touchedCount;
+
+		/** The heap (lazy deletion): vertices and keys. */
+		int[] heap = new int[64];
+
+		/** The keys. */
+		double[] keys = new double[64];
+
+		/** The heap size. */
+		int heapSize;
+
+		/** Whether this side uses the upward or downward costs. */
+		final boolean upward;
+
+		/**
+		 * Instantiates a new side.
+		 *
+		 * @param n
+		 *            the n
+		 * @param upward
+		 *            the upward
+		 */
+		Side(final int n, final boolean upward) {
+			dist = new double[n];
+			parent = new int[n];
+			Arrays.fill(dist, Double.POSITIVE_INFINITY);
+			this.upward = upward;
+		}
+
+		/**
+		 * Reset.
+		 */
+		void reset() {
+			for (int i = 0; i < touchedCount; i++) { dist[touched[i]] = Double.POSITIVE_INFINITY; }
+			touchedCount = 0;
+			heapSize = 0;
+		}
+
+		/**
+		 * Relaxes a vertex.
+		 *
+		 * @param v
+		 *            the v
+		 * @param d
+		 *            the d
+		 * @param arc
+		 *            the arc
+		 */
+		void relax(final int v, final double d, final int arc) {
+			if (d >= dist[v]) return;
+			if (dist[v] == Double.POSITIVE_INFINITY) {
+				if (touchedCount == touched.length) { touched = Arrays.copyOf(touched, touchedCount * 2); }
+				touched[touchedCount++] = v;
+			}
+			dist[v] = d;
+			parent[v] = arc;
+			push(v, d);
+		}
+
+		/**
+		 * Push.
+		 *
+		 * @param v
+		 *            the v
+		 * @param d
+		 *            the d
+		 */
+		void push(final int v, final double d) {
+			if (heapSize == heap.length) {
+				heap = Arrays.copyOf(heap, heapSize * 2);
+				keys = Arrays.copyOf(keys, heapSize * 2);
+			}
+			int i = heapSize++;
+			while (i > 0) {
+				final int p = (i - 1) >>> 1;
+				if (keys[p] <= d) { break; }
+				heap[i] = heap[p];
+				keys[i] = keys[p];
+				i = p;
+			}
+			heap[i] = v;
+			keys[i] = d;
+		}
+
+		/**
+		 * Min key.
+		 *
+		 * @return the double
+		 */
+		double minKey() {
+			return heapSize == 0 ? Double.POSITIVE_INFINITY : keys[0];
+		}
+
+		/**
+		 * Pops the vertex with the smallest key. Returns -1 if this entry is obsolete.
+		 *
+		 * @return the int
+		 */
+		int pop() {
+			final int v = heap[0];
+			final double d = keys[0];
+			final int last = --heapSize;
+			final int lv = heap[last];
+			final double lk = keys[last];
+			int i = 0;
+			while (true) {
+				int c = 2 * i + 1;
+				if (c >= last) { break; }
+				if (c + 1 < last && keys[c + 1] < keys[c]) { c++; }
+				if (keys[c] >= lk) { break; }
+				heap[i] = heap[c];
+				keys[i] = keys[c];
+				i = c;
+			}
+			if (last > 0) {
+				heap[i] = lv;
+				keys[i] = lk;
+			}
+			return d > dist[v] ? -1 : v;
+		}
+
+		/**
+		 * Settles the next vertex and relaxes its upward arcs.
+		 *
+		 * @param m
+		 *            the metric
+		 * @return the settled vertex, or -1
+		 */
+		int step(final Metric m) {
+			final int v = pop();
+			if (v < 0) return -1;
+			final double d = dist[v];
+			final double[] costs = upward ? m.up : m.down;
+			for (int a = upStart[v]; a < upStart[v + 1]; a++) {
+				final double c = costs[a];
+				if (c < Double.POSITIVE_INFINITY) { relax(upHead[a], d + c, a); }
+			}
+			return v;
+		}
+
+	}
+
+	/**
+	 * A bidirectional search.
+	 */
+	private class Search {
+
+		/** The backward. */
+		final Side forward, backward;
+
+		/**
+		 * Instantiates a new search.
+		 *
+		 * @param n
+		 *            the n
+		 */
+		Search(final int n) {
+			forward = new Side(n, true);
+			backward = new Side(n, false);
+		}
+
+		/**
+		 * Runs the search and returns the meeting vertex, or -1 if the target cannot be reached.
+		 *
+		 * @param m
+		 *            the metric
+		 * @param s
+		 *            the s
+		 * @param t
+		 *            the t
+		 * @return the int
+		 */
+		int run(final Metric m, final int s, final int t) {
+			forward.reset();
+			backward.reset();
+			forward.relax(s, 0d, -1);
+			backward.relax(t, 0d, -1);
+			double best = Double.POSITIVE_INFINITY;
+			int meeting = -1;
+			while (forward.heapSize > 0 || backward.heapSize > 0) {
+				final boolean fw = forward.minKey() <= backward.minKey();
+				final Side side = fw ? forward : backward;
+				if (side.minKey() >= best) { break; }
+				final int v = side.step(m);
+				if (v < 0) { continue; }
+				final double d = forward.dist[v] + backward.dist[v];
+				if (d < best) {
+					best = d;
+					meeting = v;
+				}
+			}
+			return meeting;
+		}
+
+	}
+
+}
@@ -21,8 +21,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.function.Supplier;
 
@@ -45,7 +45,6 @@ import org.jgrapht.alg.shortestpath.YenKShortestPath;
 import org.jgrapht.alg.spanning.KruskalMinimumSpanningTree;
 import org.jgrapht.alg.tour.HamiltonianCycleAlgorithmBase;
 import org.jgrapht.alg.tour.PalmerHamiltonianCycle;
-import org.jgrapht.alg.util.Pair;
 import org.jgrapht.graph.AbstractBaseGraph;
 import org.jgrapht.graph.DefaultDirectedGraph;
 import org.jgrapht.graph.DefaultEdge;
@@ -131,7 +130,10 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	protected final IContainerType type;
 
 	/** The shortest path computed. */
-	protected Map<Pair<V, V>, IList<IList<E>>> shortestPathComputed = null;
+	protected ShortestPathCache<V, E> shortestPathComputed = null;
+
+	/** The shortest path trees used by the batch of routes running in the current thread, if any. */
+	private final ThreadLocal<ShortestPathTrees<V, E>> shortestPathTrees = new ThreadLocal<>();
 
 	/** The vertex relation. */
 	protected VertexRelationship vertexRelation;
@@ -175,7 +177,10 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 		BidirectionalDijkstra,
 
 		/** The Transit node routing. */
-		TransitNodeRouting;
+		TransitNodeRouting,
+
+		/** The customizable contraction hierarchy. */
+		CustomizableCH;
 	}
 
 	/**
@@ -226,6 +231,12 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	/** The transit node routing. */
 	protected TransitNodeRoutingShortestPath<V, E> transitNodeRouting = null;
 
+	/** The customizable contraction hierarchy. Kept when the weights change, rebuilt when the topology changes */
+	protected CustomizableContractionHierarchy<V, E> customizableCH = null;
+
+	/** The file from which the contraction hierarchy is loaded and to which it is saved (can be null). */
+	protected String hierarchyFile = null;
+
 	/** The linked J graph. */
 	protected AbstractBaseGraph<String, Object> linkedJGraph;
 
@@ -253,7 +264,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 		version = 1;
 		agentEdge = false;
 		this.graphScope = scope;
-		shortestPathComputed = new ConcurrentHashMap<>();
+		shortestPathComputed = new ShortestPathCache<>();
 		type = Types.GRAPH.of(nodeType, vertexType);
 	}
 
@@ -282,7 +293,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 			final IType edgeType) {
 		vertexMap = GamaMapFactory.create();
 		edgeMap = GamaMapFactory.create();
-		shortestPathComputed = new ConcurrentHashMap<>();
+		shortestPathComputed = new ShortestPathCache<>();
 		this.graphScope = scope;
 		// WARNING TODO Verify this
 		// IType nodeType = byEdge ? Types.NO_TYPE :
@@ -307,7 +318,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	public GamaGraph(final IScope scope, final IType nodeType, final IType edgeType) {
 		vertexMap = GamaMapFactory.create();
 		edgeMap = GamaMapFactory.create();
-		shortestPathComputed = new ConcurrentHashMap<>();
+		shortestPathComputed = new ShortestPathCache<>();
 		this.graphScope = scope;
 		type = Types.GRAPH.of(nodeType, edgeType);
 	}
@@ -1065,7 +1076,9 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 			return removeEdge(((GamaPair) e).first(), ((GamaPair) e).last()) != null;
 
 		if (edge == null) return false;
-		incVersion();
+		// Only the shortest paths that traverse the edge become invalid
+		incVersionKeepingPaths();
+		shortestPathComputed.invalidate(e);
 		edge.removeFromVerticesAs(e);
 		edgeMap.remove(e);
 		if (generatedEdges.contains(e)) { ((IAgent) e).dispose(); }
@@ -1077,7 +1090,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	public Object removeEdge(final Object v1, final Object v2) {
 		final Object edge = getEdge(v1, v2);
 		if (removeEdge(edge)) {
-			incVersion();
+			incVersionKeepingPaths();
 			return edge;
 		}
 		return null;
@@ -1087,7 +1100,8 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	@Override
 	public boolean removeVertex(final Object v) {
 		if (!containsVertex(v)) return false;
-		incVersion();
+		// The paths that traverse the vertex are invalidated when its edges are removed
+		incVersionKeepingPaths();
 		final Set edges = edgesOf(v);
 		for (final Object e : edges) { removeEdge(e); }
 
@@ -1099,8 +1113,17 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	@Override
 	public void setEdgeWeight(final Object e, final double weight) {
 		if (!containsEdge(e)) return;
-		incVersion();
-		getEdge(e).setWeight(weight);
+		final _Edge<V, E> edge = getEdge(e);
+		final double previous = edge.getWeight();
+		edge.setWeight(weight);
+		if (weight == previous) return;
+		if (weight > previous) {
+			// Only the shortest paths that traverse the edge can become invalid
+			incVersionKeepingPaths();
+			shortestPathComputed.invalidate(e);
+		} else {
+			incVersion();
+		}
 	}
 
 	@Override
@@ -1186,11 +1209,16 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 			if (path == null) return GamaListFactory.create(getGamlType().getContentType());
 			return GamaListFactory.create(scope, getGamlType().getContentType(), path.getEdgeList());
 		}
-		IList<IList<E>> sp = null;
-		if (saveComputedShortestPaths) { sp = shortestPathComputed.get(new Pair<>(source, target)); }
+		List<E> sp = null;
+		if (saveComputedShortestPaths) { sp = shortestPathComputed.get(source, target); }
 		IList<E> spl = null;
-		if (sp == null || sp.isEmpty() || sp.get(0).isEmpty()) {
-			if (pathFindingAlgo == shortestPathAlgorithm.NBAStar) {
+		if (sp == null || sp.isEmpty()) {
+			final ShortestPathTrees<V, E> trees = shortestPathTrees.get();
+			if (trees != null) {
+				final List<E> edges = trees.route(source, target);
+				spl = edges == null ? GamaListFactory.create(getGamlType().getContentType())
+						: GamaListFactory.create(scope, getGamlType().getContentType(), edges);
+			} else if (pathFindingAlgo == shortestPathAlgorithm.NBAStar) {
 				final NBAStarPathfinder<V, E> p = new NBAStarPathfinder<>(this, false);
 				spl = p.search(source, target);
 			} else if (pathFindingAlgo == shortestPathAlgorithm.NBAStarApprox) {
@@ -1218,6 +1246,10 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 					contractionHierarchyBD = new ContractionHierarchyBidirectionalDijkstra<>(this, executor);
 				}
 				spl = getShortestPath(scope, contractionHierarchyBD, source, target);
+			} else if (pathFindingAlgo == shortestPathAlgorithm.CustomizableCH) {
+				final List<E> edges = getCustomizableCH().getPath(source, target);
+				spl = edges == null ? GamaListFactory.create(getGamlType().getContentType())
+						: GamaListFactory.create(scope, getGamlType().getContentType(), edges);
 			} else if (pathFindingAlgo == shortestPathAlgorithm.BidirectionalDijkstra) {
 				spl = getShortestPath(scope, new BidirectionalDijkstraShortestPath<>(this), source, target);
 			}
@@ -1225,11 +1257,61 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 			if (saveComputedShortestPaths) { saveShortestPaths(spl, source, target); }
 
 		} else {
-			spl = GamaListFactory.create(scope, getGamlType().getContentType(), sp.get(0));
+			spl = GamaListFactory.create(scope, getGamlType().getContentType(), sp);
 		}
 		return spl;
 	}
 
+	/**
+	 * Runs an action that computes many routes (for instance, from a few origins to many destinations). While it runs,
+	 * the routes missing from the cache are read from shortest path trees, computed once for each origin and kept until
+	 * the end of the action, rather than searched one by one. The trees are confined to the current thread, so that
+	 * several batches can run in parallel on the same graph. Nested calls share the trees of the outermost one. If the
+	 * trees would not return the routes of the algorithm of the graph (see {@link ShortestPathTrees#supports}), the
+	 * action is simply run.
+	 *
+	 * @param <T>
+	 *            the generic type
+	 * @param action
+	 *            the action
+	 * @return the result of the action
+	 */
+	public <T> T withShortestPathTrees(final Supplier<T> action) {
+		if (shortestPathTrees.get() != null || !ShortestPathTrees.supports(pathFindingAlgo)) return action.get();
+		shortestPathTrees.set(new ShortestPathTrees<>(this));
+		try {
+			return action.get();
+		} finally {
+			shortestPathTrees.remove();
+		}
+	}
+
+	/**
+	 * Returns the customizable contraction hierarchy of the graph, after having customized it with the current weights
+	 * of the edges. The hierarchy is (re)built only if the topology of the graph has changed.
+	 *
+	 * @return the customizable CH
+	 */
+	protected synchronized CustomizableContractionHierarchy<V, E> getCustomizableCH() {
+		if (customizableCH == null || !customizableCH.update()) {
+			customizableCH = CustomizableContractionHierarchy.create(this, hierarchyFile);
+		}
+		return customizableCH;
+	}
+
+	/**
+	 * Sets the file in which the contraction hierarchy of this graph is saved, so that it can be reused by the next
+	 * simulations built on the same network. The actual file name is suffixed by a hash of the topology of the graph.
+	 *
+	 * @param path
+	 *            the absolute path of the file (usually, the file from which the graph has been built)
+	 */
+	public void setHierarchyFile(final String path) {
+		if (Objects.equals(path, hierarchyFile)) return;
+		hierarchyFile = path;
+		customizableCH = null;
+	}
+
 	/**
 	 * Save shortest paths.
 	 *
@@ -1241,26 +1323,17 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	 *            the target
 	 */
 	private void saveShortestPaths(final List<E> edges, final V source, final V target) {
+		if (edges == null || edges.isEmpty()) return;
+		// The vertex from which each edge is traversed, so that all the suffixes of the path can be stored
+		final List<V> origins = new ArrayList<>(edges.size());
 		V s = source;
-		final IList<IList<E>> spl = GamaListFactory.create(Types.LIST.of(getGamlType().getContentType()));
-		spl.add(GamaListFactory.createWithoutCasting(getGamlType().getContentType(), edges));
-		shortestPathComputed.put(new Pair<>(source, target), spl);
-		final List<E> edges2 = GamaListFactory.create(graphScope, getGamlType().getContentType(), edges);
-		for (int i = 0; i < edges.size(); i++) {
-			final E edge = edges2.remove(0);
-			if (edges2.isEmpty()) { break; }
-			// DEBUG.LOG("s : " + s + " j : " + j + " i: " + i);
+		for (final E edge : edges) {
+			origins.add(s);
 			V nwS = (V) this.getEdgeTarget(edge);
 			if (!directed && nwS.equals(s)) { nwS = (V) this.getEdgeSource(edge); }
-			final Pair<V, V> pp = new Pair<>(nwS, target);
-			if (!shortestPathComputed.containsKey(pp)) {
-				final IList<IList<E>> spl2 = GamaListFactory.create(getGamlType().getContentType());
-				spl2.add(GamaListFactory.createWithoutCasting(getGamlType().getContentType(), edges2));
-				shortestPathComputed.put(pp, spl2);
-			}
 			s = nwS;
-
 		}
+		shortestPathComputed.putWithSuffixes(target, edges, origins);
 	}
 
 	@Override
@@ -1317,17 +1390,16 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 			paths.add(path);
 			if (saveComputedShortestPaths) { el.add(path); }
 		}
-		if (saveComputedShortestPaths) { shortestPathComputed.put(new Pair<>(source, target), el); }
+		if (saveComputedShortestPaths) { shortestPathComputed.put(source, target, el); }
 		return paths;
 	}
 
 	@Override
 	public IList<IList<E>> computeKBestRoutesBetween(final IScope scope, final V source, final V target, final int k) {
-		final Pair<V, V> pp = new Pair<>(source, target);
-		final IList<IList<E>> sps = shortestPathComputed.get(pp);
+		final List<List<E>> sps = shortestPathComputed.getAll(source, target);
 		if (sps != null && sps.size() >= k) {
 			IList<IList<E>> paths = GamaListFactory.create(Types.LIST.of(getGamlType().getContentType()));
-			for (final IList<E> sp : sps) {
+			for (final List<E> sp : sps) {
 				paths.add(GamaListFactory.create(scope, getGamlType().getContentType(), sp));
 			}
 			return paths;
@@ -1597,8 +1669,17 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 
 	@Override
 	public void incVersion() {
-		version++;
+		incVersionKeepingPaths();
 		shortestPathComputed.clear();
+	}
+
+	/**
+	 * Increments the version and resets the path finders that depend on the topology or the weights, but keeps the
+	 * shortest paths already computed. Used when the caller invalidates itself the paths that are affected by the
+	 * change.
+	 */
+	protected void incVersionKeepingPaths() {
+		version++;
 		contractionHierarchyBD = null;
 		transitNodeRouting = null;
 		linkedJGraph = null;
@@ -1814,11 +1895,8 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 				next = M[next];
 				vc = vn;
 			} while (previous != i);
-			final Pair vv = new Pair(v1, vt);
-			if (!shortestPathComputed.containsKey(vv)) {
-				final IList<IList<E>> ssp = GamaListFactory.create(Types.LIST.of(getGamlType().getContentType()));
-				ssp.add(edges);
-				shortestPathComputed.put(vv, ssp);
+			if (!shortestPathComputed.contains((V) v1, vt)) {
+				shortestPathComputed.put((V) v1, vt, Collections.singletonList(edges));
 			}
 			if (j == t) { edgesVertices = edges; }
 		}
@@ -1922,7 +2000,7 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	 *
 	 * @return the shortest path computed
 	 */
-	public Map<Pair<V, V>, IList<IList<E>>> getShortestPathComputed() { return shortestPathComputed; }
+	public ShortestPathCache<V, E> getShortestPathComputed() { return shortestPathComputed; }
 
 	/**
 	 * Gets the shortest path.
@@ -1934,10 +2012,9 @@ public class GamaGraph<V, E> implements IGraph<V, E> {
 	 * @return the shortest path
 	 */
 	public IList<E> getShortestPath(final V s, final V t) {
-		final Pair<V, V> vp = new Pair<>(s, t);
-		final IList<IList<E>> ppc = shortestPathComputed.get(vp);
-		if (ppc == null || ppc.isEmpty()) return null;
-		return ppc.get(0);
+		final List<E> path = shortestPathComputed.get(s, t);
+		if (path == null) return null;
+		return GamaListFactory.createWithoutCasting(getGamlType().getContentType(), path);
 	}
 
 	/**
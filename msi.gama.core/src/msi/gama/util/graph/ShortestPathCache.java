@@ -0,0 +1,347 @@
+/*******************************************************************************************************
+ *
+ * ShortestPathCache.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jgrapht.alg.util.Pair;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalNotification;
+
+import msi.gama.common.preferences.GamaPreferences;
+
+/**
+ * The cache of the shortest paths computed in a {@link GamaGraph}. Instead of nested lists, the paths are stored as
+ * arrays of edges ({@link Route}), a path and all its suffixes (which are also shortest paths) sharing the same array. The cache is bounded by the total number of edges it stores (see
+ * {@link GamaPreferences.External#SHORTEST_PATH_CACHE_SIZE}); the least recently used paths are evicted first.
+ *
+ * Instead of being wiped whenever the graph changes, the cache can invalidate only the paths that traverse a given
+ * edge, which is enough when this edge is removed or when its weight increases.
+ *
+ * @author agent
+ * @since 1.8.2
+ *
+ * @param <V>
+ *            the value type
+ * @param <E>
+ *            the element type
+ */
+public class ShortestPathCache<V, E> {
+
+	/** The number of edges an entry is considered to weigh in addition to its paths. */
+	private static final int ENTRY_WEIGHT = 4;
+
+	/**
+	 * A path, stored as an array of edges, shared by the entries of the paths it contains (itself and its suffixes).
+	 */
+	static final class Route {
+
+		/** The edges. */
+		final Object[] edges;
+
+		/** The keys of the entries that use this route, and the offset at which each of them begins. */
+		final Map<Object, Integer> keys = new HashMap<>();
+
+		/**
+		 * Instantiates a new route.
+		 *
+		 * @param edges
+		 *            the edges
+		 */
+		Route(final Object[] edges) {
+			this.edges = edges;
+		}
+	}
+
+	/**
+	 * The value of an entry: one or several paths (for k shortest paths), each given by a route and an offset.
+	 */
+	static final class Paths {
+
+		/** The routes. */
+		final Route[] routes;
+
+		/** The offsets. */
+		final int[] offsets;
+
+		/**
+		 * Instantiates a new paths.
+		 *
+		 * @param routes
+		 *            the routes
+		 * @param offsets
+		 *            the offsets
+		 */
+		Paths(final Route[] routes, final int[] offsets) {
+			this.routes = routes;
+			this.offsets = offsets;
+		}
+
+		/**
+		 * Weight.
+		 *
+		 * @return the int
+		 */
+		int weight() {
+			int w = ENTRY_WEIGHT;
+			for (int i = 0; i < routes.length; i++) { w += routes[i].edges.length - offsets[i]; }
+			return w;
+		}
+
+		/**
+		 * Returns the i-th path as a list of edges.
+		 *
+		 * @param i
+		 *            the i
+		 * @return the list
+		 */
+		@SuppressWarnings ("unchecked")
+		<E> List<E> path(final int i) {
+			final Object[] edges = routes[i].edges;
+			final List<E> result = new ArrayList<>(edges.length - offsets[i]);
+			for (int j = offsets[i]; j < edges.length; j++) { result.add((E) edges[j]); }
+			return result;
+		}
+	}
+
+	/** The cache. */
+	private final Cache<Pair<V, V>, Paths> cache;
+
+	/**
+	 * The routes that traverse each edge. An edge is only referenced as long as some paths stored in the cache traverse
+	 * it. Guarded by this
+	 */
+	private final Map<Object, Set<Route>> routesByEdge = new HashMap<>();
+
+	/** The number of paths invalidated by edge changes. */
+	private final LongAdder invalidations = new LongAdder();
+
+	/**
+	 * Instantiates a new shortest path cache.
+	 */
+	public ShortestPathCache() {
+		cache = CacheBuilder.newBuilder().maximumWeight(GamaPreferences.External.SHORTEST_PATH_CACHE_SIZE.getValue())
+				.weigher((final Pair<V, V> k, final Paths v) -> v.weight()).recordStats()
+				.removalListener(this::removed).build();
+	}
+
+	/**
+	 * Called when an entry is removed (evicted, replaced or invalidated): detaches it from its routes.
+	 *
+	 * @param notification
+	 *            the notification
+	 */
+	private synchronized void removed(final RemovalNotification<Pair<V, V>, Paths> notification) {
+		final Paths paths = notification.getValue();
+		if (paths == null) return;
+		for (final Route route : paths.routes) {
+			route.keys.remove(notification.getKey());
+			if (route.keys.isEmpty()) {
+				for (final Object edge : route.edges) {
+					final Set<Route> routes = routesByEdge.get(edge);
+					if (routes != null) {
+						routes.remove(route);
+						if (routes.isEmpty()) { routesByEdge.remove(edge); }
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a route from a list of edges and registers it. Must be called under the lock.
+	 *
+	 * @param path
+	 *            the path
+	 * @return the route
+	 */
+	private Route routeOf(final List<E> path) {
+		final Route route = new Route(path.toArray());
+		for (final Object edge : route.edges) { routesByEdge.computeIfAbsent(edge, k -> new HashSet<>()).add(route); }
+		return route;
+	}
+
+	/**
+	 * Returns the first path stored between the source and the target, or null.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @return the list
+	 */
+	public List<E> get(final V source, final V target) {
+		final Paths paths = cache.getIfPresent(new Pair<>(source, target));
+		return paths == null ? null : paths.path(0);
+	}
+
+	/**
+	 * Returns all the paths stored between the source and the target, or null.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @return the list
+	 */
+	public List<List<E>> getAll(final V source, final V target) {
+		final Paths paths = cache.getIfPresent(new Pair<>(source, target));
+		if (paths == null) return null;
+		final List<List<E>> result = new ArrayList<>(paths.routes.length);
+		for (int i = 0; i < paths.routes.length; i++) { result.add(paths.path(i)); }
+		return result;
+	}
+
+	/**
+	 * Whether some paths are stored between the source and the target. Does not count as a hit or a miss.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @return true, if successful
+	 */
+	public boolean contains(final V source, final V target) {
+		return cache.asMap().containsKey(new Pair<>(source, target));
+	}
+
+	/**
+	 * Stores one or several paths between the source and the target. Empty paths are not stored.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @param list
+	 *            the list
+	 */
+	public void put(final V source, final V target, final List<? extends List<E>> list) {
+		final List<Route> routes = new ArrayList<>(list.size());
+		final Pair<V, V> key = new Pair<>(source, target);
+		synchronized (this) {
+			for (final List<E> path : list) {
+				if (path == null || path.isEmpty()) { continue; }
+				final Route route = routeOf(path);
+				route.keys.put(key, 0);
+				routes.add(route);
+			}
+		}
+		if (routes.isEmpty()) return;
+		cache.put(key, new Paths(routes.toArray(new Route[0]), new int[routes.size()]));
+	}
+
+	/**
+	 * Stores a shortest path and all its suffixes, which are also shortest paths. The suffixes share the same route.
+	 *
+	 * @param target
+	 *            the target
+	 * @param path
+	 *            the path
+	 * @param origins
+	 *            the vertices from which each edge of the path is traversed (the first one being the source)
+	 */
+	public void putWithSuffixes(final V target, final List<E> path, final List<V> origins) {
+		if (path == null || path.isEmpty()) return;
+		final List<Pair<V, V>> keys = new ArrayList<>();
+		final List<Integer> offsets = new ArrayList<>();
+		final Route route;
+		synchronized (this) {
+			route = routeOf(path);
+			for (int i = 0; i < path.size(); i++) {
+				final V origin = origins.get(i);
+				// The paths already known are kept (except for the complete one)
+				if (i > 0 && contains(origin, target)) { continue; }
+				final Pair<V, V> key = new Pair<>(origin, target);
+				route.keys.put(key, i);
+				keys.add(key);
+				offsets.add(i);
+			}
+		}
+		for (int i = 0; i < keys.size(); i++) {
+			cache.put(keys.get(i), new Paths(new Route[] { route }, new int[] { offsets.get(i) }));
+		}
+	}
+
+	/**
+	 * Invalidates the paths that traverse the edge. Enough when the edge is removed or when its weight increases.
+	 *
+	 * @param edge
+	 *            the edge
+	 */
+	@SuppressWarnings ("unchecked")
+	public void invalidate(final Object edge) {
+		if (edge == null) return;
+		final List<Pair<V, V>> keys = new ArrayList<>();
+		synchronized (this) {
+			final Set<Route> routes = routesByEdge.get(edge);
+			if (routes == null) return;
+			for (final Route route : routes) {
+				// Only the suffixes that begin before the last occurrence of the edge contain it
+				int last = route.edges.length - 1;
+				while (!edge.equals(route.edges[last])) { last--; }
+				for (final Map.Entry<Object, Integer> entry : route.keys.entrySet()) {
+					if (entry.getValue() <= last) { keys.add((Pair<V, V>) entry.getKey()); }
+				}
+			}
+		}
+		invalidations.add(keys.size());
+		cache.invalidateAll(keys);
+	}
+
+	/**
+	 * Clears the cache.
+	 */
+	public void clear() {
+		cache.invalidateAll();
+		synchronized (this) {
+			routesByEdge.clear();
+		}
+	}
+
+	/**
+	 * The number of entries.
+	 *
+	 * @return the long
+	 */
+	public long size() {
+		return cache.size();
+	}
+
+	/**
+	 * The statistics of the cache: hits, misses, evictions, invalidations, size and number of edges referenced.
+	 *
+	 * @return the map
+	 */
+	public Map<String, Long> getStatistics() {
+		final CacheStats stats = cache.stats();
+		final Map<String, Long> result = new LinkedHashMap<>();
+		result.put("hits", stats.hitCount());
+		result.put("misses", stats.missCount());
+		result.put("evictions", stats.evictionCount());
+		result.put("invalidations", invalidations.sum());
+		result.put("size", cache.size());
+		synchronized (this) {
+			result.put("edges", (long) routesByEdge.size());
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************************************
+ *
+ * ShortestPathTrees.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.util.graph;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.jgrapht.GraphPath;
+import org.jgrapht.alg.interfaces.ShortestPathAlgorithm.SingleSourcePaths;
+import org.jgrapht.alg.shortestpath.DijkstraShortestPath;
+
+import msi.gama.util.graph.GamaGraph.shortestPathAlgorithm;
+
+/**
+ * The shortest path trees computed while a batch of routes is requested on a graph (see
+ * {@link GamaGraph#withShortestPathTrees(java.util.function.Supplier)}). The first route asked from an origin computes
+ * the shortest paths from this origin to all the vertices of the graph; the next routes from the same origin are then
+ * read from this tree. The trees are only used with the algorithms that compute the same routes as them (see
+ * {@link #supports(shortestPathAlgorithm)}): the customizable contraction hierarchy of the graph, and Dijkstra.
+ *
+ * An instance is not thread safe: it is confined to the thread that runs the batch.
+ *
+ * @author agent
+ * @since 1.8.2
+ *
+ * @param <V>
+ *            the value type
+ * @param <E>
+ *            the element type
+ */
+class ShortestPathTrees<V, E> {
+
+	/** The graph. */
+	final GamaGraph<V, E> graph;
+
+	/** The trees, indexed by their origin. */
+	final Map<V, Function<V, List<E>>> trees = new HashMap<>();
+
+	/**
+	 * Instantiates a new shortest path trees.
+	 *
+	 * @param graph
+	 *            the graph
+	 */
+	ShortestPathTrees(final GamaGraph<V, E> graph) {
+		this.graph = graph;
+	}
+
+	/**
+	 * Whether the trees can replace the searches of an algorithm, i.e. return exactly the same routes.
+	 *
+	 * @param algorithm
+	 *            the algorithm
+	 * @return true, if successful
+	 */
+	static boolean supports(final shortestPathAlgorithm algorithm) {
+		return algorithm == shortestPathAlgorithm.Dijkstra || algorithm == shortestPathAlgorithm.CustomizableCH;
+	}
+
+	/**
+	 * The shortest route between the source and the target.
+	 *
+	 * @param source
+	 *            the source
+	 * @param target
+	 *            the target
+	 * @return the list of edges, or null if the target cannot be reached
+	 */
+	List<E> route(final V source, final V target) {
+		return trees.computeIfAbsent(source, this::build).apply(target);
+	}
+
+	/**
+	 * Builds the tree of the shortest paths from an origin.
+	 *
+	 * @param source
+	 *            the source
+	 * @return a function returning the route to a target
+	 */
+	private Function<V, List<E>> build(final V source) {
+		if (graph.pathFindingAlgo == shortestPathAlgorithm.CustomizableCH) {
+			final CustomizableContractionHierarchy<V, E>.Tree tree = graph.getCustomizableCH().tree(source);
+			return tree == null ? t -> null : tree::pathTo;
+		}
+		final SingleSourcePaths<V, E> paths = new DijkstraShortestPath<>(graph).getPaths(source);
+		return t -> {
+			final GraphPath<V, E> path = paths.getPath(t);
+			return path == null ? null : path.getEdgeList();
+		};
+	}
+
+}
@@ -241,6 +241,42 @@ public abstract class AbstractGamlAdditions implements IGamlAdditions {
 	public void _operator(final String[] keywords, final Executable method, final int[] expectedContentTypes,
 			final Object returnClassOrType, final boolean c, final int t, final int content, final int index,
 			final int contentContentType, final GamaGetter helper, final boolean isIterator) {
+		_operator(keywords, method, expectedContentTypes, returnClassOrType, c, t, content, index, contentContentType,
+				helper, isIterator, null);
+	}
+
+	/**
+	 * Operator with a helper that computes its value without boxing it.
+	 *
+	 * @param keywords
+	 *            the keywords
+	 * @param method
+	 *            the method
+	 * @param expectedContentTypes
+	 *            the expected content types
+	 * @param returnClassOrType
+	 *            the return class or type
+	 * @param c
+	 *            the c
+	 * @param t
+	 *            the t
+	 * @param content
+	 *            the content
+	 * @param index
+	 *            the index
+	 * @param contentContentType
+	 *            the content content type
+	 * @param helper
+	 *            the helper
+	 * @param isIterator
+	 *            the is iterator
+	 * @param primitiveHelper
+	 *            the primitive helper, or null
+	 */
+	public void _operator(final String[] keywords, final Executable method, final int[] expectedContentTypes,
+			final Object returnClassOrType, final boolean c, final int t, final int content, final int index,
+			final int contentContentType, final GamaGetter helper, final boolean isIterator,
+			final GamaPrimitiveGetter primitiveHelper) {
 		if (isIterator) { Collections.addAll(GAML.ITERATORS, keywords); }
 		final Signature signature = new Signature(method);
 		int nbParameters = signature.size();
@@ -264,6 +300,7 @@ public abstract class AbstractGamlAdditions implements IGamlAdditions {
 					proto = new OperatorProto(kw, method, helper, c, false, rt, signature, t, content, index,
 							contentContentType, expectedContentTypes, plugin);
 				}
+				proto.setPrimitiveHelper(primitiveHelper);
 				map.put(signature, proto);
 			}
 		}
@@ -0,0 +1,140 @@
+/*******************************************************************************************************
+ *
+ * GamaPrimitiveGetter.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gaml.compilation;
+
+import msi.gama.runtime.IScope;
+
+/**
+ * The specialized versions of {@link GamaGetter} generated by the processor for the static operators that take one or
+ * two ints or floats and return an int, a float or a bool. The operands are always passed as doubles (the ints being
+ * converted back in the helper, which is exact) and the result is not boxed, which allows chained numeric expressions
+ * to be evaluated without allocating intermediate values.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public interface GamaPrimitiveGetter {
+
+	/**
+	 * A unary operator returning a float.
+	 */
+	@FunctionalInterface
+	interface DoubleUnary extends GamaPrimitiveGetter {
+
+		/**
+		 * Gets the value.
+		 *
+		 * @param scope
+		 *            the scope
+		 * @param a
+		 *            the operand
+		 * @return the value
+		 */
+		double get(IScope scope, double a);
+	}
+
+	/**
+	 * A binary operator returning a float.
+	 */
+	@FunctionalInterface
+	interface DoubleBinary extends GamaPrimitiveGetter {
+
+		/**
+		 * Gets the value.
+		 *
+		 * @param scope
+		 *            the scope
+		 * @param a
+		 *            the first operand
+		 * @param b
+		 *            the second operand
+		 * @return the value
+		 */
+		double get(IScope scope, double a, double b);
+	}
+
+	/**
+	 * A unary operator returning an int.
+	 */
+	@FunctionalInterface
+	interface IntUnary extends GamaPrimitiveGetter {
+
+		/**
+		 * Gets the value.
+		 *
+		 * @param scope
+		 *            the scope
+		 * @param a
+		 *            the operand
+		 * @return the value
+		 */
+		int get(IScope scope, double a);
+	}
+
+	/**
+	 * A binary operator returning an int.
+	 */
+	@FunctionalInterface
+	interface IntBinary extends GamaPrimitiveGetter {
+
+		/**
+		 * Gets the value.
+		 *
+		 * @param scope
+		 *            the scope
+		 * @param a
+		 *            the first operand
+		 * @param b
+		 *            the second operand
+		 * @return the value
+		 */
+		int get(IScope scope, double a, double b);
+	}
+
+	/**
+	 * A unary operator returning a bool.
+	 */
+	@FunctionalInterface
+	interface BoolUnary extends GamaPrimitiveGetter {
+
+		/**
+		 * Gets the value.
+		 *
+		 * @param scope
+		 *            the scope
+		 * @param a
+		 *            the operand
+		 * @return the value
+		 */
+		boolean get(IScope scope, double a);
+	}
+
+	/**
+	 * A binary operator returning a bool.
+	 */
+	@FunctionalInterface
+	interface BoolBinary extends GamaPrimitiveGetter {
+
+		/**
+		 * Gets the value.
+		 *
+		 * @param scope
+		 *            the scope
+		 * @param a
+		 *            the first operand
+		 * @param b
+		 *            the second operand
+		 * @return the value
+		 */
+		boolean get(IScope scope, double a, double b);
+	}
+
+}
@@ -0,0 +1,472 @@
+/*******************************************************************************************************
+ *
+ * ClassFileBuilder.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gaml.compilation.jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A minimal writer of class files, limited to what {@link ExpressionCompiler} needs: instance fields, and methods made
+ * of straight-line code (no branches, no exception handlers). The class files are written in the version 49 of the
+ * format, which does not require stack map frames.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+final class ClassFileBuilder {
+
+	/** The access flags. */
+	static final int ACC_PUBLIC = 0x0001, ACC_PRIVATE = 0x0002, ACC_FINAL = 0x0010, ACC_SUPER = 0x0020;
+
+	/** The opcodes used by the compiler. */
+	static final int ACONST_NULL = 0x01, ALOAD_0 = 0x2a, ALOAD_1 = 0x2b, AALOAD = 0x32, AASTORE = 0x53, DUP = 0x59,
+			ARETURN = 0xb0, RETURN = 0xb1;
+
+	/** The maximum length of the code of a method. */
+	static final int MAX_CODE_LENGTH = 65535;
+
+	/** The maximum number of entries in the constant pool. */
+	static final int MAX_CONSTANTS = 65535;
+
+	/** The constant pool. */
+	private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+
+	/** The indexes of the entries of the constant pool. */
+	private final Map<String, Integer> entries = new HashMap<>();
+
+	/** The next index in the constant pool. */
+	private int nextEntry = 1;
+
+	/** The fields and the methods, already encoded. */
+	private final List<byte[]> fields = new ArrayList<>(), methods = new ArrayList<>();
+
+	/** The class, its super class and its interface. */
+	private final int thisClass, superClass, anInterface;
+
+	/**
+	 * Instantiates a new builder.
+	 *
+	 * @param name
+	 *            the internal name of the class
+	 * @param superName
+	 *            the internal name of its super class
+	 * @param interfaceName
+	 *            the internal name of the interface it implements
+	 */
+	ClassFileBuilder(final String name, final String superName, final String interfaceName) {
+		thisClass = classRef(name);
+		superClass = classRef(superName);
+		anInterface = classRef(interfaceName);
+	}
+
+	/**
+	 * Adds an entry to the constant pool, unless an equal one is already there.
+	 *
+	 * @param key
+	 *            the key identifying the entry
+	 * @param tag
+	 *            the tag of the entry
+	 * @param content
+	 *            the content of the entry
+	 * @return its index
+	 */
+	private int entry(final String key, final int tag, final int... content) {
+		Integer index = entries.get(key);
+		if (index == null) {
+			index = nextEntry++;
+			pool.write(tag);
+			for (final int u2 : content) {
+				pool.write(u2 >>> 8);
+				pool.write(u2);
+			}
+			entries.put(key, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Adds a string encoded in (modified) UTF-8 to the constant pool.
+	 *
+	 * @param s
+	 *            the string
+	 * @return its index
+	 */
+	int utf8(final String s) {
+		final String key = "U" + s;
+		Integer index = entries.get(key);
+		if (index == null) {
+			index = nextEntry++;
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (DataOutputStream out = new DataOutputStream(bytes)) {
+				out.writeUTF(s);
+			} catch (final IOException e) {
+				// Only thrown for strings longer than 65535 bytes, which cannot be stored in a class file anyway
+				throw new IllegalArgumentException(e);
+			}
+			pool.write(1);
+			pool.writeBytes(bytes.toByteArray());
+			entries.put(key, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Adds a reference to a class.
+	 *
+	 * @param name
+	 *            the internal name of the class
+	 * @return its index
+	 */
+	int classRef(final String name) {
+		return entry("C" + name, 7, utf8(name));
+	}
+
+	/**
+	 * Adds a constant string.
+	 *
+	 * @param s
+	 *            the string
+	 * @return its index
+	 */
+	int string(final String s) {
+		return entry("S" + s, 8, utf8(s));
+	}
+
+	/**
+	 * Adds a name and a type.
+	 *
+	 * @param name
+	 *            the name
+	 * @param descriptor
+	 *            the descriptor
+	 * @return its index
+	 */
+	private int nameAndType(final String name, final String descriptor) {
+		return entry("N" + name + ' ' + descriptor, 12, utf8(name), utf8(descriptor));
+	}
+
+	/**
+	 * Adds a reference to a field.
+	 *
+	 * @param owner
+	 *            the internal name of the class that declares it
+	 * @param name
+	 *            the name
+	 * @param descriptor
+	 *            the descriptor
+	 * @return its index
+	 */
+	int fieldRef(final String owner, final String name, final String descriptor) {
+		return entry("F" + owner + '.' + name + ' ' + descriptor, 9, classRef(owner), nameAndType(name, descriptor));
+	}
+
+	/**
+	 * Adds a reference to a method of a class.
+	 *
+	 * @param owner
+	 *            the internal name of the class
+	 * @param name
+	 *            the name
+	 * @param descriptor
+	 *            the descriptor
+	 * @return its index
+	 */
+	int methodRef(final String owner, final String name, final String descriptor) {
+		return entry("M" + owner + '.' + name + descriptor, 10, classRef(owner), nameAndType(name, descriptor));
+	}
+
+	/**
+	 * Adds a reference to a method of an interface.
+	 *
+	 * @param owner
+	 *            the internal name of the interface
+	 * @param name
+	 *            the name
+	 * @param descriptor
+	 *            the descriptor
+	 * @return its index
+	 */
+	int interfaceMethodRef(final String owner, final String name, final String descriptor) {
+		return entry("I" + owner + '.' + name + descriptor, 11, classRef(owner), nameAndType(name, descriptor));
+	}
+
+	/**
+	 * Whether the constant pool is too large to be written.
+	 *
+	 * @return true if it is
+	 */
+	boolean isFull() { return nextEntry >= MAX_CONSTANTS; }
+
+	/**
+	 * Adds a field.
+	 *
+	 * @param access
+	 *            the access flags
+	 * @param name
+	 *            the name
+	 * @param descriptor
+	 *            the descriptor
+	 */
+	void field(final int access, final String name, final String descriptor) {
+		final int n = utf8(name), d = utf8(descriptor);
+		// access flags, name, descriptor, no attributes
+		fields.add(new byte[] { (byte) (access >>> 8), (byte) access, (byte) (n >>> 8), (byte) n, (byte) (d >>> 8),
+				(byte) d, 0, 0 });
+	}
+
+	/**
+	 * Adds a method.
+	 *
+	 * @param access
+	 *            the access flags
+	 * @param name
+	 *            the name
+	 * @param descriptor
+	 *            the descriptor
+	 * @param maxLocals
+	 *            the number of local variables, including this and the parameters
+	 * @param code
+	 *            the code
+	 */
+	void method(final int access, final String name, final String descriptor, final int maxLocals, final Code code) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeShort(access);
+			out.writeShort(utf8(name));
+			out.writeShort(utf8(descriptor));
+			out.writeShort(1);
+			out.writeShort(utf8("Code"));
+			out.writeInt(12 + code.length());
+			out.writeShort(code.maxStack);
+			out.writeShort(maxLocals);
+			out.writeInt(code.length());
+			code.code.writeTo(out);
+			out.writeShort(0); // No exception handlers
+			out.writeShort(0); // No attributes
+		} catch (final IOException e) {
+			// Cannot happen when writing to an array
+		}
+		methods.add(bytes.toByteArray());
+	}
+
+	/**
+	 * Writes the class file.
+	 *
+	 * @return its bytes
+	 */
+	byte[] toByteArray() {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(49);
+			out.writeShort(nextEntry);
+			pool.writeTo(out);
+			out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(1);
+			out.writeShort(anInterface);
+			out.writeShort(fields.size());
+			for (final byte[] field : fields) { out.write(field); }
+			out.writeShort(methods.size());
+			for (final byte[] method : methods) { out.write(method); }
+			out.writeShort(0); // No attributes
+		} catch (final IOException e) {
+			// Cannot happen when writing to an array
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * The code of a method, which keeps track of the depth of the operand stack.
+	 */
+	final class Code {
+
+		/** The bytes of the code. */
+		final ByteArrayOutputStream code = new ByteArrayOutputStream();
+
+		/** The current and maximum depths of the operand stack. */
+		int stack, maxStack;
+
+		/**
+		 * The length of the code.
+		 *
+		 * @return the length
+		 */
+		int length() {
+			return code.size();
+		}
+
+		/**
+		 * Records the effect of an instruction on the operand stack.
+		 *
+		 * @param delta
+		 *            the number of operands pushed (or popped, if negative)
+		 */
+		private void stack(final int delta) {
+			stack += delta;
+			if (stack > maxStack) { maxStack = stack; }
+		}
+
+		/**
+		 * Writes an instruction without operands.
+		 *
+		 * @param opcode
+		 *            the opcode
+		 * @param delta
+		 *            its effect on the operand stack
+		 */
+		void op(final int opcode, final int delta) {
+			code.write(opcode);
+			stack(delta);
+		}
+
+		/**
+		 * Writes an instruction with an index as operand.
+		 *
+		 * @param opcode
+		 *            the opcode
+		 * @param index
+		 *            the index
+		 * @param delta
+		 *            its effect on the operand stack
+		 */
+		private void op(final int opcode, final int index, final int delta) {
+			code.write(opcode);
+			code.write(index >>> 8);
+			code.write(index);
+			stack(delta);
+		}
+
+		/**
+		 * Pushes an int.
+		 *
+		 * @param value
+		 *            the value
+		 */
+		void push(final int value) {
+			if (value >= -1 && value <= 5) {
+				op(0x03 + value, 1); // iconst_<n>
+			} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+				code.write(0x10); // bipush
+				code.write(value);
+				stack(1);
+			} else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+				op(0x11, value, 1); // sipush
+			} else {
+				op(0x13, entry("I" + value, 3, value >>> 16, value & 0xFFFF), 1); // ldc_w
+			}
+		}
+
+		/**
+		 * Pushes a constant string.
+		 *
+		 * @param s
+		 *            the string
+		 */
+		void ldc(final String s) {
+			op(0x13, string(s), 1); // ldc_w
+		}
+
+		/**
+		 * Reads a field of the object on top of the stack.
+		 *
+		 * @param owner
+		 *            the owner
+		 * @param name
+		 *            the name
+		 * @param descriptor
+		 *            the descriptor
+		 */
+		void getField(final String owner, final String name, final String descriptor) {
+			op(0xb4, fieldRef(owner, name, descriptor), 0);
+		}
+
+		/**
+		 * Writes a field of an object (value on top of the stack, object below).
+		 *
+		 * @param owner
+		 *            the owner
+		 * @param name
+		 *            the name
+		 * @param descriptor
+		 *            the descriptor
+		 */
+		void putField(final String owner, final String name, final String descriptor) {
+			op(0xb5, fieldRef(owner, name, descriptor), -2);
+		}
+
+		/**
+		 * Invokes a constructor or a private method.
+		 *
+		 * @param owner
+		 *            the owner
+		 * @param name
+		 *            the name
+		 * @param descriptor
+		 *            the descriptor
+		 * @param args
+		 *            the number of arguments
+		 * @param returns
+		 *            whether it returns a value
+		 */
+		void invokeSpecial(final String owner, final String name, final String descriptor, final int args,
+				final boolean returns) {
+			op(0xb7, methodRef(owner, name, descriptor), (returns ? 1 : 0) - args - 1);
+		}
+
+		/**
+		 * Invokes a method of an interface.
+		 *
+		 * @param owner
+		 *            the owner
+		 * @param name
+		 *            the name
+		 * @param descriptor
+		 *            the descriptor
+		 * @param args
+		 *            the number of arguments (none of them a long or a double)
+		 */
+		void invokeInterface(final String owner, final String name, final String descriptor, final int args) {
+			op(0xb9, interfaceMethodRef(owner, name, descriptor), -args);
+			code.write(args + 1);
+			code.write(0);
+		}
+
+		/**
+		 * Creates an array of objects, whose length is on top of the stack.
+		 *
+		 * @param type
+		 *            the internal name of the type of its elements
+		 */
+		void newArray(final String type) {
+			op(0xbd, classRef(type), 0);
+		}
+
+		/**
+		 * Casts the object on top of the stack.
+		 *
+		 * @param type
+		 *            the internal name of the type
+		 */
+		void checkCast(final String type) {
+			op(0xc0, classRef(type), 0);
+		}
+
+	}
+
+}
@@ -0,0 +1,348 @@
+/*******************************************************************************************************
+ *
+ * ExpressionCompiler.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gaml.compilation.jit;
+
+import static msi.gaml.compilation.jit.ClassFileBuilder.AALOAD;
+import static msi.gaml.compilation.jit.ClassFileBuilder.AASTORE;
+import static msi.gaml.compilation.jit.ClassFileBuilder.ACC_FINAL;
+import static msi.gaml.compilation.jit.ClassFileBuilder.ACC_PRIVATE;
+import static msi.gaml.compilation.jit.ClassFileBuilder.ACC_PUBLIC;
+import static msi.gaml.compilation.jit.ClassFileBuilder.ACONST_NULL;
+import static msi.gaml.compilation.jit.ClassFileBuilder.ALOAD_0;
+import static msi.gaml.compilation.jit.ClassFileBuilder.ALOAD_1;
+import static msi.gaml.compilation.jit.ClassFileBuilder.ARETURN;
+import static msi.gaml.compilation.jit.ClassFileBuilder.DUP;
+import static msi.gaml.compilation.jit.ClassFileBuilder.MAX_CODE_LENGTH;
+import static msi.gaml.compilation.jit.ClassFileBuilder.RETURN;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gaml.descriptions.OperatorProto;
+import msi.gaml.expressions.ConstantExpression;
+import msi.gaml.expressions.IExpression;
+import msi.gaml.expressions.operators.AbstractNAryOperator;
+import msi.gaml.expressions.operators.BinaryOperator;
+import msi.gaml.expressions.operators.BinaryOperator.BinaryVarOperator;
+import msi.gaml.expressions.operators.IOperator;
+import msi.gaml.expressions.operators.NAryOperator;
+import msi.gaml.expressions.operators.TypeFieldExpression;
+import msi.gaml.expressions.operators.UnaryOperator;
+import msi.gaml.expressions.variables.SelfExpression;
+import msi.gaml.expressions.variables.TempVariableExpression;
+import ummisco.gama.dev.utils.DEBUG;
+
+/**
+ * Compiles the operators evaluated often to JVM bytecode. Each compiled operator becomes a hidden class whose method
+ * {@link ICompiledExpression#value(IScope)} evaluates the whole tree of operators below it in one straight-line
+ * method: the helpers of the operators are called directly, with arguments computed in place, the lazy arguments are
+ * passed as expressions (decided once, at compilation, instead of at each evaluation), temporary variables and
+ * <code>self</code> are read directly from the scope, and constants are read from final fields. The other expressions
+ * (attributes, lazy arguments, statements-based operators...) are called through {@link IExpression#value(IScope)}, on
+ * a receiver that is constant for each call site.
+ *
+ * As the values remain boxed and are passed to the same helpers as the interpreter, the compiled code does not depend
+ * on the types of the values: it never needs to be invalidated. Whenever an expression cannot be compiled (too large,
+ * or rejected by the JVM), its operator keeps being interpreted.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public final class ExpressionCompiler {
+
+	static {
+		DEBUG.OFF();
+	}
+
+	/** The internal name of the compiled classes (made unique by the JVM, as they are hidden). */
+	static final String NAME = "msi/gaml/compilation/jit/CompiledExpression";
+
+	/** The internal names of the classes used by the compiled code. */
+	static final String OBJECT = "java/lang/Object", SCOPE = "msi/gama/runtime/IScope",
+			GETTER = "msi/gaml/compilation/GamaGetter", EXPRESSION = "msi/gaml/expressions/IExpression",
+			COMPILED = "msi/gaml/compilation/jit/ICompiledExpression";
+
+	/** The descriptors of the methods called by the compiled code. */
+	static final String VALUE = "(Lmsi/gama/runtime/IScope;)Ljava/lang/Object;",
+			GET = "(Lmsi/gama/runtime/IScope;[Ljava/lang/Object;)Ljava/lang/Object;",
+			GET_VAR_VALUE = "(Ljava/lang/String;)Ljava/lang/Object;",
+			GET_AGENT = "()Lmsi/gama/metamodel/agent/IAgent;";
+
+	/** The operators whose evaluation is the one of {@link UnaryOperator} or {@link AbstractNAryOperator}. */
+	private static final Set<Class<?>> OPERATORS = Set.of(UnaryOperator.class, TypeFieldExpression.class,
+			BinaryOperator.class, BinaryVarOperator.class, NAryOperator.class);
+
+	/** The lookup in which the compiled classes are defined. */
+	private static final Lookup LOOKUP = MethodHandles.lookup();
+
+	/** The number of operators compiled since the platform has started. */
+	private static final AtomicInteger COMPILED = new AtomicInteger();
+
+	/**
+	 * Instantiates a new expression compiler.
+	 */
+	private ExpressionCompiler() {}
+
+	/**
+	 * Returns the number of evaluations after which an operator is compiled, or 0 if the compilation is disabled.
+	 *
+	 * @return the threshold
+	 */
+	public static int threshold() {
+		return GamaPreferences.External.EXPRESSION_COMPILATION.getValue()
+				? GamaPreferences.External.EXPRESSION_COMPILATION_THRESHOLD.getValue() : 0;
+	}
+
+	/**
+	 * Returns the number of operators compiled since the platform has started (available in GAML as
+	 * <code>gama.compiled_operators</code>).
+	 *
+	 * @return the number of compiled operators
+	 */
+	public static int compiledCount() {
+		return COMPILED.get();
+	}
+
+	/**
+	 * Whether the evaluation of an expression can be compiled in the one of its parent (or as a root).
+	 *
+	 * @param expression
+	 *            the expression
+	 * @return true if it can
+	 */
+	public static boolean isCompilable(final IExpression expression) {
+		if (expression == null || !OPERATORS.contains(expression.getClass())) return false;
+		final OperatorProto proto = ((IOperator) expression).getPrototype();
+		return proto != null && proto.getHelper() != null && proto.getLazyness().length >= arity(expression);
+	}
+
+	/**
+	 * Whether an argument of an operator is compiled with it (so that it does not need to be compiled on its own).
+	 *
+	 * @param parent
+	 *            the operator
+	 * @param index
+	 *            the index of the argument
+	 * @return true if it is
+	 */
+	public static boolean isInlined(final IOperator parent, final int index) {
+		return isCompilable(parent) && !parent.getPrototype().getLazyness()[index] && isCompilable(parent.arg(index));
+	}
+
+	/**
+	 * The number of arguments of an operator.
+	 *
+	 * @param operator
+	 *            the operator
+	 * @return the number of arguments
+	 */
+	private static int arity(final IExpression operator) {
+		return operator instanceof AbstractNAryOperator ? ((AbstractNAryOperator) operator).numArg() : 1;
+	}
+
+	/**
+	 * Compiles an operator.
+	 *
+	 * @param operator
+	 *            the operator
+	 * @return its compiled version, or null if it cannot be compiled
+	 */
+	public static ICompiledExpression compile(final IExpression operator) {
+		if (!isCompilable(operator)) return null;
+		try {
+			final ICompiledExpression result = new Generator().generate(operator);
+			if (result != null) { COMPILED.incrementAndGet(); }
+			return result;
+		} catch (final Throwable e) {
+			// Should not happen: the operator keeps being interpreted, but the generator needs to be fixed
+			DEBUG.ERR("Cannot compile " + operator.serialize(false), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Evaluates the compiled version of an operator, reporting the errors like the interpreter does.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param operator
+	 *            the operator
+	 * @param compiled
+	 *            its compiled version
+	 * @return the value
+	 */
+	public static Object value(final IScope scope, final IExpression operator, final ICompiledExpression compiled) {
+		try {
+			return compiled.value(scope);
+		} catch (final GamaRuntimeException e) {
+			throw e;
+		} catch (final Throwable e) {
+			final GamaRuntimeException ee = GamaRuntimeException.create(e, scope);
+			ee.addContext("when evaluating " + operator.serialize(false));
+			throw ee;
+		}
+	}
+
+	/**
+	 * Generates the class of one compiled expression.
+	 */
+	private static class Generator {
+
+		/** The class file. */
+		final ClassFileBuilder builder = new ClassFileBuilder(NAME, OBJECT, COMPILED);
+
+		/** The code of the method value(). */
+		final ClassFileBuilder.Code code = builder.new Code();
+
+		/** The values stored in the fields of the class. */
+		final List<Object> constants = new ArrayList<>();
+
+		/** The internal names of the types of these fields. */
+		final List<String> types = new ArrayList<>();
+
+		/** The indexes of the fields, by value. */
+		final Map<Object, Integer> indexes = new IdentityHashMap<>();
+
+		/**
+		 * Generates the class and returns its instance.
+		 *
+		 * @param root
+		 *            the root operator
+		 * @return the compiled expression, or null if it is too large
+		 * @throws Throwable
+		 *             if the class is rejected by the JVM
+		 */
+		ICompiledExpression generate(final IExpression root) throws Throwable {
+			operator(root);
+			code.op(ARETURN, -1);
+			if (code.length() > MAX_CODE_LENGTH || builder.isFull()) return null;
+			builder.method(ACC_PUBLIC, "value", VALUE, 2, code);
+			builder.method(ACC_PUBLIC, "<init>", "([Ljava/lang/Object;)V", 2, constructor());
+			final Lookup lookup = LOOKUP.defineHiddenClass(builder.toByteArray(), true);
+			return (ICompiledExpression) lookup
+					.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class, Object[].class))
+					.invoke(constants.toArray());
+		}
+
+		/**
+		 * Generates the constructor, which stores the constants in the fields.
+		 *
+		 * @return the code of the constructor
+		 */
+		ClassFileBuilder.Code constructor() {
+			final ClassFileBuilder.Code init = builder.new Code();
+			init.op(ALOAD_0, 1);
+			init.invokeSpecial(OBJECT, "<init>", "()V", 0, false);
+			for (int i = 0; i < constants.size(); i++) {
+				final String type = types.get(i);
+				builder.field(ACC_PRIVATE | ACC_FINAL, "k" + i, "L" + type + ";");
+				init.op(ALOAD_0, 1);
+				init.op(ALOAD_1, 1);
+				init.push(i);
+				init.op(AALOAD, -1);
+				init.checkCast(type);
+				init.putField(NAME, "k" + i, "L" + type + ";");
+			}
+			init.op(RETURN, 0);
+			return init;
+		}
+
+		/**
+		 * Pushes a constant, stored in a field.
+		 *
+		 * @param value
+		 *            the value
+		 * @param type
+		 *            the internal name of its type
+		 */
+		void constant(final Object value, final String type) {
+			if (value == null) {
+				code.op(ACONST_NULL, 1);
+				return;
+			}
+			Integer index = indexes.get(value);
+			if (index == null || !types.get(index).equals(type)) {
+				index = constants.size();
+				constants.add(value);
+				types.add(type);
+				indexes.put(value, index);
+			}
+			code.op(ALOAD_0, 1);
+			code.getField(NAME, "k" + index, "L" + type + ";");
+		}
+
+		/**
+		 * Pushes the value of an expression.
+		 *
+		 * @param expression
+		 *            the expression
+		 */
+		void expression(final IExpression expression) {
+			final Class<?> c = expression.getClass();
+			if (c == ConstantExpression.class) {
+				constant(expression.getConstValue(), OBJECT);
+			} else if (c == TempVariableExpression.class) {
+				code.op(ALOAD_1, 1);
+				code.ldc(((TempVariableExpression) expression).getName());
+				code.invokeInterface(SCOPE, "getVarValue", GET_VAR_VALUE, 1);
+			} else if (c == SelfExpression.class) {
+				code.op(ALOAD_1, 1);
+				code.invokeInterface(SCOPE, "getAgent", GET_AGENT, 0);
+			} else if (isCompilable(expression)) {
+				operator(expression);
+			} else {
+				constant(expression, EXPRESSION);
+				code.op(ALOAD_1, 1);
+				code.invokeInterface(EXPRESSION, "value", VALUE, 1);
+			}
+		}
+
+		/**
+		 * Pushes the value of an operator, computed by calling its helper.
+		 *
+		 * @param expression
+		 *            the operator
+		 */
+		void operator(final IExpression expression) {
+			final IOperator operator = (IOperator) expression;
+			final OperatorProto proto = operator.getPrototype();
+			final boolean[] lazy = proto.getLazyness();
+			final int arity = arity(expression);
+			constant(proto.getHelper(), GETTER);
+			code.op(ALOAD_1, 1);
+			code.push(arity);
+			code.newArray(OBJECT);
+			for (int i = 0; i < arity; i++) {
+				code.op(DUP, 1);
+				code.push(i);
+				if (lazy[i]) {
+					constant(operator.arg(i), EXPRESSION);
+				} else {
+					expression(operator.arg(i));
+				}
+				code.op(AASTORE, -3);
+			}
+			code.invokeInterface(GETTER, "get", GET, 2);
+		}
+
+	}
+
+}
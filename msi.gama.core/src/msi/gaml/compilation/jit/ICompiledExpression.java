@@ -0,0 +1,34 @@
+/*******************************************************************************************************
+ *
+ * ICompiledExpression.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gaml.compilation.jit;
+
+import msi.gama.runtime.IScope;
+
+/**
+ * The compiled version of an expression, produced by {@link ExpressionCompiler}. Returns the same value as the
+ * expression it has been compiled from.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+@FunctionalInterface
+public interface ICompiledExpression {
+
+	/**
+	 * Computes the value of the expression.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @return the value
+	 */
+	Object value(IScope scope);
+
+}
@@ -34,6 +34,7 @@ import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.ICollector;
 import msi.gaml.compilation.GAML;
 import msi.gaml.compilation.GamaGetter;
+import msi.gaml.compilation.GamaPrimitiveGetter;
 import msi.gaml.compilation.IValidator;
 import msi.gaml.compilation.annotations.depends_on;
 import msi.gaml.compilation.annotations.validator;
@@ -91,6 +92,12 @@ public class OperatorProto extends AbstractProto implements IVarDescriptionUser
 	/** The helper. */
 	private final GamaGetter helper;
 
+	/** The helper that computes the value without boxing, if any. */
+	private GamaPrimitiveGetter primitiveHelper;
+
+	/** Whether each parameter is an int (when there is a primitive helper). */
+	private boolean[] intParameters;
+
 	/** The signature. */
 	public final Signature signature;
 
@@ -415,6 +422,44 @@ public class OperatorProto extends AbstractProto implements IVarDescriptionUser
 	 */
 	public GamaGetter getHelper() { return helper; }
 
+	/**
+	 * Gets the helper that computes the value without boxing, if any.
+	 *
+	 * @return the primitive helper, or null
+	 */
+	public GamaPrimitiveGetter getPrimitiveHelper() { return primitiveHelper; }
+
+	/**
+	 * Sets the helper that computes the value without boxing.
+	 *
+	 * @param primitiveHelper
+	 *            the new primitive helper
+	 */
+	public void setPrimitiveHelper(final GamaPrimitiveGetter primitiveHelper) {
+		this.primitiveHelper = primitiveHelper;
+	}
+
+	/**
+	 * Whether each parameter of the method is an int, in which case the primitive helper expects its operand to be
+	 * computed as an int (and then widened to a double).
+	 *
+	 * @return the int parameters
+	 */
+	public boolean[] getIntParameters() {
+		if (intParameters == null) {
+			final boolean[] ints = new boolean[signature.size()];
+			if (support instanceof Method m) {
+				final Class[] classes = m.getParameterTypes();
+				final int begin = classes.length > 0 && classes[0] == IScope.class ? 1 : 0;
+				for (int i = begin; i < classes.length && i - begin < ints.length; i++) {
+					ints[i - begin] = classes[i] == Integer.class || classes[i] == int.class;
+				}
+			}
+			intParameters = ints;
+		}
+		return intParameters;
+	}
+
 	/**
 	 * Gets the validator.
 	 *
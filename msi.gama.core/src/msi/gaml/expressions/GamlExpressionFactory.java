@@ -35,6 +35,7 @@ import msi.gaml.descriptions.SpeciesDescription;
 import msi.gaml.descriptions.StringBasedExpressionDescription;
 import msi.gaml.expressions.data.ListExpression;
 import msi.gaml.expressions.data.MapExpression;
+import msi.gaml.expressions.operators.CycleInvariantExpression;
 import msi.gaml.expressions.operators.PrimitiveOperator;
 import msi.gaml.expressions.types.SkillConstantExpression;
 import msi.gaml.expressions.types.SpeciesConstantExpression;
@@ -323,8 +324,9 @@ public class GamlExpressionFactory implements IExpressionFactory {
 	 */
 	private IExpression createDirectly(final IDescription context, final EObject eObject, final OperatorProto proto,
 			final IExpression... args) {
-		// We finally make an instance of the operator and init it with the arguments
-		final IExpression copy = proto.create(context, eObject, args);
+		// We finally make an instance of the operator and init it with the arguments (unwrapped if the whole operator
+		// can be computed once per cycle)
+		final IExpression copy = proto.create(context, eObject, CycleInvariantExpression.unwrap(proto, args));
 		if (copy != null) {
 			// We verify that it is not deprecated
 			final String ged = proto.getDeprecated();
@@ -20,6 +20,7 @@ import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gaml.descriptions.IExpressionDescription;
 import msi.gaml.descriptions.IVarDescriptionUser;
 import msi.gaml.expressions.types.TypeExpression;
+import msi.gaml.operators.Cast;
 import msi.gaml.types.IType;
 
 /**
@@ -60,6 +61,48 @@ public interface IExpression extends IGamlDescription, ITyped, IDisposable, IVar
 	 */
 	Object value(final IScope scope) throws GamaRuntimeException;
 
+	/**
+	 * Returns the result of the evaluation of the expression as a float. Redefined by the operators that can compute
+	 * it without boxing it (see {@link msi.gaml.compilation.GamaPrimitiveGetter}).
+	 *
+	 * @param scope
+	 *            the current GAMA scope
+	 * @return the result of the evaluation of the expression, casted to float
+	 * @throws GamaRuntimeException
+	 *             if an error occurs
+	 */
+	default double doubleValue(final IScope scope) throws GamaRuntimeException {
+		return Cast.asFloat(scope, value(scope));
+	}
+
+	/**
+	 * Returns the result of the evaluation of the expression as an int. Redefined by the operators that can compute it
+	 * without boxing it (see {@link msi.gaml.compilation.GamaPrimitiveGetter}).
+	 *
+	 * @param scope
+	 *            the current GAMA scope
+	 * @return the result of the evaluation of the expression, casted to int
+	 * @throws GamaRuntimeException
+	 *             if an error occurs
+	 */
+	default int intValue(final IScope scope) throws GamaRuntimeException {
+		return Cast.asInt(scope, value(scope));
+	}
+
+	/**
+	 * Returns the result of the evaluation of the expression as a bool. Redefined by the operators that can compute it
+	 * without boxing it (see {@link msi.gaml.compilation.GamaPrimitiveGetter}).
+	 *
+	 * @param scope
+	 *            the current GAMA scope
+	 * @return the result of the evaluation of the expression, casted to bool
+	 * @throws GamaRuntimeException
+	 *             if an error occurs
+	 */
+	default boolean booleanValue(final IScope scope) throws GamaRuntimeException {
+		return Cast.asBool(scope, value(scope));
+	}
+
 	/**
 	 * Whether the expression is considered as 'constant', meaning it does not need a scope to be evaluated and return a
 	 * value
@@ -23,6 +23,7 @@ import static msi.gama.precompiler.ITypeProvider.TYPE_AT_INDEX;
 import static msi.gama.precompiler.ITypeProvider.WRAPPED;
 
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 
 import msi.gama.precompiler.GamlProperties;
@@ -30,12 +31,20 @@ import msi.gama.precompiler.ITypeProvider;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.ICollector;
+import msi.gaml.compilation.jit.ExpressionCompiler;
+import msi.gaml.compilation.jit.ICompiledExpression;
+import msi.gaml.descriptions.IDescription;
 import msi.gaml.descriptions.IVarDescriptionUser;
 import msi.gaml.descriptions.OperatorProto;
 import msi.gaml.descriptions.SpeciesDescription;
 import msi.gaml.descriptions.VariableDescription;
 import msi.gaml.expressions.AbstractExpression;
+import msi.gaml.expressions.ConstantExpression;
 import msi.gaml.expressions.IExpression;
+import msi.gaml.expressions.variables.AgentVariableExpression;
+import msi.gaml.expressions.variables.GlobalVariableExpression;
+import msi.gaml.expressions.variables.TempVariableExpression;
+import msi.gaml.expressions.variables.VariableExpression;
 import msi.gaml.types.GamaType;
 import msi.gaml.types.IContainerType;
 import msi.gaml.types.IType;
@@ -55,6 +64,15 @@ public abstract class AbstractNAryOperator extends AbstractExpression implements
 	/** The prototype. */
 	protected OperatorProto prototype;
 
+	/**
+	 * The number of evaluations left before this operator is compiled, or 0 if it is not compiled on its own. Counted
+	 * down concurrently by the agents scheduled in parallel.
+	 */
+	final AtomicInteger evaluationsBeforeCompilation = new AtomicInteger(ExpressionCompiler.threshold());
+
+	/** The compiled version of this operator, once it has been evaluated often enough. */
+	volatile ICompiledExpression compiled;
+
 	/**
 	 * Instantiates a new abstract N ary operator.
 	 *
@@ -72,6 +90,74 @@ public abstract class AbstractNAryOperator extends AbstractExpression implements
 		}
 		this.prototype = proto;
 		type = computeType();
+		if (evaluationsBeforeCompilation.get() > 0) { inlineArguments(); }
+	}
+
+	/**
+	 * Prevents the arguments that are compiled with this operator from being compiled on their own.
+	 */
+	void inlineArguments() {
+		if (exprs == null) return;
+		for (int i = 0; i < exprs.length; i++) {
+			if (ExpressionCompiler.isInlined(this, i)) { notCompiled(exprs[i]); }
+		}
+	}
+
+	/**
+	 * Prevents an operator from being compiled on its own.
+	 *
+	 * @param operator
+	 *            the operator
+	 */
+	static void notCompiled(final IExpression operator) {
+		if (operator instanceof AbstractNAryOperator op) {
+			op.evaluationsBeforeCompilation.set(0);
+		} else if (operator instanceof UnaryOperator op) { op.evaluationsBeforeCompilation.set(0); }
+	}
+
+	/**
+	 * Whether an operand can be computed by a primitive helper without changing the result of the operator. Its value
+	 * must never be nil: the boxed helpers handle nil themselves (e.g. the comparisons return false), whereas
+	 * {@link IExpression#intValue(IScope)} and {@link IExpression#doubleValue(IScope)} would turn it into 0. This is
+	 * the case of int and float constants, of temporary variables and attributes (cast when assigned) and of the
+	 * operators that are themselves computed by a primitive helper. The attributes defined as functions and the
+	 * built-in ones (whose Java getters may return null) are not considered.
+	 *
+	 * @param operand
+	 *            the operand
+	 * @return true if it is never nil
+	 */
+	static boolean isNeverNil(final IExpression operand) {
+		final int id = operand.getGamlType().id();
+		if (id != IType.INT && id != IType.FLOAT) return false;
+		if (operand instanceof ConstantExpression) return operand.isConst() && operand.getConstValue() != null;
+		if (operand.getClass() == TempVariableExpression.class) return true;
+		if (operand.getClass() == AgentVariableExpression.class
+				|| operand.getClass() == GlobalVariableExpression.class) {
+			final IDescription definition = ((VariableExpression) operand).getDefinitionDescription();
+			final SpeciesDescription species = definition == null ? null : definition.getSpeciesContext();
+			final VariableDescription var = species == null ? null : species.getAttribute(operand.getName());
+			return var != null && !var.isFunction() && !var.isBuiltIn();
+		}
+		if (operand instanceof BinaryOperator op) return op.unboxed;
+		if (operand instanceof UnaryOperator op) return op.unboxed;
+		return false;
+	}
+
+	/**
+	 * Counts one evaluation of this operator, and returns its compiled version if it has been evaluated often enough.
+	 * Only the evaluation that brings the count to 0 compiles it; the ones that happen meanwhile are interpreted.
+	 *
+	 * @return the compiled version, or null if it is interpreted
+	 */
+	final ICompiledExpression compiled() {
+		int left;
+		do {
+			left = evaluationsBeforeCompilation.get();
+			if (left <= 0) return compiled;
+		} while (!evaluationsBeforeCompilation.compareAndSet(left, left - 1));
+		if (left == 1) { compiled = ExpressionCompiler.compile(this); }
+		return compiled;
 	}
 
 	@Override
@@ -225,6 +311,7 @@ public abstract class AbstractNAryOperator extends AbstractExpression implements
 		final AbstractNAryOperator copy = copy();
 		if (exprs != null) {
 			for (int i = 0; i < exprs.length; i++) { copy.exprs[i] = exprs[i].resolveAgainst(scope); }
+			if (copy.evaluationsBeforeCompilation.get() > 0) { copy.inlineArguments(); }
 		}
 		return copy;
 	}
@@ -327,6 +414,8 @@ public abstract class AbstractNAryOperator extends AbstractExpression implements
 
 	@Override
 	public Object _value(final IScope scope) throws GamaRuntimeException {
+		final ICompiledExpression code = compiled();
+		if (code != null) return ExpressionCompiler.value(scope, this, code);
 		final Object[] values = new Object[exprs == null ? 0 : exprs.length];
 		try {
 			for (int i = 0; i < values.length; i++) {
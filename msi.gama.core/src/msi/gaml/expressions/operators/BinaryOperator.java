@@ -13,9 +13,17 @@ package msi.gaml.expressions.operators;
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.metamodel.agent.IAgent;
+import msi.gama.runtime.GAMA;
 import msi.gama.runtime.IScope;
+import msi.gama.runtime.benchmark.StopWatch;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gaml.compilation.GAML;
+import msi.gaml.compilation.GamaPrimitiveGetter;
+import msi.gaml.compilation.GamaPrimitiveGetter.BoolBinary;
+import msi.gaml.compilation.GamaPrimitiveGetter.DoubleBinary;
+import msi.gaml.compilation.GamaPrimitiveGetter.IntBinary;
+import msi.gaml.compilation.jit.ExpressionCompiler;
+import msi.gaml.compilation.jit.ICompiledExpression;
 import msi.gaml.descriptions.IDescription;
 import msi.gaml.descriptions.OperatorProto;
 import msi.gaml.expressions.IExpression;
@@ -28,6 +36,9 @@ import msi.gaml.operators.Cast;
  */
 public class BinaryOperator extends AbstractNAryOperator {
 
+	/** Whether this operator is computed by its primitive helper: it has one and its operands are never nil. */
+	final boolean unboxed;
+
 	/**
 	 * Creates the.
 	 *
@@ -39,8 +50,12 @@ public class BinaryOperator extends AbstractNAryOperator {
 	public static IExpression create(final OperatorProto proto, final IDescription context,
 			final IExpression... child) {
 		final BinaryOperator u = new BinaryOperator(proto, context, child);
-		if (u.isConst() && GamaPreferences.External.CONSTANT_OPTIMIZATION.getValue())
+		if (u.isConst() && GamaPreferences.External.CONSTANT_OPTIMIZATION.getValue()) {
+			// The ones that depend on 'const' global variables are computed once per cycle instead of being folded
+			final IExpression invariant = CycleInvariantExpression.create(u);
+			if (invariant != null) return invariant;
 			return GAML.getExpressionFactory().createConst(u.getConstValue(), u.getGamlType(), u.serialize(false));
+		}
 		return u;
 	}
 
@@ -54,6 +69,7 @@ public class BinaryOperator extends AbstractNAryOperator {
 	public BinaryOperator(final OperatorProto proto, final IDescription context, final IExpression... args) {
 		super(proto, args);
 		prototype.verifyExpectedTypes(context, exprs[1].getGamlType());
+		unboxed = prototype.getPrimitiveHelper() != null && isNeverNil(exprs[0]) && isNeverNil(exprs[1]);
 	}
 
 	@Override
@@ -86,6 +102,10 @@ public class BinaryOperator extends AbstractNAryOperator {
 
 	@Override
 	public Object _value(final IScope scope) throws GamaRuntimeException {
+		final ICompiledExpression code = compiled();
+		if (code != null) return ExpressionCompiler.value(scope, this, code);
+		final GamaPrimitiveGetter primitive = unboxed ? prototype.getPrimitiveHelper() : null;
+		if (primitive != null) return primitiveValue(scope, primitive);
 		Object leftVal = null, rightVal = null;
 		try {
 			leftVal = prototype.getLazyness()[0] ? exprs[0] : exprs[0].value(scope);
@@ -101,6 +121,78 @@ public class BinaryOperator extends AbstractNAryOperator {
 		}
 	}
 
+	/**
+	 * Computes the value of this operator with its primitive helper, boxing only the result.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param primitive
+	 *            the primitive helper
+	 * @return the value
+	 */
+	private Object primitiveValue(final IScope scope, final GamaPrimitiveGetter primitive) {
+		double a = 0d, b = 0d;
+		try {
+			a = primitiveOperand(scope, 0);
+			b = primitiveOperand(scope, 1);
+			if (primitive instanceof DoubleBinary f) return f.get(scope, a, b);
+			if (primitive instanceof IntBinary f) return f.get(scope, a, b);
+			return ((BoolBinary) primitive).get(scope, a, b);
+		} catch (final GamaRuntimeException ge) {
+			throw ge;
+		} catch (final Throwable ex) {
+			final GamaRuntimeException e1 = GamaRuntimeException.create(ex, scope);
+			e1.addContext("when applying the " + literalValue() + " operator on " + a + " and " + b);
+			throw e1;
+		}
+	}
+
+	/**
+	 * Computes an operand of the primitive helper, without boxing it.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param index
+	 *            the index of the operand
+	 * @return the operand
+	 */
+	private double primitiveOperand(final IScope scope, final int index) {
+		return prototype.getIntParameters()[index] ? exprs[index].intValue(scope) : exprs[index].doubleValue(scope);
+	}
+
+	@Override
+	public double doubleValue(final IScope scope) throws GamaRuntimeException {
+		final GamaPrimitiveGetter primitive = unboxed ? prototype.getPrimitiveHelper() : null;
+		if (!(primitive instanceof DoubleBinary) && !(primitive instanceof IntBinary))
+			return Cast.asFloat(scope, value(scope));
+		// Recorded like value(), as the operators evaluated this way do not go through it
+		try (StopWatch w = GAMA.benchmark(scope, this)) {
+			final double a = primitiveOperand(scope, 0), b = primitiveOperand(scope, 1);
+			return primitive instanceof DoubleBinary f ? f.get(scope, a, b) : ((IntBinary) primitive).get(scope, a, b);
+		}
+	}
+
+	@Override
+	public int intValue(final IScope scope) throws GamaRuntimeException {
+		final GamaPrimitiveGetter primitive = unboxed ? prototype.getPrimitiveHelper() : null;
+		if (!(primitive instanceof DoubleBinary) && !(primitive instanceof IntBinary))
+			return Cast.asInt(scope, value(scope));
+		try (StopWatch w = GAMA.benchmark(scope, this)) {
+			final double a = primitiveOperand(scope, 0), b = primitiveOperand(scope, 1);
+			return primitive instanceof IntBinary f ? f.get(scope, a, b)
+					: (int) ((DoubleBinary) primitive).get(scope, a, b);
+		}
+	}
+
+	@Override
+	public boolean booleanValue(final IScope scope) throws GamaRuntimeException {
+		final GamaPrimitiveGetter primitive = unboxed ? prototype.getPrimitiveHelper() : null;
+		if (!(primitive instanceof BoolBinary f)) return Cast.asBool(scope, value(scope));
+		try (StopWatch w = GAMA.benchmark(scope, this)) {
+			return f.get(scope, primitiveOperand(scope, 0), primitiveOperand(scope, 1));
+		}
+	}
+
 	@Override
 	public BinaryOperator copy() {
 		return new BinaryOperator(prototype, null, exprs);
@@ -0,0 +1,240 @@
+/*******************************************************************************************************
+ *
+ * CycleInvariantExpression.java, in msi.gama.core, is part of the source code of the GAMA modeling and simulation
+ * platform (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gaml.expressions.operators;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import org.eclipse.emf.ecore.EObject;
+
+import msi.gama.common.interfaces.IGamlIssue;
+import msi.gama.common.preferences.GamaPreferences;
+import msi.gama.kernel.simulation.SimulationAgent;
+import msi.gama.precompiler.GamlProperties;
+import msi.gama.runtime.IScope;
+import msi.gama.util.ICollector;
+import msi.gaml.descriptions.IDescription;
+import msi.gaml.descriptions.IVarDescriptionUser;
+import msi.gaml.descriptions.OperatorProto;
+import msi.gaml.descriptions.SpeciesDescription;
+import msi.gaml.descriptions.VariableDescription;
+import msi.gaml.expressions.AbstractExpression;
+import msi.gaml.expressions.IExpression;
+import msi.gaml.expressions.variables.GlobalVariableExpression;
+import msi.gaml.types.IType;
+
+/**
+ * Wraps an operator whose operands are all either literal constants or 'const' global variables (possibly through
+ * other pure operators), and whose value, therefore, cannot change during a cycle of the simulation. The value is
+ * computed the first time the expression is evaluated in a cycle and returned as is for the rest of this cycle
+ * (typically by all the agents of an 'ask' or of a species). Created, when constant expressions are optimized, by the
+ * operators that are constant but cannot be folded at compile time because they depend on 'const' global variables
+ * (see {@link #create(IOperator)}).
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public class CycleInvariantExpression extends AbstractExpression implements IOperator {
+
+	/**
+	 * The value computed for a given cycle of a given simulation.
+	 *
+	 * @param simulation
+	 *            the simulation
+	 * @param cycle
+	 *            the cycle
+	 * @param value
+	 *            the value
+	 */
+	record CachedValue(WeakReference<SimulationAgent> simulation, int cycle, Object value) {}
+
+	/** The wrapped operator. */
+	final IOperator operator;
+
+	/** The value computed in the current cycle, if any. */
+	volatile CachedValue cached;
+
+	/**
+	 * Returns the expression to use for an operator that is constant (see {@link IExpression#isConst()}) when constant
+	 * expressions are optimized: null if it can be folded into a constant, i.e. if it does not depend on a global
+	 * variable; otherwise a {@link CycleInvariantExpression} if its value cannot be modified by the expressions using
+	 * it (int, float, bool or string), or the operator itself.
+	 *
+	 * @param operator
+	 *            the constant operator
+	 * @return the expression to use instead of the operator, or null if it can be folded
+	 */
+	public static IExpression create(final IOperator operator) {
+		if (!operator.findAny(e -> e instanceof GlobalVariableExpression)) return null;
+		return isCandidate(operator.getGamlType()) ? new CycleInvariantExpression(operator) : operator;
+	}
+
+	/**
+	 * Returns the operands with which to create an operator. If the operator can be computed once per cycle (it can be
+	 * constant, returns an int, a float, a bool or a string, and all its operands are constant or computed once per
+	 * cycle), the operands computed once per cycle are replaced by the operators they wrap, so that the whole operator
+	 * is computed once instead. Otherwise the operands are returned as is.
+	 *
+	 * @param proto
+	 *            the prototype of the operator
+	 * @param args
+	 *            the operands
+	 * @return the operands to use
+	 */
+	public static IExpression[] unwrap(final OperatorProto proto, final IExpression... args) {
+		if (!GamaPreferences.External.CONSTANT_OPTIMIZATION.getValue() || proto == null || !proto.canBeConst
+				|| proto.iterator || args == null || !isCandidate(proto.returnType))
+			return args;
+		boolean wrapped = false;
+		for (final IExpression arg : args) {
+			if (arg instanceof CycleInvariantExpression) {
+				wrapped = true;
+			} else if (arg == null || !arg.isConst()) return args;
+		}
+		if (!wrapped) return args;
+		final IExpression[] result = args.clone();
+		for (int i = 0; i < result.length; i++) {
+			if (result[i] instanceof CycleInvariantExpression c) { result[i] = c.operator; }
+		}
+		return result;
+	}
+
+	/**
+	 * Emits an info on the description listing the sub-expressions of the expression that are computed once per cycle.
+	 *
+	 * @param context
+	 *            the description in which the expression has been compiled
+	 * @param expression
+	 *            the compiled expression
+	 * @param target
+	 *            the object on which to attach the info
+	 */
+	public static void report(final IDescription context, final IExpression expression, final EObject target) {
+		if (context == null || expression == null || !GamaPreferences.External.CONSTANT_OPTIMIZATION.getValue())
+			return;
+		final List<String> hoisted = new ArrayList<>();
+		expression.findAny(e -> {
+			if (e instanceof CycleInvariantExpression) { hoisted.add(e.serialize(false)); }
+			return false;
+		});
+		if (hoisted.isEmpty()) return;
+		context.info("Computed once per cycle, as they only depend on constants: " + String.join(", ", hoisted),
+				IGamlIssue.GENERAL, target);
+	}
+
+	/**
+	 * Whether the values of this type cannot be modified by the expressions using them, so that they can be shared.
+	 *
+	 * @param type
+	 *            the type
+	 * @return true, if is candidate
+	 */
+	private static boolean isCandidate(final IType<?> type) {
+		if (type == null) return false;
+		return switch (type.id()) {
+			case IType.INT, IType.FLOAT, IType.BOOL, IType.STRING -> true;
+			default -> false;
+		};
+	}
+
+	/**
+	 * Instantiates a new cycle invariant expression.
+	 *
+	 * @param operator
+	 *            the operator
+	 */
+	CycleInvariantExpression(final IOperator operator) {
+		this.operator = operator;
+		type = operator.getGamlType();
+	}
+
+	@Override
+	protected Object _value(final IScope scope) {
+		final SimulationAgent simulation = scope == null ? null : scope.getSimulation();
+		if (simulation == null) return operator.value(scope);
+		final int cycle = simulation.getClock().getCycle();
+		// During the first cycle, the global variables may still be initializing
+		if (cycle == 0) return operator.value(scope);
+		final CachedValue c = cached;
+		if (c != null && c.cycle == cycle && c.simulation.get() == simulation) return c.value;
+		final Object value = operator.value(scope);
+		cached = new CachedValue(new WeakReference<>(simulation), cycle, value);
+		return value;
+	}
+
+	@Override
+	public boolean isConst() {
+		// Never considered as constant, as its value has to be recomputed at each cycle
+		return false;
+	}
+
+	@Override
+	public String serialize(final boolean includingBuiltIn) {
+		return operator.serialize(includingBuiltIn);
+	}
+
+	@Override
+	public boolean shouldBeParenthesized() {
+		return operator.shouldBeParenthesized();
+	}
+
+	@Override
+	public String toString() {
+		return operator.toString();
+	}
+
+	@Override
+	public String getTitle() { return operator.getTitle(); }
+
+	@Override
+	public String getDocumentation() { return operator.getDocumentation(); }
+
+	@Override
+	public String getDefiningPlugin() { return operator.getDefiningPlugin(); }
+
+	@Override
+	public String getName() { return operator.getName(); }
+
+	@Override
+	public IExpression arg(final int i) {
+		return operator.arg(i);
+	}
+
+	@Override
+	public OperatorProto getPrototype() { return operator.getPrototype(); }
+
+	@Override
+	public void visitSuboperators(final IOperatorVisitor visitor) {
+		operator.visitSuboperators(visitor);
+	}
+
+	@Override
+	public void collectMetaInformation(final GamlProperties meta) {
+		operator.collectMetaInformation(meta);
+	}
+
+	@Override
+	public void collectUsedVarsOf(final SpeciesDescription species,
+			final ICollector<IVarDescriptionUser> alreadyProcessed, final ICollector<VariableDescription> result) {
+		operator.collectUsedVarsOf(species, alreadyProcessed, result);
+	}
+
+	@Override
+	public boolean isContextIndependant() { return operator.isContextIndependant(); }
+
+	@Override
+	public boolean findAny(final Predicate<IExpression> predicate) {
+		return predicate.test(this) || operator.findAny(predicate);
+	}
+
+}
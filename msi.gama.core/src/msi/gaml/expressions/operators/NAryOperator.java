@@ -30,6 +30,9 @@ public class NAryOperator extends AbstractNAryOperator {
 	public static IExpression create(final OperatorProto proto, final IExpression... child) {
 		final NAryOperator u = new NAryOperator(proto, child);
 		if (u.isConst() && GamaPreferences.External.CONSTANT_OPTIMIZATION.getValue()) {
+			// The ones that depend on 'const' global variables are computed once per cycle instead of being folded
+			final IExpression invariant = CycleInvariantExpression.create(u);
+			if (invariant != null) return invariant;
 			return GAML.getExpressionFactory().createConst(u.getConstValue(), u.getGamlType(), u.serialize(false));
 		}
 		return u;
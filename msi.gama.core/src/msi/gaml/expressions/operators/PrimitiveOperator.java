@@ -91,6 +91,20 @@ public class PrimitiveOperator implements IExpression, IOperator {
 	@Override
 	public String getName() { return action.getName(); }
 
+	/**
+	 * Gets the description of the action called by this operator.
+	 *
+	 * @return the action
+	 */
+	public StatementDescription getAction() { return action; }
+
+	/**
+	 * Gets the arguments passed to the action.
+	 *
+	 * @return the arguments
+	 */
+	public Arguments getArguments() { return parameters; }
+
 	@Override
 	public Object value(final IScope scope) throws GamaRuntimeException {
 		if (scope == null) return null;
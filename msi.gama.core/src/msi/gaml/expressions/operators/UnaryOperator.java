@@ -19,14 +19,23 @@ import static msi.gama.precompiler.ITypeProvider.KEY_TYPE_AT_INDEX;
 import static msi.gama.precompiler.ITypeProvider.TYPE_AT_INDEX;
 import static msi.gama.precompiler.ITypeProvider.WRAPPED;
 
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 
 import msi.gama.common.preferences.GamaPreferences;
 import msi.gama.precompiler.GamlProperties;
+import msi.gama.runtime.GAMA;
 import msi.gama.runtime.IScope;
+import msi.gama.runtime.benchmark.StopWatch;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.ICollector;
 import msi.gaml.compilation.GAML;
+import msi.gaml.compilation.GamaPrimitiveGetter;
+import msi.gaml.compilation.GamaPrimitiveGetter.BoolUnary;
+import msi.gaml.compilation.GamaPrimitiveGetter.DoubleUnary;
+import msi.gaml.compilation.GamaPrimitiveGetter.IntUnary;
+import msi.gaml.compilation.jit.ExpressionCompiler;
+import msi.gaml.compilation.jit.ICompiledExpression;
 import msi.gaml.descriptions.IDescription;
 import msi.gaml.descriptions.IVarDescriptionUser;
 import msi.gaml.descriptions.OperatorProto;
@@ -36,6 +45,7 @@ import msi.gaml.expressions.AbstractExpression;
 import msi.gaml.expressions.IExpression;
 import msi.gaml.expressions.data.ListExpression;
 import msi.gaml.expressions.data.MapExpression;
+import msi.gaml.operators.Cast;
 import msi.gaml.types.GamaType;
 import msi.gaml.types.IContainerType;
 import msi.gaml.types.IType;
@@ -53,6 +63,18 @@ public class UnaryOperator extends AbstractExpression implements IOperator {
 	/** The prototype. */
 	protected final OperatorProto prototype;
 
+	/** Whether this operator is computed by its primitive helper: it has one and its operand is never nil. */
+	final boolean unboxed;
+
+	/**
+	 * The number of evaluations left before this operator is compiled, or 0 if it is not compiled on its own. Counted
+	 * down concurrently by the agents scheduled in parallel.
+	 */
+	final AtomicInteger evaluationsBeforeCompilation = new AtomicInteger(ExpressionCompiler.threshold());
+
+	/** The compiled version of this operator, once it has been evaluated often enough. */
+	volatile ICompiledExpression compiled;
+
 	/**
 	 * Creates the.
 	 *
@@ -66,8 +88,12 @@ public class UnaryOperator extends AbstractExpression implements IOperator {
 	 */
 	public static IExpression create(final OperatorProto proto, final IDescription context, final IExpression child) {
 		final UnaryOperator u = new UnaryOperator(proto, context, child);
-		if (u.isConst() && GamaPreferences.External.CONSTANT_OPTIMIZATION.getValue())
+		if (u.isConst() && GamaPreferences.External.CONSTANT_OPTIMIZATION.getValue()) {
+			// The ones that depend on 'const' global variables are computed once per cycle instead of being folded
+			final IExpression invariant = CycleInvariantExpression.create(u);
+			if (invariant != null) return invariant;
 			return GAML.getExpressionFactory().createConst(u.getConstValue(), u.getGamlType(), u.serialize(false));
+		}
 		return u;
 	}
 
@@ -96,10 +122,34 @@ public class UnaryOperator extends AbstractExpression implements IOperator {
 			computeType();
 			proto.verifyExpectedTypes(context, child[0].getGamlType().getContentType());
 		}
+		unboxed = proto != null && proto.getPrimitiveHelper() != null && AbstractNAryOperator.isNeverNil(this.child);
+		if (evaluationsBeforeCompilation.get() > 0 && ExpressionCompiler.isInlined(this, 0)) {
+			AbstractNAryOperator.notCompiled(this.child);
+		}
+	}
+
+	/**
+	 * Counts one evaluation of this operator, and returns its compiled version if it has been evaluated often enough.
+	 * Only the evaluation that brings the count to 0 compiles it; the ones that happen meanwhile are interpreted.
+	 *
+	 * @return the compiled version, or null if it is interpreted
+	 */
+	final ICompiledExpression compiled() {
+		int left;
+		do {
+			left = evaluationsBeforeCompilation.get();
+			if (left <= 0) return compiled;
+		} while (!evaluationsBeforeCompilation.compareAndSet(left, left - 1));
+		if (left == 1) { compiled = ExpressionCompiler.compile(this); }
+		return compiled;
 	}
 
 	@Override
 	public Object _value(final IScope scope) throws GamaRuntimeException {
+		final ICompiledExpression code = compiled();
+		if (code != null) return ExpressionCompiler.value(scope, this, code);
+		final GamaPrimitiveGetter primitive = unboxed ? prototype.getPrimitiveHelper() : null;
+		if (primitive != null) return primitiveValue(scope, primitive);
 		final Object childValue = prototype.getLazyness()[0] ? child : child.value(scope);
 		try {
 			return prototype.getHelper().get(scope, childValue);
@@ -115,6 +165,74 @@ public class UnaryOperator extends AbstractExpression implements IOperator {
 		}
 	}
 
+	/**
+	 * Computes the value of this operator with its primitive helper, boxing only the result.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param primitive
+	 *            the primitive helper
+	 * @return the value
+	 */
+	private Object primitiveValue(final IScope scope, final GamaPrimitiveGetter primitive) {
+		final double a = primitiveOperand(scope);
+		try {
+			if (primitive instanceof DoubleUnary f) return f.get(scope, a);
+			if (primitive instanceof IntUnary f) return f.get(scope, a);
+			return ((BoolUnary) primitive).get(scope, a);
+		} catch (final GamaRuntimeException e1) {
+			e1.addContext("when applying the " + literalValue() + " operator on " + a);
+			throw e1;
+		} catch (final Throwable e) {
+			final GamaRuntimeException ee = GamaRuntimeException.create(e, scope);
+			ee.addContext("when applying the " + literalValue() + " operator on " + a);
+			throw ee;
+		}
+	}
+
+	/**
+	 * Computes the operand of the primitive helper, without boxing it.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @return the operand
+	 */
+	private double primitiveOperand(final IScope scope) {
+		return prototype.getIntParameters()[0] ? child.intValue(scope) : child.doubleValue(scope);
+	}
+
+	@Override
+	public double doubleValue(final IScope scope) throws GamaRuntimeException {
+		final GamaPrimitiveGetter primitive = unboxed ? prototype.getPrimitiveHelper() : null;
+		if (!(primitive instanceof DoubleUnary) && !(primitive instanceof IntUnary))
+			return Cast.asFloat(scope, value(scope));
+		// Recorded like value(), as the operators evaluated this way do not go through it
+		try (StopWatch w = GAMA.benchmark(scope, this)) {
+			final double a = primitiveOperand(scope);
+			return primitive instanceof DoubleUnary f ? f.get(scope, a) : ((IntUnary) primitive).get(scope, a);
+		}
+	}
+
+	@Override
+	public int intValue(final IScope scope) throws GamaRuntimeException {
+		final GamaPrimitiveGetter primitive = unboxed ? prototype.getPrimitiveHelper() : null;
+		if (!(primitive instanceof DoubleUnary) && !(primitive instanceof IntUnary))
+			return Cast.asInt(scope, value(scope));
+		try (StopWatch w = GAMA.benchmark(scope, this)) {
+			final double a = primitiveOperand(scope);
+			return primitive instanceof IntUnary f ? f.get(scope, a) : (int) ((DoubleUnary) primitive).get(scope, a);
+		}
+	}
+
+	@Override
+	public boolean booleanValue(final IScope scope) throws GamaRuntimeException {
+		final GamaPrimitiveGetter primitive = unboxed ? prototype.getPrimitiveHelper() : null;
+		if (!(primitive instanceof BoolUnary f)) return Cast.asBool(scope, value(scope));
+		try (StopWatch w = GAMA.benchmark(scope, this)) {
+			return f.get(scope, primitiveOperand(scope));
+		}
+	}
+
 	@Override
 	public String serialize(final boolean includingBuiltIn) {
 		final String s = literalValue();
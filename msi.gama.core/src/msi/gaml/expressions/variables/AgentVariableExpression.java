@@ -10,6 +10,8 @@
  ********************************************************************************************************/
 package msi.gaml.expressions.variables;
 
+import msi.gama.metamodel.agent.AttributeSlots;
+import msi.gama.metamodel.agent.IAgent;
 import msi.gama.precompiler.GamlProperties;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
@@ -20,13 +22,45 @@ import msi.gaml.descriptions.SpeciesDescription;
 import msi.gaml.descriptions.VariableDescription;
 import msi.gaml.expressions.IExpression;
 import msi.gaml.expressions.IVarExpression;
+import msi.gaml.species.ISpecies;
 import msi.gaml.types.IType;
+import msi.gaml.variables.IVariable;
+import msi.gaml.variables.Variable;
 
 /**
  * The Class AgentVariableExpression.
  */
 public class AgentVariableExpression extends VariableExpression implements IVarExpression.Agent {
 
+	/**
+	 * The variable resolved for the species of the last agent encountered, when it is stored in slots. Allows to skip
+	 * the lookup by name in the population and to access directly the slot of the variable in the agent.
+	 */
+	private static final class Resolved {
+
+		/** The species. */
+		final ISpecies species;
+
+		/** The variable (or null if it is not stored in slots). */
+		final Variable var;
+
+		/**
+		 * Instantiates a new resolved.
+		 *
+		 * @param species
+		 *            the species
+		 * @param var
+		 *            the var
+		 */
+		Resolved(final ISpecies species, final Variable var) {
+			this.species = species;
+			this.var = var;
+		}
+	}
+
+	/** The last resolution (monomorphic cache). */
+	private Resolved resolved;
+
 	/**
 	 * Instantiates a new agent variable expression.
 	 *
@@ -52,12 +86,44 @@ public class AgentVariableExpression extends VariableExpression implements IVarE
 
 	@Override
 	public Object _value(final IScope scope) throws GamaRuntimeException {
-		return scope.getAgentVarValue(scope.getAgent(), getName());
+		final IAgent agent = scope.getAgent();
+		final Variable var = slotted(scope, agent);
+		if (var != null) return var.value(scope, agent);
+		return scope.getAgentVarValue(agent, getName());
 	}
 
 	@Override
 	public void setVal(final IScope scope, final Object v, final boolean create) throws GamaRuntimeException {
-		scope.setAgentVarValue(scope.getAgent(), getName(), v);
+		final IAgent agent = scope.getAgent();
+		final Variable var = slotted(scope, agent);
+		if (var != null) {
+			var.setVal(scope, agent, v);
+		} else {
+			scope.setAgentVarValue(agent, getName(), v);
+		}
+	}
+
+	/**
+	 * Returns the variable of the species of the agent if its value is stored in the slots of the agent, so that it can
+	 * be accessed without going through the scope. Returns null in all the other cases.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param agent
+	 *            the agent
+	 * @return the variable
+	 */
+	private Variable slotted(final IScope scope, final IAgent agent) {
+		if (agent == null || agent.dead() || agent.getSlots() == null || scope.interrupted()) return null;
+		final ISpecies species = agent.getSpecies();
+		Resolved r = resolved;
+		if (r == null || r.species != species) {
+			final IVariable v = agent.getPopulation().getVar(getName());
+			r = new Resolved(species,
+					v instanceof Variable var && var.getSlot() != AttributeSlots.NONE ? var : null);
+			resolved = r;
+		}
+		return r.var;
 	}
 
 	@Override
@@ -670,6 +670,312 @@ public class Comparison {
 		return a == null ? b == null : !isZeroWidth(a, b.doubleValue());
 	}
 
+	// Unboxed versions of the numeric comparisons, called by their primitive helpers (see GamaPrimitiveGetter). They
+	// are only used when no operand can be nil, and must otherwise return exactly what the boxed versions return.
+
+	/**
+	 * Unboxed version of {@link #greater(Integer, Integer)}: whether a is greater than b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean greater(final int a, final int b) {
+		return a > b;
+	}
+
+	/**
+	 * Unboxed version of {@link #greater(Integer, Double)}: whether a is greater than b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean greater(final int a, final double b) {
+		return a > b;
+	}
+
+	/**
+	 * Unboxed version of {@link #greater(Double, Integer)}: whether a is greater than b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean greater(final double a, final int b) {
+		return a > b;
+	}
+
+	/**
+	 * Unboxed version of {@link #greater(Double, Double)}: whether a is greater than b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean greater(final double a, final double b) {
+		return a > b;
+	}
+
+	/**
+	 * Unboxed version of {@link #less(Integer, Integer)}: whether a is less than b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean less(final int a, final int b) {
+		return a < b;
+	}
+
+	/**
+	 * Unboxed version of {@link #less(Integer, Double)}: whether a is less than b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean less(final int a, final double b) {
+		return a < b;
+	}
+
+	/**
+	 * Unboxed version of {@link #less(Double, Integer)}: whether a is less than b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean less(final double a, final int b) {
+		return a < b;
+	}
+
+	/**
+	 * Unboxed version of {@link #less(Double, Double)}: whether a is less than b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean less(final double a, final double b) {
+		return a < b;
+	}
+
+	/**
+	 * Unboxed version of {@link #greaterOrEqual(Integer, Integer)}: whether a is greater than or equal to b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean greaterOrEqual(final int a, final int b) {
+		return a >= b;
+	}
+
+	/**
+	 * Unboxed version of {@link #greaterOrEqual(Integer, Double)}: whether a is greater than or equal to b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean greaterOrEqual(final int a, final double b) {
+		return a >= b;
+	}
+
+	/**
+	 * Unboxed version of {@link #greaterOrEqual(Double, Integer)}: whether a is greater than or equal to b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean greaterOrEqual(final double a, final int b) {
+		return a >= b;
+	}
+
+	/**
+	 * Unboxed version of {@link #greaterOrEqual(Double, Double)}: whether a is greater than or equal to b.
+	 *
+	 * Written, like its boxed version, so that it returns true when one of the operands is NaN.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean greaterOrEqual(final double a, final double b) {
+		return !(a < b);
+	}
+
+	/**
+	 * Unboxed version of {@link #opLessThanOrEqual(Integer, Integer)}: whether a is less than or equal to b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean opLessThanOrEqual(final int a, final int b) {
+		return a <= b;
+	}
+
+	/**
+	 * Unboxed version of {@link #lessOrEqual(Integer, Double)}: whether a is less than or equal to b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean lessOrEqual(final int a, final double b) {
+		return a <= b;
+	}
+
+	/**
+	 * Unboxed version of {@link #lessOrEqual(Double, Integer)}: whether a is less than or equal to b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean lessOrEqual(final double a, final int b) {
+		return a <= b;
+	}
+
+	/**
+	 * Unboxed version of {@link #lessOrEqual(Double, Double)}: whether a is less than or equal to b.
+	 *
+	 * Written, like its boxed version, so that it returns true when one of the operands is NaN.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean lessOrEqual(final double a, final double b) {
+		return !(a > b);
+	}
+
+	/**
+	 * Unboxed version of {@link #equal(Integer, Integer)}: whether a is equal to b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean equal(final int a, final int b) {
+		return a == b;
+	}
+
+	/**
+	 * Unboxed version of {@link #equal(Integer, Double)}: whether a is equal to b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean equal(final int a, final double b) {
+		return isZeroWidth(a, b);
+	}
+
+	/**
+	 * Unboxed version of {@link #equal(Double, Integer)}: whether a is equal to b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean equal(final double a, final int b) {
+		return isZeroWidth(a, b);
+	}
+
+	/**
+	 * Unboxed version of {@link #equal(Double, Double)}: whether a is equal to b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean equal(final double a, final double b) {
+		return isZeroWidth(a, b);
+	}
+
+	/**
+	 * Unboxed version of {@link #different(Integer, Double)}: whether a is different from b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean different(final int a, final double b) {
+		return !isZeroWidth(a, b);
+	}
+
+	/**
+	 * Unboxed version of {@link #different(Double, Integer)}: whether a is different from b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean different(final double a, final int b) {
+		return !isZeroWidth(a, b);
+	}
+
+	/**
+	 * Unboxed version of {@link #different(Double, Double)}: whether a is different from b.
+	 *
+	 * @param a
+	 *            the left-hand operand
+	 * @param b
+	 *            the right-hand operand
+	 * @return the boolean
+	 */
+	public static boolean different(final double a, final double b) {
+		return !isZeroWidth(a, b);
+	}
+
 	/**
 	 * Less or equal.
 	 *
@@ -16,9 +16,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.ArrayUtils;
@@ -50,6 +54,7 @@ import org.locationtech.jts.geom.Coordinate;
 import msi.gama.common.geometry.Envelope3D;
 import msi.gama.common.geometry.GeometryUtils;
 import msi.gama.common.interfaces.IKeyword;
+import msi.gama.common.util.FileUtils;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.shape.GamaPoint;
 import msi.gama.metamodel.shape.IShape;
@@ -66,7 +71,9 @@ import msi.gama.precompiler.IConcept;
 import msi.gama.precompiler.IOperatorCategory;
 import msi.gama.precompiler.ITypeProvider;
 import msi.gama.precompiler.Reason;
+import msi.gama.runtime.GAMA;
 import msi.gama.runtime.IScope;
+import msi.gama.runtime.concurrent.GamaExecutorService;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.Collector;
 import msi.gama.util.GamaList;
@@ -2001,6 +2008,37 @@ public class Graphs {
 		return GamaGraphType.useChacheForShortestPath(g, useCache);
 	}
 
+	/**
+	 * Shortest path cache statistics.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param g
+	 *            the g
+	 * @return the i map
+	 */
+	@operator (
+			value = "path_cache_statistics",
+			type = IType.MAP,
+			index_type = IType.STRING,
+			content_type = IType.INT,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH })
+	@doc (
+			value = "returns the statistics of the cache of shortest paths of the graph: the number of paths found in the cache ('hits') or not ('misses'), the number of paths evicted because the cache was full ('evictions') or invalidated by a change of the graph ('invalidations'), the number of paths currently stored ('size') and the number of edges they traverse ('edges')",
+			examples = @example (
+					value = "write path_cache_statistics(road_network)[\"hits\"];",
+					isExecutable = false),
+			see = { "use_cache" })
+	@no_test
+	public static IMap<String, Integer> pathCacheStatistics(final IScope scope, final IGraph g) {
+		final IMap<String, Integer> result = GamaMapFactory.create(Types.STRING, Types.INT);
+		if (g instanceof GamaGraph<?, ?> graph) {
+			graph.getShortestPathComputed().getStatistics().forEach((k, v) -> result.put(k, v.intValue()));
+		}
+		return result;
+	}
+
 	/**
 	 * As directed graph.
 	 *
@@ -2076,7 +2114,8 @@ public class Graphs {
 	@no_test
 	public static IGraph withWeights(final IScope scope, final IGraph graph, final IMap weights) {
 		graph.setWeights(weights);
-		graph.incVersion();
+		// GamaGraph takes care itself of the paths invalidated by the new weights
+		if (!(graph instanceof GamaGraph)) { graph.incVersion(); }
 		if (graph instanceof GamaSpatialGraph) { ((GamaSpatialGraph) graph).reInitPathFinder(); }
 		return graph;
 	}
@@ -2110,7 +2149,8 @@ public class Graphs {
 		final int n = edges.size();
 		if (n != weights.size()) return graph;
 		for (int i = 0; i < n; i++) { graph.setEdgeWeight(edges.get(i), Cast.asFloat(scope, weights.get(i))); }
-		graph.incVersion();
+		// GamaGraph takes care itself of the paths invalidated by the new weights
+		if (!(graph instanceof GamaGraph)) { graph.incVersion(); }
 		if (graph instanceof GamaSpatialGraph) { ((GamaSpatialGraph) graph).reInitPathFinder(); }
 		return graph;
 	}
@@ -2170,7 +2210,7 @@ public class Graphs {
 					IConcept.ALGORITHM })
 	@doc (
 			value = "changes the shortest path computation algorithm of the given graph",
-			comment = "the right-hand operand can be Djikstra, BidirectionalDijkstra, BellmannFord, FloydWarshall, Astar, NBAStar, NBAStarApprox, DeltaStepping, CHBidirectionalDijkstra, TransitNodeRouting to use the associated algorithm. ",
+			comment = "the right-hand operand can be Djikstra, BidirectionalDijkstra, BellmannFord, FloydWarshall, Astar, NBAStar, NBAStarApprox, DeltaStepping, CHBidirectionalDijkstra, TransitNodeRouting, CustomizableCH to use the associated algorithm. ",
 			examples = @example (
 					value = "road_network <- road_network with_shortestpath_algorithm TransitNodeRouting;",
 					isExecutable = false))
@@ -2185,6 +2225,38 @@ public class Graphs {
 		return graph;
 	}
 
+	/**
+	 * Sets the hierarchy file.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param graph
+	 *            the graph
+	 * @param path
+	 *            the path
+	 * @return the i graph
+	 */
+	@operator (
+			value = "with_hierarchy_file",
+			content_type = ITypeProvider.CONTENT_TYPE_AT_INDEX + 1,
+			index_type = ITypeProvider.KEY_TYPE_AT_INDEX + 1,
+			category = { IOperatorCategory.GRAPH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH, IConcept.OPTIMIZATION, IConcept.ALGORITHM })
+	@doc (
+			value = "specifies the file (usually the one from which the graph has been built) next to which the contraction hierarchy used by the CustomizableCH shortest path algorithm is saved. The hierarchy is stored in a file named after this one and a hash of the topology of the graph, and reloaded instead of being recomputed when a graph with the same topology is built again",
+			comment = "WARNING / side effect: this operator modifies the operand and does not create a new graph.",
+			examples = @example (
+					value = "road_network <- (as_edge_graph(road) with_shortest_path_algorithm CustomizableCH) with_hierarchy_file \"../includes/roads.shp\";",
+					isExecutable = false),
+			see = { "with_shortest_path_algorithm" })
+	@no_test
+	public static IGraph setHierarchyFile(final IScope scope, final IGraph graph, final String path) {
+		if (graph instanceof GamaGraph g) {
+			g.setHierarchyFile(path == null ? null : FileUtils.constructAbsoluteFilePath(scope, path, false));
+		}
+		return graph;
+	}
+
 	/**
 	 * Sets the optimize type.
 	 *
@@ -2206,7 +2278,7 @@ public class Graphs {
 	@doc (
 			value = "changes the shortest path computation method of the given graph",
 			deprecated = "with_shortestpath_algorithm instead",
-			comment = "the right-hand operand can be Djikstra, BidirectionalDijkstra, BellmannFord, FloydWarshall, Astar, NBAStar, NBAStarApprox, DeltaStepping, CHBidirectionalDijkstra, TransitNodeRouting to use the associated algorithm. ",
+			comment = "the right-hand operand can be Djikstra, BidirectionalDijkstra, BellmannFord, FloydWarshall, Astar, NBAStar, NBAStarApprox, DeltaStepping, CHBidirectionalDijkstra, TransitNodeRouting, CustomizableCH to use the associated algorithm. ",
 			examples = @example (
 					value = "road_network <- road_network with_optimizer_type TransitNodeRouting;",
 					isExecutable = false),
@@ -2377,6 +2449,123 @@ public class Graphs {
 		return graph.computeShortestPathBetween(scope, source, target);
 	}
 
+	/**
+	 * Computes the shortest paths between many pairs of sources and targets. The pairs are grouped by source; each group
+	 * of several pairs computes its routes from the shortest path trees of its origin (see
+	 * {@link GamaGraph#withShortestPathTrees}), released once the group is done, and the groups are distributed over the
+	 * threads of the agent parallel executor. The pairs whose source is not shared use a point to point search.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param graph
+	 *            the graph
+	 * @param sources
+	 *            the sources
+	 * @param targets
+	 *            the targets
+	 * @return the i list
+	 * @throws GamaRuntimeException
+	 *             the gama runtime exception
+	 */
+	@operator (
+			value = "batch_paths_between",
+			type = IType.LIST,
+			content_type = IType.PATH,
+			category = { IOperatorCategory.GRAPH, IOperatorCategory.PATH },
+			concept = { IConcept.GRAPH, IConcept.SHORTEST_PATH })
+	@doc (
+			value = "The shortest paths between each source of the first list and the target at the same index in the second list. Equivalent to calling path_between on each pair, but much faster when many pairs share the same sources: the shortest paths from each origin are computed once, and the computations are distributed over several threads",
+			examples = { @example (
+					value = "batch_paths_between(my_graph, [ag1, ag1, ag2], [ag3, ag4, ag3])",
+					equals = "the paths from ag1 to ag3, from ag1 to ag4 and from ag2 to ag3",
+					isExecutable = false) },
+			see = { "path_between" })
+	@no_test
+	public static IList<IPath> batch_paths_between(final IScope scope, final IGraph graph,
+			final IList<IShape> sources, final IList<IShape> targets) throws GamaRuntimeException {
+		if (sources.size() != targets.size()) throw GamaRuntimeException
+				.error("The lists of sources and targets must have the same length", scope);
+		final IPath[] result = new IPath[sources.size()];
+		final Map<IShape, List<Integer>> groups = new LinkedHashMap<>();
+		for (int i = 0; i < result.length; i++) {
+			groups.computeIfAbsent(sources.get(i), k -> new ArrayList<>()).add(i);
+		}
+		final ForkJoinPool pool = GamaExecutorService.AGENT_PARALLEL_EXECUTOR;
+		final List<List<List<Integer>>> chunks = new ArrayList<>();
+		final int size = pool == null ? groups.size() : Math.max(1, groups.size() / (pool.getParallelism() * 4));
+		List<List<Integer>> chunk = new ArrayList<>();
+		for (final List<Integer> group : groups.values()) {
+			chunk.add(group);
+			if (chunk.size() == size) {
+				chunks.add(chunk);
+				chunk = new ArrayList<>();
+			}
+		}
+		if (!chunk.isEmpty()) { chunks.add(chunk); }
+		if (pool == null || chunks.size() < 2 || !(graph instanceof GamaGraph)) {
+			for (final List<List<Integer>> c : chunks) { batchPaths(scope, graph, sources, targets, c, result); }
+		} else {
+			final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+			for (final List<List<Integer>> c : chunks) {
+				final IScope forked = scope.copy(" - forked - ");
+				tasks.add(pool.submit(() -> {
+					try {
+						batchPaths(forked, graph, sources, targets, c, result);
+					} finally {
+						GAMA.releaseScope(forked);
+					}
+				}));
+			}
+			for (final ForkJoinTask<?> task : tasks) {
+				try {
+					task.get();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw GamaRuntimeException.create(e, scope);
+				} catch (final ExecutionException e) {
+					if (e.getCause() instanceof GamaRuntimeException g) throw g;
+					throw GamaRuntimeException.create(e.getCause(), scope);
+				}
+			}
+		}
+		return GamaListFactory.wrap(Types.PATH, result);
+	}
+
+	/**
+	 * Computes the paths of a chunk of groups of pairs. The pairs of a group share the same source: they are computed
+	 * from the shortest path tree of this source, which is released before the next group.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param graph
+	 *            the graph
+	 * @param sources
+	 *            the sources
+	 * @param targets
+	 *            the targets
+	 * @param groups
+	 *            the indices of the pairs, grouped by source
+	 * @param result
+	 *            the array in which the paths are stored
+	 */
+	private static void batchPaths(final IScope scope, final IGraph graph, final IList<IShape> sources,
+			final IList<IShape> targets, final List<List<Integer>> groups, final IPath[] result) {
+		for (final List<Integer> group : groups) {
+			final Runnable action = () -> {
+				for (final int i : group) { result[i] = path_between(scope, graph, sources.get(i), targets.get(i)); }
+			};
+			// A tree is only worth computing if several targets share it
+			if (group.size() > 1 && graph instanceof GamaGraph<?, ?> g) {
+				g.withShortestPathTrees(() -> {
+					action.run();
+					return null;
+				});
+			} else {
+				action.run();
+			}
+		}
+	}
+
 	/**
 	 * Kpaths between.
 	 *
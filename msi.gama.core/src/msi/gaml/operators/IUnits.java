@@ -198,6 +198,14 @@ public interface IUnits {
 			doc = @doc ("TransitNodeRouting shortest path computation algorithm")) String TransitNodeRouting =
 					"TransitNodeRouting";
 
+	/** The customizable contraction hierarchy. */
+	@constant (
+			value = "CustomizableCH",
+			category = { IConstantCategory.CONSTANT },
+			concept = { IConcept.GRAPH, IConcept.CONSTANT },
+			doc = @doc ("Customizable contraction hierarchy shortest path computation algorithm: the hierarchy is only rebuilt when the topology of the graph changes, and can be saved to a file (see 'with_hierarchy_file')")) String CustomizableCH =
+					"CustomizableCH";
+
 	/** The Yen. */
 	@constant (
 			value = "Yen",
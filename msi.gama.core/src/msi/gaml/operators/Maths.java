@@ -1427,6 +1427,192 @@ public class Maths {
 		return a - b;
 	}
 
+	// Unboxed versions of the arithmetic operators, called by their primitive helpers (see GamaPrimitiveGetter)
+
+	/**
+	 * Op plus.
+	 *
+	 * @param a the a
+	 * @param b the b
+	 * @return the int
+	 */
+	public static int opPlus(final int a, final int b) {
+		return a + b;
+	}
+
+	/**
+	 * Op plus.
+	 *
+	 * @param a the a
+	 * @param b the b
+	 * @return the double
+	 */
+	public static double opPlus(final double a, final int b) {
+		return a + b;
+	}
+
+	/**
+	 * Op plus.
+	 *
+	 * @param a the a
+	 * @param b the b
+	 * @return the double
+	 */
+	public static double opPlus(final double a, final double b) {
+		return a + b;
+	}
+
+	/**
+	 * Op plus.
+	 *
+	 * @param a the a
+	 * @param b the b
+	 * @return the double
+	 */
+	public static double opPlus(final int a, final double b) {
+		return a + b;
+	}
+
+	/**
+	 * Op minus.
+	 *
+	 * @param a the a
+	 * @param b the b
+	 * @return the int
+	 */
+	public static int opMinus(final int a, final int b) {
+		return a - b;
+	}
+
+	/**
+	 * Op minus.
+	 *
+	 * @param a the a
+	 * @param b the b
+	 * @return the double
+	 */
+	public static double opMinus(final double a, final int b) {
+		return a - b;
+	}
+
+	/**
+	 * Op minus.
+	 *
+	 * @param a the a
+	 * @param b the b
+	 * @return the double
+	 */
+	public static double opMinus(final double a, final double b) {
+		return a - b;
+	}
+
+	/**
+	 * Op minus.
+	 *
+	 * @param a the a
+	 * @param b the b
+	 * @return the double
+	 */
+	public static double opMinus(final int a, final double b) {
+		return a - b;
+	}
+
+	/**
+	 * Op times.
+	 *
+	 * @param a the a
+	 * @param b the b
+	 * @return the int
+	 */
+	public static int opTimes(final int a, final int b) {
+		return a * b;
+	}
+
+	/**
+	 * Op times.
+	 *
+	 * @param a the a
+	 * @param b the b
+	 * @return the double
+	 */
+	public static double opTimes(final double a, final int b) {
+		return a * b;
+	}
+
+	/**
+	 * Op times.
+	 *
+	 * @param a the a
+	 * @param b the b
+	 * @return the double
+	 */
+	public static double opTimes(final double a, final double b) {
+		return a * b;
+	}
+
+	/**
+	 * Op times.
+	 *
+	 * @param a the a
+	 * @param b the b
+	 * @return the double
+	 */
+	public static double opTimes(final int a, final double b) {
+		return a * b;
+	}
+
+	/**
+	 * Op divide.
+	 *
+	 * @param scope the scope
+	 * @param a the a
+	 * @param b the b
+	 * @return the double
+	 */
+	public static double opDivide(final IScope scope, final int a, final int b) throws GamaRuntimeException {
+		if (b == 0) { throw GamaRuntimeException.error("Division by zero", scope); }
+		return (double) a / b;
+	}
+
+	/**
+	 * Op divide.
+	 *
+	 * @param scope the scope
+	 * @param a the a
+	 * @param b the b
+	 * @return the double
+	 */
+	public static double opDivide(final IScope scope, final double a, final int b) throws GamaRuntimeException {
+		if (b == 0) { throw GamaRuntimeException.error("Division by zero", scope); }
+		return a / b;
+	}
+
+	/**
+	 * Op divide.
+	 *
+	 * @param scope the scope
+	 * @param a the a
+	 * @param b the b
+	 * @return the double
+	 */
+	public static double opDivide(final IScope scope, final double a, final double b) throws GamaRuntimeException {
+		if (b == 0d) { throw GamaRuntimeException.error("Division by zero", scope); }
+		return a / b;
+	}
+
+	/**
+	 * Op divide.
+	 *
+	 * @param scope the scope
+	 * @param a the a
+	 * @param b the b
+	 * @return the double
+	 */
+	public static double opDivide(final IScope scope, final int a, final double b) throws GamaRuntimeException {
+		if (b == 0d) { throw GamaRuntimeException.error("Division by zero", scope); }
+		return a / b;
+	}
+
 	/**
 	 * Op minus.
 	 *
@@ -1906,7 +2092,7 @@ public class Maths {
 							value = "signum(0)",
 							equals = "0") })
 	public static Integer signum(final Double d) {
-		if (d == null || d.isNaN() || Comparison.equal(d, 0d)) { return 0; }
+		if (d == null || d.isNaN() || Comparison.equal(d.doubleValue(), 0d)) { return 0; }
 		if (d < 0) { return -1; }
 		return 1;
 	}
@@ -118,6 +118,13 @@ import one.util.streamex.StreamEx;
 						optional = true,
 						doc = { @doc (
 								value = "(grid only),(\"A*\" by default). Allows to specify the algorithm for the shortest path computation (\"BF\", \"Dijkstra\", \"A*\" or \"JPS*\"") }),
+				@facet (
+						name = IKeyword.SPATIAL_INDEX,
+						type = IType.ID,
+						optional = true,
+						values = { "quadtree", "concurrent", "hash" },
+						doc = { @doc (
+								value = "(\"quadtree\" by default). Allows to specify the spatial index used to store the agents of the species (ignored for grids). \"concurrent\" uses a quadtree that can be safely updated and queried by several threads at once, which is advised when the agents of the species move in parallel. \"hash\" divides the environment in regular cells and is faster for species made of point agents, which can be moved at a constant cost") }),
 				@facet (
 						name = "use_neighbors_cache",
 						type = IType.BOOL,
@@ -12,6 +12,8 @@ package msi.gaml.statements;
 
 import msi.gama.common.interfaces.IGamlIssue;
 import msi.gama.common.interfaces.IKeyword;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.agent.SlottedAttributes;
 import msi.gama.metamodel.shape.IShape;
 import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
@@ -397,6 +399,9 @@ public abstract class AbstractContainerStatement extends AbstractStatement {
 	private IContainer.Modifiable identifyContainer(final IScope scope) throws GamaRuntimeException {
 		final Object cont = list.value(scope);
 		if (isDirect) return (IContainer.Modifiable) cont;
+		// The attributes stored in slots have to be modified through the agent (see AttributeSlots)
+		if (cont instanceof IAgent agent && agent.getSlots() != null)
+			return new SlottedAttributes(agent, agent.getSlots());
 		if (cont instanceof IShape) return ((IShape) cont).getOrCreateAttributes();
 		throw GamaRuntimeException.warning("Cannot use " + list.serialize(false) + ", of type "
 				+ list.getGamlType().toString() + ", as a container", scope);
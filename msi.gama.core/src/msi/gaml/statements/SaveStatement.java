@@ -99,6 +99,8 @@ import msi.gama.util.GamaMapFactory;
 import msi.gama.util.IList;
 import msi.gama.util.IModifiableContainer;
 import msi.gama.util.file.IGamaFile;
+import msi.gama.util.file.OutputSinks;
+import msi.gama.util.file.columnar.ColumnarWriter;
 import msi.gama.util.graph.IGraph;
 import msi.gama.util.graph.writer.GraphExporters;
 import msi.gama.util.matrix.GamaField;
@@ -110,6 +112,7 @@ import msi.gaml.descriptions.StatementDescription;
 import msi.gaml.expressions.ConstantExpression;
 import msi.gaml.expressions.IExpression;
 import msi.gaml.expressions.IExpressionFactory;
+import msi.gaml.expressions.data.ListExpression;
 import msi.gaml.expressions.data.MapExpression;
 import msi.gaml.operators.Cast;
 import msi.gaml.operators.Comparison;
@@ -140,9 +143,9 @@ import msi.gaml.types.Types;
 				name = IKeyword.TYPE,
 				type = IType.ID,
 				optional = true,
-				values = { "shp", "text", "csv", "asc", "geotiff", "image", "kml", "kmz", "json", "dimacs", "dot",
-						"gexf", "graphml", "gml", "graph6" },
-				doc = @doc ("an expression that evaluates to an string, the type of the output file (it can be only \"shp\", \"asc\", \"geotiff\", \"image\", \"text\" or \"csv\") ")),
+				values = { "shp", "text", "csv", "columnar", "asc", "geotiff", "image", "kml", "kmz", "json", "dimacs",
+						"dot", "gexf", "graphml", "gml", "graph6" },
+				doc = @doc ("an expression that evaluates to an string, the type of the output file (it can be only \"shp\", \"asc\", \"geotiff\", \"image\", \"text\", \"csv\" or \"columnar\") ")),
 				@facet (
 						name = IKeyword.DATA,
 						type = IType.NONE,
@@ -152,12 +155,17 @@ import msi.gaml.types.Types;
 						name = IKeyword.REWRITE,
 						type = IType.BOOL,
 						optional = true,
-						doc = @doc ("a boolean expression specifying whether to erase the file if it exists or append data at the end of it. Only applicable to \"text\" or \"csv\" files. Default is true")),
+						doc = @doc ("a boolean expression specifying whether to erase the file if it exists or append data at the end of it. Only applicable to \"text\", \"csv\" or \"columnar\" files. Default is true")),
 				@facet (
 						name = IKeyword.HEADER,
 						type = IType.BOOL,
 						optional = true,
 						doc = @doc ("an expression that evaluates to a boolean, specifying whether the save will write a header if the file does not exist")),
+				@facet (
+						name = "async",
+						type = IType.BOOL,
+						optional = true,
+						doc = @doc ("a boolean expression specifying whether the rows saved in a \"text\", \"csv\" or \"columnar\" file can be written asynchronously. If true, the file is kept open and the rows are buffered (and, for text files, written by a background thread); the file is complete once the simulation is disposed. Only useful when the rows are appended to the file (i.e. with rewrite: false). Default is false")),
 				@facet (
 						name = IKeyword.TO,
 						type = IType.STRING,
@@ -202,6 +210,10 @@ import msi.gaml.types.Types;
 						value = "To save the values of all attributes of all the agents of a species into a csv (with optional attributes):",
 						examples = { @example (
 								value = "save species_of(self) to: \"save_csvfile.csv\" type: \"csv\" header: false;") }),
+				@usage (
+						value = "To append the values of all attributes of all the agents of a species to a binary columnar file (typed columns, compressed), which can be read back with columnar_file:",
+						examples = { @example (
+								value = "save species_of(self) to: \"save_columns.gcol\" type: \"columnar\" rewrite: false async: true;") }),
 				@usage (
 						value = "To save the geometries of all the agents of a species into a shapefile (with optional attributes):",
 						examples = { @example (
@@ -306,7 +318,7 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 	private final IExpression attributesFacet;
 
 	/** The header. */
-	private final IExpression crsCode, item, file, rewriteExpr, header;
+	private final IExpression crsCode, item, file, rewriteExpr, header, async;
 
 	/**
 	 * Instantiates a new save statement.
@@ -321,6 +333,7 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 		file = getFacet(IKeyword.TO);
 		rewriteExpr = getFacet(IKeyword.REWRITE);
 		header = getFacet(IKeyword.HEADER);
+		async = getFacet("async");
 		attributesFacet = getFacet(IKeyword.ATTRIBUTES);
 	}
 
@@ -396,13 +409,32 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 				case "text":
 				case "csv":
 					final boolean rewrite = shouldOverwrite(scope);
+					final boolean isAsync = async != null && Cast.asBool(scope, async.value(scope));
+					// The rows already buffered for this file are written before it is rewritten or written
+					// synchronously
+					if (rewrite || !isAsync) { OutputSinks.release(scope, fileToSave); }
 					if (rewrite && exists) {
 						fileToSave.delete();
 						exists = false;
 					}
 					fileToSave.createNewFile();
 					final boolean addHeader = !exists && (header == null || Cast.asBool(scope, header.value(scope)));
-					saveText(type, fileToSave, addHeader, scope);
+					if (isAsync) {
+						final String text = textOf(type, addHeader, scope);
+						if (!text.isEmpty()) { OutputSinks.of(scope).append(scope, fileToSave, text); }
+					} else {
+						saveText(type, fileToSave, addHeader, scope);
+					}
+					break;
+				case "columnar":
+					final boolean isAsyncColumnar = async != null && Cast.asBool(scope, async.value(scope));
+					if (shouldOverwrite(scope)) {
+						OutputSinks.release(scope, fileToSave);
+						if (exists) { fileToSave.delete(); }
+					}
+					saveColumnar(fileToSave, scope);
+					// Unless asynchronous, the rows are written at once
+					if (!isAsyncColumnar) { OutputSinks.release(scope, fileToSave); }
 					break;
 				case "asc":
 					Object v = item.value(scope);
@@ -1011,35 +1043,135 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 	 */
 	public void saveText(final String type, final File fileTxt, final boolean header, final IScope scope)
 			throws GamaRuntimeException {
+		final String text = textOf(type, header, scope);
+		if (text.isEmpty()) return;
 		try (FileWriter fw = new FileWriter(fileTxt, true)) {
+			fw.write(text);
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+	/**
+	 * Appends the data to save to a columnar file, kept open by the simulation. Agents are saved with the same columns
+	 * as in csv files; other data are saved as one row.
+	 *
+	 * @param file
+	 *            the file
+	 * @param scope
+	 *            the scope
+	 * @throws GamaRuntimeException
+	 *             the gama runtime exception
+	 */
+	private void saveColumnar(final File file, final IScope scope) throws GamaRuntimeException {
+		final IType itemType = item.getGamlType();
+		final SpeciesDescription sd = speciesOf(itemType);
+		final Object value = item.value(scope);
+		final IList values =
+				itemType.isContainer() ? Cast.asList(scope, value) : GamaListFactory.create(scope, itemType, value);
+		if (values.isEmpty()) return;
+		final List<String> names = new ArrayList<>();
+		final List<Object[]> rows = new ArrayList<>();
+		if (sd != null) {
+			final Collection<String> attributeNames = sd.getAttributeNames();
+			attributeNames.removeAll(NON_SAVEABLE_ATTRIBUTE_NAMES);
+			names.addAll(Arrays.asList("cycle", "name", "location.x", "location.y", "location.z"));
+			names.addAll(attributeNames);
+			for (final Object obj : values) {
+				if (!(obj instanceof IAgent)) { continue; }
+				final IAgent ag = (IAgent) obj;
+				final Object[] row = new Object[names.size()];
+				row[0] = scope.getClock().getCycle();
+				row[1] = ag.getName();
+				row[2] = ag.getLocation().getX();
+				row[3] = ag.getLocation().getY();
+				row[4] = ag.getLocation().getZ();
+				int i = 5;
+				for (final String v : attributeNames) { row[i++] = toColumnValue(ag.getDirectVarValue(scope, v)); }
+				rows.add(row);
+			}
+		} else {
+			final IExpression[] elements =
+					item instanceof ListExpression ? ((ListExpression) item).getElements() : new IExpression[0];
+			final Object[] row = new Object[values.size()];
+			for (int i = 0; i < row.length; i++) {
+				names.add(i < elements.length ? elements[i].serialize(true) : "value" + i);
+				row[i] = toColumnValue(values.get(i));
+			}
+			rows.add(row);
+		}
+		if (rows.isEmpty()) return;
+		final ColumnarWriter writer = OutputSinks.of(scope).columnar(scope, file, names, rows.get(0));
+		try {
+			for (final Object[] row : rows) { writer.append(row); }
+		} catch (final IOException e) {
+			throw GamaRuntimeException.create(e, scope);
+		}
+	}
+
+	/**
+	 * Converts a value to a value of a columnar file: numbers, booleans and strings are kept, the other values are
+	 * converted to strings as in csv files.
+	 *
+	 * @param o
+	 *            the o
+	 * @return the object
+	 */
+	private Object toColumnValue(final Object o) {
+		if (o == null || o instanceof Number || o instanceof Boolean || o instanceof String) return o;
+		return toCleanString(o);
+	}
+
+	/**
+	 * The species of the agents saved, if the data saved is an agent or a container of agents.
+	 *
+	 * @param itemType
+	 *            the type of the data saved
+	 * @return the species description, or null
+	 */
+	private static SpeciesDescription speciesOf(final IType itemType) {
+		if (itemType.isAgentType()) return itemType.getSpecies();
+		if (itemType.getContentType().isAgentType()) return itemType.getContentType().getSpecies();
+		return null;
+	}
+
+	/**
+	 * Builds the text or csv rows to save.
+	 *
+	 * @param type
+	 *            the type
+	 * @param header
+	 *            the header
+	 * @param scope
+	 *            the scope
+	 * @return the string
+	 * @throws GamaRuntimeException
+	 *             the gama runtime exception
+	 */
+	private String textOf(final String type, final boolean header, final IScope scope) throws GamaRuntimeException {
+		final StringBuilder sb = new StringBuilder();
+		try {
 			if ("text".equals(type)) {
-				fw.write(Cast.asString(scope, item.value(scope)) + Strings.LN);
+				sb.append(Cast.asString(scope, item.value(scope)) + Strings.LN);
 			} else if ("csv".equals(type)) {
 				final IType itemType = item.getGamlType();
-				final SpeciesDescription sd;
-				if (itemType.isAgentType()) {
-					sd = itemType.getSpecies();
-				} else if (itemType.getContentType().isAgentType()) {
-					sd = itemType.getContentType().getSpecies();
-				} else {
-					sd = null;
-				}
+				final SpeciesDescription sd = speciesOf(itemType);
 				final Object value = item.value(scope);
 				final IList values = itemType.isContainer() ? Cast.asList(scope, value)
 						: GamaListFactory.create(scope, itemType, value);
-				if (values.isEmpty()) return;
+				if (values.isEmpty()) return "";
 				if (sd != null) {
 					final Collection<String> attributeNames = sd.getAttributeNames();
 					attributeNames.removeAll(NON_SAVEABLE_ATTRIBUTE_NAMES);
 					if (header) {
-						fw.write("cycle;name;location.x;location.y;location.z");
-						for (final String v : attributeNames) { fw.write(";" + v); }
-						fw.write(Strings.LN);
+						sb.append("cycle;name;location.x;location.y;location.z");
+						for (final String v : attributeNames) { sb.append(";" + v); }
+						sb.append(Strings.LN);
 					}
 					for (final Object obj : values) {
 						if (obj instanceof IAgent) {
 							final IAgent ag = Cast.asAgent(scope, obj);
-							fw.write(scope.getClock().getCycle() + ";" + ag.getName().replace(';', ',') + ";"
+							sb.append(scope.getClock().getCycle() + ";" + ag.getName().replace(';', ',') + ";"
 									+ ag.getLocation().getX() + ";" + ag.getLocation().getY() + ";"
 									+ ag.getLocation().getZ());
 							for (final String v : attributeNames) {
@@ -1048,31 +1180,31 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 										|| val.startsWith("\"") && val.endsWith("\"")) {
 									val = val.substring(1, val.length() - 1);
 								}
-								fw.write(";" + val);
+								sb.append(";" + val);
 							}
-							fw.write(Strings.LN);
+							sb.append(Strings.LN);
 						}
 
 					}
 				} else {
 					if (header) {
-						fw.write(item.serialize(true).replace("]", "").replace("[", ""));
-						fw.write(Strings.LN);
+						sb.append(item.serialize(true).replace("]", "").replace("[", ""));
+						sb.append(Strings.LN);
 					}
 					if (itemType.id() == IType.MATRIX) {
 						final String[] tmpValue = value.toString().replace("[", "").replace("]", "").split(",");
 						for (int i = 0; i < tmpValue.length; i++) {
-							if (i > 0) { fw.write(','); }
-							fw.write(toCleanString(tmpValue[i]));
+							if (i > 0) { sb.append(','); }
+							sb.append(toCleanString(tmpValue[i]));
 						}
 					} else {
 						final int size = values.size();
 						for (int i = 0; i < size; i++) {
-							if (i > 0) { fw.write(','); }
-							fw.write(toCleanString(values.get(i)));
+							if (i > 0) { sb.append(','); }
+							sb.append(toCleanString(values.get(i)));
 						}
 					}
-					fw.write(Strings.LN);
+					sb.append(Strings.LN);
 				}
 
 			}
@@ -1082,7 +1214,7 @@ public class SaveStatement extends AbstractStatementSequence implements IStateme
 		} catch (final Throwable e) {
 			throw GamaRuntimeException.create(e, scope);
 		}
-
+		return sb.toString();
 	}
 
 	/**
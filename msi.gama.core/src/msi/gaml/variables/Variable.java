@@ -25,6 +25,7 @@ import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.interfaces.ISkill;
 import msi.gama.common.interfaces.IVarAndActionSupport;
 import msi.gama.common.util.JavaUtils;
+import msi.gama.metamodel.agent.AttributeSlots;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.precompiler.GamlAnnotations.doc;
 import msi.gama.precompiler.GamlAnnotations.facet;
@@ -442,6 +443,9 @@ public class Variable extends Symbol implements IVariable {
 
 	/** The must notify of changes. */
 	protected boolean mustNotifyOfChanges;
+
+	/** The code of the slot used to store the values of this variable in agents, if any. See {@link AttributeSlots} */
+	protected int slot = AttributeSlots.NONE;
 	// private Object speciesWideValue;
 
 	/**
@@ -709,7 +713,12 @@ public class Variable extends Symbol implements IVariable {
 		if (setter != null) {
 			setter.run(scope, agent, sSkill == null ? agent : sSkill, val);
 		} else {
-			agent.setAttribute(name, val);
+			final AttributeSlots slots = slot == AttributeSlots.NONE ? null : agent.getSlots();
+			if (slots != null) {
+				slots.set(scope, slot, val);
+			} else {
+				agent.setAttribute(name, val);
+			}
 		}
 		// if (isSpeciesConst) {
 		// speciesWideValue = val;
@@ -748,12 +757,42 @@ public class Variable extends Symbol implements IVariable {
 		// if (isSpeciesConst) { return speciesWideValue; }
 		if (getter != null) return getter.run(scope, agent, gSkill == null ? agent : gSkill);
 		if (functionExpression != null) return scope.evaluate(functionExpression, agent).getValue();
+		final AttributeSlots slots = slot == AttributeSlots.NONE ? null : agent.getSlots();
+		if (slots != null) {
+			if (isNotModifiable && !slots.isDefined(slot)) return getInitialValue(scope);
+			return slots.get(slot);
+		}
 		// Var not yet initialized. May happen when asking for its value while initializing an editor
 		// See Issue #2781
 		if (!agent.hasAttribute(name) && isNotModifiable && !description.isBuiltIn()) return getInitialValue(scope);
 		return agent.getAttribute(name);
 	}
 
+	/**
+	 * Whether the values of this variable can be stored in the slots of agents rather than in their map of attributes:
+	 * the variable must be declared in GAML and must not define a getter, a setter or a function.
+	 *
+	 * @return true, if is slottable
+	 */
+	public boolean isSlottable() {
+		return getter == null && setter == null && functionExpression == null && !description.isBuiltIn();
+	}
+
+	/**
+	 * Sets the code of the slot where the values of this variable are stored in agents.
+	 *
+	 * @param code
+	 *            the new slot
+	 */
+	public void setSlot(final int code) { slot = code; }
+
+	/**
+	 * Gets the code of the slot where the values of this variable are stored in agents, or AttributeSlots.NONE
+	 *
+	 * @return the slot
+	 */
+	public int getSlot() { return slot; }
+
 	@Override
 	public Object getUpdatedValue(final IScope scope) {
 		return updateExpression.value(scope);
@@ -0,0 +1,125 @@
+/*******************************************************************************************************
+ *
+ * BatchWorker.java, in msi.gama.headless, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.headless.batch;
+
+import static msi.gama.headless.batch.WorkerProtocol.FAILURE;
+import static msi.gama.headless.batch.WorkerProtocol.HELLO;
+import static msi.gama.headless.batch.WorkerProtocol.QUIT;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.common.util.URI;
+
+import com.google.inject.Injector;
+
+import msi.gama.headless.core.HeadlessSimulationLoader;
+import msi.gama.kernel.batch.BatchJournal;
+import msi.gama.kernel.experiment.BatchAgent;
+import msi.gama.kernel.experiment.IExperimentPlan;
+import msi.gama.kernel.experiment.ParametersSet;
+import msi.gama.kernel.model.IModel;
+import msi.gama.lang.gaml.validation.GamlModelBuilder;
+import msi.gama.runtime.concurrent.GamaExecutorService;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gaml.compilation.GamlCompilationError;
+
+/**
+ * A worker process of a {@link WorkerFarm}: it opens the batch experiment of a model and evaluates the points sent by
+ * the farm, one at a time, until it is asked to quit (or the farm disappears).
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public class BatchWorker {
+
+	/**
+	 * Instantiates a new batch worker.
+	 */
+	private BatchWorker() {}
+
+	/**
+	 * Runs a worker.
+	 *
+	 * @param port
+	 *            the port of the farm on the local host
+	 * @param index
+	 *            the index of the worker
+	 * @param threads
+	 *            the number of threads the worker can use
+	 * @param experimentName
+	 *            the experiment name
+	 * @param pathToModel
+	 *            the path to the model
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	public static void run(final int port, final int index, final int threads, final String experimentName,
+			final String pathToModel) throws IOException {
+		final Injector injector = HeadlessSimulationLoader.getInjector();
+		final GamlModelBuilder builder = new GamlModelBuilder(injector);
+		final List<GamlCompilationError> errors = new ArrayList<>();
+		final IModel mdl = builder.compile(URI.createURI(pathToModel), errors);
+
+		GamaExecutorService.CONCURRENCY_SIMULATIONS.set(true);
+		GamaExecutorService.THREADS_NUMBER.set(threads);
+
+		final IExperimentPlan expPlan = mdl.getExperiment(experimentName);
+		expPlan.setHeadless(true);
+		// The outputs are logged by the farm
+		expPlan.setLog(null);
+		expPlan.open();
+		final BatchAgent agent = (BatchAgent) expPlan.getAgent();
+
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+			socket.setTcpNoDelay(true);
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			out.writeByte(HELLO);
+			out.writeInt(index);
+			out.flush();
+			while (true) {
+				final byte message;
+				try {
+					message = in.readByte();
+				} catch (final EOFException e) {
+					break;
+				}
+				if (message == QUIT) { break; }
+				final Double[] seeds = WorkerProtocol.readSeeds(in);
+				final ParametersSet point = WorkerProtocol.readPoint(in);
+				final Map<String, List<Object>> outputs;
+				try {
+					agent.setSeeds(seeds);
+					outputs = agent.launchSimulationsWithSolution(point);
+				} catch (final GamaRuntimeException e) {
+					out.writeByte(FAILURE);
+					BatchJournal.writeString(out, String.valueOf(e.getMessage()));
+					out.flush();
+					continue;
+				}
+				WorkerProtocol.writeOutputs(out, outputs);
+			}
+		} finally {
+			expPlan.dispose();
+		}
+	}
+
+}
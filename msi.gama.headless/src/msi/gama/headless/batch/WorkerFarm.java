@@ -0,0 +1,506 @@
+/*******************************************************************************************************
+ *
+ * WorkerFarm.java, in msi.gama.headless, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.headless.batch;
+
+import static msi.gama.headless.batch.WorkerProtocol.HELLO;
+import static msi.gama.headless.batch.WorkerProtocol.QUIT;
+import static msi.gama.headless.batch.WorkerProtocol.RESULT;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+import msi.gama.kernel.batch.BatchJournal;
+import msi.gama.kernel.batch.IBatchEvaluator;
+import msi.gama.kernel.experiment.ParametersSet;
+import msi.gama.runtime.GAMA;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import ummisco.gama.dev.utils.DEBUG;
+
+/**
+ * A farm of worker processes that evaluate the points of a batch experiment on the local machine. Each worker is a
+ * child GAMA JVM (launched with the command line of the current one) running a {@link BatchWorker}: it has its own
+ * heap, its own executors and its own preferences, so that the workers do not share any static state nor stop each
+ * other when collecting garbage. The points are sent to the idle workers over local sockets and their outputs are
+ * passed back to the batch agent. A worker that dies (e.g. because it has run out of memory) or that does not answer
+ * within the timeout (e.g. because it is stuck in a simulation that never ends) is killed and restarted, and the point
+ * it was evaluating is sent again (at most {@link #MAX_ATTEMPTS} times). When the farm is closed, it logs the
+ * throughput of each worker.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public class WorkerFarm implements IBatchEvaluator, Closeable {
+
+	/** The maximum number of times a point is sent to a worker. */
+	static final int MAX_ATTEMPTS = 3;
+
+	/** The time a worker has to start and connect to the farm, in minutes. */
+	static final int STARTUP_TIMEOUT = 5;
+
+	/** The time a connection has to identify itself as a worker, in seconds. */
+	static final int HELLO_TIMEOUT = 10;
+
+	/** The default time a worker has to return the outputs of a point, in minutes. */
+	public static final int DEFAULT_TIMEOUT = 60;
+
+	/** The JVM options of the workers: they exit when they run out of memory, so that they can be restarted. */
+	static final String JVM_OPTIONS = "-XX:+ExitOnOutOfMemoryError";
+
+	/**
+	 * A point being evaluated.
+	 */
+	static class Task {
+
+		/** The point. */
+		final ParametersSet point;
+
+		/** The number of attempts. */
+		int attempts;
+
+		/**
+		 * Instantiates a new task.
+		 *
+		 * @param point
+		 *            the point
+		 */
+		Task(final ParametersSet point) {
+			this.point = point;
+		}
+	}
+
+	/**
+	 * The result of the evaluation of a point by a worker.
+	 */
+	static class Completion {
+
+		/** The worker. */
+		final Worker worker;
+
+		/** The task. */
+		final Task task;
+
+		/** The outputs, or null if the evaluation has failed. */
+		Map<String, List<Object>> outputs;
+
+		/** The error message, if the evaluation has failed. */
+		String error;
+
+		/** Whether the worker has died during the evaluation. */
+		boolean crashed;
+
+		/**
+		 * Instantiates a new completion.
+		 *
+		 * @param worker
+		 *            the worker
+		 * @param task
+		 *            the task
+		 */
+		Completion(final Worker worker, final Task task) {
+			this.worker = worker;
+			this.task = task;
+		}
+	}
+
+	/**
+	 * A worker process.
+	 */
+	class Worker {
+
+		/** The index. */
+		final int index;
+
+		/** The thread that communicates with the process. */
+		final ExecutorService thread;
+
+		/** The process. */
+		Process process;
+
+		/** The socket. */
+		Socket socket;
+
+		/** The in. */
+		DataInputStream in;
+
+		/** The out. */
+		DataOutputStream out;
+
+		/** Whether the worker can receive a new point. Only accessed by the thread of the batch agent. */
+		boolean idle = true;
+
+		/** The number of points evaluated and the number of times the process has been started. */
+		volatile int points, starts;
+
+		/** The busy time, in nanoseconds. */
+		volatile long busy;
+
+		/**
+		 * Instantiates a new worker.
+		 *
+		 * @param index
+		 *            the index
+		 */
+		Worker(final int index) {
+			this.index = index;
+			thread = Executors.newSingleThreadExecutor(r -> {
+				final Thread t = new Thread(r, "GAMA worker " + index);
+				t.setDaemon(true);
+				return t;
+			});
+		}
+
+		/**
+		 * Sends a point to the process.
+		 *
+		 * @param task
+		 *            the task
+		 * @param seeds
+		 *            the seeds
+		 * @param completions
+		 *            the queue of completions
+		 */
+		void submit(final Task task, final Double[] seeds, final BlockingQueue<Completion> completions) {
+			idle = false;
+			thread.execute(() -> completions.add(evaluate(task, seeds)));
+		}
+
+		/**
+		 * Evaluates a point, starting the process if needed.
+		 *
+		 * @param task
+		 *            the task
+		 * @param seeds
+		 *            the seeds
+		 * @return the completion
+		 */
+		Completion evaluate(final Task task, final Double[] seeds) {
+			final Completion result = new Completion(this, task);
+			final long start = System.nanoTime();
+			try {
+				ensureStarted();
+				WorkerProtocol.writeRequest(out, seeds, task.point);
+				if (in.readByte() == RESULT) {
+					result.outputs = WorkerProtocol.readOutputs(in);
+					points++;
+				} else {
+					result.error = BatchJournal.readString(in);
+				}
+			} catch (final SocketTimeoutException e) {
+				stop();
+				result.crashed = true;
+				result.error = "worker " + index + " has not answered in " + timeout / 1000 + "s and has been stopped";
+			} catch (final IOException e) {
+				stop();
+				result.crashed = true;
+				result.error = "worker " + index + " has stopped (" + e.getMessage() + ")";
+			} finally {
+				busy += System.nanoTime() - start;
+			}
+			return result;
+		}
+
+		/**
+		 * Starts the process if it is not running.
+		 *
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		void ensureStarted() throws IOException {
+			if (socket != null && process.isAlive()) return;
+			stop();
+			starts++;
+			final CompletableFuture<Socket> connection = new CompletableFuture<>();
+			connections.put(index, connection);
+			final ProcessBuilder builder = new ProcessBuilder(commandFor(index)).inheritIO();
+			// Passed through the environment, as the executable is not necessarily the java one
+			final String options = builder.environment().get("JAVA_TOOL_OPTIONS");
+			builder.environment().put("JAVA_TOOL_OPTIONS", options == null ? JVM_OPTIONS : options + " " + JVM_OPTIONS);
+			process = builder.start();
+			final long begin = System.nanoTime();
+			while (socket == null) {
+				try {
+					socket = connection.get(1, TimeUnit.SECONDS);
+				} catch (final TimeoutException e) {
+					if (!process.isAlive()) throw new IOException("exit code " + process.exitValue());
+					if (System.nanoTime() - begin > TimeUnit.MINUTES.toNanos(STARTUP_TIMEOUT)) {
+						throw new IOException("not connected after " + STARTUP_TIMEOUT + " minutes");
+					}
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException(e);
+				} catch (final ExecutionException e) {
+					throw new IOException(e.getCause());
+				}
+			}
+			socket.setSoTimeout(timeout);
+			in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+
+		/**
+		 * Asks the process to quit, and waits for it.
+		 */
+		void quit() {
+			thread.shutdown();
+			try {
+				thread.awaitTermination(1, TimeUnit.MINUTES);
+				if (socket != null) {
+					out.writeByte(QUIT);
+					out.flush();
+					process.waitFor(10, TimeUnit.SECONDS);
+				}
+			} catch (final IOException e) {
+				// The process is stopped below
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			stop();
+		}
+
+		/**
+		 * Stops the process.
+		 */
+		void stop() {
+			connections.remove(index);
+			if (socket != null) {
+				try {
+					socket.close();
+				} catch (final IOException e) {}
+				socket = null;
+			}
+			if (process != null && process.isAlive()) { process.destroyForcibly(); }
+		}
+	}
+
+	/** The experiment name. */
+	final String experimentName;
+
+	/** The path to model. */
+	final String pathToModel;
+
+	/** The command line of the current process, without its application arguments. */
+	final List<String> command;
+
+	/** The number of threads of each worker. */
+	final int threads;
+
+	/** The time a worker has to return the outputs of a point, in milliseconds (0 if it has no limit). */
+	final int timeout;
+
+	/** The server socket the workers connect to. */
+	final ServerSocket server;
+
+	/** The connections expected from the workers that are starting, indexed by their index. */
+	final Map<Integer, CompletableFuture<Socket>> connections = new ConcurrentHashMap<>();
+
+	/** The workers. */
+	final Worker[] workers;
+
+	/** The creation time of the farm. */
+	final long creation = System.nanoTime();
+
+	/**
+	 * Instantiates a new farm and starts its workers.
+	 *
+	 * @param size
+	 *            the number of workers
+	 * @param experimentName
+	 *            the experiment name
+	 * @param pathToModel
+	 *            the path to the model
+	 * @param applicationArguments
+	 *            the arguments of the current application, which are replaced by the ones of the workers
+	 * @param timeout
+	 *            the time a worker has to return the outputs of a point, in seconds (0 if it has no limit)
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred, or that the command line of the current process cannot
+	 *             be retrieved
+	 */
+	public WorkerFarm(final int size, final String experimentName, final String pathToModel,
+			final List<String> applicationArguments, final int timeout) throws IOException {
+		this.experimentName = experimentName;
+		this.pathToModel = pathToModel;
+		this.timeout = (int) Math.min(Integer.MAX_VALUE, TimeUnit.SECONDS.toMillis(Math.max(0, timeout)));
+		command = currentCommand(applicationArguments);
+		threads = Math.max(1, Runtime.getRuntime().availableProcessors() / size);
+		server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		final Thread acceptor = new Thread(this::accept, "GAMA worker farm");
+		acceptor.setDaemon(true);
+		acceptor.start();
+		workers = new Worker[size];
+		for (int i = 0; i < size; i++) { workers[i] = new Worker(i); }
+		// The workers are started in parallel, as their startup (and the compilation of the model) takes time
+		for (final Worker worker : workers) {
+			worker.thread.execute(() -> {
+				try {
+					worker.ensureStarted();
+				} catch (final IOException e) {
+					DEBUG.LOG("Worker " + worker.index + " cannot be started: " + e.getMessage());
+					worker.stop();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Returns the command line of the current process, without its application arguments.
+	 *
+	 * @param applicationArguments
+	 *            the application arguments
+	 * @return the list
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static List<String> currentCommand(final List<String> applicationArguments) throws IOException {
+		final ProcessHandle.Info info = ProcessHandle.current().info();
+		if (info.command().isEmpty() || info.arguments().isEmpty())
+			throw new IOException("The command line of GAMA cannot be retrieved: workers cannot be started");
+		final List<String> arguments = new ArrayList<>(Arrays.asList(info.arguments().get()));
+		final int end = arguments.size() - applicationArguments.size();
+		if (end < 0 || !arguments.subList(end, arguments.size()).equals(applicationArguments))
+			throw new IOException("The arguments of GAMA cannot be retrieved: workers cannot be started");
+		final List<String> result = new ArrayList<>();
+		result.add(info.command().get());
+		result.addAll(arguments.subList(0, end));
+		return result;
+	}
+
+	/**
+	 * The command line of a worker: each of them has its own workspace.
+	 *
+	 * @param index
+	 *            the index
+	 * @return the list
+	 */
+	List<String> commandFor(final int index) {
+		final List<String> result = new ArrayList<>(command);
+		final int data = result.indexOf("-data");
+		if (data >= 0 && data < result.size() - 1) { result.set(data + 1, result.get(data + 1) + "-worker" + index); }
+		result.addAll(Arrays.asList("-worker", String.valueOf(server.getLocalPort()), String.valueOf(index),
+				String.valueOf(threads), experimentName, pathToModel));
+		return result;
+	}
+
+	/**
+	 * Accepts the connections of the workers, which identify themselves by their index.
+	 */
+	void accept() {
+		while (!server.isClosed()) {
+			final Socket socket;
+			try {
+				socket = server.accept();
+			} catch (final IOException e) {
+				// The server is closed
+				continue;
+			}
+			try {
+				socket.setTcpNoDelay(true);
+				// A connection that does not identify itself does not block the others
+				socket.setSoTimeout((int) TimeUnit.SECONDS.toMillis(HELLO_TIMEOUT));
+				final DataInputStream in = new DataInputStream(socket.getInputStream());
+				if (in.readByte() != HELLO) {
+					socket.close();
+					continue;
+				}
+				final CompletableFuture<Socket> connection = connections.get(in.readInt());
+				if (connection == null) {
+					socket.close();
+				} else {
+					connection.complete(socket);
+				}
+			} catch (final IOException e) {
+				DEBUG.LOG("Connection of a worker failed: " + e.getMessage());
+				try {
+					socket.close();
+				} catch (final IOException ignored) {}
+			}
+		}
+	}
+
+	@Override
+	public void evaluate(final IScope scope, final Iterator<ParametersSet> points, final Double[] seeds,
+			final BiConsumer<ParametersSet, Map<String, List<Object>>> consumer) {
+		final BlockingQueue<Completion> completions = new LinkedBlockingQueue<>();
+		final Deque<Task> retries = new ArrayDeque<>();
+		int inFlight = 0;
+		while (true) {
+			// We send the next points to the idle workers
+			if (!scope.interrupted()) {
+				for (final Worker worker : workers) {
+					if (!worker.idle) { continue; }
+					Task task = retries.poll();
+					if (task == null && points.hasNext()) { task = new Task(points.next()); }
+					if (task == null) { break; }
+					task.attempts++;
+					worker.submit(task, seeds, completions);
+					inFlight++;
+				}
+			}
+			if (inFlight == 0) { break; }
+			final Completion completion;
+			try {
+				completion = completions.take();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+			inFlight--;
+			completion.worker.idle = true;
+			if (completion.outputs != null) {
+				consumer.accept(completion.task.point, completion.outputs);
+			} else if (completion.crashed && completion.task.attempts < MAX_ATTEMPTS) {
+				retries.add(completion.task);
+			} else {
+				GAMA.reportError(scope, GamaRuntimeException.error("The evaluation of " + completion.task.point.getElements()
+						+ " has failed: " + completion.error, scope), false);
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (final Worker worker : workers) { worker.quit(); }
+		server.close();
+		final double minutes = (System.nanoTime() - creation) / 6e10;
+		for (final Worker worker : workers) {
+			DEBUG.LOG("Worker " + worker.index + ": " + worker.points + " points evaluated in "
+					+ Math.round(worker.busy / 1e9) + "s of work (" + Math.round(worker.points / minutes * 10) / 10d
+					+ " points/min), " + Math.max(0, worker.starts - 1) + " restart(s)");
+		}
+	}
+
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************************************
+ *
+ * WorkerProtocol.java, in msi.gama.headless, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package msi.gama.headless.batch;
+
+import static msi.gama.kernel.batch.BatchJournal.readString;
+import static msi.gama.kernel.batch.BatchJournal.readValue;
+import static msi.gama.kernel.batch.BatchJournal.writeString;
+import static msi.gama.kernel.batch.BatchJournal.writeValue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import msi.gama.kernel.experiment.ParametersSet;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.GamaMapFactory;
+
+/**
+ * The messages exchanged between a {@link WorkerFarm} and its {@link BatchWorker}s over a local socket. A worker
+ * first sends {@link #HELLO} followed by its index; then it receives either {@link #EVALUATE}, followed by the seeds
+ * and the parameters of a point, to which it answers {@link #RESULT} followed by the outputs of the point or
+ * {@link #FAILURE} followed by an error message, or {@link #QUIT}.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+final class WorkerProtocol {
+
+	/** The messages. */
+	static final byte HELLO = 0, EVALUATE = 1, RESULT = 2, FAILURE = 3, QUIT = 4;
+
+	/**
+	 * Instantiates a new worker protocol.
+	 */
+	private WorkerProtocol() {}
+
+	/**
+	 * Writes a request to evaluate a point.
+	 *
+	 * @param out
+	 *            the out
+	 * @param seeds
+	 *            the seeds of the simulations
+	 * @param point
+	 *            the point
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static void writeRequest(final DataOutputStream out, final Double[] seeds, final ParametersSet point)
+			throws IOException {
+		out.writeByte(EVALUATE);
+		out.writeInt(seeds.length);
+		for (final Double seed : seeds) { writeValue(out, seed); }
+		out.writeInt(point.size());
+		for (final Map.Entry<String, Object> entry : point.entrySet()) {
+			writeString(out, entry.getKey());
+			writeValue(out, entry.getValue());
+		}
+		out.flush();
+	}
+
+	/**
+	 * Reads the seeds of a request (after its {@link #EVALUATE} byte).
+	 *
+	 * @param in
+	 *            the in
+	 * @return the seeds
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static Double[] readSeeds(final DataInputStream in) throws IOException {
+		final Double[] seeds = new Double[in.readInt()];
+		for (int i = 0; i < seeds.length; i++) {
+			final Object seed = readValue(in);
+			seeds[i] = seed == null ? null : ((Number) seed).doubleValue();
+		}
+		return seeds;
+	}
+
+	/**
+	 * Reads the point of a request (after its seeds).
+	 *
+	 * @param in
+	 *            the in
+	 * @return the parameters set
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static ParametersSet readPoint(final DataInputStream in) throws IOException {
+		final ParametersSet point = new ParametersSet();
+		final int size = in.readInt();
+		for (int i = 0; i < size; i++) { point.put(readString(in), readValue(in)); }
+		return point;
+	}
+
+	/**
+	 * Writes the outputs of a point.
+	 *
+	 * @param out
+	 *            the out
+	 * @param outputs
+	 *            the outputs
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static void writeOutputs(final DataOutputStream out, final Map<String, List<Object>> outputs) throws IOException {
+		out.writeByte(RESULT);
+		out.writeInt(outputs.size());
+		for (final Map.Entry<String, List<Object>> entry : outputs.entrySet()) {
+			writeString(out, entry.getKey());
+			writeValue(out, entry.getValue());
+		}
+		out.flush();
+	}
+
+	/**
+	 * Reads the outputs of a point (after its {@link #RESULT} byte).
+	 *
+	 * @param in
+	 *            the in
+	 * @return the map
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	@SuppressWarnings ("unchecked")
+	static Map<String, List<Object>> readOutputs(final DataInputStream in) throws IOException {
+		final Map<String, List<Object>> outputs = GamaMapFactory.create();
+		final int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			final String name = readString(in);
+			final List<Object> values = GamaListFactory.create();
+			values.addAll((List<Object>) readValue(in));
+			outputs.put(name, values);
+		}
+		return outputs;
+	}
+
+}
@@ -37,9 +37,11 @@ import org.w3c.dom.Document;
 import com.google.inject.Injector;
 
 import msi.gama.common.GamlFileExtension;
+import msi.gama.headless.batch.BatchWorker;
 import msi.gama.headless.batch.ModelLibraryRunner;
 import msi.gama.headless.batch.ModelLibraryTester;
 import msi.gama.headless.batch.ModelLibraryValidator;
+import msi.gama.headless.batch.WorkerFarm;
 import msi.gama.headless.batch.documentation.ModelLibraryGenerator;
 import msi.gama.headless.common.Globals;
 import msi.gama.headless.common.HeadLessErrors;
@@ -53,6 +55,7 @@ import msi.gama.headless.script.ExperimentationPlanFactory;
 import msi.gama.headless.xml.ConsoleReader;
 import msi.gama.headless.xml.Reader;
 import msi.gama.headless.xml.XMLWriter;
+import msi.gama.kernel.batch.BatchJournal;
 import msi.gama.kernel.experiment.IExperimentPlan;
 import msi.gama.kernel.model.IModel;
 import msi.gama.lang.gaml.validation.GamlModelBuilder;
@@ -109,6 +112,21 @@ public class Application implements IApplication {
 	// -> Code still exist, but not documented nor use
 	final public static String BATCH_PARAMETER = "-batch";
 
+	/** The Constant RESUME_PARAMETER. */
+	final public static String RESUME_PARAMETER = "-resume";
+
+	/** The Constant JOURNAL_PARAMETER. */
+	final public static String JOURNAL_PARAMETER = "-journal";
+
+	/** The Constant WORKERS_PARAMETER. */
+	final public static String WORKERS_PARAMETER = "-workers";
+
+	/** The Constant WORKER_TIMEOUT_PARAMETER. */
+	final public static String WORKER_TIMEOUT_PARAMETER = "-worker_timeout";
+
+	/** The Constant WORKER_PARAMETER (used internally to launch the workers of a batch experiment). */
+	final public static String WORKER_PARAMETER = "-worker";
+
 	/** The Constant GAML_PARAMETER. */
 	final public static String GAML_PARAMETER = "-gaml";
 
@@ -133,6 +151,21 @@ public class Application implements IApplication {
 	/** The verbose. */
 	public boolean verbose = false;
 
+	/** Whether a batch experiment records the points it evaluates in a journal. */
+	public boolean journal = false;
+
+	/** Whether a batch experiment resumes the exploration recorded in its journal. */
+	public boolean resume = false;
+
+	/** The number of worker processes that evaluate the points of a batch experiment (0 to evaluate them here). */
+	public int workers = 0;
+
+	/** The time a worker has to return the outputs of a point, in seconds (0 if it has no limit). */
+	public int workerTimeout = WorkerFarm.DEFAULT_TIMEOUT * 60;
+
+	/** The arguments of the application. */
+	private List<String> arguments;
+
 	/** The processor queue. */
 	public final SimulationRuntime processorQueue = new ExecutorBasedSimulationRuntime();
 
@@ -170,7 +203,16 @@ public class Application implements IApplication {
 				+ "\n\t\t" + TEST_LIBRARY_PARAMETER
 				+ "                        -- invokes GAMA to execute the tests present in built-in library and plugins and display their results"
 				+ "\n\t=== GAMA Headless Runner ===" + "\n\t\t" + BATCH_PARAMETER + " [experimentName] [modelFile.gaml]"
-				+ "\n\t\t                             -- Run batch experiment in headless mode"
+				+ "\n\t\t                             -- Run batch experiment in headless mode" + "\n\t\t"
+				+ JOURNAL_PARAMETER
+				+ "                     -- record the points evaluated by the batch experiment in a journal" + "\n\t\t"
+				+ RESUME_PARAMETER
+				+ "                      -- resume the batch experiment from the points already recorded in its journal"
+				+ "\n\t\t" + WORKERS_PARAMETER
+				+ " [number]             -- evaluate the points of the batch experiment in separate worker processes"
+				+ "\n\t\t" + WORKER_TIMEOUT_PARAMETER
+				+ " [seconds]     -- restart the workers that do not return the outputs of a point in time (default "
+				+ WorkerFarm.DEFAULT_TIMEOUT * 60 + ")"
 				// + "\n\t\t" + GAML_PARAMETER + " [experimentName] [modelFile.gaml]"
 				// + "\n\t\t -- Run single gaml experiment in headless mode"
 				+ "\n\t\t" + BUILD_XML_PARAMETER + " [experimentName] [modelFile.gaml] [xmlOutputFile.xml]"
@@ -235,6 +277,31 @@ public class Application implements IApplication {
 			// Change value only if function should apply parameter
 			this.socket = apply ? Integer.parseInt(after(args, SSOCKET_PARAMETER)) : -1;
 		}
+		if (args.contains(WORKERS_PARAMETER)) {
+			size = size - 2;
+
+			// Change value only if function should apply parameter
+			this.workers = apply ? Integer.parseInt(after(args, WORKERS_PARAMETER)) : 0;
+		}
+		if (args.contains(WORKER_TIMEOUT_PARAMETER)) {
+			size = size - 2;
+
+			// Change value only if function should apply parameter
+			this.workerTimeout = apply ? Integer.parseInt(after(args, WORKER_TIMEOUT_PARAMETER))
+					: WorkerFarm.DEFAULT_TIMEOUT * 60;
+		}
+		if (args.contains(JOURNAL_PARAMETER)) {
+			size = size - 1;
+
+			// Change value only if function should apply parameter
+			this.journal = apply;
+		}
+		if (args.contains(RESUME_PARAMETER)) {
+			size = size - 1;
+
+			// Change value only if function should apply parameter
+			this.resume = apply;
+		}
 		if (args.contains(THREAD_PARAMETER)) {
 			size = size - 2;
 
@@ -254,6 +321,10 @@ public class Application implements IApplication {
 			size = size - 3;
 			mustContainOutFolder = false;
 		}
+		if (args.contains(WORKER_PARAMETER)) {
+			size = size - 6;
+			mustContainInFile = mustContainOutFolder = false;
+		}
 		if (args.contains(BUILD_XML_PARAMETER)) {
 			size = size - 4;
 			mustContainInFile = mustContainOutFolder = false;
@@ -308,6 +379,7 @@ public class Application implements IApplication {
 
 		final Map<String, String[]> mm = context.getArguments();
 		final List<String> args = Arrays.asList(mm.get("application.args"));
+		arguments = args;
 
 		// Check and apply parameters
 		if (!checkParameters(args, true)) { System.exit(-1); }
@@ -358,6 +430,11 @@ public class Application implements IApplication {
 			// });
 			// DEBUG.LOG("Done");
 			// }
+		} else if (args.contains(WORKER_PARAMETER)) {
+			final int index = args.indexOf(WORKER_PARAMETER);
+			BatchWorker.run(Integer.parseInt(args.get(index + 1)), Integer.parseInt(args.get(index + 2)),
+					Integer.parseInt(args.get(index + 3)), args.get(index + 4), args.get(index + 5));
+			System.exit(0);
 		} else if (args.contains(BATCH_PARAMETER)) {
 			runBatchSimulation(args.get(args.size() - 2), args.get(args.size() - 1));
 		} else if (args.contains(GAML_PARAMETER)) {
@@ -574,13 +651,15 @@ public class Application implements IApplication {
 	 */
 
 	/**
-	 * Auto launch batch experiment in headless mode from a gaml file
+	 * Auto launch batch experiment in headless mode from a gaml file. With the -journal or -resume options, the points
+	 * evaluated are recorded in a journal (named after the model and the experiment, next to the model), from which
+	 * the exploration can be resumed with the -resume option. With the -workers option, the points are evaluated by a farm of worker processes.
 	 *
 	 * @param experimentName
 	 * @param pathToModel
 	 */
 	public void runBatchSimulation(final String experimentName, final String pathToModel)
-			throws FileNotFoundException, InterruptedException {
+			throws IOException, InterruptedException {
 		if (!GamlFileExtension.isGaml(pathToModel)) { System.exit(-1); }
 
 		final Injector injector = HeadlessSimulationLoader.getInjector();
@@ -595,8 +674,24 @@ public class Application implements IApplication {
 		final IExperimentPlan expPlan = mdl.getExperiment(experimentName);
 
 		expPlan.setHeadless(true);
-		expPlan.open();
-		expPlan.getController().userStart();
+		final File model = new File(pathToModel).getAbsoluteFile();
+		final String modelName = model.getName().substring(0, model.getName().lastIndexOf('.'));
+		final File journalFile = new File(model.getParentFile(), modelName + "-" + experimentName + ".journal");
+		try (BatchJournal batchJournal = journal || resume ? BatchJournal.open(journalFile, resume) : null;
+				WorkerFarm farm = workers > 0
+						? new WorkerFarm(workers, experimentName, pathToModel, arguments, workerTimeout) : null) {
+			if (resume) {
+				DEBUG.LOG("Resuming " + experimentName + ": " + batchJournal.size() + " points already evaluated");
+			}
+			expPlan.setJournal(batchJournal);
+			if (farm != null) {
+				// The exploration algorithms submit their points all at once, so that the workers are kept busy
+				GamaExecutorService.CONCURRENCY_SIMULATIONS_ALL.set(true);
+				expPlan.setBatchEvaluator(farm);
+			}
+			expPlan.open();
+			expPlan.getController().userStart();
+		}
 
 		System.exit(0);
 	}
@@ -108,6 +108,7 @@ import msi.gaml.expressions.IExpression;
 import msi.gaml.expressions.IExpressionCompiler;
 import msi.gaml.expressions.IExpressionFactory;
 import msi.gaml.expressions.IVarExpression;
+import msi.gaml.expressions.operators.CycleInvariantExpression;
 import msi.gaml.expressions.operators.TypeFieldExpression;
 import msi.gaml.expressions.types.DenotedActionExpression;
 import msi.gaml.expressions.units.TimeUnitConstantExpression;
@@ -176,7 +177,9 @@ public class GamlExpressionCompiler extends GamlSwitch<IExpression> implements I
 		}
 		final IDescription previous = setContext(parsingContext);
 		try {
-			return compile(o);
+			final IExpression result = compile(o);
+			CycleInvariantExpression.report(parsingContext, result, o);
+			return result;
 		} finally {
 			setContext(previous);
 			setCurrentExpressionDescription(null);
@@ -17,6 +17,7 @@ import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
 
 import msi.gama.precompiler.GamlAnnotations.operator;
 
@@ -120,9 +121,100 @@ public class OperatorProcessor extends ElementProcessor<operator> {
 
 		buildHelperCall(sb, hasScope, isStatic, classes, met);
 		sb.append(',').append(toBoolean(op.iterator()));
+		if (isStatic) { buildPrimitiveHelperCall(sb, method, hasScope, classes, ret, met); }
 		sb.append(");");
 	}
 
+	/**
+	 * Builds the call to the primitive helper (see GamaPrimitiveGetter), for the static operators that take one or two
+	 * ints or floats and return an int, a float or a bool. The operands are received as doubles and converted back to
+	 * the types of the parameters; the result is unboxed. If the class of the operator declares a static overload of
+	 * the method with the same parameters and return type, but unboxed (e.g. {@code int opPlus(int, int)} for
+	 * {@code Integer opPlus(Integer, Integer)}), it is called instead, so that no operand is boxed.
+	 *
+	 * @param sb
+	 *            the sb
+	 * @param method
+	 *            the method of the operator
+	 * @param hasScope
+	 *            the has scope
+	 * @param classes
+	 *            the classes
+	 * @param ret
+	 *            the ret
+	 * @param met
+	 *            the met
+	 */
+	private void buildPrimitiveHelperCall(final StringBuilder sb, final Element method, final boolean hasScope,
+			final String[] classes, final String ret, final String met) {
+		if (classes.length == 0 || classes.length > 2) return;
+		final String kind = switch (ret) {
+			case "double", DOUBLE -> "Double";
+			case "int", INTEGER -> "Int";
+			case "boolean", BOOLEAN -> "Bool";
+			default -> null;
+		};
+		if (kind == null) return;
+		final TypeKind[] kinds = new TypeKind[classes.length];
+		for (int i = 0; i < classes.length; i++) {
+			kinds[i] = switch (classes[i]) {
+				case "double", DOUBLE -> TypeKind.DOUBLE;
+				case "int", INTEGER -> TypeKind.INT;
+				default -> null;
+			};
+			if (kinds[i] == null) return;
+		}
+		final boolean unboxed = hasUnboxedOverload(method, hasScope, kinds,
+				"Double".equals(kind) ? TypeKind.DOUBLE : "Int".equals(kind) ? TypeKind.INT : TypeKind.BOOLEAN);
+		final String[] operands = new String[classes.length];
+		for (int i = 0; i < classes.length; i++) {
+			final String a = i == 0 ? "a" : "b";
+			final boolean isInt = kinds[i] == TypeKind.INT;
+			if (unboxed || classes[i].equals(isInt ? "int" : "double")) {
+				operands[i] = isInt ? "(int)" + a : a;
+			} else {
+				operands[i] = isInt ? "(Integer)(int)" + a : "(Double)" + a;
+			}
+		}
+		sb.append(",(GamaPrimitiveGetter.").append(kind).append(classes.length == 1 ? "Unary" : "Binary")
+				.append(")(s,").append(classes.length == 1 ? "a" : "a,b").append(")->").append(met).append('(');
+		if (hasScope) { sb.append("s,"); }
+		sb.append(String.join(",", operands)).append(')');
+	}
+
+	/**
+	 * Whether the class of a static method declares an overload of it whose parameters (after the scope, if any) and
+	 * return type are the given primitive types.
+	 *
+	 * @param method
+	 *            the method
+	 * @param hasScope
+	 *            whether the method takes a scope as first parameter
+	 * @param kinds
+	 *            the kinds of the operands
+	 * @param ret
+	 *            the kind of the result
+	 * @return true, if successful
+	 */
+	private boolean hasUnboxedOverload(final Element method, final boolean hasScope, final TypeKind[] kinds,
+			final TypeKind ret) {
+		final int shift = hasScope ? 1 : 0;
+		for (final Element e : method.getEnclosingElement().getEnclosedElements()) {
+			if (!(e instanceof ExecutableElement m) || !m.getSimpleName().equals(method.getSimpleName())
+					|| !m.getModifiers().contains(Modifier.STATIC) || m.getReturnType().getKind() != ret) {
+				continue;
+			}
+			final List<? extends VariableElement> params = m.getParameters();
+			if (params.size() != kinds.length + shift) { continue; }
+			boolean matches = true;
+			for (int i = 0; i < kinds.length && matches; i++) {
+				matches = params.get(i + shift).asType().getKind() == kinds[i];
+			}
+			if (matches) return true;
+		}
+		return false;
+	}
+
 	/**
 	 * Builds the helper call.
 	 *
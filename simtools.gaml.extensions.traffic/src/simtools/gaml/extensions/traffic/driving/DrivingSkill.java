@@ -15,6 +15,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -38,7 +39,6 @@ import msi.gama.precompiler.GamlAnnotations.variable;
 import msi.gama.precompiler.GamlAnnotations.vars;
 import msi.gama.precompiler.IConcept;
 import msi.gama.runtime.IScope;
-import msi.gama.runtime.concurrent.GamaExecutorService;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.GamaListFactory;
 import msi.gama.util.IList;
@@ -512,7 +512,7 @@ public class DrivingSkill extends MovingSkill {
 	// NOTE: Due to approximations in IDM, vehicles will never have the exact same location as its target.
 	/** The Constant EPSILON. */
 	// Therefore we consider the vehicle has reached its goal when distToGoal is smaller than this threshold.
-	private static final double EPSILON = 1e-2;
+	static final double EPSILON = 1e-2;
 
 	/**
 	 * Gets the speed.
@@ -523,9 +523,9 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (IKeyword.SPEED)
 	public static double getSpeed(final IAgent agent) {
-		// The second condition is used when `agent` is a road_node with a stop signal
-		if (agent == null || !agent.hasAttribute(IKeyword.SPEED)) return 0.0;
-		return (Double) agent.getAttribute(IKeyword.SPEED);
+		// Agents that are not vehicles (e.g. road nodes with a stop signal) have a speed of 0
+		if (agent == null) return 0.0;
+		return VehicleState.getDouble(agent, VehicleState.SPEED);
 	}
 
 	/**
@@ -539,7 +539,7 @@ public class DrivingSkill extends MovingSkill {
 	@setter (IKeyword.SPEED)
 	public static void setSpeed(final IAgent vehicle, final double speed) {
 		if (vehicle == null) return;
-		vehicle.setAttribute(IKeyword.SPEED, speed);
+		VehicleState.setDouble(vehicle, VehicleState.SPEED, speed);
 	}
 
 	/**
@@ -569,6 +569,18 @@ public class DrivingSkill extends MovingSkill {
 		setSpeed(vehicle, speed);
 	}
 
+	/**
+	 * Gets the acceleration.
+	 *
+	 * @param vehicle
+	 *            the vehicle
+	 * @return the acceleration
+	 */
+	@getter (ACCELERATION)
+	public static double getAcceleration(final IAgent vehicle) {
+		return VehicleState.getDouble(vehicle, VehicleState.ACCELERATION);
+	}
+
 	/**
 	 * Sets the acceleration read only.
 	 *
@@ -591,7 +603,7 @@ public class DrivingSkill extends MovingSkill {
 	 *            the val
 	 */
 	private static void setAcceleration(final IAgent vehicle, final Double val) {
-		vehicle.setAttribute(ACCELERATION, val);
+		VehicleState.setDouble(vehicle, VehicleState.ACCELERATION, val);
 	}
 
 	/**
@@ -603,7 +615,7 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (MAX_ACCELERATION)
 	public static double getMaxAcceleration(final IAgent vehicle) {
-		return (Double) vehicle.getAttribute(MAX_ACCELERATION);
+		return VehicleState.getDouble(vehicle, VehicleState.MAX_ACCELERATION);
 	}
 
 	/**
@@ -616,7 +628,7 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@setter (MAX_ACCELERATION)
 	public static void setMaxAcceleration(final IAgent vehicle, final Double val) {
-		vehicle.setAttribute(MAX_ACCELERATION, val);
+		VehicleState.setDouble(vehicle, VehicleState.MAX_ACCELERATION, val);
 	}
 
 	/**
@@ -628,7 +640,20 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (MAX_DECELERATION)
 	public static double getMaxDeceleration(final IAgent vehicle) {
-		return (Double) vehicle.getAttribute(MAX_DECELERATION);
+		return VehicleState.getDouble(vehicle, VehicleState.MAX_DECELERATION);
+	}
+
+	/**
+	 * Sets the max deceleration.
+	 *
+	 * @param vehicle
+	 *            the vehicle
+	 * @param val
+	 *            the val
+	 */
+	@setter (MAX_DECELERATION)
+	public static void setMaxDeceleration(final IAgent vehicle, final double val) {
+		VehicleState.setDouble(vehicle, VehicleState.MAX_DECELERATION, val);
 	}
 
 	/**
@@ -640,7 +665,20 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (TIME_HEADWAY)
 	public static double getTimeHeadway(final IAgent vehicle) {
-		return (Double) vehicle.getAttribute(TIME_HEADWAY);
+		return VehicleState.getDouble(vehicle, VehicleState.TIME_HEADWAY);
+	}
+
+	/**
+	 * Sets the time headway.
+	 *
+	 * @param vehicle
+	 *            the vehicle
+	 * @param val
+	 *            the val
+	 */
+	@setter (TIME_HEADWAY)
+	public static void setTimeHeadway(final IAgent vehicle, final double val) {
+		VehicleState.setDouble(vehicle, VehicleState.TIME_HEADWAY, val);
 	}
 
 	/**
@@ -652,7 +690,20 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (DELTA_IDM)
 	public static double getDeltaIDM(final IAgent vehicle) {
-		return (Double) vehicle.getAttribute(DELTA_IDM);
+		return VehicleState.getDouble(vehicle, VehicleState.DELTA_IDM);
+	}
+
+	/**
+	 * Sets the delta IDM.
+	 *
+	 * @param vehicle
+	 *            the vehicle
+	 * @param val
+	 *            the val
+	 */
+	@setter (DELTA_IDM)
+	public static void setDeltaIDM(final IAgent vehicle, final double val) {
+		VehicleState.setDouble(vehicle, VehicleState.DELTA_IDM, val);
 	}
 
 	/**
@@ -664,7 +715,20 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (POLITENESS_FACTOR)
 	public static double getPolitenessFactor(final IAgent vehicle) {
-		return (Double) vehicle.getAttribute(POLITENESS_FACTOR);
+		return VehicleState.getDouble(vehicle, VehicleState.POLITENESS_FACTOR);
+	}
+
+	/**
+	 * Sets the politeness factor.
+	 *
+	 * @param vehicle
+	 *            the vehicle
+	 * @param val
+	 *            the val
+	 */
+	@setter (POLITENESS_FACTOR)
+	public static void setPolitenessFactor(final IAgent vehicle, final double val) {
+		VehicleState.setDouble(vehicle, VehicleState.POLITENESS_FACTOR, val);
 	}
 
 	/**
@@ -676,7 +740,20 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (MAX_SAFE_DECELERATION)
 	public static double getMaxSafeDeceleration(final IAgent vehicle) {
-		return (Double) vehicle.getAttribute(MAX_SAFE_DECELERATION);
+		return VehicleState.getDouble(vehicle, VehicleState.MAX_SAFE_DECELERATION);
+	}
+
+	/**
+	 * Sets the max safe deceleration.
+	 *
+	 * @param vehicle
+	 *            the vehicle
+	 * @param val
+	 *            the val
+	 */
+	@setter (MAX_SAFE_DECELERATION)
+	public static void setMaxSafeDeceleration(final IAgent vehicle, final double val) {
+		VehicleState.setDouble(vehicle, VehicleState.MAX_SAFE_DECELERATION, val);
 	}
 
 	/**
@@ -688,7 +765,20 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (ACC_GAIN_THRESHOLD)
 	public static double getAccGainThreshold(final IAgent vehicle) {
-		return (Double) vehicle.getAttribute(ACC_GAIN_THRESHOLD);
+		return VehicleState.getDouble(vehicle, VehicleState.ACC_GAIN_THRESHOLD);
+	}
+
+	/**
+	 * Sets the acc gain threshold.
+	 *
+	 * @param vehicle
+	 *            the vehicle
+	 * @param val
+	 *            the val
+	 */
+	@setter (ACC_GAIN_THRESHOLD)
+	public static void setAccGainThreshold(final IAgent vehicle, final double val) {
+		VehicleState.setDouble(vehicle, VehicleState.ACC_GAIN_THRESHOLD, val);
 	}
 
 	/**
@@ -700,7 +790,20 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (ACC_BIAS)
 	public static double getAccBias(final IAgent vehicle) {
-		return (Double) vehicle.getAttribute(ACC_BIAS);
+		return VehicleState.getDouble(vehicle, VehicleState.ACC_BIAS);
+	}
+
+	/**
+	 * Sets the acc bias.
+	 *
+	 * @param vehicle
+	 *            the vehicle
+	 * @param val
+	 *            the val
+	 */
+	@setter (ACC_BIAS)
+	public static void setAccBias(final IAgent vehicle, final double val) {
+		VehicleState.setDouble(vehicle, VehicleState.ACC_BIAS, val);
 	}
 
 	/**
@@ -712,7 +815,7 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (TIME_SINCE_LC)
 	public static double getTimeSinceLC(final IAgent vehicle) {
-		return (Double) vehicle.getAttribute(TIME_SINCE_LC);
+		return VehicleState.getDouble(vehicle, VehicleState.TIME_SINCE_LC);
 	}
 
 	/**
@@ -738,7 +841,7 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@setter (TIME_SINCE_LC)
 	public static void setTimeSinceLC(final IAgent vehicle, final double time) {
-		vehicle.setAttribute(TIME_SINCE_LC, time);
+		VehicleState.setDouble(vehicle, VehicleState.TIME_SINCE_LC, time);
 	}
 
 	/**
@@ -750,7 +853,20 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (LC_COOLDOWN)
 	public static double getLCCooldown(final IAgent vehicle) {
-		return (Double) vehicle.getAttribute(LC_COOLDOWN);
+		return VehicleState.getDouble(vehicle, VehicleState.LC_COOLDOWN);
+	}
+
+	/**
+	 * Sets the LC cooldown.
+	 *
+	 * @param vehicle
+	 *            the vehicle
+	 * @param val
+	 *            the val
+	 */
+	@setter (LC_COOLDOWN)
+	public static void setLCCooldown(final IAgent vehicle, final double val) {
+		VehicleState.setDouble(vehicle, VehicleState.LC_COOLDOWN, val);
 	}
 
 	/**
@@ -762,7 +878,7 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (SPEED_COEFF)
 	public static double getSpeedCoeff(final IAgent vehicle) {
-		return (Double) vehicle.getAttribute(SPEED_COEFF);
+		return VehicleState.getDouble(vehicle, VehicleState.SPEED_COEFF);
 	}
 
 	/**
@@ -775,7 +891,7 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@setter (SPEED_COEFF)
 	public static void setSpeedCoeff(final IAgent vehicle, final Double val) {
-		vehicle.setAttribute(SPEED_COEFF, val);
+		VehicleState.setDouble(vehicle, VehicleState.SPEED_COEFF, val);
 	}
 
 	/**
@@ -787,7 +903,7 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (MAX_SPEED)
 	public static double getMaxSpeed(final IAgent vehicle) {
-		return (Double) vehicle.getAttribute(MAX_SPEED);
+		return VehicleState.getDouble(vehicle, VehicleState.MAX_SPEED);
 	}
 
 	/**
@@ -800,7 +916,7 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@setter (MAX_SPEED)
 	public static void setMaxSpeed(final IAgent vehicle, final Double val) {
-		vehicle.setAttribute(MAX_SPEED, val);
+		VehicleState.setDouble(vehicle, VehicleState.MAX_SPEED, val);
 	}
 
 	/**
@@ -1397,7 +1513,20 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (VEHICLE_LENGTH)
 	public static double getVehicleLength(final IAgent vehicle) {
-		return (Double) vehicle.getAttribute(VEHICLE_LENGTH);
+		return VehicleState.getDouble(vehicle, VehicleState.VEHICLE_LENGTH);
+	}
+
+	/**
+	 * Sets the vehicle length.
+	 *
+	 * @param vehicle
+	 *            the vehicle
+	 * @param val
+	 *            the val
+	 */
+	@setter (VEHICLE_LENGTH)
+	public static void setVehicleLength(final IAgent vehicle, final double val) {
+		VehicleState.setDouble(vehicle, VehicleState.VEHICLE_LENGTH, val);
 	}
 
 	/**
@@ -1436,7 +1565,7 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (LOWEST_LANE)
 	public static int getLowestLane(final IAgent vehicle) {
-		return (int) vehicle.getAttribute(LOWEST_LANE);
+		return VehicleState.getInt(vehicle, VehicleState.LOWEST_LANE);
 	}
 
 	/**
@@ -1449,7 +1578,7 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@setter (LOWEST_LANE)
 	public static void setLowestLane(final IAgent vehicle, final int lowestLane) {
-		vehicle.setAttribute(LOWEST_LANE, lowestLane);
+		VehicleState.setInt(vehicle, VehicleState.LOWEST_LANE, lowestLane);
 	}
 
 	/**
@@ -1473,7 +1602,7 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (DISTANCE_TO_CURRENT_TARGET)
 	public static double getDistanceToCurrentTarget(final IAgent vehicle) {
-		return (Double) vehicle.getAttribute(DISTANCE_TO_CURRENT_TARGET);
+		return VehicleState.getDouble(vehicle, VehicleState.DISTANCE_TO_CURRENT_TARGET);
 	}
 
 	/**
@@ -1486,7 +1615,7 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@setter (DISTANCE_TO_CURRENT_TARGET)
 	public static void setDistanceToCurrentTarget(final IAgent vehicle, final double dist) {
-		vehicle.setAttribute(DISTANCE_TO_CURRENT_TARGET, dist);
+		VehicleState.setDouble(vehicle, VehicleState.DISTANCE_TO_CURRENT_TARGET, dist);
 	}
 
 	/**
@@ -1523,7 +1652,20 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (MIN_SAFETY_DISTANCE)
 	public static double getMinSafetyDistance(final IAgent vehicle) {
-		return (Double) vehicle.getAttribute(MIN_SAFETY_DISTANCE);
+		return VehicleState.getDouble(vehicle, VehicleState.MIN_SAFETY_DISTANCE);
+	}
+
+	/**
+	 * Sets the min safety distance.
+	 *
+	 * @param vehicle
+	 *            the vehicle
+	 * @param val
+	 *            the val
+	 */
+	@setter (MIN_SAFETY_DISTANCE)
+	public static void setMinSafetyDistance(final IAgent vehicle, final double val) {
+		VehicleState.setDouble(vehicle, VehicleState.MIN_SAFETY_DISTANCE, val);
 	}
 
 	/**
@@ -1548,7 +1690,7 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (NUM_LANES_OCCUPIED)
 	public static Integer getNumLanesOccupied(final IAgent vehicle) {
-		return (Integer) vehicle.getAttribute(NUM_LANES_OCCUPIED);
+		return VehicleState.getInt(vehicle, VehicleState.NUM_LANES_OCCUPIED);
 	}
 
 	/**
@@ -1561,7 +1703,7 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@setter (NUM_LANES_OCCUPIED)
 	public static void setNumLanesOccupied(final IAgent vehicle, final Integer value) {
-		vehicle.setAttribute(NUM_LANES_OCCUPIED, value);
+		VehicleState.setInt(vehicle, VehicleState.NUM_LANES_OCCUPIED, value);
 	}
 
 	/**
@@ -1610,9 +1752,7 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (LEADING_DISTANCE)
 	public static double getLeadingDistance(final IAgent vehicle) {
-		Double d = (Double) vehicle.getAttribute(LEADING_DISTANCE);
-		if (d == null) return 0.0;
-		return d.doubleValue();
+		return VehicleState.getDouble(vehicle, VehicleState.LEADING_DISTANCE);
 	}
 
 	/**
@@ -1624,9 +1764,7 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	@getter (LEADING_SPEED)
 	public static double getLeadingSpeed(final IAgent vehicle) {
-		Double d = (Double) vehicle.getAttribute(LEADING_SPEED);
-		if (d == null) return 0.0;
-		return d.doubleValue();
+		return VehicleState.getDouble(vehicle, VehicleState.LEADING_SPEED);
 	}
 
 	/**
@@ -1651,7 +1789,7 @@ public class DrivingSkill extends MovingSkill {
 	 *            the leading dist
 	 */
 	public static void setLeadingDistance(final IAgent vehicle, final double leadingDist) {
-		vehicle.setAttribute(LEADING_DISTANCE, leadingDist);
+		VehicleState.setDouble(vehicle, VehicleState.LEADING_DISTANCE, leadingDist);
 	}
 
 	/**
@@ -1676,7 +1814,7 @@ public class DrivingSkill extends MovingSkill {
 	 *            the leading speed
 	 */
 	public static void setLeadingSpeed(final IAgent vehicle, final double leadingSpeed) {
-		vehicle.setAttribute(LEADING_SPEED, leadingSpeed);
+		VehicleState.setDouble(vehicle, VehicleState.LEADING_SPEED, leadingSpeed);
 	}
 
 	/**
@@ -2048,14 +2186,33 @@ public class DrivingSkill extends MovingSkill {
 							optional = true,
 							doc = @doc ("a map containing for each road (key), the probability to be selected as next road (value)")) },
 			doc = @doc (
-					value = "action to drive by chosen randomly the next road",
+					value = "action to drive by chosen randomly the next road. When the agents are scheduled in parallel, "
+							+ "the moves are decided in parallel and applied at the end of the cycle",
 					examples = { @example ("do drive_random init_node: some_node;") }))
 	public boolean primDriveRandom(final IScope scope) throws GamaRuntimeException {
-		IAgent vehicle = getCurrentAgent(scope);
 		GamaSpatialGraph graph = (GamaSpatialGraph) scope.getArg("graph", IType.GRAPH);
 		Map<IAgent, Double> roadProba = (Map) scope.getArg("proba_roads", IType.MAP);
 		if (graph == null) throw GamaRuntimeException.error("The parameter `graph` must be set", scope);
+		IAgent vehicle = getCurrentAgent(scope);
+		if (ParallelDriving.isDeferred(scope, vehicle))
+			return ParallelDriving.decide(scope, this, vehicle, s -> driveRandom(s, graph, roadProba));
+		return driveRandom(scope, graph, roadProba);
+	}
 
+	/**
+	 * Drives by choosing randomly the next road.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param graph
+	 *            the graph
+	 * @param roadProba
+	 *            the road proba
+	 * @return true, if successful
+	 */
+	private boolean driveRandom(final IScope scope, final GamaSpatialGraph graph,
+			final Map<IAgent, Double> roadProba) {
+		IAgent vehicle = getCurrentAgent(scope);
 		IAgent initNode = null;
 		// initialize starting location
 		if (getCurrentRoad(vehicle) == null) {
@@ -2081,7 +2238,8 @@ public class DrivingSkill extends MovingSkill {
 	@action (
 			name = "drive",
 			doc = @doc (
-					value = "action to drive toward the target",
+					value = "action to drive toward the target. When the agents are scheduled in parallel, the moves are "
+							+ "decided in parallel and applied at the end of the cycle",
 					examples = { @example ("do drive;") }))
 	public boolean primDrive(final IScope scope) throws GamaRuntimeException {
 		IAgent vehicle = getCurrentAgent(scope);
@@ -2093,6 +2251,22 @@ public class DrivingSkill extends MovingSkill {
 					vehicle.getName());
 			throw GamaRuntimeException.warning(msg, scope);
 		}
+		if (ParallelDriving.isDeferred(scope, vehicle))
+			return ParallelDriving.decide(scope, this, vehicle, s -> drive(s, path));
+		return drive(scope, path);
+	}
+
+	/**
+	 * Drives along the path.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param path
+	 *            the current path of the vehicle
+	 * @return true, if successful
+	 */
+	private boolean drive(final IScope scope, final IPath path) {
+		IAgent vehicle = getCurrentAgent(scope);
 		// Initialize the first road
 		if (getCurrentIndex(vehicle) == -1) { setNextRoad(vehicle, (IAgent) path.getEdgeList().get(0)); }
 		return moveAcrossRoads(scope, false, null, null);
@@ -2313,14 +2487,15 @@ public class DrivingSkill extends MovingSkill {
 	 * Updates the `vehicle_ordering` map with the new distance to target
 	 *
 	 * @param scope
+	 * @param vehicle
+	 *            the vehicle
 	 * @param newLowestLane
 	 *            the new lowest lane of the vehicle
 	 * @param newDistToCurrentTarget
 	 *            the new distance to the vehicle's current target
 	 */
-	private void updateVehicleOrdering(final IScope scope, final int newLowestLane,
+	private void updateVehicleOrdering(final IScope scope, final IAgent vehicle, final int newLowestLane,
 			final double newDistToCurrentTarget) {
-		IAgent vehicle = getCurrentAgent(scope);
 		int numLanesOccupied = getNumLanesOccupied(vehicle);
 		int currentLowestLane = getLowestLane(vehicle);
 
@@ -2360,11 +2535,6 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	private boolean moveAcrossRoads(final IScope scope, final boolean isDrivingRandomly, final GamaSpatialGraph graph,
 			final Map<IAgent, Double> roadProba) {
-		if (GamaExecutorService.CONCURRENCY_SPECIES.getValue())
-			throw GamaRuntimeException.error("Driving agents cannot be scheduled in parallel. "
-					+ "Please disable \"Make species schedule theirs agents in parallel\" "
-					+ "in Preferences > Execution > Parallelism.", scope);
-
 		IAgent vehicle = getCurrentAgent(scope);
 		ISpecies context = vehicle.getSpecies();
 
@@ -2414,7 +2584,7 @@ public class DrivingSkill extends MovingSkill {
 				laneAndAccPair = MOBIL.chooseLane(scope, vehicle, newRoad, lowestLane);
 				if (laneAndAccPair == null) return false;
 				double newAccel = laneAndAccPair.getRight();
-				double newSpeed = computeSpeed(scope, newAccel, newRoad);
+				double newSpeed = computeSpeed(scope, vehicle, newAccel, newRoad);
 				// Check if it is possible to move onto the new road
 				if (newSpeed == 0.0) {
 					// TODO: this should happen once
@@ -2524,7 +2694,27 @@ public class DrivingSkill extends MovingSkill {
 	 */
 	public double moveAcrossSegments(final IScope scope, final double accel, final double time,
 			final int newLowestLane) {
-		IAgent vehicle = getCurrentAgent(scope);
+		return moveAcrossSegments(scope, getCurrentAgent(scope), accel, time, newLowestLane, this::setLocation);
+	}
+
+	/**
+	 * Moves the vehicle from segment to segment on the current road.
+	 *
+	 * @param scope
+	 * @param vehicle
+	 *            the vehicle
+	 * @param accel
+	 *            acceleration
+	 * @param time
+	 *            the amount of time available to move
+	 * @param newLowestLane
+	 *            the lane to move on
+	 * @param locationSetter
+	 *            how to set the new location of the vehicle
+	 * @return the remaining amount of time in the simulation step
+	 */
+	double moveAcrossSegments(final IScope scope, final IAgent vehicle, final double accel, final double time,
+			final int newLowestLane, final BiConsumer<IAgent, GamaPoint> locationSetter) {
 		IAgent currentRoad = getCurrentRoad(vehicle);
 		IAgent currentTarget = getCurrentTarget(vehicle);
 		int currentSegment = getSegmentIndex(vehicle);
@@ -2545,7 +2735,7 @@ public class DrivingSkill extends MovingSkill {
 			newSpeed = 0.0;
 		} else {
 			distMoved = speed * time + 0.5 * accel * Math.pow(time, 2);
-			newSpeed = computeSpeed(scope, accel, currentRoad);
+			newSpeed = computeSpeed(scope, vehicle, accel, currentRoad);
 		}
 
 		double remainingDist = distMoved;
@@ -2555,10 +2745,10 @@ public class DrivingSkill extends MovingSkill {
 		while (remainingDist >= distToGoal || distToGoal < EPSILON) {
 			if (endPt.equals(currentTarget.getLocation())) {
 				// Return to the main loop in `drive` to continue moving across the intersection
-				setLocation(vehicle, endPt);
+				locationSetter.accept(vehicle, endPt);
 				setDistanceToGoal(vehicle, 0.0);
 				setDistanceToCurrentTarget(vehicle, 0.0);
-				updateVehicleOrdering(scope, newLowestLane, 0.0);
+				updateVehicleOrdering(scope, vehicle, newLowestLane, 0.0);
 				return distToGoal < EPSILON ? time : time - distToGoal / newSpeed;
 			}
 			// Move to a new segment
@@ -2573,13 +2763,13 @@ public class DrivingSkill extends MovingSkill {
 		double ratio = remainingDist / distToGoal;
 		double newX = loc.getX() + ratio * (endPt.getX() - loc.getX());
 		double newY = loc.getY() + ratio * (endPt.getY() - loc.getY());
-		setLocation(vehicle, new GamaPoint(newX, newY));
+		locationSetter.accept(vehicle, new GamaPoint(newX, newY));
 		setSpeed(vehicle, newSpeed);
 		setAcceleration(vehicle, accel);
 		setDistanceToGoal(vehicle, distToGoal - remainingDist);
 		setSegmentIndex(vehicle, currentSegment);
 
-		updateVehicleOrdering(scope, newLowestLane, getDistanceToCurrentTarget(vehicle) - distMoved);
+		updateVehicleOrdering(scope, vehicle, newLowestLane, getDistanceToCurrentTarget(vehicle) - distMoved);
 		return 0.0;
 	}
 
@@ -2588,15 +2778,16 @@ public class DrivingSkill extends MovingSkill {
 	 * current road.
 	 *
 	 * @param scope
+	 * @param vehicle
+	 *            the vehicle
 	 * @param acceleration
 	 *            the acceleration for this simulation step
 	 * @param road
 	 *            the road which the vehicle is on
 	 * @return the resulting speed
 	 */
-	private double computeSpeed(final IScope scope, final double acceleration, final IAgent road) {
-		IAgent vehicle = getCurrentAgent(scope);
-
+	private double computeSpeed(final IScope scope, final IAgent vehicle, final double acceleration,
+			final IAgent road) {
 		double dt = scope.getSimulation().getClock().getStepInSeconds();
 		double speed = getSpeed(vehicle) + acceleration * dt;
 		return Math.max(0.0, speed);
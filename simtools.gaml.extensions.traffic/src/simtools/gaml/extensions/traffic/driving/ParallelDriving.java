@@ -0,0 +1,377 @@
+/*******************************************************************************************************
+ *
+ * ParallelDriving.java, in simtools.gaml.extensions.traffic, is part of the source code of the
+ * GAMA modeling and simulation platform (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package simtools.gaml.extensions.traffic.driving;
+
+import static simtools.gaml.extensions.traffic.driving.DrivingSkill.getCurrentRoad;
+import static simtools.gaml.extensions.traffic.driving.DrivingSkill.getCurrentTarget;
+import static simtools.gaml.extensions.traffic.driving.DrivingSkill.getDistanceToCurrentTarget;
+import static simtools.gaml.extensions.traffic.driving.DrivingSkill.getLowestLane;
+import static simtools.gaml.extensions.traffic.driving.DrivingSkill.getSpeed;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.DoubleSupplier;
+
+import msi.gama.kernel.simulation.SimulationAgent;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.shape.GamaPoint;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.concurrent.GamaExecutorService;
+import msi.gama.runtime.concurrent.GamaExecutorService.Caller;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gaml.species.ISpecies;
+import msi.gaml.statements.IExecutable;
+import simtools.gaml.extensions.traffic.driving.carfollowing.MOBIL;
+import simtools.gaml.extensions.traffic.driving.carfollowing.MOBIL.LaneChoice;
+
+/**
+ * Allows the drivers to be scheduled in parallel, by splitting their step in two phases. When they call `drive` or
+ * `drive_random`, they only decide their lane and acceleration (with IDM and MOBIL), reading the orderings of the
+ * roads and the other vehicles as they were at the end of the previous cycle. At the end of the cycle, the moves are
+ * applied: in parallel for the vehicles that stay on their road (the roads, grouped with their linked roads, being
+ * partitioned across the workers), then sequentially for the ones that cross an intersection, have to check whether
+ * they can cross it or enter their first road. The random numbers used in the first phase depend only on the seed, the
+ * cycle and the vehicle, and the second phase follows the order of the agents, so that the results do not depend on
+ * the number of threads.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public class ParallelDriving {
+
+	/** The order of the agents, identical to the one used in the vehicle orderings of the roads. */
+	static final Comparator<IAgent> BY_AGENT = (a, b) -> {
+		int r = a.getSpeciesName().compareTo(b.getSpeciesName());
+		if (r != 0) return r;
+		return Integer.compare(a.getIndex(), b.getIndex());
+	};
+
+	/** The instances, one for each simulation where moves have been deferred, forgotten when it is disposed. */
+	private static final Map<SimulationAgent, ParallelDriving> INSTANCES = new ConcurrentHashMap<>();
+
+	/** The step waiting to be committed at the end of the current cycle, if any. */
+	private volatile Step pending;
+
+	/**
+	 * Returns the instance of the simulation, which is removed when the simulation is disposed.
+	 *
+	 * @param simulation
+	 *            the simulation
+	 * @return the instance
+	 */
+	private static ParallelDriving getInstance(final SimulationAgent simulation) {
+		return INSTANCES.computeIfAbsent(simulation, s -> {
+			s.postDisposeAction(scope -> {
+				INSTANCES.remove(s);
+				return null;
+			});
+			return new ParallelDriving();
+		});
+	}
+
+	/**
+	 * Returns the step of the current cycle, creating it (and posting its commit at the end of the cycle) if needed.
+	 *
+	 * @param simulation
+	 *            the simulation
+	 * @return the step
+	 */
+	private Step getStep(final SimulationAgent simulation) {
+		Step step = pending;
+		if (step != null) return step;
+		synchronized (this) {
+			if (pending == null) {
+				pending = new Step(this, simulation);
+				simulation.postOneShotAction(pending);
+			}
+			return pending;
+		}
+	}
+
+	/**
+	 * Whether the moves of the driver are deferred to the end of the cycle, i.e. when the agents of its species are
+	 * scheduled in parallel (with the `parallel` facet of the species or, if it is not defined, the preference).
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param vehicle
+	 *            the vehicle
+	 * @return true, if is deferred
+	 */
+	public static boolean isDeferred(final IScope scope, final IAgent vehicle) {
+		final ISpecies species = vehicle.getSpecies();
+		return GamaExecutorService.getParallelism(scope, species.getConcurrency(),
+				species.isGrid() ? Caller.GRID : Caller.SPECIES) > 0;
+	}
+
+	/**
+	 * Decides the move of the vehicle, without modifying anything, and records it so that it is applied at the end of
+	 * the cycle.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param skill
+	 *            the skill
+	 * @param vehicle
+	 *            the vehicle
+	 * @param fallback
+	 *            the sequential version of the action, executed at the end of the cycle if the move cannot be decided
+	 *            in parallel
+	 * @return true
+	 */
+	public static boolean decide(final IScope scope, final DrivingSkill skill, final IAgent vehicle,
+			final IExecutable fallback) {
+		final SimulationAgent simulation = scope.getSimulation();
+		final Step step = getInstance(simulation).getStep(simulation);
+		step.decisions.add(new Decision(skill, vehicle, fallback, step.choose(scope, vehicle)));
+		return true;
+	}
+
+	/**
+	 * A move decided by a vehicle.
+	 */
+	static class Decision {
+
+		/** The skill. */
+		final DrivingSkill skill;
+
+		/** The vehicle. */
+		final IAgent vehicle;
+
+		/** The fallback. */
+		final IExecutable fallback;
+
+		/** The choice of lane and acceleration, or null if the move has to be done sequentially. */
+		LaneChoice choice;
+
+		/** The new location of the vehicle, set once the move has been applied. */
+		GamaPoint location;
+
+		/**
+		 * Instantiates a new decision.
+		 *
+		 * @param skill
+		 *            the skill
+		 * @param vehicle
+		 *            the vehicle
+		 * @param fallback
+		 *            the fallback
+		 * @param choice
+		 *            the choice
+		 */
+		Decision(final DrivingSkill skill, final IAgent vehicle, final IExecutable fallback, final LaneChoice choice) {
+			this.skill = skill;
+			this.vehicle = vehicle;
+			this.fallback = fallback;
+			this.choice = choice;
+		}
+
+		/**
+		 * Applies the move on the current road of the vehicle. Only modifies the vehicle and the orderings of its
+		 * road and of the linked road.
+		 *
+		 * @param scope
+		 *            the scope
+		 * @param time
+		 *            the duration of the step
+		 */
+		void move(final IScope scope, final double time) {
+			choice.apply(vehicle);
+			skill.moveAcrossSegments(scope, vehicle, choice.getAcceleration(), time, choice.getLowestLane(),
+					(v, p) -> location = p);
+		}
+	}
+
+	/**
+	 * The decisions taken during a cycle of a simulation, committed at the end of it.
+	 */
+	static class Step implements IExecutable {
+
+		/** The instance of the simulation. */
+		final ParallelDriving driving;
+
+		/** The duration of the step in seconds. */
+		final double time;
+
+		/** The seed of the random numbers used in this step. */
+		final long seed;
+
+		/** The decisions. */
+		final Queue<Decision> decisions = new ConcurrentLinkedQueue<>();
+
+		/**
+		 * Instantiates a new step. The seed is derived from the one of the random generator of the simulation, whatever
+		 * the scope (and the thread) in which the first decision is taken.
+		 *
+		 * @param driving
+		 *            the instance of the simulation
+		 * @param simulation
+		 *            the simulation
+		 */
+		Step(final ParallelDriving driving, final SimulationAgent simulation) {
+			this.driving = driving;
+			time = simulation.getClock().getStepInSeconds();
+			seed = Double.doubleToLongBits(simulation.getRandomGenerator().getSeed()) * 31
+					+ simulation.getClock().getCycle();
+		}
+
+		/**
+		 * Chooses the lane and the acceleration of a vehicle that stays on its current road during the step.
+		 *
+		 * @param scope
+		 *            the scope
+		 * @param vehicle
+		 *            the vehicle
+		 * @return the choice, or null if the vehicle has to move sequentially
+		 */
+		LaneChoice choose(final IScope scope, final IAgent vehicle) {
+			IAgent road = getCurrentRoad(vehicle);
+			IAgent target = getCurrentTarget(vehicle);
+			if (road == null || target == null || vehicle.getLocation().equals(target.getLocation())) return null;
+			SplittableRandom random = new SplittableRandom(
+					seed ^ (31L * vehicle.getSpeciesName().hashCode() + vehicle.getIndex()) * 0x9E3779B97F4A7C15L);
+			DoubleSupplier next = random::nextDouble;
+			LaneChoice choice = MOBIL.chooseLane(scope, vehicle, road, getLowestLane(vehicle), true, next);
+			if (choice == null) return null;
+			// Same computation as in moveAcrossSegments()
+			double speed = getSpeed(vehicle);
+			double accel = choice.getAcceleration();
+			double distMoved = speed + accel * time < 0.0 ? -0.5 * Math.pow(speed, 2) / accel
+					: speed * time + 0.5 * accel * Math.pow(time, 2);
+			// The vehicle reaches the intersection
+			if (distMoved >= getDistanceToCurrentTarget(vehicle) - DrivingSkill.EPSILON) return null;
+			return choice;
+		}
+
+		@Override
+		public Object executeOn(final IScope scope) throws GamaRuntimeException {
+			synchronized (driving) {
+				if (driving.pending == this) { driving.pending = null; }
+			}
+			List<Decision> list = new ArrayList<>(decisions);
+			list.removeIf(d -> d.vehicle.dead());
+			list.sort((a, b) -> BY_AGENT.compare(a.vehicle, b.vehicle));
+			// A vehicle that has driven several times in the cycle moves sequentially
+			for (int i = 1; i < list.size(); i++) {
+				if (list.get(i).vehicle == list.get(i - 1).vehicle) {
+					list.get(i).choice = null;
+					list.get(i - 1).choice = null;
+				}
+			}
+			Map<IAgent, IAgent> parents = new HashMap<>();
+			for (Decision d : list) {
+				if (d.choice == null) { continue; }
+				IAgent road = getCurrentRoad(d.vehicle);
+				IAgent linked = RoadSkill.getLinkedRoad(road);
+				if (linked != null) { union(parents, road, linked); }
+			}
+			Map<IAgent, List<Decision>> groups = new LinkedHashMap<>();
+			for (Decision d : list) {
+				if (d.choice == null) { continue; }
+				groups.computeIfAbsent(find(parents, getCurrentRoad(d.vehicle)), r -> new ArrayList<>()).add(d);
+			}
+			moveOnRoads(scope, groups.values());
+			// Setting the locations updates the spatial index, which is done sequentially
+			for (Decision d : list) {
+				if (d.choice != null && d.location != null) { d.skill.setLocation(d.vehicle, d.location); }
+			}
+			for (Decision d : list) { if (d.choice == null) { scope.execute(d.fallback, d.vehicle, null); } }
+			return null;
+		}
+
+		/**
+		 * Applies, in parallel, the moves of the vehicles that stay on their road. Each group is made of roads linked
+		 * together, so that the groups do not share any vehicle ordering.
+		 *
+		 * @param scope
+		 *            the scope
+		 * @param groups
+		 *            the decisions, grouped by road
+		 */
+		private void moveOnRoads(final IScope scope, final Iterable<List<Decision>> groups) {
+			List<Callable<Object>> tasks = new ArrayList<>();
+			for (List<Decision> group : groups) {
+				tasks.add(() -> {
+					for (Decision d : group) { d.move(scope, time); }
+					return null;
+				});
+			}
+			ForkJoinPool executor = GamaExecutorService.AGENT_PARALLEL_EXECUTOR;
+			try {
+				if (executor == null || tasks.size() < 2) {
+					for (Callable<Object> task : tasks) { task.call(); }
+					return;
+				}
+				for (Future<Object> f : executor.invokeAll(tasks)) { f.get(); }
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof GamaRuntimeException g) throw g;
+				throw GamaRuntimeException.create(e.getCause(), scope);
+			} catch (GamaRuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw GamaRuntimeException.create(e, scope);
+			}
+		}
+
+		/**
+		 * Finds the road representing the group of the road.
+		 *
+		 * @param parents
+		 *            the parents
+		 * @param road
+		 *            the road
+		 * @return the representative road
+		 */
+		private static IAgent find(final Map<IAgent, IAgent> parents, final IAgent road) {
+			IAgent parent = parents.get(road);
+			if (parent == null) return road;
+			IAgent root = find(parents, parent);
+			parents.put(road, root);
+			return root;
+		}
+
+		/**
+		 * Puts two roads in the same group.
+		 *
+		 * @param parents
+		 *            the parents
+		 * @param a
+		 *            the first road
+		 * @param b
+		 *            the second road
+		 */
+		private static void union(final Map<IAgent, IAgent> parents, final IAgent a, final IAgent b) {
+			IAgent ra = find(parents, a);
+			IAgent rb = find(parents, b);
+			if (ra == rb) return;
+			if (BY_AGENT.compare(ra, rb) < 0) {
+				parents.put(rb, ra);
+			} else {
+				parents.put(ra, rb);
+			}
+		}
+	}
+
+}
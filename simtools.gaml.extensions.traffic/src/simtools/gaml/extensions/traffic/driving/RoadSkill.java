@@ -10,6 +10,7 @@
  ********************************************************************************************************/
 package simtools.gaml.extensions.traffic.driving;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -401,12 +402,19 @@ public class RoadSkill extends Skill {
 		List<OrderedBidiMap<IAgent, Double>> res =
 				(List<OrderedBidiMap<IAgent, Double>>) road.getAttribute(VEHICLE_ORDERING);
 		if (res.isEmpty()) {
-			for (int i = 0; i < getNumLanes(road); i += 1) {
-				res.add(new CustomDualTreeBidiMap<IAgent, Double>((a, b) -> {
-					int r = a.getSpeciesName().compareTo(b.getSpeciesName());
-					if (r != 0) return r;
-					return Integer.compare(a.getIndex(), b.getIndex());
-				}, Collections.reverseOrder()));
+			// Roads can be read for the first time by several drivers deciding their moves in parallel
+			synchronized (res) {
+				if (res.isEmpty()) {
+					List<OrderedBidiMap<IAgent, Double>> maps = new ArrayList<>();
+					for (int i = 0; i < getNumLanes(road); i += 1) {
+						maps.add(new CustomDualTreeBidiMap<IAgent, Double>((a, b) -> {
+							int r = a.getSpeciesName().compareTo(b.getSpeciesName());
+							if (r != 0) return r;
+							return Integer.compare(a.getIndex(), b.getIndex());
+						}, Collections.reverseOrder()));
+					}
+					res.addAll(maps);
+				}
 			}
 		}
 		return res;
@@ -0,0 +1,441 @@
+/*******************************************************************************************************
+ *
+ * VehicleState.java, in simtools.gaml.extensions.traffic, is part of the source code of the
+ * GAMA modeling and simulation platform (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package simtools.gaml.extensions.traffic.driving;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
+
+import msi.gama.common.interfaces.IKeyword;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.population.IPopulation;
+import msi.gama.runtime.IScope;
+import msi.gaml.species.ISpecies;
+
+/**
+ * The kinematic and behavioural parameters of the drivers of a population, stored as a structure of arrays: one
+ * primitive column per attribute, indexed by the index of the agents. The getters of {@link DrivingSkill} read the
+ * columns directly, which avoids, in the car-following and lane-changing models, the lookup of the attributes by name
+ * and the unboxing of their values. The setters write through, in the columns and in the attributes of the agents, so
+ * that the rest of the platform (inspectors, serialization, direct calls to getAttribute()) sees the same values.
+ *
+ * The row of an agent is loaded from its attributes the first time it is accessed, and freed when the agent dies. As
+ * the indices of the agents are never reused, the rows cover a window of indices, which follows the live agents. The populations of agents that do not use the driving skill (e.g. road nodes, which can be found in the
+ * vehicle orderings of the roads) are not stored: their values are read from their attributes.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+class VehicleState implements IPopulation.Listener {
+
+	/** The float columns. */
+	static final int SPEED = 0, ACCELERATION = 1, MAX_ACCELERATION = 2, MAX_DECELERATION = 3, TIME_HEADWAY = 4,
+			DELTA_IDM = 5, POLITENESS_FACTOR = 6, MAX_SAFE_DECELERATION = 7, ACC_GAIN_THRESHOLD = 8, ACC_BIAS = 9,
+			TIME_SINCE_LC = 10, LC_COOLDOWN = 11, SPEED_COEFF = 12, MAX_SPEED = 13, MIN_SAFETY_DISTANCE = 14,
+			VEHICLE_LENGTH = 15, DISTANCE_TO_CURRENT_TARGET = 16, LEADING_DISTANCE = 17, LEADING_SPEED = 18;
+
+	/** The attributes corresponding to the float columns. */
+	private static final String[] DOUBLE_ATTRIBUTES = { IKeyword.SPEED, DrivingSkill.ACCELERATION,
+			DrivingSkill.MAX_ACCELERATION, DrivingSkill.MAX_DECELERATION, DrivingSkill.TIME_HEADWAY,
+			DrivingSkill.DELTA_IDM, DrivingSkill.POLITENESS_FACTOR, DrivingSkill.MAX_SAFE_DECELERATION,
+			DrivingSkill.ACC_GAIN_THRESHOLD, DrivingSkill.ACC_BIAS, DrivingSkill.TIME_SINCE_LC,
+			DrivingSkill.LC_COOLDOWN, DrivingSkill.SPEED_COEFF, DrivingSkill.MAX_SPEED,
+			DrivingSkill.MIN_SAFETY_DISTANCE, DrivingSkill.VEHICLE_LENGTH, DrivingSkill.DISTANCE_TO_CURRENT_TARGET,
+			DrivingSkill.LEADING_DISTANCE, DrivingSkill.LEADING_SPEED };
+
+	/** The int columns. */
+	static final int LOWEST_LANE = 0, NUM_LANES_OCCUPIED = 1;
+
+	/** The attributes corresponding to the int columns. */
+	private static final String[] INT_ATTRIBUTES = { DrivingSkill.LOWEST_LANE, DrivingSkill.NUM_LANES_OCCUPIED };
+
+	/** The initial number of rows. */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** The states of the populations. */
+	private static final Map<IPopulation<? extends IAgent>, VehicleState> STATES = new ConcurrentHashMap<>();
+
+	/**
+	 * The columns of a population, for a window of indices. Replaced by a larger one when an agent whose index is out
+	 * of the window is accessed, and by a smaller one when most of its rows have been freed by the death of their
+	 * agents.
+	 *
+	 * @param offset
+	 *            the index of the agent stored in the first row
+	 * @param doubles
+	 *            the float columns
+	 * @param ints
+	 *            the int columns
+	 * @param owners
+	 *            the agent whose values are stored in each row, written once the row is loaded and reset when the agent
+	 *            dies
+	 */
+	private record Table(int offset, double[][] doubles, int[][] ints, AtomicReferenceArray<IAgent> owners) {
+
+		/**
+		 * Capacity.
+		 *
+		 * @return the number of rows
+		 */
+		int capacity() {
+			return owners.length();
+		}
+
+		/**
+		 * The row of an agent, if the table stores it.
+		 *
+		 * @param agent
+		 *            the agent
+		 * @return the row, or -1 if the row of the agent is not loaded in this table
+		 */
+		int rowOf(final IAgent agent) {
+			final int row = agent.getIndex() - offset;
+			return row >= 0 && row < owners.length() && owners.get(row) == agent ? row : -1;
+		}
+	}
+
+	/** The population. */
+	private final IPopulation<? extends IAgent> population;
+
+	/** Whether the agents of the population use the driving skill. */
+	private final boolean driving;
+
+	/** The current table, or null if the agents are not drivers. */
+	private volatile Table table;
+
+	/**
+	 * The lock of the table: the writers of values hold it in read mode, so that they can write concurrently, while the
+	 * table is replaced, or a row loaded or freed, in write mode, so that no value is written to a table being copied.
+	 */
+	private final StampedLock lock = new StampedLock();
+
+	/** The number of rows loaded in the table. Guarded by the write lock. */
+	private int loaded;
+
+	/** The number of rows under which a compaction of the table is tried again. Guarded by the write lock. */
+	private int compactBelow = Integer.MAX_VALUE;
+
+	/**
+	 * Instantiates a new vehicle state.
+	 *
+	 * @param population
+	 *            the population
+	 */
+	private VehicleState(final IPopulation<? extends IAgent> population) {
+		this.population = population;
+		final ISpecies species = population.getSpecies();
+		driving = species != null && species.implementsSkill(DrivingSkill.ADVANCED_DRIVING);
+		if (driving) { table = allocate(0, INITIAL_CAPACITY); }
+	}
+
+	/**
+	 * Returns the state of the population of the agent, or null if the agent is not a driver (or is dead, its row being
+	 * freed).
+	 *
+	 * @param agent
+	 *            the agent
+	 * @return the vehicle state
+	 */
+	private static VehicleState of(final IAgent agent) {
+		final IPopulation<? extends IAgent> population = agent.getPopulation();
+		if (population == null || agent.dead()) return null;
+		VehicleState state = STATES.get(population);
+		if (state == null) {
+			state = STATES.computeIfAbsent(population, p -> {
+				VehicleState s = new VehicleState(p);
+				p.addListener(s);
+				return s;
+			});
+		}
+		return state.driving ? state : null;
+	}
+
+	/**
+	 * Gets the value of a float column, or of the corresponding attribute if the agent is not a driver.
+	 *
+	 * @param vehicle
+	 *            the vehicle
+	 * @param column
+	 *            the column
+	 * @return the value, 0 if it is not defined
+	 */
+	static double getDouble(final IAgent vehicle, final int column) {
+		final VehicleState state = of(vehicle);
+		if (state == null) return asDouble(vehicle.getAttribute(DOUBLE_ATTRIBUTES[column]));
+		final Table t = state.load(vehicle);
+		return t.doubles[column][vehicle.getIndex() - t.offset];
+	}
+
+	/**
+	 * Sets the value of a float column and of the corresponding attribute.
+	 *
+	 * @param vehicle
+	 *            the vehicle
+	 * @param column
+	 *            the column
+	 * @param value
+	 *            the value
+	 */
+	static void setDouble(final IAgent vehicle, final int column, final double value) {
+		vehicle.setAttribute(DOUBLE_ATTRIBUTES[column], value);
+		final VehicleState state = of(vehicle);
+		if (state == null) return;
+		while (true) {
+			state.load(vehicle);
+			final long stamp = state.lock.readLock();
+			try {
+				// The table cannot be replaced while the value is written
+				final Table t = state.table;
+				final int row = t.rowOf(vehicle);
+				if (row >= 0) {
+					t.doubles[column][row] = value;
+					return;
+				}
+			} finally {
+				state.lock.unlockRead(stamp);
+			}
+		}
+	}
+
+	/**
+	 * Gets the value of an int column, or of the corresponding attribute if the agent is not a driver.
+	 *
+	 * @param vehicle
+	 *            the vehicle
+	 * @param column
+	 *            the column
+	 * @return the value, 0 if it is not defined
+	 */
+	static int getInt(final IAgent vehicle, final int column) {
+		final VehicleState state = of(vehicle);
+		if (state == null) return asInt(vehicle.getAttribute(INT_ATTRIBUTES[column]));
+		final Table t = state.load(vehicle);
+		return t.ints[column][vehicle.getIndex() - t.offset];
+	}
+
+	/**
+	 * Sets the value of an int column and of the corresponding attribute.
+	 *
+	 * @param vehicle
+	 *            the vehicle
+	 * @param column
+	 *            the column
+	 * @param value
+	 *            the value
+	 */
+	static void setInt(final IAgent vehicle, final int column, final int value) {
+		vehicle.setAttribute(INT_ATTRIBUTES[column], value);
+		final VehicleState state = of(vehicle);
+		if (state == null) return;
+		while (true) {
+			state.load(vehicle);
+			final long stamp = state.lock.readLock();
+			try {
+				final Table t = state.table;
+				final int row = t.rowOf(vehicle);
+				if (row >= 0) {
+					t.ints[column][row] = value;
+					return;
+				}
+			} finally {
+				state.lock.unlockRead(stamp);
+			}
+		}
+	}
+
+	/**
+	 * Returns a table in which the row of the vehicle is loaded, resizing the table and loading the row if necessary.
+	 *
+	 * @param vehicle
+	 *            the vehicle
+	 * @return the table
+	 */
+	private Table load(final IAgent vehicle) {
+		Table t = table;
+		if (t.rowOf(vehicle) >= 0) return t;
+		final long stamp = lock.writeLock();
+		try {
+			t = table;
+			if (t.rowOf(vehicle) >= 0) return t;
+			final int index = vehicle.getIndex();
+			if (index < t.offset || index >= t.offset + t.capacity()) {
+				t = resize(t, index);
+				table = t;
+				compactBelow = Integer.MAX_VALUE;
+			}
+			load(t, vehicle, index - t.offset);
+			loaded++;
+			return t;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Loads the row of the vehicle from its attributes. The owner is written last, so that the threads that see it
+	 * also see the values.
+	 *
+	 * @param t
+	 *            the table
+	 * @param vehicle
+	 *            the vehicle
+	 * @param row
+	 *            the row
+	 */
+	private static void load(final Table t, final IAgent vehicle, final int row) {
+		for (int c = 0; c < DOUBLE_ATTRIBUTES.length; c++) {
+			t.doubles[c][row] = asDouble(vehicle.getAttribute(DOUBLE_ATTRIBUTES[c]));
+		}
+		for (int c = 0; c < INT_ATTRIBUTES.length; c++) {
+			t.ints[c][row] = asInt(vehicle.getAttribute(INT_ATTRIBUTES[c]));
+		}
+		t.owners.set(row, vehicle);
+	}
+
+	/**
+	 * Frees the row of a dead vehicle, so that the table does not keep it alive. Called with the write lock held.
+	 *
+	 * @param vehicle
+	 *            the vehicle
+	 */
+	private void free(final IAgent vehicle) {
+		final Table t = table;
+		final int row = t.rowOf(vehicle);
+		if (row < 0) return;
+		t.owners.set(row, null);
+		loaded--;
+	}
+
+	/**
+	 * Replaces the table by a smaller one if most of its rows have been freed. As the indices of the agents are never
+	 * reused, the rows of the oldest agents are freed first, and the window of the table moves towards the new ones.
+	 * Called with the write lock held.
+	 */
+	private void compact() {
+		final Table t = table;
+		if (t.capacity() <= INITIAL_CAPACITY || loaded * 4 >= t.capacity() || loaded >= compactBelow) return;
+		final Table c = resize(t, -1);
+		if (c.capacity() <= t.capacity() / 2) {
+			table = c;
+			compactBelow = Integer.MAX_VALUE;
+		} else {
+			// A few old agents keep the window wide: tried again once half of the remaining rows have been freed
+			compactBelow = loaded / 2;
+		}
+	}
+
+	/**
+	 * Allocates an empty table.
+	 *
+	 * @param offset
+	 *            the index of the agent stored in the first row
+	 * @param capacity
+	 *            the capacity
+	 * @return the table
+	 */
+	private static Table allocate(final int offset, final int capacity) {
+		return new Table(offset, new double[DOUBLE_ATTRIBUTES.length][capacity],
+				new int[INT_ATTRIBUTES.length][capacity], new AtomicReferenceArray<>(capacity));
+	}
+
+	/**
+	 * Copies the rows of the live agents of a table into a new one, whose window covers them and, if it is positive,
+	 * the given index, with room to grow.
+	 *
+	 * @param t
+	 *            the table
+	 * @param index
+	 *            the index to cover, or -1
+	 * @return the new table
+	 */
+	private static Table resize(final Table t, final int index) {
+		int first = index < 0 ? Integer.MAX_VALUE : index, last = index;
+		for (int row = 0; row < t.capacity(); row++) {
+			if (t.owners.get(row) == null) { continue; }
+			first = Math.min(first, t.offset + row);
+			last = Math.max(last, t.offset + row);
+		}
+		if (last < 0) return allocate(t.offset + t.capacity(), INITIAL_CAPACITY);
+		final Table result = allocate(first, Math.max(INITIAL_CAPACITY, 2 * (last - first + 1)));
+		for (int row = 0; row < t.capacity(); row++) {
+			final IAgent owner = t.owners.get(row);
+			if (owner == null) { continue; }
+			final int to = t.offset + row - first;
+			for (int c = 0; c < DOUBLE_ATTRIBUTES.length; c++) { result.doubles[c][to] = t.doubles[c][row]; }
+			for (int c = 0; c < INT_ATTRIBUTES.length; c++) { result.ints[c][to] = t.ints[c][row]; }
+			result.owners.set(to, owner);
+		}
+		return result;
+	}
+
+	/**
+	 * As double.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the double
+	 */
+	private static double asDouble(final Object value) {
+		return value instanceof Number n ? n.doubleValue() : 0d;
+	}
+
+	/**
+	 * As int.
+	 *
+	 * @param value
+	 *            the value
+	 * @return the int
+	 */
+	private static int asInt(final Object value) {
+		return value instanceof Number n ? n.intValue() : 0;
+	}
+
+	@Override
+	public void notifyAgentRemoved(final IScope scope, final IPopulation<? extends IAgent> pop, final IAgent agent) {
+		if (!driving) return;
+		final long stamp = lock.writeLock();
+		try {
+			free(agent);
+			compact();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public void notifyAgentAdded(final IScope scope, final IPopulation<? extends IAgent> pop, final IAgent agent) {}
+
+	@Override
+	public void notifyAgentsAdded(final IScope scope, final IPopulation<? extends IAgent> pop,
+			final Collection<? extends IAgent> agents) {}
+
+	@Override
+	public void notifyAgentsRemoved(final IScope scope, final IPopulation<? extends IAgent> pop,
+			final Collection<? extends IAgent> agents) {
+		if (!driving) return;
+		final long stamp = lock.writeLock();
+		try {
+			for (final IAgent agent : agents) { free(agent); }
+			compact();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	@Override
+	public void notifyPopulationCleared(final IScope scope, final IPopulation<? extends IAgent> pop) {
+		// The population is disposed
+		STATES.remove(population, this);
+	}
+
+}
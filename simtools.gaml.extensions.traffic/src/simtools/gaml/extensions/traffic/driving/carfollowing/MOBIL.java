@@ -34,6 +34,7 @@ import static simtools.gaml.extensions.traffic.driving.carfollowing.Utils.findLe
 import static simtools.gaml.extensions.traffic.driving.carfollowing.Utils.rescaleProba;
 
 import java.util.List;
+import java.util.function.DoubleSupplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -50,6 +51,77 @@ import simtools.gaml.extensions.traffic.driving.RoadSkill;
  * The Class MOBIL.
  */
 public class MOBIL {
+
+	/**
+	 * The lane chosen by a vehicle, with the resulting acceleration and the information about its neighbours that
+	 * has to be stored in the vehicle.
+	 */
+	public static class LaneChoice {
+
+		/** The chosen lowest lane. */
+		int lowestLane;
+
+		/** The resulting acceleration. */
+		double acceleration;
+
+		/** Whether a leading vehicle has been found. */
+		boolean hasLeader;
+
+		/** The leading vehicle and the follower. */
+		IAgent leadingVehicle, follower;
+
+		/** The leading distance and speed. */
+		double leadingDistance, leadingSpeed;
+
+		/** The time since the last lane change. */
+		double timeSinceLC;
+
+		/**
+		 * Records the neighbours of the vehicle.
+		 *
+		 * @param leader the leading vehicle
+		 * @param distance the leading distance
+		 * @param speed the leading speed
+		 * @param back the follower
+		 */
+		void lead(final IAgent leader, final double distance, final double speed, final IAgent back) {
+			hasLeader = true;
+			leadingVehicle = leader;
+			leadingDistance = distance;
+			leadingSpeed = speed;
+			follower = back;
+		}
+
+		/**
+		 * Gets the chosen lowest lane.
+		 *
+		 * @return the lowest lane
+		 */
+		public int getLowestLane() { return lowestLane; }
+
+		/**
+		 * Gets the resulting acceleration.
+		 *
+		 * @return the acceleration
+		 */
+		public double getAcceleration() { return acceleration; }
+
+		/**
+		 * Stores the information about the neighbours and the time since the last lane change in the vehicle.
+		 *
+		 * @param vehicle the vehicle
+		 */
+		public void apply(final IAgent vehicle) {
+			if (hasLeader) {
+				setLeadingVehicle(vehicle, leadingVehicle);
+				setLeadingDistance(vehicle, leadingDistance);
+				setLeadingSpeed(vehicle, leadingSpeed);
+				setFollower(vehicle, follower);
+			}
+			setTimeSinceLC(vehicle, timeSinceLC);
+		}
+	}
+
 	/**
 	 * Choose a new lane according to the lane change model MOBIL
 	 * (https://traffic-simulation.de/info/info_MOBIL.html).
@@ -64,7 +136,31 @@ public class MOBIL {
 	public static ImmutablePair<Integer, Double> chooseLane(final IScope scope,
 			final IAgent vehicle,
 			final IAgent road,
-			int currentLowestLane) {
+			final int currentLowestLane) {
+		LaneChoice choice = chooseLane(scope, vehicle, road, currentLowestLane, false, scope.getRandom()::next);
+		choice.apply(vehicle);
+		return ImmutablePair.of(choice.lowestLane, choice.acceleration);
+	}
+
+	/**
+	 * Choose a new lane according to the lane change model MOBIL, without modifying the vehicle (see
+	 * {@link LaneChoice#apply(IAgent)}).
+	 *
+	 * @param scope
+	 * @param road              the road which the vehicle is moving on
+	 * @param currentLowestLane the current lowest lane of the vehicle
+	 * @param readOnly          whether nothing must be modified, in which case null is returned if the vehicle has to
+	 *                          check whether it can cross the intersection ahead
+	 * @param random            the random numbers used to decide whether to use the linked road
+	 * @return the choice, or null
+	 */
+	public static LaneChoice chooseLane(final IScope scope,
+			final IAgent vehicle,
+			final IAgent road,
+			final int currentLowestLane,
+			final boolean readOnly,
+			final DoubleSupplier random) {
+		LaneChoice choice = new LaneChoice();
 		double VL = getVehicleLength(vehicle);
 		int numLanesOccupied = getNumLanesOccupied(vehicle);
 
@@ -96,7 +192,10 @@ public class MOBIL {
 
 		// Compute acceleration if the vehicle stays on the same lane
 		Triple<IAgent, Double, Boolean> leaderTriple = findLeader(
-				scope, vehicle, currentLowestLane);
+				scope, vehicle, currentLowestLane, readOnly);
+		if (leaderTriple == null) {
+			return null;
+		}
 		Triple<IAgent, Double, Boolean> followerTriple = findFollower(
 				scope, vehicle, currentLowestLane);
 		IAgent currentBackVehicle = followerTriple != null ? followerTriple.getLeft() : null;
@@ -110,10 +209,7 @@ public class MOBIL {
 			boolean leadingSameDirection = leaderTriple.getRight();
 			double leadingSpeed = getSpeed(leadingVehicle);
 			leadingSpeed = leadingSameDirection ? leadingSpeed : -leadingSpeed;
-			setLeadingVehicle(vehicle, leadingVehicle);
-			setLeadingDistance(vehicle, leadingDist);
-			setLeadingSpeed(vehicle, leadingSpeed);
-			setFollower(vehicle, currentBackVehicle);
+			choice.lead(leadingVehicle, leadingDist, leadingSpeed, currentBackVehicle);
 			// Calculate acc(M) - Acceleration of current vehicle M if no lane change occurs
 			stayAccelM = IDM.computeAcceleration(scope, vehicle, road, leadingDist, leadingSpeed);
 			// Do not allow changing lane when approaching intersections
@@ -122,9 +218,10 @@ public class MOBIL {
 			if ((leadingVehicle != null &&
 					leadingVehicle.getSpecies().implementsSkill(RoadNodeSkill.SKILL_ROAD_NODE)) ||
 					getTimeSinceLC(vehicle) < getLCCooldown(vehicle)) {
-				double t = getTimeSinceLC(vehicle);
-				setTimeSinceLC(vehicle, t + timeStep);
-				return ImmutablePair.of(currentLowestLane, stayAccelM);
+				choice.timeSinceLC = getTimeSinceLC(vehicle) + timeStep;
+				choice.lowestLane = currentLowestLane;
+				choice.acceleration = stayAccelM;
+				return choice;
 			}
 		}
 		int bestLowestLane = currentLowestLane;
@@ -140,13 +237,16 @@ public class MOBIL {
 
 			if (currentLowestLane <= numCurrentLanes - numLanesOccupied &&
 					tmpLowestLane > numCurrentLanes - numLanesOccupied) {
-				if (scope.getRandom().next() > probaUseLinkedRoad) {
+				if (random.getAsDouble() > probaUseLinkedRoad) {
 					continue;
 				}
 			}
 
 			Triple<IAgent, Double, Boolean> newLeaderTriple = 
-					findLeader(scope, vehicle, tmpLowestLane);
+					findLeader(scope, vehicle, tmpLowestLane, readOnly);
+			if (newLeaderTriple == null) {
+				return null;
+			}
 			Triple<IAgent, Double, Boolean> newFollowerTriple =
 					findFollower(scope, vehicle, tmpLowestLane);
 
@@ -209,19 +309,17 @@ public class MOBIL {
 				bestIncentive = incentive;
 				bestLowestLane = tmpLowestLane;
 				bestAccel = changeAccelM;
-				setLeadingVehicle(vehicle, leadingVehicle);
-				setLeadingDistance(vehicle, leadingDist);
-				setLeadingSpeed(vehicle, leadingSpeed);
-				setFollower(vehicle, newFollowerTriple.getLeft());
+				choice.lead(leadingVehicle, leadingDist, leadingSpeed, newFollowerTriple.getLeft());
 			}
 		}
 
 		if (bestLowestLane != currentLowestLane) {
-			setTimeSinceLC(vehicle, 0.0);
+			choice.timeSinceLC = 0.0;
 		} else {
-			double t = getTimeSinceLC(vehicle);
-			setTimeSinceLC(vehicle, t + timeStep);
+			choice.timeSinceLC = getTimeSinceLC(vehicle) + timeStep;
 		}
-		return ImmutablePair.of(bestLowestLane, bestAccel);
+		choice.lowestLane = bestLowestLane;
+		choice.acceleration = bestAccel;
+		return choice;
 	}
 }
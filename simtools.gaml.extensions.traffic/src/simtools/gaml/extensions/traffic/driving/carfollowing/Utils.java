@@ -29,6 +29,7 @@ import org.apache.commons.lang3.tuple.Triple;
 import msi.gama.metamodel.agent.IAgent;
 import msi.gama.metamodel.shape.GamaPoint;
 import msi.gama.runtime.IScope;
+import simtools.gaml.extensions.traffic.driving.DrivingSkill;
 import simtools.gaml.extensions.traffic.driving.RoadNodeSkill;
 import simtools.gaml.extensions.traffic.driving.RoadSkill;
 
@@ -96,6 +97,23 @@ public class Utils {
 	public static Triple<IAgent, Double, Boolean> findLeader(final IScope scope,
 			final IAgent vehicle,
 			final int lowestLane) {
+		return findLeader(scope, vehicle, lowestLane, false);
+	}
+
+	/**
+	 * Find leader.
+	 *
+	 * @param scope the scope
+	 * @param vehicle the vehicle
+	 * @param lowestLane the lowest lane
+	 * @param readOnly whether the search must not modify anything, in which case null is returned when it needs to
+	 *        check whether the vehicle can cross the intersection ahead (see {@link DrivingSkill#readyToCross})
+	 * @return the triple, or null
+	 */
+	public static Triple<IAgent, Double, Boolean> findLeader(final IScope scope,
+			final IAgent vehicle,
+			final int lowestLane,
+			final boolean readOnly) {
 		IAgent road = getCurrentRoad(vehicle);
 		IAgent target = getCurrentTarget(vehicle);
 		double distToCurrentTarget = getDistanceToCurrentTarget(vehicle);
@@ -118,6 +136,10 @@ public class Utils {
 		double minGap = Double.MAX_VALUE;
 		boolean sameDirection = false;
 		IAgent nextRoad = getNextRoad(vehicle);
+		// Testing the intersection can execute user actions and draw random numbers
+		if (readOnly && nextRoad != null) {
+			return null;
+		}
 		// If vehicle is approaching an intersection, we need to slow down if
 		// 1. The intersection is the final target, the vehicle hasn't decide the next road yet
 		// 2. It is not possible to enter the next road (e.g. traffic lights)
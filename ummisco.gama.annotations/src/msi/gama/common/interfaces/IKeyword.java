@@ -592,6 +592,9 @@ public interface IKeyword {
 	/** The isfolder. */
 	String ISFOLDER = "is_folder";
 
+	/** The island genetic. */
+	String ISLAND_GENETIC = "island_genetic";
+
 	/** The isnot. */
 	String ISNOT = "is_not";
 
@@ -604,6 +607,9 @@ public interface IKeyword {
 	/** The java. */
 	String JAVA = "java";
 
+	/** The journal. */
+	String JOURNAL = "journal";
+
 	/** The keep. */
 	String KEEP = "keep";
 
@@ -1131,6 +1137,9 @@ public interface IKeyword {
 	/** The source. */
 	String SOURCE = "source";
 
+	/** The spatial index. */
+	String SPATIAL_INDEX = "spatial_index";
+
 	/** The species. */
 	String SPECIES = "species";
 
@@ -1406,6 +1415,7 @@ public interface IKeyword {
 
 	/** The methods. */
 	String[] METHODS =
-			{ GENETIC, ANNEALING, HILL_CLIMBING, TABU, REACTIVE_TABU, EXHAUSTIVE, PSO, EXPLICIT, SOBOL, MORRIS };
+			{ GENETIC, ANNEALING, HILL_CLIMBING, TABU, REACTIVE_TABU, EXHAUSTIVE, PSO, EXPLICIT, SOBOL, MORRIS,
+					ISLAND_GENETIC };
 
 }
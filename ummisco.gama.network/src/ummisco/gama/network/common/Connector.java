@@ -135,6 +135,21 @@ public abstract class Connector implements IConnector {
 		}
 	}
 
+	/**
+	 * Stores a batch of messages received from the network, locking the mailboxes once for the whole batch.
+	 *
+	 * @param messages
+	 *            the messages
+	 */
+	public void storeMessages(final List<ConnectorMessage> messages) {
+		if (messages.isEmpty()) return;
+		synchronized (lockGroupManagment) {
+			for (final ConnectorMessage msg : messages) {
+				if (!this.localMemberNames.containsKey(msg.getSender())) { pushReceivedMessage(msg.getReceiver(), msg); }
+			}
+		}
+	}
+
 	/**
 	 * Push and fetchthread safe.
 	 *
@@ -160,11 +175,7 @@ public abstract class Connector implements IConnector {
 					return allMessage;
 				}
 				case PUSCH_RECEIVED_MESSAGE_THREAD_SAFE_ACTION: {
-					final ArrayList<IAgent> bb = this.boxFollower.get(groupName)==null? this.boxFollower.get("ALL"): this.boxFollower.get(groupName);
-					for (final IAgent agt : bb) {
-						final LinkedList<ConnectorMessage> messages = receivedMessage.get(agt);
-						if (messages != null) { messages.add(message); }
-					}
+					pushReceivedMessage(groupName, message);
 					break;
 				}
 			}
@@ -172,6 +183,22 @@ public abstract class Connector implements IConnector {
 		return null;
 	}
 
+	/**
+	 * Pushes a received message in the mailboxes of the members of a group. Must be called while holding the lock.
+	 *
+	 * @param groupName
+	 *            the group name
+	 * @param message
+	 *            the message
+	 */
+	private void pushReceivedMessage(final String groupName, final ConnectorMessage message) {
+		final ArrayList<IAgent> bb = this.boxFollower.get(groupName)==null? this.boxFollower.get("ALL"): this.boxFollower.get(groupName);
+		for (final IAgent agt : bb) {
+			final LinkedList<ConnectorMessage> messages = receivedMessage.get(agt);
+			if (messages != null) { messages.add(message); }
+		}
+	}
+
 	@Override
 	public void send(final IAgent sender, final String receiver, final GamaMessage content) {
 		if (!this.forceNetworkUse && this.boxFollower.containsKey(receiver)) {
@@ -113,4 +113,7 @@ public interface IConnector {
 	
 	/** The packet size. */
 	String PACKET_SIZE = "PACKET_SIZE";
+
+	/** The transport (for TCP connectors). */
+	String TRANSPORT = "TRANSPORT";
 }
@@ -36,6 +36,12 @@ public interface INetworkSkill {
 	/** The port. */
 	String PORT = "port";
 
+	/** The transport. */
+	String TRANSPORT = "transport";
+
+	/** The non-blocking transport for TCP connections. */
+	String NIO_TRANSPORT = "nio";
+
 	/** The net agent name. */
 	// Agent Data
 	String NET_AGENT_NAME = "network_name";
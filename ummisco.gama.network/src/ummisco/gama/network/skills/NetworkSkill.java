@@ -174,7 +174,13 @@ public class NetworkSkill extends MessagingSkill {
 							name = INetworkSkill.MAX_DATA_PACKET_SIZE,
 							type = IType.INT,
 							optional = true,
-							doc = @doc ("For UDP connection, it sets the maximum size of received packets (default = 1024bits).")) },
+							doc = @doc ("For UDP connection, it sets the maximum size of received packets (default = 1024bits).")),
+					@arg (
+							name = INetworkSkill.TRANSPORT,
+							type = IType.STRING,
+							optional = true,
+							doc = @doc ("For TCP connections, '" + INetworkSkill.NIO_TRANSPORT
+									+ "' uses non-blocking sockets served by a small pool of threads, and frames the messages by their length instead of separating them by new lines (both sides must use it); otherwise one thread per connection is used.")) },
 			doc = @doc (
 					value = "Action used by a networking agent to connect to a server or to create a server.",
 					examples = { @example (" do connect with_name:\"any_name\";"),
@@ -185,6 +191,7 @@ public class NetworkSkill extends MessagingSkill {
 							@example (" do connect to:\"localhost\" protocol:\"udp_server\" port:9877 size_packet: 4096;"),
 							@example (" do connect to:\"localhost\" protocol:\"tcp_client\" port:9876;"),
 							@example (" do connect to:\"localhost\" protocol:\"tcp_server\" port:9876 raw:true;"),
+							@example (" do connect to:\"localhost\" protocol:\"tcp_server\" port:9876 transport:\"nio\";"),
 							@example (" do connect to: \"https://openlibrary.org\" protocol: \"http\" port: 443 raw: true;"),
 							@example (" do connect protocol: \"arduino\";"),
 							}))
@@ -200,6 +207,7 @@ public class NetworkSkill extends MessagingSkill {
 		final Boolean raw_package = (Boolean) scope.getArg("raw", IType.BOOL);
 		final Integer port = (Integer) scope.getArg(INetworkSkill.PORT, IType.INT);
 		final String packet_size = (String) scope.getArg(INetworkSkill.MAX_DATA_PACKET_SIZE, IType.STRING);
+		final String transport = (String) scope.getArg(INetworkSkill.TRANSPORT, IType.STRING);
 
 		// Fix to Issue #2618
 		final String serverKey = createServerKey(serverURL, port);
@@ -235,11 +243,13 @@ public class NetworkSkill extends MessagingSkill {
 				connector = new TCPConnector(scope, true, raw_package);
 				connector.configure(IConnector.SERVER_URL, serverURL);
 				connector.configure(IConnector.SERVER_PORT, "" + port);
+				connector.configure(IConnector.TRANSPORT, transport);
 			} else if (INetworkSkill.TCP_CLIENT.equals(protocol)) {
 				DEBUG.OUT("create TCP client");
 				connector = new TCPConnector(scope, false, raw_package);
 				connector.configure(IConnector.SERVER_URL, serverURL);
 				connector.configure(IConnector.SERVER_PORT, "" + port);
+				connector.configure(IConnector.TRANSPORT, transport);
 			} else if (INetworkSkill.ARDUINO.equals(protocol)) {
 				connector = new ArduinoConnector(scope);
 			} else if (INetworkSkill.HTTP_REQUEST.equals(protocol)) {
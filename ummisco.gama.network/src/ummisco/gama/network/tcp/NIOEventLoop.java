@@ -0,0 +1,171 @@
+/*******************************************************************************************************
+ *
+ * NIOEventLoop.java, in ummisco.gama.network, is part of the source code of the GAMA modeling and simulation platform
+ * (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package ummisco.gama.network.tcp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ummisco.gama.dev.utils.DEBUG;
+
+/**
+ * A selector thread, shared by the non-blocking TCP services. A small, fixed number of loops serves all the TCP
+ * connections of the platform: each service (and all its connections) is handled by one of them, chosen in turn.
+ *
+ * Each loop owns two direct buffers, reused by all its channels to read and write. The messages decoded during an
+ * iteration are delivered to their services at the end of the iteration, so that the mailboxes of the connectors are
+ * locked once per batch instead of once per message.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+final class NIOEventLoop implements Runnable {
+
+	/**
+	 * The handlers of the channels registered in a loop.
+	 */
+	interface Handler {
+
+		/**
+		 * Handles the operations ready on a channel. Always called in the thread of the loop.
+		 *
+		 * @param key
+		 *            the key of the channel
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		void handle(SelectionKey key) throws IOException;
+
+		/**
+		 * Called when the channel has failed or has been closed by the other side.
+		 *
+		 * @param key
+		 *            the key of the channel
+		 */
+		void closed(SelectionKey key);
+	}
+
+	/** The number of loops. */
+	static final int NB_LOOPS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+	/** The size of the buffers. */
+	static final int BUFFER_SIZE = 64 * 1024;
+
+	/** The loops, created when the first non-blocking service starts. */
+	private static NIOEventLoop[] LOOPS;
+
+	/** The index of the next loop to use. */
+	private static final AtomicInteger NEXT = new AtomicInteger();
+
+	/**
+	 * Returns the loop that will handle a new service.
+	 *
+	 * @return the loop
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	static synchronized NIOEventLoop next() throws IOException {
+		if (LOOPS == null) {
+			final NIOEventLoop[] loops = new NIOEventLoop[NB_LOOPS];
+			for (int i = 0; i < NB_LOOPS; i++) {
+				loops[i] = new NIOEventLoop();
+				final Thread thread = new Thread(loops[i], "GAMA TCP loop " + i);
+				thread.setDaemon(true);
+				thread.start();
+			}
+			LOOPS = loops;
+		}
+		return LOOPS[Math.floorMod(NEXT.getAndIncrement(), LOOPS.length)];
+	}
+
+	/** The selector. */
+	final Selector selector;
+
+	/** The tasks to run in the thread of the loop. */
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+	/** The services that have received messages during the current iteration. */
+	private final Set<NIOSocketService> received = new LinkedHashSet<>();
+
+	/** The buffer used to read from the channels. */
+	final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	/** The buffer used to write to the channels. */
+	final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	/**
+	 * Instantiates a new loop.
+	 *
+	 * @throws IOException
+	 *             Signals that an I/O exception has occurred.
+	 */
+	private NIOEventLoop() throws IOException {
+		selector = Selector.open();
+	}
+
+	/**
+	 * Runs a task in the thread of the loop (registrations, changes of interest, closings).
+	 *
+	 * @param task
+	 *            the task
+	 */
+	void execute(final Runnable task) {
+		tasks.add(task);
+		selector.wakeup();
+	}
+
+	/**
+	 * Records that a service has received messages, to be delivered at the end of the iteration.
+	 *
+	 * @param service
+	 *            the service
+	 */
+	void received(final NIOSocketService service) {
+		received.add(service);
+	}
+
+	@Override
+	public void run() {
+		while (true) {
+			try {
+				selector.select();
+				Runnable task;
+				while ((task = tasks.poll()) != null) { task.run(); }
+				final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					final SelectionKey key = keys.next();
+					keys.remove();
+					final Handler handler = (Handler) key.attachment();
+					try {
+						if (key.isValid()) { handler.handle(key); }
+					} catch (final IOException | CancelledKeyException e) {
+						handler.closed(key);
+					}
+				}
+				if (!received.isEmpty()) {
+					for (final NIOSocketService service : received) { service.deliver(); }
+					received.clear();
+				}
+			} catch (final Exception e) {
+				DEBUG.LOG("Exception occured in the TCP loop " + e.getMessage());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,507 @@
+/*******************************************************************************************************
+ *
+ * NIOSocketService.java, in ummisco.gama.network, is part of the source code of the GAMA modeling and simulation
+ * platform (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package ummisco.gama.network.tcp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.util.IList;
+import msi.gaml.operators.Cast;
+import ummisco.gama.dev.utils.DEBUG;
+import ummisco.gama.network.common.socket.SocketService;
+import ummisco.gama.network.skills.INetworkSkill;
+
+/**
+ * A non-blocking TCP server or client, used instead of {@link ServerService} and {@link ClientService} when the
+ * connector is configured with the "nio" transport. It does not own any thread: its channels are handled by one of the
+ * shared {@link NIOEventLoop}s.
+ *
+ * Messages are framed by their length (a 4-bytes big-endian integer followed by the message in UTF-8) instead of
+ * being separated by new lines, so they do not need to be escaped. Both sides of a connection must therefore use this
+ * transport.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public class NIOSocketService implements SocketService, NIOEventLoop.Handler {
+
+	/** The maximum size of a message. */
+	static final int MAX_FRAME_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * A connection, i.e. a client connected to the server, or the connection of the client to its server.
+	 */
+	class Connection implements NIOEventLoop.Handler {
+
+		/** The channel. */
+		final SocketChannel channel;
+
+		/** The name of the connection, used as the sender of its messages and as the receiver of the answers. */
+		final String name;
+
+		/** The key of the channel. */
+		SelectionKey key;
+
+		/** The frames waiting to be sent. */
+		final Queue<byte[]> outbox = new ConcurrentLinkedQueue<>();
+
+		/** The bytes taken from the outbox but not written yet (only used in the thread of the loop). */
+		final ArrayDeque<ByteBuffer> unsent = new ArrayDeque<>();
+
+		/** The beginning of a frame not entirely received yet. */
+		ByteBuffer partial;
+
+		/** Whether the loop has been asked to write the outbox. */
+		final AtomicBoolean writing = new AtomicBoolean();
+
+		/**
+		 * Instantiates a new connection.
+		 *
+		 * @param channel
+		 *            the channel
+		 */
+		Connection(final SocketChannel channel) {
+			this.channel = channel;
+			this.name = channel.socket().toString();
+		}
+
+		/**
+		 * Queues a frame and asks the loop to write it.
+		 *
+		 * @param frame
+		 *            the frame
+		 */
+		void send(final byte[] frame) {
+			outbox.add(frame);
+			if (writing.compareAndSet(false, true)) { loop.execute(this::startWriting); }
+		}
+
+		/**
+		 * Writes what can be written, and waits for the channel to be writable if needed.
+		 */
+		void startWriting() {
+			if (key == null || !key.isValid()) return;
+			try {
+				if (!write()) {
+					key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+				} else {
+					stopWriting();
+				}
+			} catch (final IOException e) {
+				closed(key);
+			}
+		}
+
+		/**
+		 * Stops waiting for the channel to be writable, unless frames have been queued in the meantime.
+		 */
+		void stopWriting() {
+			key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+			writing.set(false);
+			if (!outbox.isEmpty() && writing.compareAndSet(false, true)) { startWriting(); }
+		}
+
+		/**
+		 * Writes the pending frames, gathered in the buffer of the loop.
+		 *
+		 * @return true, if everything has been written
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		boolean write() throws IOException {
+			final ByteBuffer buffer = loop.writeBuffer;
+			while (true) {
+				buffer.clear();
+				while (buffer.hasRemaining()) {
+					ByteBuffer head = unsent.peekFirst();
+					if (head == null) {
+						final byte[] frame = outbox.poll();
+						if (frame == null) { break; }
+						head = ByteBuffer.wrap(frame);
+						unsent.addFirst(head);
+					}
+					final int n = Math.min(buffer.remaining(), head.remaining());
+					buffer.put(head.array(), head.arrayOffset() + head.position(), n);
+					head.position(head.position() + n);
+					if (!head.hasRemaining()) { unsent.pollFirst(); }
+				}
+				buffer.flip();
+				if (!buffer.hasRemaining()) return true;
+				channel.write(buffer);
+				if (buffer.hasRemaining()) {
+					// The socket is full: the bytes not written go back in front of the others
+					final byte[] rest = new byte[buffer.remaining()];
+					buffer.get(rest);
+					unsent.addFirst(ByteBuffer.wrap(rest));
+					return false;
+				}
+			}
+		}
+
+		@Override
+		public void handle(final SelectionKey k) throws IOException {
+			if (k.isReadable()) { read(); }
+			if (k.isValid() && k.isWritable() && write()) { stopWriting(); }
+		}
+
+		/**
+		 * Reads what is available on the channel and decodes the complete frames.
+		 *
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		void read() throws IOException {
+			final ByteBuffer buffer = loop.readBuffer;
+			int n;
+			do {
+				buffer.clear();
+				n = channel.read(buffer);
+				if (n < 0) throw new IOException("Connection closed");
+				buffer.flip();
+				if (partial == null) {
+					decode(buffer);
+					if (buffer.hasRemaining()) {
+						final int remaining = buffer.remaining();
+						partial = copy(buffer, capacity(buffer, buffer.position(), remaining, remaining, 0));
+					}
+				} else {
+					if (partial.remaining() < buffer.remaining()) {
+						final int capacity = capacity(partial, 0, partial.position(),
+								partial.position() + buffer.remaining(), partial.capacity());
+						partial = copy(partial.flip(), capacity);
+					}
+					partial.put(buffer);
+					partial.flip();
+					decode(partial);
+					if (partial.hasRemaining()) {
+						partial.compact();
+					} else {
+						partial = null;
+					}
+				}
+			} while (n == buffer.capacity());
+		}
+
+		/**
+		 * Returns the capacity of the buffer that keeps the beginning of a frame. Once the length prefix is known, the
+		 * whole frame is allocated at once; otherwise the buffer at least doubles, so that a frame received in many
+		 * reads is not copied again after each of them.
+		 *
+		 * @param pending
+		 *            the buffer in which the beginning of the frame is
+		 * @param start
+		 *            the index of the beginning of the frame in this buffer
+		 * @param available
+		 *            the number of bytes of the frame already in this buffer
+		 * @param needed
+		 *            the number of bytes to keep
+		 * @param current
+		 *            the current capacity (0 if there is no buffer yet)
+		 * @return the capacity
+		 */
+		int capacity(final ByteBuffer pending, final int start, final int available, final int needed,
+				final int current) {
+			if (available >= 4) {
+				final int length = pending.getInt(start);
+				if (length >= 0 && length <= MAX_FRAME_SIZE) return Math.max(needed, 4 + length);
+			}
+			return Math.max(needed, 2 * current);
+		}
+
+		/**
+		 * Copies the remaining bytes of a buffer in a new heap buffer, ready to be appended to.
+		 *
+		 * @param source
+		 *            the source
+		 * @param capacity
+		 *            the capacity of the new buffer
+		 * @return the byte buffer
+		 */
+		ByteBuffer copy(final ByteBuffer source, final int capacity) {
+			final ByteBuffer result = ByteBuffer.allocate(Math.max(capacity, 1024));
+			result.put(source);
+			return result;
+		}
+
+		/**
+		 * Decodes the complete frames of a buffer, and leaves the remaining bytes in it.
+		 *
+		 * @param buffer
+		 *            the buffer
+		 * @throws IOException
+		 *             Signals that an I/O exception has occurred.
+		 */
+		void decode(final ByteBuffer buffer) throws IOException {
+			while (buffer.remaining() >= 4) {
+				final int length = buffer.getInt(buffer.position());
+				if (length < 0 || length > MAX_FRAME_SIZE) throw new IOException("Invalid frame length " + length);
+				if (buffer.remaining() < 4 + length) return;
+				buffer.position(buffer.position() + 4);
+				final byte[] bytes = new byte[length];
+				buffer.get(bytes);
+				senders.add(name);
+				messages.add(new String(bytes, StandardCharsets.UTF_8));
+			}
+			if (!messages.isEmpty()) { loop.received(NIOSocketService.this); }
+		}
+
+		@Override
+		public void closed(final SelectionKey k) {
+			if (k != null) { k.cancel(); }
+			try {
+				channel.close();
+			} catch (final IOException e) {}
+			connections.remove(name);
+			if (this == client) { isOnline = false; }
+			DEBUG.OUT(name + " disconnected");
+		}
+	}
+
+	/** The connector. */
+	protected final TCPConnector connector;
+
+	/** The agent that owns the server, if any. */
+	protected final IAgent myAgent;
+
+	/** The server, for a client. */
+	protected final String server;
+
+	/** The port. */
+	protected final int port;
+
+	/** The loop that handles the channels. */
+	NIOEventLoop loop;
+
+	/** The channel of the server, if this service is a server. */
+	ServerSocketChannel serverChannel;
+
+	/** The connection to the server, if this service is a client. */
+	Connection client;
+
+	/** The clients connected to the server, indexed by name. */
+	final Map<String, Connection> connections = new ConcurrentHashMap<>();
+
+	/** The senders and the contents of the messages received during the current iteration of the loop. */
+	final List<String> senders = new ArrayList<>(), messages = new ArrayList<>();
+
+	/** The is online. */
+	protected volatile boolean isOnline;
+
+	/**
+	 * Instantiates a new server.
+	 *
+	 * @param agent
+	 *            the agent
+	 * @param port
+	 *            the port
+	 * @param connector
+	 *            the connector
+	 */
+	public NIOSocketService(final IAgent agent, final int port, final TCPConnector connector) {
+		this.myAgent = agent;
+		this.server = null;
+		this.port = port;
+		this.connector = connector;
+	}
+
+	/**
+	 * Instantiates a new client.
+	 *
+	 * @param server
+	 *            the server
+	 * @param port
+	 *            the port
+	 * @param connector
+	 *            the connector
+	 */
+	public NIOSocketService(final String server, final int port, final TCPConnector connector) {
+		this.myAgent = null;
+		this.server = server;
+		this.port = port;
+		this.connector = connector;
+	}
+
+	/**
+	 * Checks if this service is a server.
+	 *
+	 * @return true, if is server
+	 */
+	public boolean isServer() { return server == null; }
+
+	@Override
+	public void startService() throws UnknownHostException, IOException {
+		loop = NIOEventLoop.next();
+		if (isServer()) {
+			serverChannel = ServerSocketChannel.open();
+			serverChannel.configureBlocking(false);
+			serverChannel.bind(new InetSocketAddress(port));
+			loop.execute(() -> {
+				try {
+					serverChannel.register(loop.selector, SelectionKey.OP_ACCEPT, this);
+				} catch (final IOException e) {
+					closed(null);
+				}
+			});
+		} else {
+			final SocketChannel channel = SocketChannel.open(new InetSocketAddress(server, port));
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			client = new Connection(channel);
+			register(client);
+		}
+		isOnline = true;
+	}
+
+	/**
+	 * Registers a connection in the loop.
+	 *
+	 * @param connection
+	 *            the connection
+	 */
+	void register(final Connection connection) {
+		loop.execute(() -> {
+			try {
+				connection.key = connection.channel.register(loop.selector, SelectionKey.OP_READ, connection);
+				// Frames may have been queued before the registration
+				if (!connection.outbox.isEmpty() && connection.writing.compareAndSet(false, true)) {
+					connection.startWriting();
+				}
+			} catch (final IOException e) {
+				connection.closed(connection.channel.keyFor(loop.selector));
+			}
+		});
+	}
+
+	/**
+	 * Accepts the new clients of the server.
+	 */
+	@Override
+	public void handle(final SelectionKey key) throws IOException {
+		SocketChannel channel;
+		while ((channel = serverChannel.accept()) != null) {
+			if (myAgent.dead()) {
+				channel.close();
+				stopService();
+				return;
+			}
+			channel.configureBlocking(false);
+			channel.socket().setTcpNoDelay(true);
+			final Connection connection = new Connection(channel);
+			connection.key = channel.register(loop.selector, SelectionKey.OP_READ, connection);
+			connections.put(connection.name, connection);
+			DEBUG.OUT(connection.name + " connected");
+			final IList<String> list_net_agents =
+					Cast.asList(myAgent.getScope(), myAgent.getAttribute(INetworkSkill.NET_AGENT_GROUPS));
+			if (list_net_agents != null && !list_net_agents.contains(connection.name)) {
+				list_net_agents.addValue(myAgent.getScope(), connection.name);
+				myAgent.setAttribute(INetworkSkill.NET_AGENT_GROUPS, list_net_agents);
+			}
+		}
+	}
+
+	@Override
+	public void closed(final SelectionKey key) {
+		DEBUG.LOG("Socket closed");
+		stopService();
+	}
+
+	/**
+	 * Delivers the messages received during the iteration of the loop to the connector, in one batch.
+	 */
+	void deliver() {
+		try {
+			connector.receivedMessages(senders, messages);
+		} finally {
+			senders.clear();
+			messages.clear();
+		}
+	}
+
+	@Override
+	public void receivedMessage(final String sender, final String message) {
+		connector.receivedMessages(Collections.singletonList(sender), Collections.singletonList(message));
+	}
+
+	/**
+	 * Builds the frame of a message.
+	 *
+	 * @param message
+	 *            the message
+	 * @return the frame
+	 */
+	static byte[] frame(final String message) {
+		final byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+		final byte[] frame = new byte[4 + bytes.length];
+		ByteBuffer.wrap(frame).putInt(bytes.length).put(bytes);
+		return frame;
+	}
+
+	@Override
+	public void sendMessage(final String message, final String receiver) throws IOException {
+		if (!isOnline()) return;
+		final Connection connection = isServer() ? connections.get(receiver) : client;
+		if (connection != null) { connection.send(frame(message)); }
+	}
+
+	@Override
+	public void sendMessage(final String message) throws IOException {
+		if (!isOnline() || isServer()) return;
+		client.send(frame(message));
+	}
+
+	@Override
+	public boolean isOnline() { return isOnline; }
+
+	@Override
+	public void stopService() {
+		if (!isOnline) return;
+		isOnline = false;
+		loop.execute(() -> {
+			try {
+				if (serverChannel != null) { serverChannel.close(); }
+				for (final Connection connection : connections.values()) { connection.channel.close(); }
+				if (client != null) { client.channel.close(); }
+			} catch (final IOException e) {
+				DEBUG.LOG("Socket error" + e);
+			}
+			connections.clear();
+		});
+	}
+
+	@Override
+	public String getRemoteAddress() {
+		if (isServer()) return serverChannel == null ? null : serverChannel.socket().getInetAddress() + ":" + port;
+		return client == null ? null : client.channel.socket().getInetAddress() + ":" + port;
+	}
+
+	@Override
+	public String getLocalAddress() {
+		if (isServer()) return serverChannel == null ? null : serverChannel.socket().getLocalSocketAddress() + ":" + port;
+		return client == null ? null : client.channel.socket().getLocalAddress() + ":" + port;
+	}
+
+}
@@ -14,6 +14,7 @@ import java.io.IOException;
 import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.List;
 
 import msi.gama.extensions.messaging.GamaMessage;
 import msi.gama.metamodel.agent.IAgent;
@@ -21,12 +22,14 @@ import msi.gama.runtime.IScope;
 import ummisco.gama.network.common.CommandMessage;
 import ummisco.gama.network.common.CommandMessage.CommandType;
 import ummisco.gama.network.common.Connector;
+import ummisco.gama.network.common.ConnectorMessage;
 import ummisco.gama.network.common.GamaNetworkException;
 import ummisco.gama.network.common.IConnector;
 import ummisco.gama.network.common.MessageFactory;
 import ummisco.gama.network.common.MessageFactory.MessageType;
 import ummisco.gama.network.common.socket.AbstractProtocol;
 import ummisco.gama.network.common.socket.SocketService;
+import ummisco.gama.network.skills.INetworkSkill;
 
 /**
  * The Class TCPConnection.
@@ -72,6 +75,29 @@ public class TCPConnector extends Connector {
 		this.remoteBoxName = new ArrayList<>();
 	}
 
+	/**
+	 * Receives a batch of messages (the commands are applied, the other messages are stored in one batch).
+	 *
+	 * @param senders
+	 *            the senders
+	 * @param messages
+	 *            the messages
+	 */
+	protected void receivedMessages(final List<String> senders, final List<String> messages) {
+		final List<ConnectorMessage> batch = new ArrayList<>(messages.size());
+		for (int i = 0; i < messages.size(); i++) {
+			final String sender = senders.get(i);
+			final String message = messages.get(i);
+			if (MessageFactory.identifyMessageType(message).equals(MessageType.COMMAND_MESSAGE)) {
+				extractAndApplyCommand(sender, message);
+			} else {
+				final String r = isRaw() ? message : MessageFactory.unpackReceiverName(message);
+				batch.add(MessageFactory.unPackNetworkMessage(sender, r, message));
+			}
+		}
+		storeMessages(batch);
+	}
+
 	/**
 	 * Extract and apply command.
 	 *
@@ -98,7 +124,9 @@ public class TCPConnector extends Connector {
 
 		final String server = this.getConfigurationParameter(SERVER_URL);
 		final int port = Integer.valueOf(this.getConfigurationParameter(SERVER_PORT)).intValue();
-		if (this.isServer) {
+		if (INetworkSkill.NIO_TRANSPORT.equals(this.getConfigurationParameter(TRANSPORT))) {
+			socket = this.isServer ? new NIOSocketService(agent, port, this) : new NIOSocketService(server, port, this);
+		} else if (this.isServer) {
 			socket = new ServerService(agent, port, this);
 		} else {
 			socket = new ClientService(server, port, this);
@@ -10,7 +10,8 @@
  ********************************************************************************************************/
 package ummisco.gama.serializer.experiment;
 
-import com.thoughtworks.xstream.XStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.util.RandomUtils;
@@ -26,21 +27,31 @@ import msi.gama.runtime.IScope;
 import msi.gama.runtime.exceptions.GamaRuntimeException;
 import msi.gama.util.tree.GamaNode;
 import msi.gama.util.tree.GamaTree;
-import ummisco.gama.serializer.factory.StreamConverter;
-import ummisco.gama.serializer.gamaType.converters.ConverterScope;
-import ummisco.gama.serializer.gaml.ReverseOperators;
+import ummisco.gama.serializer.factory.BinarySnapshot;
+import ummisco.gama.serializer.factory.BinarySnapshot.Digest;
 
 /**
- * The Class ExperimentBackwardAgent.
+ * The Class ExperimentBackwardAgent. The successive states of the simulation are memorized as binary snapshots: a full
+ * snapshot every {@link #KEYFRAME_INTERVAL} steps, and in between, deltas that only contain what has changed since the
+ * previous step.
  */
 @experiment (IKeyword.MEMORIZE)
 public class ExperimentBackwardAgent extends ExperimentAgent {
 
+	/** The number of steps between two full snapshots. */
+	public static final int KEYFRAME_INTERVAL = 20;
+
 	/** The history tree. */
-	GamaTree<String> historyTree;
+	GamaTree<byte[]> historyTree;
 
 	/** The current node. */
-	GamaNode<String> currentNode;
+	GamaNode<byte[]> currentNode;
+
+	/** The digest of the state of the current node, against which the next delta is computed. */
+	Digest lastDigest;
+
+	/** The number of deltas written since the last full snapshot. */
+	int sinceKeyframe;
 
 	/**
 	 * Instantiates a new experiment backward agent.
@@ -66,7 +77,7 @@ public class ExperimentBackwardAgent extends ExperimentAgent {
 	public Object _init_(final IScope scope) {
 		super._init_(scope);
 		// Save simulation state in the history
-		final String state = ReverseOperators.serializeAgent(scope, this.getSimulation());
+		final byte[] state = snapshot(scope);
 
 		historyTree.setRoot(state);
 		currentNode = historyTree.getRoot();
@@ -80,7 +91,7 @@ public class ExperimentBackwardAgent extends ExperimentAgent {
 		final boolean result = super.step(scope);
 
 		// Save simulation state in the history
-		final String state = ReverseOperators.serializeAgent(scope, this.getSimulation());
+		final byte[] state = snapshot(scope);
 
 		currentNode = currentNode.addChild(state);
 
@@ -90,21 +101,57 @@ public class ExperimentBackwardAgent extends ExperimentAgent {
 		return result;
 	}
 
+	/**
+	 * Writes a snapshot of the simulation: a full one if the previous state is unknown or if the last full snapshot is
+	 * too old, otherwise a delta against the previous state.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @return the snapshot
+	 */
+	private byte[] snapshot(final IScope scope) {
+		final SavedAgent saved = new SavedAgent(scope, getSimulation());
+		final Digest previous = lastDigest == null || sinceKeyframe >= KEYFRAME_INTERVAL ? null : lastDigest;
+		lastDigest = new Digest();
+		sinceKeyframe = previous == null ? 0 : sinceKeyframe + 1;
+		return BinarySnapshot.write(scope, saved, previous, lastDigest);
+	}
+
+	/**
+	 * Restores the state memorized in a node: the deltas are applied, from the closest full snapshot above the node.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param node
+	 *            the node
+	 * @return the saved agent
+	 */
+	private SavedAgent restore(final IScope scope, final GamaNode<byte[]> node) {
+		final Deque<byte[]> snapshots = new ArrayDeque<>();
+		GamaNode<byte[]> n = node;
+		while (n != null) {
+			snapshots.push(n.getData());
+			if (!BinarySnapshot.isDelta(n.getData())) { break; }
+			n = n.getParent();
+		}
+		SavedAgent agent = null;
+		while (!snapshots.isEmpty()) { agent = BinarySnapshot.read(scope, snapshots.pop(), agent); }
+		return agent;
+	}
+
 	@Override
 	public boolean backward(final IScope scope) {
 		final boolean result = true;
-		GamaNode<String> previousNode;
+		GamaNode<byte[]> previousNode;
 
 		try {
 			if (canStepBack()) {
 				previousNode = currentNode.getParent();
-				final String previousState = previousNode.getData();
+				final byte[] previousState = previousNode.getData();
 
 				if (previousState != null) {
-					final XStream xstream = StreamConverter.loadAndBuild(scope, ConverterScope.class);
-
 					// get the previous state
-					final SavedAgent agt = (SavedAgent) xstream.fromXML(previousState);
+					final SavedAgent agt = restore(scope, previousNode);
 
 					// Update of the simulation
 					final SimulationAgent currentSimAgt = getSimulation();
@@ -127,6 +174,8 @@ public class ExperimentBackwardAgent extends ExperimentAgent {
 					}
 
 					currentNode = currentNode.getParent();
+					// The next step starts a new branch of the history, from a full snapshot
+					lastDigest = null;
 				}
 			}
 		} finally {
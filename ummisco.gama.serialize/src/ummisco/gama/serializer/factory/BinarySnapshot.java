@@ -0,0 +1,844 @@
+/*******************************************************************************************************
+ *
+ * BinarySnapshot.java, in ummisco.gama.serialize, is part of the source code of the GAMA modeling and simulation
+ * platform (v.1.8.2).
+ *
+ * (c) 2007-2022 UMI 209 UMMISCO IRD/SU & Partners (IRIT, MIAT, TLU, CTU)
+ *
+ * Visit https://github.com/gama-platform/gama for license information and contacts.
+ *
+ ********************************************************************************************************/
+package ummisco.gama.serializer.factory;
+
+import static msi.gama.common.geometry.GeometryUtils.GEOMETRY_FACTORY;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+import org.locationtech.jts.io.WKBWriter;
+
+import msi.gama.kernel.experiment.ITopLevelAgent;
+import msi.gama.kernel.simulation.SimulationAgent;
+import msi.gama.metamodel.agent.IAgent;
+import msi.gama.metamodel.agent.SavedAgent;
+import msi.gama.metamodel.shape.GamaPoint;
+import msi.gama.metamodel.shape.GamaShape;
+import msi.gama.metamodel.shape.IShape;
+import msi.gama.runtime.IScope;
+import msi.gama.runtime.exceptions.GamaRuntimeException;
+import msi.gama.util.GamaColor;
+import msi.gama.util.GamaList;
+import msi.gama.util.GamaListFactory;
+import msi.gama.util.GamaMap;
+import msi.gama.util.GamaMapFactory;
+import msi.gama.util.IList;
+import msi.gama.util.IMap;
+import msi.gaml.types.IType;
+import msi.gaml.types.Types;
+import ummisco.gama.serializer.gamaType.converters.ConverterScope;
+import ummisco.gama.serializer.gamaType.reference.ReferenceAgent;
+import ummisco.gama.serializer.gamaType.reference.ReferenceToAgent;
+
+/**
+ * A compact binary format for the trees of {@link SavedAgent} (a simulation and its micro-agents), used instead of the
+ * XStream text format to memorize the successive states of a simulation and to save simulations.
+ *
+ * The values are type-tagged; integers and sizes are written as variable-length integers, and each string (names of
+ * the attributes and species, string values) is written once per snapshot, and then referred to by its index. Agents
+ * are written as references (the path of their species and indexes), resolved when the simulation is restored. The
+ * values whose type has no binary form are written with XStream.
+ *
+ * A snapshot can be a delta against the previous one: only the attributes whose value has changed, and the agents
+ * that did not exist, are written. To detect the changes without reading the previous snapshot, the writer returns a
+ * {@link Digest} of the snapshot, i.e. the contents of the value of each attribute of each agent, and their hash.
+ *
+ * @author agent
+ * @since 1.8.2
+ */
+public class BinarySnapshot {
+
+	/** The magic number. */
+	static final int MAGIC = 'G' << 24 | 'S' << 16 | 'S' << 8 | '1';
+
+	/** The prefix of the snapshots written as text. */
+	public static final String TEXT_PREFIX = "GSS1:";
+
+	/** The kinds of snapshots. */
+	static final byte FULL = 0, DELTA = 1;
+
+	/** The types of values. */
+	static final byte NULL = 0, INT = 1, FLOAT = 2, TRUE = 3, FALSE = 4, STRING = 5, POINT = 6, COLOR = 7, LIST = 8,
+			MAP = 9, SHAPE = 10, AGENT = 11, OBJECT = 12;
+
+	/** The entries of an agent. */
+	static final byte END = 0, ATTRIBUTE = 1, REMOVED = 2, POPULATION = 3;
+
+	/** The kinds of micro-agents in a delta. */
+	static final byte NEW_AGENT = 0, CHANGED_AGENT = 1;
+
+	/**
+	 * The digest of an agent in a snapshot: the contents of the value of each of its attributes (what has been mixed in
+	 * its hash, whatever the strings written before) and their hash, and the digests of its micro-agents, indexed by
+	 * species and index. The contents are only compared when the hashes are equal.
+	 */
+	public static class Digest {
+
+		/** The names of the attributes. */
+		String[] names = new String[0];
+
+		/** The hashes of their values. */
+		long[] hashes = new long[0];
+
+		/** The contents of their values. */
+		long[][] contents = new long[0][];
+
+		/** The number of attributes. */
+		int size;
+
+		/** The micro-agents. */
+		Map<String, Map<Integer, Digest>> populations;
+
+		/**
+		 * Adds the value of an attribute.
+		 *
+		 * @param name
+		 *            the name
+		 * @param hash
+		 *            the hash
+		 * @param content
+		 *            the content
+		 */
+		void put(final String name, final long hash, final long[] content) {
+			if (size == names.length) {
+				final int capacity = Math.max(8, size * 2);
+				names = Arrays.copyOf(names, capacity);
+				hashes = Arrays.copyOf(hashes, capacity);
+				contents = Arrays.copyOf(contents, capacity);
+			}
+			names[size] = name;
+			contents[size] = content;
+			hashes[size++] = hash;
+		}
+
+		/**
+		 * Whether an attribute had the same value.
+		 *
+		 * @param name
+		 *            the name
+		 * @param hash
+		 *            the hash of the value
+		 * @param content
+		 *            the content of the value
+		 * @return true, if the attribute exists and its value is the same
+		 */
+		boolean isUnchanged(final String name, final long hash, final long[] content) {
+			final int i = indexOf(name);
+			return i >= 0 && hashes[i] == hash && Arrays.equals(contents[i], content);
+		}
+
+		/**
+		 * Returns the position of an attribute.
+		 *
+		 * @param name
+		 *            the name
+		 * @return the position, or -1
+		 */
+		int indexOf(final String name) {
+			for (int i = 0; i < size; i++) { if (names[i].equals(name)) return i; }
+			return -1;
+		}
+	}
+
+	/**
+	 * Instantiates a new binary snapshot.
+	 */
+	private BinarySnapshot() {}
+
+	/**
+	 * Writes a snapshot of an agent.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param agent
+	 *            the saved agent
+	 * @param previous
+	 *            the digest of the previous snapshot: if not null, a delta against it is written
+	 * @param digest
+	 *            if not null, filled with the digest of this snapshot
+	 * @return the bytes
+	 */
+	public static byte[] write(final IScope scope, final SavedAgent agent, final Digest previous,
+			final Digest digest) {
+		final Encoder encoder = new Encoder(scope);
+		encoder.writeInt(MAGIC);
+		encoder.write(previous == null ? FULL : DELTA);
+		encoder.writeAgent(agent, previous, digest == null ? new Digest() : digest);
+		return encoder.toByteArray();
+	}
+
+	/**
+	 * Whether a snapshot is a delta.
+	 *
+	 * @param snapshot
+	 *            the snapshot
+	 * @return true, if it is a delta
+	 */
+	public static boolean isDelta(final byte[] snapshot) {
+		return snapshot.length > 4 && snapshot[4] == DELTA;
+	}
+
+	/**
+	 * Reads a snapshot.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param snapshot
+	 *            the snapshot
+	 * @param base
+	 *            the agent read from the previous snapshot, if the snapshot is a delta
+	 * @return the saved agent
+	 */
+	public static SavedAgent read(final IScope scope, final byte[] snapshot, final SavedAgent base) {
+		final Decoder decoder = new Decoder(scope, snapshot);
+		if (decoder.readInt() != MAGIC) throw GamaRuntimeException.error("Not a binary snapshot", scope);
+		final boolean delta = decoder.read() == DELTA;
+		if (delta && base == null)
+			throw GamaRuntimeException.error("A delta snapshot cannot be read without its base", scope);
+		final Map<Integer, SavedAgent> candidates = new HashMap<>();
+		if (delta) { candidates.put(base.getIndex(), base); }
+		return decoder.readAgent(candidates, delta);
+	}
+
+	/**
+	 * Returns a snapshot as text (the prefix followed by the snapshot in base 64), to be stored where a string is
+	 * expected.
+	 *
+	 * @param snapshot
+	 *            the snapshot
+	 * @return the string
+	 */
+	public static String toText(final byte[] snapshot) {
+		return TEXT_PREFIX + Base64.getEncoder().encodeToString(snapshot);
+	}
+
+	/**
+	 * Restores a saved agent from a string that contains either a snapshot written by {@link #toText(byte[])} or an
+	 * agent serialized by XStream.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param text
+	 *            the text
+	 * @return the saved agent
+	 */
+	public static SavedAgent fromText(final IScope scope, final String text) {
+		return fromText(scope, text, null);
+	}
+
+	/**
+	 * Restores a saved agent from a string that contains either a snapshot written by {@link #toText(byte[])}, possibly
+	 * a delta against a base, or an agent serialized by XStream.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param text
+	 *            the text
+	 * @param base
+	 *            the agent read from the previous snapshot, if the snapshot is a delta
+	 * @return the saved agent
+	 */
+	public static SavedAgent fromText(final IScope scope, final String text, final SavedAgent base) {
+		final String s = text.trim();
+		if (s.startsWith(TEXT_PREFIX))
+			return read(scope, Base64.getDecoder().decode(s.substring(TEXT_PREFIX.length())), base);
+		return (SavedAgent) StreamConverter.loadAndBuild(scope, ConverterScope.class).fromXML(text);
+	}
+
+	/**
+	 * Whether a value, or one of its elements, is an agent (in which case it is written with XStream, which turns the
+	 * containers of agents into references resolved when the simulation is restored).
+	 *
+	 * @param value
+	 *            the value
+	 * @return true, if successful
+	 */
+	static boolean containsAgent(final Object value) {
+		if (value instanceof IAgent) return true;
+		if (value instanceof List) {
+			for (final Object o : (List<?>) value) { if (containsAgent(o)) return true; }
+		} else if (value instanceof Map) {
+			for (final Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+				if (containsAgent(e.getKey()) || containsAgent(e.getValue())) return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Writes the snapshots.
+	 */
+	static class Encoder extends ByteArrayOutputStream {
+
+		/** The scope. */
+		final IScope scope;
+
+		/** The strings already written, and their index. */
+		final Map<String, Integer> strings = new HashMap<>();
+
+		/** The strings, in the order in which they have been written. */
+		final List<String> order = new ArrayList<>();
+
+		/** The hash of the value being written. */
+		long hash;
+
+		/** The values mixed in the hash, i.e. the contents of the value being written. */
+		long[] mixed = new long[64];
+
+		/** The number of values mixed. */
+		int nbMixed;
+
+		/**
+		 * Instantiates a new encoder.
+		 *
+		 * @param scope
+		 *            the scope
+		 */
+		Encoder(final IScope scope) {
+			super(64 * 1024);
+			this.scope = scope;
+		}
+
+		/**
+		 * Mixes a value into the hash.
+		 *
+		 * @param v
+		 *            the v
+		 */
+		void mix(final long v) {
+			if (nbMixed == mixed.length) { mixed = Arrays.copyOf(mixed, nbMixed * 2); }
+			mixed[nbMixed++] = v;
+			long h = (hash ^ v) * 0x9E3779B97F4A7C15L;
+			h ^= h >>> 29;
+			hash = h;
+		}
+
+		/**
+		 * Writes an int (4 bytes).
+		 *
+		 * @param v
+		 *            the v
+		 */
+		void writeInt(final int v) {
+			write(v >>> 24);
+			write(v >>> 16);
+			write(v >>> 8);
+			write(v);
+		}
+
+		/**
+		 * Writes a double (8 bytes).
+		 *
+		 * @param d
+		 *            the d
+		 */
+		void writeDouble(final double d) {
+			final long v = Double.doubleToLongBits(d);
+			writeInt((int) (v >>> 32));
+			writeInt((int) v);
+			mix(v);
+		}
+
+		/**
+		 * Writes a positive int as a variable-length integer.
+		 *
+		 * @param v
+		 *            the v
+		 */
+		void writeVarInt(final int v) {
+			int value = v;
+			while ((value & ~0x7F) != 0) {
+				write(value & 0x7F | 0x80);
+				value >>>= 7;
+			}
+			write(value);
+			mix(v);
+		}
+
+		/**
+		 * Writes any int as a zigzag-encoded variable-length integer.
+		 *
+		 * @param v
+		 *            the v
+		 */
+		void writeZigZag(final int v) {
+			writeVarInt(v << 1 ^ v >> 31);
+		}
+
+		/**
+		 * Writes a string: its index if it has already been written, otherwise 0 followed by its UTF-8 bytes.
+		 *
+		 * @param s
+		 *            the s
+		 */
+		void writeString(final String s) {
+			final long h = hash;
+			final int m = nbMixed;
+			final Integer index = strings.get(s);
+			if (index != null) {
+				writeVarInt(index + 1);
+			} else {
+				writeVarInt(0);
+				final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				writeVarInt(bytes.length);
+				write(bytes, 0, bytes.length);
+				strings.put(s, order.size());
+				order.add(s);
+			}
+			// The hash only depends on the contents of the string, not on the way it is written
+			hash = h;
+			nbMixed = m;
+			mix(s.length());
+			for (int i = 0; i < s.length(); i++) { mix(s.charAt(i)); }
+		}
+
+		/**
+		 * Writes a type, by its name.
+		 *
+		 * @param type
+		 *            the type
+		 */
+		void writeType(final IType<?> type) {
+			writeString(type == null ? Types.NO_TYPE.getName() : type.getName());
+		}
+
+		/**
+		 * Writes an agent and its micro-agents. If previous is not null, only the attributes that have changed and
+		 * the removed ones are written.
+		 *
+		 * @param agent
+		 *            the agent
+		 * @param previous
+		 *            the digest of the agent in the previous snapshot
+		 * @param digest
+		 *            the digest of the agent in this snapshot
+		 */
+		void writeAgent(final SavedAgent agent, final Digest previous, final Digest digest) {
+			writeVarInt(agent.getIndex());
+			for (final Map.Entry<String, Object> entry : agent.entrySet()) {
+				final Object value = entry.getValue();
+				if (value instanceof ITopLevelAgent) { continue; }
+				final int mark = count;
+				final int nbStrings = order.size();
+				write(ATTRIBUTE);
+				writeString(entry.getKey());
+				hash = 0;
+				nbMixed = 0;
+				writeValue(value);
+				final long[] content = Arrays.copyOf(mixed, nbMixed);
+				digest.put(entry.getKey(), hash, content);
+				if (previous != null && previous.isUnchanged(entry.getKey(), hash, content)) {
+					rollback(mark, nbStrings);
+				}
+			}
+			if (previous != null) {
+				for (int i = 0; i < previous.size; i++) {
+					if (digest.indexOf(previous.names[i]) < 0) {
+						write(REMOVED);
+						writeString(previous.names[i]);
+					}
+				}
+			}
+			write(END);
+			final Map<String, List<SavedAgent>> populations = agent.getInnerPopulations();
+			if (populations != null) {
+				digest.populations = new HashMap<>();
+				for (final Map.Entry<String, List<SavedAgent>> entry : populations.entrySet()) {
+					write(POPULATION);
+					writeString(entry.getKey());
+					final List<SavedAgent> agents = entry.getValue();
+					writeVarInt(agents.size());
+					final Map<Integer, Digest> before = previous == null || previous.populations == null ? null
+							: previous.populations.get(entry.getKey());
+					final Map<Integer, Digest> after = new HashMap<>(agents.size() * 4 / 3 + 1);
+					for (final SavedAgent micro : agents) {
+						final Digest old = before == null ? null : before.get(micro.getIndex());
+						final Digest d = new Digest();
+						write(old == null ? NEW_AGENT : CHANGED_AGENT);
+						writeAgent(micro, old, d);
+						after.put(micro.getIndex(), d);
+					}
+					digest.populations.put(entry.getKey(), after);
+				}
+			}
+			write(END);
+		}
+
+		/**
+		 * Removes what has been written since a mark, including the strings.
+		 *
+		 * @param mark
+		 *            the mark
+		 * @param nbStrings
+		 *            the number of strings at the mark
+		 */
+		void rollback(final int mark, final int nbStrings) {
+			count = mark;
+			while (order.size() > nbStrings) { strings.remove(order.remove(order.size() - 1)); }
+		}
+
+		/**
+		 * Writes a value.
+		 *
+		 * @param value
+		 *            the value
+		 */
+		void writeValue(final Object value) {
+			if (value == null) {
+				writeTag(NULL);
+			} else if (value instanceof Integer) {
+				writeTag(INT);
+				writeZigZag((Integer) value);
+			} else if (value instanceof Double) {
+				writeTag(FLOAT);
+				writeDouble((Double) value);
+			} else if (value instanceof Boolean) {
+				writeTag((Boolean) value ? TRUE : FALSE);
+			} else if (value instanceof String) {
+				writeTag(STRING);
+				writeString((String) value);
+			} else if (value.getClass() == GamaPoint.class) {
+				final GamaPoint p = (GamaPoint) value;
+				writeTag(POINT);
+				writeDouble(p.x);
+				writeDouble(p.y);
+				writeDouble(p.z);
+			} else if (value.getClass() == GamaColor.class) {
+				final GamaColor c = (GamaColor) value;
+				writeTag(COLOR);
+				writeInt(c.getRGB());
+				mix(c.getRGB());
+			} else if (value instanceof IAgent && !(value instanceof ITopLevelAgent)) {
+				writeTag(AGENT);
+				final List<IAgent> path = new ArrayList<>();
+				IAgent agent = (IAgent) value;
+				while (agent != null && !(agent instanceof SimulationAgent)) {
+					path.add(agent);
+					agent = agent.getHost();
+				}
+				writeVarInt(path.size());
+				for (final IAgent a : path) {
+					writeString(a.getSpeciesName());
+					writeVarInt(a.getIndex());
+				}
+			} else if (value.getClass() == GamaList.class && !containsAgent(value)) {
+				final IList<?> list = (IList<?>) value;
+				writeTag(LIST);
+				writeType(list.getGamlType().getContentType());
+				writeVarInt(list.size());
+				for (final Object o : list) { writeValue(o); }
+			} else if (value.getClass() == GamaMap.class && !containsAgent(value)) {
+				final IMap<?, ?> map = (IMap<?, ?>) value;
+				writeTag(MAP);
+				writeType(map.getGamlType().getKeyType());
+				writeType(map.getGamlType().getContentType());
+				writeVarInt(map.size());
+				for (final Map.Entry<?, ?> e : map.entrySet()) {
+					writeValue(e.getKey());
+					writeValue(e.getValue());
+				}
+			} else if (value.getClass() == GamaShape.class && !hasAgentAttribute((GamaShape) value)) {
+				final GamaShape shape = (GamaShape) value;
+				writeTag(SHAPE);
+				final byte[] wkb = new WKBWriter(3).write(shape.getInnerGeometry());
+				writeVarInt(wkb.length);
+				write(wkb, 0, wkb.length);
+				for (final byte b : wkb) { mix(b); }
+				final Double depth = shape.getDepth();
+				writeValue(depth);
+				writeString(shape.getGeometricalType().name());
+				final Map<String, Object> attributes = new LinkedHashMap<>();
+				shape.forEachAttribute((k, v) -> {
+					attributes.put(k, v);
+					return true;
+				});
+				writeVarInt(attributes.size());
+				for (final Map.Entry<String, Object> e : attributes.entrySet()) {
+					writeString(e.getKey());
+					writeValue(e.getValue());
+				}
+			} else {
+				writeTag(OBJECT);
+				writeString(StreamConverter.convertObjectToStream(scope, value));
+			}
+		}
+
+		/**
+		 * Writes the tag of a value.
+		 *
+		 * @param tag
+		 *            the tag
+		 */
+		void writeTag(final byte tag) {
+			write(tag);
+			mix(tag);
+		}
+
+		/**
+		 * Whether one of the attributes of a shape is an agent.
+		 *
+		 * @param shape
+		 *            the shape
+		 * @return true, if successful
+		 */
+		static boolean hasAgentAttribute(final GamaShape shape) {
+			final boolean[] result = { false };
+			shape.forEachAttribute((k, v) -> {
+				if (containsAgent(v)) { result[0] = true; }
+				return !result[0];
+			});
+			return result[0];
+		}
+	}
+
+	/**
+	 * Reads the snapshots.
+	 */
+	static class Decoder {
+
+		/** The scope. */
+		final IScope scope;
+
+		/** The bytes. */
+		final byte[] bytes;
+
+		/** The position. */
+		int pos;
+
+		/** The strings read, by index. */
+		final List<String> strings = new ArrayList<>();
+
+		/**
+		 * Instantiates a new decoder.
+		 *
+		 * @param scope
+		 *            the scope
+		 * @param bytes
+		 *            the bytes
+		 */
+		Decoder(final IScope scope, final byte[] bytes) {
+			this.scope = scope;
+			this.bytes = bytes;
+		}
+
+		/**
+		 * Reads a byte.
+		 *
+		 * @return the byte
+		 */
+		byte read() {
+			if (pos >= bytes.length) throw GamaRuntimeException.error("Truncated binary snapshot", scope);
+			return bytes[pos++];
+		}
+
+		/**
+		 * Reads an int (4 bytes).
+		 *
+		 * @return the int
+		 */
+		int readInt() {
+			return (read() & 0xFF) << 24 | (read() & 0xFF) << 16 | (read() & 0xFF) << 8 | read() & 0xFF;
+		}
+
+		/**
+		 * Reads a double (8 bytes).
+		 *
+		 * @return the double
+		 */
+		double readDouble() {
+			final long high = readInt() & 0xFFFFFFFFL;
+			final long low = readInt() & 0xFFFFFFFFL;
+			return Double.longBitsToDouble(high << 32 | low);
+		}
+
+		/**
+		 * Reads a variable-length integer.
+		 *
+		 * @return the int
+		 */
+		int readVarInt() {
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = read();
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return value;
+		}
+
+		/**
+		 * Reads a zigzag-encoded integer.
+		 *
+		 * @return the int
+		 */
+		int readZigZag() {
+			final int v = readVarInt();
+			return v >>> 1 ^ -(v & 1);
+		}
+
+		/**
+		 * Reads a string.
+		 *
+		 * @return the string
+		 */
+		String readString() {
+			final int index = readVarInt();
+			if (index > 0) return strings.get(index - 1);
+			final int length = readVarInt();
+			final String s = new String(bytes, pos, length, StandardCharsets.UTF_8);
+			pos += length;
+			strings.add(s);
+			return s;
+		}
+
+		/**
+		 * Reads a type.
+		 *
+		 * @return the type
+		 */
+		IType<?> readType() {
+			final String name = readString();
+			final IType<?> type = scope == null ? null : scope.getType(name);
+			return type == null ? Types.NO_TYPE : type;
+		}
+
+		/**
+		 * Reads an agent and its micro-agents.
+		 *
+		 * @param candidates
+		 *            the agents of the previous snapshot that can be the base of this one, indexed by index
+		 * @param delta
+		 *            whether the agent is a delta against one of the candidates
+		 * @return the saved agent
+		 */
+		SavedAgent readAgent(final Map<Integer, SavedAgent> candidates, final boolean delta) {
+			final int index = readVarInt();
+			final SavedAgent base = delta ? candidates.get(index) : null;
+			if (delta && base == null)
+				throw GamaRuntimeException.error("Inconsistent delta snapshot: agent " + index + " is unknown", scope);
+			final Map<String, Object> variables = new LinkedHashMap<>();
+			if (base != null) { variables.putAll(base); }
+			for (byte tag = read(); tag != END; tag = read()) {
+				final String name = readString();
+				if (tag == ATTRIBUTE) {
+					variables.put(name, readValue());
+				} else {
+					variables.remove(name);
+				}
+			}
+			Map<String, List<SavedAgent>> populations = null;
+			for (byte tag = read(); tag != END; tag = read()) {
+				final String species = readString();
+				final int size = readVarInt();
+				final Map<Integer, SavedAgent> before = new HashMap<>();
+				final Map<String, List<SavedAgent>> previous = base == null ? null : base.getInnerPopulations();
+				if (previous != null && previous.get(species) != null) {
+					for (final SavedAgent a : previous.get(species)) { before.put(a.getIndex(), a); }
+				}
+				final List<SavedAgent> agents = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) { agents.add(readAgent(before, read() == CHANGED_AGENT)); }
+				if (populations == null) { populations = GamaMapFactory.createUnordered(); }
+				populations.put(species, agents);
+			}
+			return new SavedAgent(index, variables, populations);
+		}
+
+		/**
+		 * Reads a value.
+		 *
+		 * @return the object
+		 */
+		@SuppressWarnings ("unchecked")
+		Object readValue() {
+			final byte tag = read();
+			switch (tag) {
+				case NULL:
+					return null;
+				case INT:
+					return readZigZag();
+				case FLOAT:
+					return readDouble();
+				case TRUE:
+					return true;
+				case FALSE:
+					return false;
+				case STRING:
+					return readString();
+				case POINT:
+					return new GamaPoint(readDouble(), readDouble(), readDouble());
+				case COLOR: {
+					final int argb = readInt();
+					return new GamaColor(argb >> 16 & 0xFF, argb >> 8 & 0xFF, argb & 0xFF, argb >>> 24);
+				}
+				case AGENT: {
+					final int depth = readVarInt();
+					final List<String> species = new ArrayList<>(depth);
+					final List<Integer> indexes = new ArrayList<>(depth);
+					for (int i = 0; i < depth; i++) {
+						species.add(readString());
+						indexes.add(readVarInt());
+					}
+					return new ReferenceAgent(null, null, new ReferenceToAgent(species, indexes));
+				}
+				case LIST: {
+					final IType<?> type = readType();
+					final int size = readVarInt();
+					final IList<Object> list = GamaListFactory.create(type, size);
+					for (int i = 0; i < size; i++) { list.add(readValue()); }
+					return list;
+				}
+				case MAP: {
+					final IType<?> keyType = readType();
+					final IType<?> contentType = readType();
+					final int size = readVarInt();
+					final IMap<Object, Object> map = GamaMapFactory.create(keyType, contentType, size);
+					for (int i = 0; i < size; i++) { map.put(readValue(), readValue()); }
+					return map;
+				}
+				case SHAPE: {
+					final int length = readVarInt();
+					final GamaShape shape;
+					try {
+						shape = new GamaShape(new WKBReader(GEOMETRY_FACTORY)
+								.read(Arrays.copyOfRange(bytes, pos, pos + length)));
+					} catch (final ParseException e) {
+						throw GamaRuntimeException.create(e, scope);
+					}
+					pos += length;
+					final Object depth = readValue();
+					if (depth != null) { shape.setDepth((Double) depth); }
+					final IShape.Type type = IShape.Type.valueOf(readString());
+					if (type != shape.getGeometricalType()) { shape.setGeometricalType(type); }
+					final int size = readVarInt();
+					for (int i = 0; i < size; i++) { shape.setAttribute(readString(), readValue()); }
+					return shape;
+				}
+				case OBJECT:
+					return StreamConverter.convertStreamToObject(scope, readString());
+				default:
+					throw GamaRuntimeException.error("Unknown type of value in a binary snapshot: " + tag, scope);
+			}
+		}
+	}
+
+}
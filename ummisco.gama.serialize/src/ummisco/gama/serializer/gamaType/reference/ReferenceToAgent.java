@@ -57,6 +57,18 @@ public class ReferenceToAgent {
 		}
 	}
 
+	/**
+	 * Instantiates a new reference to agent from the path of the agent: the species and indexes of the agent and of
+	 * its hosts, up to the simulation.
+	 *
+	 * @param species the species
+	 * @param index the index
+	 */
+	public ReferenceToAgent(final List<String> species, final List<Integer> index) {
+		this.species = species;
+		this.index = index;
+	}
+
 	@Override
 	public String toString() {
 		String res = "";
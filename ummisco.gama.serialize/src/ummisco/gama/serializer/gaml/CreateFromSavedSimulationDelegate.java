@@ -16,8 +16,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import com.thoughtworks.xstream.XStream;
-
 import msi.gama.common.interfaces.ICreateDelegate;
 import msi.gama.kernel.simulation.SimulationPopulation;
 import msi.gama.metamodel.agent.SavedAgent;
@@ -27,8 +25,7 @@ import msi.gaml.statements.Arguments;
 import msi.gaml.statements.CreateStatement;
 import msi.gaml.types.IType;
 import msi.gaml.types.Types;
-import ummisco.gama.serializer.factory.StreamConverter;
-import ummisco.gama.serializer.gamaType.converters.ConverterScope;
+import ummisco.gama.serializer.factory.BinarySnapshot;
 
 /**
  * Class CreateFromSavecSimulationDelegate.
@@ -71,10 +68,8 @@ public class CreateFromSavedSimulationDelegate implements ICreateDelegate {
 		mock_inits.add(Collections.EMPTY_MAP);
 		pop.createAgents(scope, 1, mock_inits, false, shouldBeScheduled, null);
 
-		final XStream xstream = StreamConverter.loadAndBuild(scope, ConverterScope.class);
-
 		String stringFile = file.getBuffer().get(0);
-		final SavedAgent saveAgt = (SavedAgent) xstream.fromXML(stringFile);
+		final SavedAgent saveAgt = BinarySnapshot.fromText(scope, stringFile);
 
 		HashMap mapSavedAgt = new HashMap<String, Object>();
 		mapSavedAgt.put("SavedAgent", saveAgt);
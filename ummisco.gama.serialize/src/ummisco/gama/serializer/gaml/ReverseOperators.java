@@ -14,8 +14,6 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 
-import com.thoughtworks.xstream.XStream;
-
 import msi.gama.common.interfaces.IKeyword;
 import msi.gama.common.util.FileUtils;
 import msi.gama.kernel.experiment.ExperimentAgent;
@@ -26,9 +24,11 @@ import msi.gama.precompiler.GamlAnnotations.doc;
 import msi.gama.precompiler.GamlAnnotations.no_test;
 import msi.gama.precompiler.GamlAnnotations.operator;
 import msi.gama.runtime.IScope;
+import msi.gama.util.IList;
 import ummisco.gama.dev.utils.DEBUG;
+import ummisco.gama.serializer.factory.BinarySnapshot;
+import ummisco.gama.serializer.factory.BinarySnapshot.Digest;
 import ummisco.gama.serializer.factory.StreamConverter;
-import ummisco.gama.serializer.gamaType.converters.ConverterScope;
 
 /**
  * The Class ReverseOperators.
@@ -98,6 +98,19 @@ public class ReverseOperators {
 		return StreamConverter.convertObjectToStream(scope, new SavedAgent(scope, agent));
 	}
 
+	/**
+	 * Writes a binary snapshot of an agent, as text (used to save simulations in files).
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param agent
+	 *            the agent
+	 * @return the string
+	 */
+	public static String snapshotAgent(final IScope scope, final IAgent agent) {
+		return BinarySnapshot.toText(BinarySnapshot.write(scope, new SavedAgent(scope, agent), null, null));
+	}
+
 	/**
 	 * Un serialize simulation from file.
 	 *
@@ -135,14 +148,76 @@ public class ReverseOperators {
 			see = "restore_simulation_from_file")
 	@no_test
 	public static int unSerializeSimulationFromXML(final IScope scope, final String simul) {
-		final XStream xstream = StreamConverter.loadAndBuild(scope, ConverterScope.class);
-		final SavedAgent saveAgt = (SavedAgent) xstream.fromXML(simul);
+		final SavedAgent saveAgt = BinarySnapshot.fromText(scope, simul);
 		final ExperimentAgent expAgt = (ExperimentAgent) scope.getExperiment();
 		final SimulationAgent simAgent = expAgt.getSimulation();
 		simAgent.updateWith(scope, saveAgt);
 		return 1;
 	}
 
+	/**
+	 * Restores the current simulation from a history of snapshots.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param history
+	 *            the history
+	 * @return the int
+	 */
+	@operator (
+			value = "restore_simulation")
+	@doc (
+			value = "restores a simulation from a list of snapshots returned by snapshot_simulation: the first one is a full snapshot, and each of the next ones contains what has changed since the previous one. The state restored is the one of the last snapshot.",
+			comment = "This operator should be used in a reflex of an experiment and it will remove the current simulation and replace it by the new restored simulation",
+			see = "snapshot_simulation")
+	@no_test
+	public static int unSerializeSimulationFromHistory(final IScope scope, final IList<String> history) {
+		final ExperimentAgent expAgt = (ExperimentAgent) scope.getExperiment();
+		expAgt.getSimulation().updateWith(scope, readHistory(scope, history));
+		return 1;
+	}
+
+	/**
+	 * Takes a snapshot of the current simulation.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param history
+	 *            the snapshots taken before
+	 * @return the string
+	 */
+	@operator (
+			value = "snapshot_simulation")
+	@doc (
+			value = "returns a snapshot of the current simulation, as a string. If the list of the snapshots taken before is not empty, the snapshot only contains what has changed since the last of them, and the whole list is needed to restore it with restore_simulation.",
+			see = "restore_simulation")
+	@no_test
+	public static String snapshotSimulation(final IScope scope, final IList<String> history) {
+		final ExperimentAgent expAgt = (ExperimentAgent) scope.getExperiment();
+		Digest previous = null;
+		if (history != null && !history.isEmpty()) {
+			previous = new Digest();
+			BinarySnapshot.write(scope, readHistory(scope, history), null, previous);
+		}
+		return BinarySnapshot
+				.toText(BinarySnapshot.write(scope, new SavedAgent(scope, expAgt.getSimulation()), previous, null));
+	}
+
+	/**
+	 * Reads a history of snapshots.
+	 *
+	 * @param scope
+	 *            the scope
+	 * @param history
+	 *            the history
+	 * @return the saved agent of the last snapshot
+	 */
+	private static SavedAgent readHistory(final IScope scope, final IList<String> history) {
+		SavedAgent agent = null;
+		for (final String snapshot : history) { agent = BinarySnapshot.fromText(scope, snapshot, agent); }
+		return agent;
+	}
+
 	/**
 	 * Save agent.
 	 *
@@ -164,7 +239,7 @@ public class ReverseOperators {
 	public static int saveAgent(final IScope scope, final IAgent agent, final String pathname) {
 		final String path = FileUtils.constructAbsoluteFilePath(scope, pathname, false);
 
-		final String serializedAgent = serializeAgent(scope, agent);
+		final String serializedAgent = snapshotAgent(scope, agent);
 
 		final ExperimentAgent expAgt = (ExperimentAgent) scope.getExperiment();
 		final SimulationAgent simAgt = expAgt.getSimulation();